@@ -0,0 +1,62 @@
+package it.podlodowski.aeronmgmt.agent;
+
+import it.podlodowski.aeronmgmt.common.proto.ArchiveRecording;
+import org.agrona.IoUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Catalog reads of {@link ArchiveMetricsCollector}: a full refresh of the recording list, and the
+ * lookup of a single recording (the last one, the worst case of the linear scan).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ArchiveCatalogBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    int recordings;
+
+    private Path root;
+    private String clusterDir;
+
+    @Setup
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("catalog-bench");
+        Path cluster = root.resolve("cluster");
+        new SyntheticArchive().recordings(recordings).writeFor(cluster);
+        clusterDir = cluster.toString();
+        if (collectRecordings().size() != recordings) {
+            throw new IllegalStateException("Synthetic catalog was not read back");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        IoUtil.delete(root.toFile(), true);
+    }
+
+    @Benchmark
+    public List<ArchiveRecording> collectRecordings() {
+        // A new collector each time: the collector caches the list for 10 seconds
+        return new ArchiveMetricsCollector(clusterDir).collectRecordings();
+    }
+
+    @Benchmark
+    public ArchiveMetricsCollector.RecordingInfo lookupLastRecording() {
+        return new ArchiveMetricsCollector(clusterDir).lookupRecording(recordings - 1);
+    }
+}
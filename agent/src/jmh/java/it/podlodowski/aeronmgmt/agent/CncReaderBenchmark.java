@@ -0,0 +1,52 @@
+package it.podlodowski.aeronmgmt.agent;
+
+import org.agrona.IoUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One metrics tick's read of the CnC file: map, walk every counter, build the protobuf counters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CncReaderBenchmark {
+
+    @Param({"100", "1000", "10000", "50000"})
+    int counters;
+
+    private Path aeronDir;
+    private CncReader reader;
+
+    @Setup
+    public void setUp() throws IOException {
+        aeronDir = Files.createTempDirectory("cnc-bench");
+        SyntheticCncFile.create(aeronDir, counters).populate(counters).close();
+        reader = new CncReader(aeronDir.toString());
+        if (reader.read().counters.size() != counters) {
+            throw new IllegalStateException("Synthetic CnC file was not read back");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        IoUtil.delete(aeronDir.toFile(), true);
+    }
+
+    @Benchmark
+    public CncReader.CncSnapshot read() {
+        return reader.read();
+    }
+}
@@ -0,0 +1,74 @@
+package it.podlodowski.aeronmgmt.agent;
+
+import com.google.protobuf.CodedOutputStream;
+import it.podlodowski.aeronmgmt.common.proto.AeronCounter;
+import it.podlodowski.aeronmgmt.common.proto.ClusterMetrics;
+import it.podlodowski.aeronmgmt.common.proto.MetricsReport;
+import it.podlodowski.aeronmgmt.common.proto.SystemMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building a {@link MetricsReport} from counters already read, and serializing it for gRPC.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MetricsReportBenchmark {
+
+    @Param({"100", "1000", "10000", "50000"})
+    int counters;
+
+    private List<AeronCounter> counterList;
+    private MetricsReport report;
+    private byte[] output;
+
+    @Setup
+    public void setUp() {
+        report = StateChangeBufferBenchmark.report(counters, 2);
+        counterList = new ArrayList<>(report.getCountersList());
+        output = new byte[report.getSerializedSize() * 2];
+    }
+
+    @Benchmark
+    public MetricsReport build() {
+        return MetricsReport.newBuilder()
+                .setNodeId(0)
+                .setTimestamp(System.currentTimeMillis())
+                .setCncAccessible(true)
+                .setNodeReachable(true)
+                .addAllCounters(counterList)
+                .setClusterMetrics(ClusterMetrics.newBuilder()
+                        .setNodeRole("LEADER")
+                        .setConsensusModuleState("ACTIVE")
+                        .setCommitPosition(1024))
+                .setSystemMetrics(SystemMetrics.newBuilder().setCpuUsage(0.5))
+                .build();
+    }
+
+    @Benchmark
+    public byte[] toByteArray() {
+        return report.toByteArray();
+    }
+
+    /**
+     * Serialization into a reused buffer: the cost of encoding alone, without the array allocation.
+     */
+    @Benchmark
+    public int writeToReusedBuffer() throws IOException {
+        CodedOutputStream stream = CodedOutputStream.newInstance(output);
+        report.writeTo(stream);
+        return stream.getTotalBytesWritten();
+    }
+}
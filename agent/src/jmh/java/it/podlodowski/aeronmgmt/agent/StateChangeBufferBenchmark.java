@@ -0,0 +1,66 @@
+package it.podlodowski.aeronmgmt.agent;
+
+import it.podlodowski.aeronmgmt.common.proto.AeronCounter;
+import it.podlodowski.aeronmgmt.common.proto.MetricsReport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link StateChangeBuffer#onMetrics} on every tick, for a steady node and for one whose role
+ * changes on every report.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StateChangeBufferBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    int counters;
+
+    private StateChangeBuffer buffer;
+    private MetricsReport follower;
+    private MetricsReport leader;
+    private boolean flip;
+
+    @Setup
+    public void setUp() {
+        buffer = new StateChangeBuffer(500);
+        follower = report(counters, 0);
+        leader = report(counters, 2);
+        buffer.onMetrics(follower);
+    }
+
+    @Benchmark
+    public void steady() {
+        buffer.onMetrics(follower);
+    }
+
+    @Benchmark
+    public void roleChange() {
+        flip = !flip;
+        buffer.onMetrics(flip ? leader : follower);
+    }
+
+    static MetricsReport report(int counters, long role) {
+        MetricsReport.Builder builder = MetricsReport.newBuilder()
+                .setNodeId(0)
+                .setTimestamp(System.currentTimeMillis());
+        for (int i = 0; i < counters; i++) {
+            int typeId = i == 0 ? 201 : i == 1 ? 200 : i == 2 ? 207 : 1 + i % 10;
+            builder.addCounters(AeronCounter.newBuilder()
+                    .setCounterId(i)
+                    .setTypeId(typeId)
+                    .setLabel("pos: " + i + " 101 aeron:udp?endpoint=10.0.0.1:9002")
+                    .setValue(typeId == 201 ? role : i * 1024L));
+        }
+        return builder.build();
+    }
+}
@@ -1,9 +1,15 @@
 package it.podlodowski.aeronmgmt.agent;
 
+import io.aeron.Aeron;
 import io.aeron.archive.ArchiveTool;
+import io.aeron.archive.client.AeronArchive;
 import io.aeron.cluster.ClusterTool;
+import io.aeron.cluster.RecordingLog;
+import io.aeron.cluster.service.ClusterCounters;
 import it.podlodowski.aeronmgmt.common.proto.AdminCommand;
+import it.podlodowski.aeronmgmt.common.proto.CommandProgress;
 import it.podlodowski.aeronmgmt.common.proto.CommandResult;
+import org.agrona.concurrent.status.CountersReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -19,6 +25,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Wraps Aeron {@link ClusterTool} and {@link ArchiveTool} operations.
@@ -29,19 +36,39 @@ public class AdminCommandExecutor {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AdminCommandExecutor.class);
 
+    private static final int CLUSTER_NODE_ROLE_TYPE_ID = 201;
+    private static final int ELECTION_STATE_TYPE_ID = 207;
+    private static final long ROLE_LEADER = 2;
+    private static final long ELECTION_CLOSED = 17;
+
+    /** Commands that can run for minutes on a large archive; their output is streamed. */
+    private static final Set<String> STREAMED_COMMANDS = Set.of(
+            "ARCHIVE_VERIFY", "ARCHIVE_VERIFY_RECORDING", "ARCHIVE_COMPACT",
+            "ARCHIVE_DELETE_ORPHANED", "ARCHIVE_DELETE_RECORDING");
+
     private final File clusterDir;
     private final File archiveDir;
     private final ArchiveMetricsCollector archiveMetrics;
     private final RecordingBytesReader bytesReader;
     private final SpyRecordingManager spyRecordingManager;
+    private final AeronClients aeronClients;
+    private final int aeronClusterId;
 
+    /**
+     * @param aeronClients   the media driver's shared clients, which may serve other nodes too
+     * @param aeronClusterId Aeron's cluster id of the node, which tells its counters apart from
+     *                       those of other nodes on the same media driver
+     */
     public AdminCommandExecutor(String clusterDirPath, ArchiveMetricsCollector archiveMetrics,
-                                SpyRecordingManager spyRecordingManager) {
+                                SpyRecordingManager spyRecordingManager, AeronClients aeronClients,
+                                int aeronClusterId) {
         this.clusterDir = new File(clusterDirPath);
         this.archiveDir = new File(clusterDir.getParentFile(), "archive");
         this.archiveMetrics = archiveMetrics;
         this.bytesReader = new RecordingBytesReader(archiveDir);
         this.spyRecordingManager = spyRecordingManager;
+        this.aeronClients = aeronClients;
+        this.aeronClusterId = aeronClusterId;
     }
 
     /**
@@ -51,19 +78,39 @@ public class AdminCommandExecutor {
      * @return the result of the command execution
      */
     public CommandResult execute(AdminCommand command) {
+        return execute(command, null);
+    }
+
+    /**
+     * Executes the given admin command. Output of long-running archive commands is streamed to
+     * {@code progressSink} as it is written and only its tail is kept in the result; all other
+     * commands return their full output in the result.
+     *
+     * @param command      the admin command to execute
+     * @param progressSink receives incremental output, or null to collect all output in the result
+     * @return the result of the command execution
+     */
+    public CommandResult execute(AdminCommand command, Consumer<CommandProgress> progressSink) {
         LOGGER.info("Executing command: {} (id: {})", command.getType(), command.getCommandId());
+        ByteArrayOutputStream baos = null;
+        CommandProgressStream progress = null;
+        if (progressSink != null && STREAMED_COMMANDS.contains(command.getType())) {
+            progress = new CommandProgressStream(command.getCommandId(), progressSink, expectedRecordings(command));
+        } else {
+            baos = new ByteArrayOutputStream();
+        }
+        PrintStream capture = new PrintStream(progress != null ? progress : baos);
+        CommandResult.Builder result = CommandResult.newBuilder();
         try {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            PrintStream capture = new PrintStream(baos);
-            boolean success = dispatch(command, capture);
+            boolean success = dispatch(command, capture, result);
             capture.flush();
-            String output = baos.toString();
+            String output = progress != null ? progress.finish() : baos.toString();
 
             String message = success
                     ? command.getType() + " completed successfully"
                     : command.getType() + " failed (ClusterTool returned false)";
             LOGGER.info("Command {} result: success={}, output length={}", command.getType(), success, output.length());
-            return CommandResult.newBuilder()
+            return result
                     .setCommandId(command.getCommandId())
                     .setSuccess(success)
                     .setMessage(message)
@@ -71,6 +118,10 @@ public class AdminCommandExecutor {
                     .build();
         } catch (Exception e) {
             LOGGER.error("Command failed: {}", command.getType(), e);
+            if (progress != null) {
+                capture.flush();
+                progress.finish();
+            }
             return CommandResult.newBuilder()
                     .setCommandId(command.getCommandId())
                     .setSuccess(false)
@@ -79,7 +130,21 @@ public class AdminCommandExecutor {
         }
     }
 
-    private boolean dispatch(AdminCommand command, PrintStream out) throws Exception {
+    /**
+     * Number of recordings a streamed command reports on, used to estimate progress; -1 if unknown.
+     */
+    private int expectedRecordings(AdminCommand command) {
+        switch (command.getType()) {
+            case "ARCHIVE_VERIFY":
+                return archiveMetrics.collectRecordings().size();
+            case "ARCHIVE_VERIFY_RECORDING":
+                return 1;
+            default:
+                return -1;
+        }
+    }
+
+    private boolean dispatch(AdminCommand command, PrintStream out, CommandResult.Builder structured) throws Exception {
         switch (command.getType()) {
             // --- Mutating actions: (File, PrintStream) → boolean ---
             case "SNAPSHOT":
@@ -101,24 +166,53 @@ public class AdminCommandExecutor {
             // --- Read-only diagnostics: (PrintStream, File) → void ---
             case "DESCRIBE":
                 ClusterTool.describe(out, clusterDir);
+                structured.setDescription(ClusterDiagnostics.describe(clusterDir));
                 return true;
             case "PID":
                 ClusterTool.pid(out, clusterDir);
                 return true;
-            case "RECOVERY_PLAN":
-                ClusterTool.recoveryPlan(out, clusterDir, 1);
+            case "RECOVERY_PLAN": {
+                int serviceCount = Integer.parseInt(command.getParametersOrDefault("serviceCount", "1"));
+                if (aeronClients.archive() == null) {
+                    // No local archive client: fall back to ClusterTool's own connection, text only
+                    ClusterTool.recoveryPlan(out, clusterDir, serviceCount);
+                    return true;
+                }
+                try (RecordingLog recordingLog = new RecordingLog(clusterDir, false)) {
+                    RecordingLog.RecoveryPlan plan = aeronClients.withArchive(
+                            archive -> recordingLog.createRecoveryPlan(archive, serviceCount, Aeron.NULL_VALUE));
+                    out.println(plan);
+                    structured.setRecoveryPlan(ClusterDiagnostics.recoveryPlan(plan));
+                }
                 return true;
+            }
             case "RECORDING_LOG":
-                ClusterTool.recordingLog(out, clusterDir);
+                try (RecordingLog recordingLog = new RecordingLog(clusterDir, false)) {
+                    out.println(recordingLog);
+                    structured.setRecordingLog(ClusterDiagnostics.recordingLog(recordingLog.entries()));
+                }
                 return true;
             case "ERRORS":
                 ClusterTool.errors(out, clusterDir);
                 return true;
-            case "LIST_MEMBERS":
-                ClusterTool.listMembers(out, clusterDir);
-                return true;
+            case "LIST_MEMBERS": {
+                ClusterMembership membership = new ClusterMembership();
+                boolean ok = ClusterTool.listMembers(membership, clusterDir, 5000);
+                if (ok) {
+                    out.println("currentTimeNs=" + membership.currentTimeNs
+                            + ", leaderMemberId=" + membership.leaderMemberId
+                            + ", memberId=" + membership.memberId
+                            + ", activeMembers=" + membership.activeMembers
+                            + ", passiveMembers=" + membership.passiveMembers);
+                    structured.setMembers(ClusterDiagnostics.members(membership));
+                } else {
+                    out.println("timeout waiting for response from node");
+                }
+                return ok;
+            }
             case "IS_LEADER": {
-                int result = ClusterTool.isLeader(out, clusterDir);
+                Aeron aeron = aeronClients.aeron();
+                int result = aeron != null ? isLeader(aeron.countersReader(), aeronClusterId) : ClusterTool.isLeader(out, clusterDir);
                 out.println("isLeader result: " + result + " (0=leader, 1=not leader)");
                 return true;
             }
@@ -132,6 +226,34 @@ public class AdminCommandExecutor {
                 ArchiveTool.describeRecording(out, archiveDir, recordingId);
                 return true;
             }
+            case "ARCHIVE_LIST_RECORDINGS": {
+                long fromRecordingId = Long.parseLong(command.getParametersOrDefault("fromRecordingId", "0"));
+                int count = Integer.parseInt(command.getParametersOrDefault("count", "100"));
+                List<AeronClients.ArchivedRecording> recordings = aeronClients.listRecordings(fromRecordingId, count);
+                for (AeronClients.ArchivedRecording r : recordings) {
+                    out.println("recordingId=" + r.recordingId()
+                            + ", streamId=" + r.streamId()
+                            + ", sessionId=" + r.sessionId()
+                            + ", startPosition=" + r.startPosition()
+                            + ", stopPosition=" + r.stopPosition()
+                            + ", startTimestamp=" + r.startTimestamp()
+                            + ", stopTimestamp=" + r.stopTimestamp()
+                            + ", channel=" + r.channel()
+                            + ", sourceIdentity=" + r.sourceIdentity());
+                }
+                out.println(recordings.size() + " recording(s) from " + fromRecordingId);
+                return true;
+            }
+            case "ARCHIVE_RECORDING_POSITION": {
+                long recordingId = Long.parseLong(command.getParametersOrThrow("recordingId"));
+                long recordingPosition = aeronClients.recordingPosition(recordingId);
+                long stopPosition = aeronClients.stopPosition(recordingId);
+                out.println("recordingId=" + recordingId
+                        + ", active=" + (recordingPosition != AeronArchive.NULL_POSITION)
+                        + ", recordingPosition=" + recordingPosition
+                        + ", stopPosition=" + stopPosition);
+                return true;
+            }
             case "ARCHIVE_VERIFY":
                 return ArchiveTool.verify(out, archiveDir, Set.of(), null, f -> true);
             case "ARCHIVE_VERIFY_RECORDING": {
@@ -213,6 +335,23 @@ public class AdminCommandExecutor {
         }
     }
 
+    /**
+     * Same check as {@link ClusterTool#isLeader}, on the shared client's counters instead of a new client.
+     * The driver may carry the counters of several nodes, so only those keyed by the node's cluster id
+     * are read.
+     *
+     * @return 0 if this node is leader with its election closed, 1 otherwise
+     */
+    static int isLeader(CountersReader counters, int aeronClusterId) {
+        int roleCounterId = ClusterCounters.find(counters, CLUSTER_NODE_ROLE_TYPE_ID, aeronClusterId);
+        int electionCounterId = ClusterCounters.find(counters, ELECTION_STATE_TYPE_ID, aeronClusterId);
+        if (roleCounterId == CountersReader.NULL_COUNTER_ID || electionCounterId == CountersReader.NULL_COUNTER_ID) {
+            return 1;
+        }
+        return counters.getCounterValue(roleCounterId) == ROLE_LEADER
+                && counters.getCounterValue(electionCounterId) == ELECTION_CLOSED ? 0 : 1;
+    }
+
     private String serializeMembership(ClusterMembership membership) {
         StringBuilder sb = new StringBuilder();
         sb.append("{");
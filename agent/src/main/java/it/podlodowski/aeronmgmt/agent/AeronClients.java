@@ -0,0 +1,193 @@
+package it.podlodowski.aeronmgmt.agent;
+
+import io.aeron.Aeron;
+import io.aeron.archive.client.AeronArchive;
+import io.aeron.archive.client.ArchiveException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * The {@link Aeron} and {@link AeronArchive} clients of one node, used by everything in the agent
+ * that talks to the node's media driver and archive: spy recordings, the traffic profiler, the
+ * commit latency tracker and admin commands.
+ *
+ * <p>Connecting an Aeron client costs a driver round trip and shows up on the node as a client
+ * registration; doing it per admin command made every click in the UI cost hundreds of milliseconds.
+ * The Aeron client comes from an {@link AeronConnection} shared by the nodes on the same driver.
+ * The archive client is the node's own: nodes of several clusters on one driver each have an
+ * archive listening on its own control stream, the one in the node's cluster mark file. Clients
+ * connect lazily on first use and reconnect after the driver or archive went away, at most once
+ * per {@link #RECONNECT_INTERVAL_MS} so a dead driver is not hammered.
+ *
+ * <p>Returned clients are thread-safe; callers must not close them.
+ */
+public class AeronClients implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AeronClients.class);
+
+    static final long RECONNECT_INTERVAL_MS = 5_000;
+    private static final String CONTROL_CHANNEL = "aeron:ipc?term-length=64k";
+
+    private final AeronConnection connection;
+    private final boolean ownsConnection;
+    private final int archiveControlStreamId;
+
+    private AeronArchive archive;
+    private long lastArchiveAttemptMs = -RECONNECT_INTERVAL_MS;
+    private boolean closed;
+
+    /**
+     * Clients with a connection of their own and the default archive control stream.
+     */
+    public AeronClients(String aeronDir) {
+        this(new AeronConnection(aeronDir), true, AeronArchive.Configuration.controlStreamId());
+    }
+
+    /**
+     * @param connection             the shared client of the node's media driver, closed by its owner
+     * @param archiveControlStreamId the control request stream of the node's archive
+     */
+    public AeronClients(AeronConnection connection, int archiveControlStreamId) {
+        this(connection, false, archiveControlStreamId);
+    }
+
+    private AeronClients(AeronConnection connection, boolean ownsConnection, int archiveControlStreamId) {
+        this.connection = connection;
+        this.ownsConnection = ownsConnection;
+        this.archiveControlStreamId = archiveControlStreamId;
+    }
+
+    /**
+     * Returns the connected Aeron client, connecting if needed, or null if the driver is unavailable.
+     */
+    public Aeron aeron() {
+        return connection.aeron();
+    }
+
+    /**
+     * Returns the connected archive client, connecting if needed, or null if the archive is unavailable.
+     */
+    public synchronized AeronArchive archive() {
+        if (closed) {
+            return null;
+        }
+        Aeron client = aeron();
+        if (client == null) {
+            return null;
+        }
+        if (archive != null && archive.context().aeron() != client) {
+            closeArchive();  // the driver connection was re-established underneath it
+        }
+        if (archive != null) {
+            return archive;
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastArchiveAttemptMs < RECONNECT_INTERVAL_MS) {
+            return null;
+        }
+        lastArchiveAttemptMs = now;
+        try {
+            archive = AeronArchive.connect(new AeronArchive.Context()
+                    .aeron(client)
+                    .controlRequestChannel(CONTROL_CHANNEL)
+                    .controlRequestStreamId(archiveControlStreamId)
+                    .controlResponseChannel(CONTROL_CHANNEL));
+            LOGGER.info("Connected to AeronArchive on control stream {}", archiveControlStreamId);
+        } catch (Exception e) {
+            LOGGER.warn("Failed to connect to AeronArchive on control stream {}: {}",
+                    archiveControlStreamId, e.getMessage());
+        }
+        return archive;
+    }
+
+    /**
+     * Runs an archive request. Errors reported by the archive itself (unknown recording, …) leave the
+     * connection in place; anything else — timeouts, a restarted archive — drops it so the next
+     * request reconnects.
+     *
+     * @throws IllegalStateException if the archive is not connected
+     */
+    public <T> T withArchive(Function<AeronArchive, T> request) {
+        AeronArchive client = archive();
+        if (client == null) {
+            throw new IllegalStateException("AeronArchive not connected");
+        }
+        try {
+            return request.apply(client);
+        } catch (ArchiveException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            resetArchive(client);
+            throw e;
+        }
+    }
+
+    /**
+     * Lists up to {@code count} recordings from the archive catalog, starting at {@code fromRecordingId}.
+     */
+    public List<ArchivedRecording> listRecordings(long fromRecordingId, int count) {
+        List<ArchivedRecording> recordings = new ArrayList<>();
+        withArchive(client -> client.listRecordings(fromRecordingId, count,
+                (controlSessionId, correlationId, recordingId, startTimestamp, stopTimestamp,
+                 startPosition, stopPosition, initialTermId, segmentFileLength, termBufferLength,
+                 mtuLength, sessionId, streamId, strippedChannel, originalChannel, sourceIdentity) ->
+                        recordings.add(new ArchivedRecording(recordingId, startTimestamp, stopTimestamp,
+                                startPosition, stopPosition, sessionId, streamId, strippedChannel, sourceIdentity))));
+        return recordings;
+    }
+
+    /**
+     * Returns the live position of an active recording, or {@link AeronArchive#NULL_POSITION} if it is not active.
+     */
+    public long recordingPosition(long recordingId) {
+        return withArchive(client -> client.getRecordingPosition(recordingId));
+    }
+
+    /**
+     * Returns the stop position of a recording, or {@link AeronArchive#NULL_POSITION} while it is still active.
+     */
+    public long stopPosition(long recordingId) {
+        return withArchive(client -> client.getStopPosition(recordingId));
+    }
+
+    private synchronized void resetArchive(AeronArchive failed) {
+        if (archive == failed) {
+            LOGGER.warn("Dropping AeronArchive connection after failed request, will reconnect");
+            closeArchive();
+        }
+    }
+
+    private void closeArchive() {
+        if (archive != null) {
+            try { archive.close(); } catch (Exception ignored) {}
+            archive = null;
+            // Allow an immediate reconnect: the failure was on the connection, not the archive
+            lastArchiveAttemptMs = -RECONNECT_INTERVAL_MS;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        closeArchive();
+        if (ownsConnection) {
+            connection.close();
+        }
+    }
+
+    public record ArchivedRecording(
+            long recordingId,
+            long startTimestamp,
+            long stopTimestamp,
+            long startPosition,
+            long stopPosition,
+            int sessionId,
+            int streamId,
+            String channel,
+            String sourceIdentity
+    ) {}
+}
@@ -0,0 +1,66 @@
+package it.podlodowski.aeronmgmt.agent;
+
+import io.aeron.Aeron;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Long-lived {@link Aeron} client of one media driver, shared by every node the agent monitors on
+ * that driver.
+ *
+ * <p>The client connects lazily on first use and reconnects after the driver went away, at most
+ * once per {@link AeronClients#RECONNECT_INTERVAL_MS} so a dead driver is not hammered.
+ */
+public class AeronConnection implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AeronConnection.class);
+
+    private final String aeronDir;
+
+    private Aeron aeron;
+    private long lastAttemptMs = -AeronClients.RECONNECT_INTERVAL_MS;
+    private boolean closed;
+
+    public AeronConnection(String aeronDir) {
+        this.aeronDir = aeronDir;
+    }
+
+    /**
+     * Returns the connected Aeron client, connecting if needed, or null if the driver is unavailable.
+     */
+    public synchronized Aeron aeron() {
+        if (closed) {
+            return null;
+        }
+        if (aeron != null && !aeron.isClosed()) {
+            return aeron;
+        }
+        if (aeron != null) {
+            LOGGER.warn("Aeron client was closed, reconnecting to {}", aeronDir);
+            aeron = null;
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastAttemptMs < AeronClients.RECONNECT_INTERVAL_MS) {
+            return null;
+        }
+        lastAttemptMs = now;
+        try {
+            aeron = Aeron.connect(new Aeron.Context()
+                    .aeronDirectoryName(aeronDir)
+                    .errorHandler(t -> LOGGER.warn("Aeron client error: {}", t.getMessage())));
+            LOGGER.info("Connected Aeron client to {}", aeronDir);
+        } catch (Exception e) {
+            LOGGER.warn("Failed to connect Aeron client to {}: {}", aeronDir, e.getMessage());
+        }
+        return aeron;
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (aeron != null) {
+            try { aeron.close(); } catch (Exception ignored) {}
+            aeron = null;
+        }
+    }
+}
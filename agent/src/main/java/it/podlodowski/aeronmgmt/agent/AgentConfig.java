@@ -1,26 +1,77 @@
 package it.podlodowski.aeronmgmt.agent;
 
+import java.util.Arrays;
 import java.util.UUID;
 
 public class AgentConfig {
     public final String managementServerHost;
     public final int managementServerPort;
     public final String clusterDirTemplate;
+    public final String scanRoot;
     public final long metricsIntervalMs;
+    public final long fastIntervalMs;
+    public final long slowIntervalMs;
+    public final long fastHoldMs;
+    public final long steadyAfterMs;
+    public final int metricsBatchSize;
     public final String agentId;
     public final long cncFailureTimeoutMs;
     public final String clusterId;
     public final int stateBufferSize;
+    public final int[] stateCounterTypeIds;
+    public final long stateWatchIntervalMs;
+    public final int[] trafficProfileStreamIds;
+    public final boolean commitLatencyEnabled;
+    public final int ingressStreamId;
+    public final int logStreamId;
+    public final int commandThreads;
+    public final int commandQueueCapacity;
+    public final long commandTimeoutMs;
+    public final String spoolDir;
+    public final int spoolSizeMb;
+    public final long spoolMaxAgeMs;
+    public final int spoolReplayRate;
+    public final long reconnectBaseMs;
+    public final long reconnectMaxMs;
 
     public AgentConfig() {
         this.managementServerHost = env("AERON_MANAGEMENT_SERVER_HOST", "localhost");
         this.managementServerPort = Integer.parseInt(env("AERON_MANAGEMENT_SERVER_PORT", "8081"));
         this.clusterDirTemplate = env("AERON_MANAGEMENT_AGENT_CLUSTER_DIR", System.getProperty("user.home"));
+        this.scanRoot = env("AERON_MANAGEMENT_AGENT_SCAN_ROOT", "");
         this.metricsIntervalMs = Long.parseLong(env("AERON_MANAGEMENT_AGENT_METRICS_INTERVAL_MS", "1000"));
+        this.fastIntervalMs = Long.parseLong(env("AERON_MANAGEMENT_AGENT_FAST_INTERVAL_MS", "100"));
+        this.slowIntervalMs = Long.parseLong(env("AERON_MANAGEMENT_AGENT_SLOW_INTERVAL_MS", "5000"));
+        this.fastHoldMs = Long.parseLong(env("AERON_MANAGEMENT_AGENT_FAST_HOLD_MS", "5000"));
+        this.steadyAfterMs = Long.parseLong(env("AERON_MANAGEMENT_AGENT_STEADY_AFTER_MS", "60000"));
+        this.metricsBatchSize = Integer.parseInt(env("AERON_MANAGEMENT_AGENT_METRICS_BATCH_SIZE", "1"));
         this.agentId = env("AERON_MANAGEMENT_AGENT_ID", UUID.randomUUID().toString().substring(0, 8));
         this.cncFailureTimeoutMs = Long.parseLong(env("AERON_MANAGEMENT_AGENT_CNC_FAILURE_TIMEOUT_MS", "2000"));
         this.clusterId = env("AERON_MANAGEMENT_CLUSTER_ID", "default");
         this.stateBufferSize = Integer.parseInt(env("AERON_MANAGEMENT_AGENT_STATE_BUFFER_SIZE", "500"));
+        this.stateCounterTypeIds = intList(env("AERON_MANAGEMENT_AGENT_STATE_COUNTER_TYPES", "200,201,207"));
+        this.stateWatchIntervalMs = Long.parseLong(env("AERON_MANAGEMENT_AGENT_STATE_WATCH_INTERVAL_MS", "1"));
+        this.trafficProfileStreamIds = intList(env("AERON_MANAGEMENT_AGENT_TRAFFIC_PROFILE_STREAMS", ""));
+        this.commitLatencyEnabled = Boolean.parseBoolean(env("AERON_MANAGEMENT_AGENT_COMMIT_LATENCY_ENABLED", "false"));
+        this.ingressStreamId = Integer.parseInt(env("AERON_MANAGEMENT_AGENT_INGRESS_STREAM_ID", "101"));
+        this.logStreamId = Integer.parseInt(env("AERON_MANAGEMENT_AGENT_LOG_STREAM_ID", "100"));
+        this.commandThreads = Integer.parseInt(env("AERON_MANAGEMENT_AGENT_COMMAND_THREADS", "4"));
+        this.commandQueueCapacity = Integer.parseInt(env("AERON_MANAGEMENT_AGENT_COMMAND_QUEUE_CAPACITY", "32"));
+        this.commandTimeoutMs = Long.parseLong(env("AERON_MANAGEMENT_AGENT_COMMAND_TIMEOUT_MS", "60000"));
+        this.spoolDir = env("AERON_MANAGEMENT_AGENT_SPOOL_DIR", System.getProperty("java.io.tmpdir"));
+        this.spoolSizeMb = Integer.parseInt(env("AERON_MANAGEMENT_AGENT_SPOOL_SIZE_MB", "16"));
+        this.spoolMaxAgeMs = Long.parseLong(env("AERON_MANAGEMENT_AGENT_SPOOL_MAX_AGE_MS", "3600000"));
+        this.spoolReplayRate = Integer.parseInt(env("AERON_MANAGEMENT_AGENT_SPOOL_REPLAY_RATE", "100"));
+        this.reconnectBaseMs = Long.parseLong(env("AERON_MANAGEMENT_AGENT_RECONNECT_BASE_MS", "1000"));
+        this.reconnectMaxMs = Long.parseLong(env("AERON_MANAGEMENT_AGENT_RECONNECT_MAX_MS", "60000"));
+    }
+
+    private static int[] intList(String value) {
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .mapToInt(Integer::parseInt)
+                .toArray();
     }
 
     private static String env(String key, String defaultValue) {
@@ -1,14 +1,16 @@
 package it.podlodowski.aeronmgmt.agent;
 
-import it.podlodowski.aeronmgmt.common.proto.MetricsReport;
+import io.grpc.ManagedChannel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 
 public class AgentMain {
 
@@ -16,79 +18,70 @@ public class AgentMain {
 
     public static void main(String[] args) throws Exception {
         AgentConfig config = new AgentConfig();
-        int maxCncFailures = Math.max(1, (int) (config.cncFailureTimeoutMs / config.metricsIntervalMs));
-        LOGGER.info("Agent {} starting. Cluster dir template: {}, clusterId={}, cncFailureTimeout={}ms ({} cycles)",
-                config.agentId, config.clusterDirTemplate, config.clusterId, config.cncFailureTimeoutMs, maxCncFailures);
+        LOGGER.info("Agent {} starting. Cluster dir: {}, scan root: {}, clusterId={}, cncFailureTimeout={}ms",
+                config.agentId, config.clusterDirTemplate, config.scanRoot.isEmpty() ? "-" : config.scanRoot,
+                config.clusterId, config.cncFailureTimeoutMs);
 
-        // Resolve cluster directory: expand {node_id} template, scan if needed.
-        // Wait for the base directory first (before template expansion).
-        String baseDir = config.clusterDirTemplate.contains("{node_id}")
-                ? config.clusterDirTemplate.substring(0, config.clusterDirTemplate.indexOf("{node_id}"))
-                : config.clusterDirTemplate;
-        awaitDirectory(new File(baseDir), "Cluster base directory");
-        String clusterDir = ClusterDirResolver.resolve(config.clusterDirTemplate, System::getenv);
-        LOGGER.info("Resolved cluster dir: {}", clusterDir);
+        List<ClusterDirResolver.Target> targets = resolveTargets(config);
+        boolean multiNode = targets.size() > 1 || !config.scanRoot.isEmpty();
+        LOGGER.info("Monitoring {} node(s): {}", targets.size(), targets);
 
-        // Discover node identity from mark file (retries until available)
-        ClusterMarkFileReader identity = ClusterMarkFileReader.discover(clusterDir);
-        LOGGER.info("Agent {} discovered: nodeId={}, aeronDir={}, mode={}",
-                config.agentId, identity.nodeId(), identity.aeronDir(), identity.agentMode());
-
-        // Wait for aeron directory (shared memory) — created by the cluster node's MediaDriver
-        awaitDirectory(new File(identity.aeronDir()), "Aeron directory");
-
-        CncReader cncReader = new CncReader(identity.aeronDir());
-        ArchiveMetricsCollector archiveCollector = new ArchiveMetricsCollector(clusterDir);
-        SpyRecordingManager spyRecordingManager = new SpyRecordingManager(identity.aeronDir(), cncReader);
-        spyRecordingManager.connect();
-        StateChangeBuffer stateChangeBuffer = new StateChangeBuffer(config.stateBufferSize);
-        MetricsCollector metricsCollector = new MetricsCollector(
-                cncReader, archiveCollector, identity.nodeId(), identity.agentMode(), config.clusterId,
-                spyRecordingManager, stateChangeBuffer, identity.aeronDir());
-        AdminCommandExecutor commandExecutor = new AdminCommandExecutor(clusterDir, archiveCollector, spyRecordingManager);
-        GrpcAgentClient grpcClient = new GrpcAgentClient(config, identity, commandExecutor, stateChangeBuffer);
-        HealthEndpoint healthEndpoint = new HealthEndpoint(7070);
-
-        grpcClient.connect();
-
-        AtomicInteger cncFailures = new AtomicInteger(0);
+        ManagedChannel channel = GrpcAgentClient.createChannel(config);
         ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
-        scheduler.scheduleAtFixedRate(() -> {
-            try {
-                MetricsReport report = metricsCollector.collect();
-                grpcClient.sendMetrics(report);
-
-                if (!report.getCncAccessible()) {
-                    int failures = cncFailures.incrementAndGet();
-                    if (failures >= maxCncFailures) {
-                        LOGGER.error("CnC inaccessible for {} consecutive cycles ({}ms), exiting for restart",
-                                failures, failures * config.metricsIntervalMs);
-                        System.exit(1);
-                    }
-                } else {
-                    cncFailures.set(0);
-                }
-            } catch (Throwable t) {
-                LOGGER.error("Metrics collection failed", t);
-            }
-        }, 0, config.metricsIntervalMs, TimeUnit.MILLISECONDS);
+        Map<String, AeronConnection> aeronConnections = new ConcurrentHashMap<>();
+        List<NodeAgent> nodes = new ArrayList<>();
+        for (ClusterDirResolver.Target target : targets) {
+            NodeAgent node = new NodeAgent(config, target, channel, scheduler,
+                    aeronDir -> aeronConnections.computeIfAbsent(aeronDir, AeronConnection::new),
+                    lost -> onCncLost(lost, multiNode));
+            nodes.add(node);
+            node.start();
+        }
+        HealthEndpoint healthEndpoint = new HealthEndpoint(7070, nodes);
 
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             LOGGER.info("Shutting down agent {}...", config.agentId);
             scheduler.shutdown();
-            grpcClient.shutdown();
-            spyRecordingManager.close();
+            nodes.forEach(NodeAgent::stop);
+            aeronConnections.values().forEach(AeronConnection::close);
+            GrpcAgentClient.closeChannel(channel);
             healthEndpoint.stop();
         }));
 
         LOGGER.info("Agent {} started successfully", config.agentId);
     }
 
-    private static void awaitDirectory(File dir, String label) throws InterruptedException {
-        while (!dir.isDirectory()) {
-            LOGGER.info("{} {} does not exist yet, waiting for cluster node to start...", label, dir);
+    /**
+     * With a single node, the agent exits so that its supervisor restarts it along with the node.
+     * With several, only the lost node is restarted, so the others keep being monitored.
+     */
+    private static void onCncLost(NodeAgent node, boolean multiNode) {
+        if (!multiNode) {
+            LOGGER.error("Exiting for restart");
+            System.exit(1);
+        }
+        LOGGER.warn("Restarting monitoring of {}", node.target());
+        node.stop();
+        node.start();
+    }
+
+    /**
+     * The nodes to monitor: every cluster-mark.dat under the scan root if one is set, otherwise
+     * each entry of the cluster directory list.
+     */
+    private static List<ClusterDirResolver.Target> resolveTargets(AgentConfig config) throws InterruptedException {
+        if (config.scanRoot.isEmpty()) {
+            return ClusterDirResolver.parseTargets(config.clusterDirTemplate, config.clusterId);
+        }
+        NodeAgent.awaitDirectory(new File(config.scanRoot), "Scan root");
+        List<String> clusterDirs = ClusterDirResolver.findAll(config.scanRoot);
+        while (clusterDirs.isEmpty()) {
+            LOGGER.info("No cluster-mark.dat under {} yet, waiting for cluster nodes to start...", config.scanRoot);
             Thread.sleep(5000);
+            clusterDirs = ClusterDirResolver.findAll(config.scanRoot);
         }
-        LOGGER.info("{} {} is available", label, dir);
+        return clusterDirs.stream()
+                .map(dir -> new ClusterDirResolver.Target(config.clusterId, dir))
+                .toList();
     }
 }
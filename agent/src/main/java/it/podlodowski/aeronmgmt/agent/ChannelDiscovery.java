@@ -0,0 +1,114 @@
+package it.podlodowski.aeronmgmt.agent;
+
+import io.aeron.ChannelUri;
+import io.aeron.CommonContext;
+import it.podlodowski.aeronmgmt.common.proto.AeronCounter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Discovers the channel URI used for a stream by scanning CnC position counters.
+ *
+ * <p>Counter label format: {@code "<prefix>: <registrationId> <sessionId> <streamId> <channel>"},
+ * where subscriber positions additionally end with {@code " @<joinPosition>"}.
+ */
+final class ChannelDiscovery {
+
+    /** Type 1: publisher limit ("pub-lmt:") */
+    private static final int PUBLISHER_LIMIT_TYPE_ID = 1;
+    /** Type 2: sender position ("snd-pos:") */
+    private static final int SENDER_POSITION_TYPE_ID = 2;
+    /** Type 4: subscriber position ("sub-pos:") */
+    private static final int SUBSCRIBER_POSITION_TYPE_ID = 4;
+    /** Type 5: receiver position ("rcv-pos:") */
+    private static final int RECEIVER_POSITION_TYPE_ID = 5;
+
+    private ChannelDiscovery() {
+    }
+
+    /**
+     * Returns the channel of a local publication on the given stream, or null if none exists.
+     * Such channels can be observed passively with the {@code aeron-spy:} prefix.
+     */
+    static String findPublicationChannel(List<AeronCounter> counters, int streamId) {
+        List<String> channels = findPublicationChannels(counters, streamId);
+        return channels.isEmpty() ? null : channels.get(0);
+    }
+
+    /**
+     * Returns all distinct channels of local publications on the given stream, e.g. one egress
+     * publication per connected cluster client.
+     */
+    static List<String> findPublicationChannels(List<AeronCounter> counters, int streamId) {
+        return find(counters, streamId, PUBLISHER_LIMIT_TYPE_ID, SENDER_POSITION_TYPE_ID);
+    }
+
+    /**
+     * Returns all distinct channels of local subscriptions on the given stream.
+     */
+    static List<String> findSubscriptionChannels(List<AeronCounter> counters, int streamId) {
+        return find(counters, streamId, SUBSCRIBER_POSITION_TYPE_ID, RECEIVER_POSITION_TYPE_ID);
+    }
+
+    /**
+     * Returns subscription URIs that observe the given stream without affecting it.
+     * Local publications are spied on with {@code aeron-spy:}; streams that are only
+     * received locally (e.g. ingress on the leader) get an extra untethered subscription
+     * on the same endpoint, which the driver drops rather than slowing the stream down.
+     */
+    static List<String> findObservationChannels(List<AeronCounter> counters, int streamId) {
+        List<String> result = new ArrayList<>();
+        List<String> publications = findPublicationChannels(counters, streamId);
+        if (!publications.isEmpty()) {
+            for (String channel : publications) {
+                result.add(ChannelUri.SPY_QUALIFIER + ":" + channel);
+            }
+            return result;
+        }
+        for (String channel : findSubscriptionChannels(counters, streamId)) {
+            ChannelUri uri = ChannelUri.parse(channel);
+            uri.put(CommonContext.TETHER_PARAM_NAME, "false");
+            result.add(uri.toString());
+        }
+        return result;
+    }
+
+    private static List<String> find(List<AeronCounter> counters, int targetStreamId, int typeA, int typeB) {
+        Set<String> channels = new LinkedHashSet<>();
+        for (AeronCounter counter : counters) {
+            int typeId = counter.getTypeId();
+            if (typeId != typeA && typeId != typeB) {
+                continue;
+            }
+            String label = counter.getLabel();
+            int colonIdx = label.indexOf(": ");
+            if (colonIdx < 0) {
+                continue;
+            }
+            // Label format after prefix: "<regId> <sessionId> <streamId> <channel>"
+            String[] parts = label.substring(colonIdx + 2).split(" ", 4);
+            if (parts.length < 4) {
+                continue;
+            }
+            try {
+                if (Integer.parseInt(parts[2]) != targetStreamId) {
+                    continue;
+                }
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            String channel = parts[3];
+            int joinIdx = channel.indexOf(" @");
+            if (joinIdx >= 0) {
+                channel = channel.substring(0, joinIdx);
+            }
+            if (channel.startsWith("aeron:")) {
+                channels.add(channel);
+            }
+        }
+        return new ArrayList<>(channels);
+    }
+}
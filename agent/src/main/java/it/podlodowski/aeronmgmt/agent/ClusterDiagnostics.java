@@ -0,0 +1,190 @@
+package it.podlodowski.aeronmgmt.agent;
+
+import io.aeron.cluster.ClusterMember;
+import io.aeron.cluster.ClusterMembership;
+import io.aeron.cluster.RecordingLog;
+import io.aeron.cluster.codecs.mark.MarkFileHeaderDecoder;
+import io.aeron.cluster.service.ClusterMarkFile;
+import it.podlodowski.aeronmgmt.common.proto.ClusterDescription;
+import it.podlodowski.aeronmgmt.common.proto.ClusterMemberInfo;
+import it.podlodowski.aeronmgmt.common.proto.ClusterMembers;
+import it.podlodowski.aeronmgmt.common.proto.MarkFileDescription;
+import it.podlodowski.aeronmgmt.common.proto.RecordingLogEntry;
+import it.podlodowski.aeronmgmt.common.proto.RecordingLogResult;
+import it.podlodowski.aeronmgmt.common.proto.RecoveryLog;
+import it.podlodowski.aeronmgmt.common.proto.RecoveryPlanResult;
+import it.podlodowski.aeronmgmt.common.proto.RecoverySnapshot;
+import org.agrona.concurrent.SystemEpochClock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Converts cluster state read through Aeron's own types ({@link RecordingLog}, {@link ClusterMarkFile},
+ * {@link ClusterMembership}) into protobuf results, so the server never has to parse ClusterTool text.
+ */
+final class ClusterDiagnostics {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClusterDiagnostics.class);
+    private static final long MARK_FILE_TIMEOUT_MS = 1_000;
+
+    private ClusterDiagnostics() {
+    }
+
+    static RecordingLogResult recordingLog(List<RecordingLog.Entry> entries) {
+        RecordingLogResult.Builder builder = RecordingLogResult.newBuilder();
+        for (RecordingLog.Entry entry : entries) {
+            builder.addEntries(RecordingLogEntry.newBuilder()
+                    .setRecordingId(entry.recordingId)
+                    .setLeadershipTermId(entry.leadershipTermId)
+                    .setTermBaseLogPosition(entry.termBaseLogPosition)
+                    .setLogPosition(entry.logPosition)
+                    .setTimestamp(entry.timestamp)
+                    .setServiceId(entry.serviceId)
+                    .setType(entryType(entry.type))
+                    .setValid(entry.isValid)
+                    .setEntryIndex(entry.entryIndex)
+                    .setArchiveEndpoint(entry.archiveEndpoint != null ? entry.archiveEndpoint : ""));
+        }
+        return builder.build();
+    }
+
+    static RecoveryPlanResult recoveryPlan(RecordingLog.RecoveryPlan plan) {
+        RecoveryPlanResult.Builder builder = RecoveryPlanResult.newBuilder()
+                .setLastLeadershipTermId(plan.lastLeadershipTermId)
+                .setLastTermBaseLogPosition(plan.lastTermBaseLogPosition)
+                .setAppendedLogPosition(plan.appendedLogPosition)
+                .setCommittedLogPosition(plan.committedLogPosition);
+        for (RecordingLog.Snapshot snapshot : plan.snapshots) {
+            builder.addSnapshots(RecoverySnapshot.newBuilder()
+                    .setRecordingId(snapshot.recordingId)
+                    .setLeadershipTermId(snapshot.leadershipTermId)
+                    .setTermBaseLogPosition(snapshot.termBaseLogPosition)
+                    .setLogPosition(snapshot.logPosition)
+                    .setTimestamp(snapshot.timestamp)
+                    .setServiceId(snapshot.serviceId));
+        }
+        RecordingLog.Log log = plan.log;
+        if (log != null) {
+            builder.setLog(RecoveryLog.newBuilder()
+                    .setRecordingId(log.recordingId)
+                    .setLeadershipTermId(log.leadershipTermId)
+                    .setTermBaseLogPosition(log.termBaseLogPosition)
+                    .setLogPosition(log.logPosition)
+                    .setStartPosition(log.startPosition)
+                    .setStopPosition(log.stopPosition)
+                    .setInitialTermId(log.initialTermId)
+                    .setTermBufferLength(log.termBufferLength)
+                    .setMtuLength(log.mtuLength)
+                    .setSessionId(log.sessionId));
+        }
+        return builder.build();
+    }
+
+    static ClusterMembers members(ClusterMembership membership) {
+        ClusterMembers.Builder builder = ClusterMembers.newBuilder()
+                .setMemberId(membership.memberId)
+                .setLeaderMemberId(membership.leaderMemberId)
+                .setCurrentTimeNs(membership.currentTimeNs);
+        if (membership.activeMembers != null) {
+            membership.activeMembers.forEach(m -> builder.addActiveMembers(member(m)));
+        }
+        if (membership.passiveMembers != null) {
+            membership.passiveMembers.forEach(m -> builder.addPassiveMembers(member(m)));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Reads the consensus module (or backup) mark file and all service mark files.
+     */
+    static ClusterDescription describe(File clusterDir) {
+        ClusterDescription.Builder builder = ClusterDescription.newBuilder();
+        File servicesDir = clusterDir;
+        if (new File(clusterDir, ClusterMarkFile.FILENAME).exists()) {
+            MarkFileDescription main = readMarkFile(clusterDir, ClusterMarkFile.FILENAME);
+            if (main != null) {
+                builder.addMarkFiles(main);
+                if (!main.getServicesClusterDir().isEmpty()) {
+                    servicesDir = new File(main.getServicesClusterDir());
+                }
+            }
+        }
+
+        File[] serviceFiles = servicesDir.listFiles((dir, name) ->
+                name.startsWith(ClusterMarkFile.SERVICE_FILENAME_PREFIX)
+                        && name.endsWith(ClusterMarkFile.FILE_EXTENSION));
+        if (serviceFiles != null) {
+            Arrays.sort(serviceFiles);
+            for (File file : serviceFiles) {
+                MarkFileDescription service = readMarkFile(servicesDir, file.getName());
+                if (service != null) {
+                    builder.addMarkFiles(service);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    private static MarkFileDescription readMarkFile(File dir, String filename) {
+        try (ClusterMarkFile markFile = new ClusterMarkFile(
+                dir, filename, new SystemEpochClock(), MARK_FILE_TIMEOUT_MS,
+                msg -> LOGGER.debug("Mark file: {}", msg))) {
+            MarkFileHeaderDecoder decoder = markFile.decoder();
+            // Fixed fields first, then variable-length fields in schema order
+            return MarkFileDescription.newBuilder()
+                    .setComponentType(decoder.componentType().name())
+                    .setMemberId(decoder.memberId())
+                    .setServiceId(decoder.serviceId())
+                    .setClusterId(decoder.clusterId())
+                    .setPid(decoder.pid())
+                    .setCandidateTermId(decoder.candidateTermId())
+                    .setStartTimestamp(decoder.startTimestamp())
+                    .setActivityTimestamp(markFile.activityTimestampVolatile())
+                    .setArchiveStreamId(decoder.archiveStreamId())
+                    .setServiceStreamId(decoder.serviceStreamId())
+                    .setConsensusModuleStreamId(decoder.consensusModuleStreamId())
+                    .setIngressStreamId(decoder.ingressStreamId())
+                    .setAeronDirectory(decoder.aeronDirectory())
+                    .setControlChannel(decoder.controlChannel())
+                    .setIngressChannel(decoder.ingressChannel())
+                    .setServiceName(decoder.serviceName())
+                    .setAuthenticator(decoder.authenticator())
+                    .setServicesClusterDir(decoder.servicesClusterDir())
+                    .build();
+        } catch (Exception e) {
+            LOGGER.warn("Failed to read mark file {}/{}: {}", dir, filename, e.getMessage());
+            return null;
+        }
+    }
+
+    private static ClusterMemberInfo member(ClusterMember member) {
+        return ClusterMemberInfo.newBuilder()
+                .setId(member.id())
+                .setIsLeader(member.isLeader())
+                .setLeadershipTermId(member.leadershipTermId())
+                .setLogPosition(member.logPosition())
+                .setIngressEndpoint(nullToEmpty(member.ingressEndpoint()))
+                .setConsensusEndpoint(nullToEmpty(member.consensusEndpoint()))
+                .setLogEndpoint(nullToEmpty(member.logEndpoint()))
+                .setCatchupEndpoint(nullToEmpty(member.catchupEndpoint()))
+                .setArchiveEndpoint(nullToEmpty(member.archiveEndpoint()))
+                .build();
+    }
+
+    static String entryType(int type) {
+        switch (type & ~RecordingLog.ENTRY_TYPE_INVALID_FLAG) {
+            case RecordingLog.ENTRY_TYPE_TERM: return "TERM";
+            case RecordingLog.ENTRY_TYPE_SNAPSHOT: return "SNAPSHOT";
+            case RecordingLog.ENTRY_TYPE_STANDBY_SNAPSHOT: return "STANDBY_SNAPSHOT";
+            default: return "UNKNOWN(" + type + ")";
+        }
+    }
+
+    private static String nullToEmpty(String s) {
+        return s == null ? "" : s;
+    }
+}
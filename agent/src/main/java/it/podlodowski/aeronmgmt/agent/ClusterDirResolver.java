@@ -16,6 +16,7 @@ public class ClusterDirResolver {
     private static final Pattern TRAILING_ORDINAL = Pattern.compile("-(\\d+)$");
     private static final String MARK_FILE_NAME = "cluster-mark.dat";
     private static final int MAX_SCAN_DEPTH = 3;
+    private static final Pattern CLUSTER_ID_PREFIX = Pattern.compile("^([A-Za-z0-9_.-]+)=(.+)$");
 
     /**
      * Resolves the cluster directory path.
@@ -28,6 +29,44 @@ public class ClusterDirResolver {
         return findClusterDir(path);
     }
 
+    /**
+     * Splits a comma-separated list of cluster directories (paths, templates or base directories),
+     * each optionally prefixed with {@code <clusterId>=} to report it under a cluster other than
+     * {@code defaultClusterId}.
+     */
+    static List<Target> parseTargets(String clusterDirs, String defaultClusterId) {
+        List<Target> targets = new ArrayList<>();
+        for (String entry : clusterDirs.split(",")) {
+            String trimmed = entry.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            Matcher matcher = CLUSTER_ID_PREFIX.matcher(trimmed);
+            targets.add(matcher.matches()
+                    ? new Target(matcher.group(1), matcher.group(2).trim())
+                    : new Target(defaultClusterId, trimmed));
+        }
+        return targets;
+    }
+
+    /**
+     * Returns every directory holding a cluster-mark.dat under {@code root}, up to 3 levels deep.
+     */
+    static List<String> findAll(String root) {
+        List<File> found = new ArrayList<>();
+        scanForMarkFile(new File(root), 0, found);
+        return found.stream().map(File::getParent).sorted().toList();
+    }
+
+    /**
+     * The part of a cluster directory template before {@code {node_id}}: the directory that has
+     * to exist before the template can be resolved.
+     */
+    static String baseDir(String clusterDirTemplate) {
+        int placeholder = clusterDirTemplate.indexOf("{node_id}");
+        return placeholder < 0 ? clusterDirTemplate : clusterDirTemplate.substring(0, placeholder);
+    }
+
     private static String expandTemplate(String template, Function<String, String> env) {
         if (!template.contains("{node_id}")) {
             return template;
@@ -120,4 +159,10 @@ public class ClusterDirResolver {
         Matcher m = TRAILING_ORDINAL.matcher(value);
         return m.find() ? Integer.parseInt(m.group(1)) : null;
     }
+
+    /**
+     * One cluster node to monitor: a cluster directory (path, template or base directory) and the
+     * cluster id to report it under.
+     */
+    record Target(String clusterId, String clusterDirTemplate) {}
 }
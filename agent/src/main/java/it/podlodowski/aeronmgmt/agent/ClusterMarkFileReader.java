@@ -1,6 +1,8 @@
 package it.podlodowski.aeronmgmt.agent;
 
+import io.aeron.archive.client.AeronArchive;
 import io.aeron.cluster.codecs.mark.ClusterComponentType;
+import io.aeron.cluster.codecs.mark.MarkFileHeaderDecoder;
 import io.aeron.cluster.service.ClusterMarkFile;
 import org.agrona.concurrent.SystemEpochClock;
 import org.slf4j.Logger;
@@ -13,18 +15,31 @@ public class ClusterMarkFileReader {
     private static final Logger LOGGER = LoggerFactory.getLogger(ClusterMarkFileReader.class);
 
     private final int nodeId;
+    private final int aeronClusterId;
+    private final int archiveStreamId;
     private final String aeronDir;
     private final String agentMode;
+    private final long pid;
 
-    private ClusterMarkFileReader(int nodeId, String aeronDir, String agentMode) {
+    private ClusterMarkFileReader(int nodeId, int aeronClusterId, int archiveStreamId, String aeronDir,
+                                  String agentMode, long pid) {
         this.nodeId = nodeId;
+        this.aeronClusterId = aeronClusterId;
+        this.archiveStreamId = archiveStreamId;
         this.aeronDir = aeronDir;
         this.agentMode = agentMode;
+        this.pid = pid;
     }
 
     public int nodeId() { return nodeId; }
+    /** Aeron's cluster id of the node, the key of its consensus module counters. */
+    public int aeronClusterId() { return aeronClusterId; }
+    /** Control request stream of the node's archive. */
+    public int archiveStreamId() { return archiveStreamId; }
     public String aeronDir() { return aeronDir; }
     public String agentMode() { return agentMode; }
+    /** Process of the cluster node that wrote the mark file, 0 if not recorded. */
+    public long pid() { return pid; }
 
     public static ClusterMarkFileReader discover(String clusterDir) {
         while (!Thread.currentThread().isInterrupted()) {
@@ -47,14 +62,20 @@ public class ClusterMarkFileReader {
                 msg -> LOGGER.debug("Mark file: {}", msg))) {
             ClusterComponentType type = markFile.decoder().componentType();
             int nodeId = markFile.decoder().memberId();
+            int aeronClusterId = markFile.decoder().clusterId();
+            int archiveStreamId = markFile.decoder().archiveStreamId();
+            if (archiveStreamId == MarkFileHeaderDecoder.archiveStreamIdNullValue()) {
+                archiveStreamId = AeronArchive.Configuration.controlStreamId();
+            }
             String aeronDir = markFile.decoder().aeronDirectory();
             boolean isBackup = type == ClusterComponentType.BACKUP;
             String agentMode = isBackup ? "backup" : "cluster";
+            long pid = Math.max(0, markFile.decoder().pid());
 
-            LOGGER.info("Discovered from mark file: nodeId={}, aeronDir={}, mode={}",
-                    nodeId, aeronDir, agentMode);
+            LOGGER.info("Discovered from mark file: nodeId={}, aeronClusterId={}, archiveStreamId={}, aeronDir={}, "
+                    + "mode={}, pid={}", nodeId, aeronClusterId, archiveStreamId, aeronDir, agentMode, pid);
 
-            return new ClusterMarkFileReader(nodeId, aeronDir, agentMode);
+            return new ClusterMarkFileReader(nodeId, aeronClusterId, archiveStreamId, aeronDir, agentMode, pid);
         }
     }
 
@@ -21,6 +21,11 @@ import java.util.List;
  * all counters and cluster-specific metrics. This is the same mechanism used by AeronStat.
  *
  * All data is read in a single {@link #read()} call to avoid mapping the file multiple times.
+ *
+ * Nodes of several clusters can share one media driver, so cluster counters are resolved the way
+ * {@link io.aeron.cluster.service.ClusterCounters#find} does: by type and the cluster id in the
+ * first int of the key. Cluster counters of other clusters are left out of the snapshot; driver
+ * counters are kept.
  */
 public class CncReader {
 
@@ -42,11 +47,23 @@ public class CncReader {
     private static final int CLUSTER_TIMED_OUT_CLIENT_COUNT_TYPE_ID = 213;
     /** Type 239: Leadership term id */
     private static final int LEADERSHIP_TERM_ID_TYPE_ID = 239;
+    /** Type ids Aeron reserves for cluster counters, all keyed by cluster id. See io.aeron.AeronCounters. */
+    private static final int MIN_CLUSTER_TYPE_ID = 200;
+    private static final int MAX_CLUSTER_TYPE_ID = 299;
 
     private final String aeronDir;
+    private final int aeronClusterId;
 
     public CncReader(String aeronDir) {
+        this(aeronDir, 0);
+    }
+
+    /**
+     * @param aeronClusterId Aeron's cluster id of the node, the key of its cluster counters
+     */
+    public CncReader(String aeronDir, int aeronClusterId) {
         this.aeronDir = aeronDir;
+        this.aeronClusterId = aeronClusterId;
     }
 
     /**
@@ -57,21 +74,24 @@ public class CncReader {
         public final boolean driverActive;
         public final List<AeronCounter> counters;
         public final ClusterMetrics clusterMetrics;
+        /** Process of the media driver that owns the CnC file, 0 if unknown. */
+        public final long driverPid;
 
         private CncSnapshot(boolean cncAccessible, boolean driverActive,
-                            List<AeronCounter> counters, ClusterMetrics clusterMetrics) {
+                            List<AeronCounter> counters, ClusterMetrics clusterMetrics, long driverPid) {
             this.cncAccessible = cncAccessible;
             this.driverActive = driverActive;
             this.counters = counters;
             this.clusterMetrics = clusterMetrics;
+            this.driverPid = driverPid;
         }
 
         static CncSnapshot unavailable() {
-            return new CncSnapshot(false, false, List.of(), ClusterMetrics.getDefaultInstance());
+            return new CncSnapshot(false, false, List.of(), ClusterMetrics.getDefaultInstance(), 0);
         }
 
         static CncSnapshot inactive() {
-            return new CncSnapshot(true, false, List.of(), ClusterMetrics.getDefaultInstance());
+            return new CncSnapshot(true, false, List.of(), ClusterMetrics.getDefaultInstance(), 0);
         }
     }
 
@@ -92,7 +112,7 @@ public class CncReader {
                 DirectBuffer cncMetaData = CncFileDescriptor.createMetaDataBuffer(cncByteBuffer);
                 int cncVersion = cncMetaData.getInt(CncFileDescriptor.cncVersionOffset(0));
                 if (cncVersion == 0) {
-                    return new CncSnapshot(true, false, List.of(), ClusterMetrics.getDefaultInstance());
+                    return CncSnapshot.inactive();
                 }
                 if (CncFileDescriptor.CNC_VERSION != cncVersion) {
                     LOGGER.warn("CnC version mismatch: expected={}, actual={}", CncFileDescriptor.CNC_VERSION, cncVersion);
@@ -113,6 +133,9 @@ public class CncReader {
                 ClusterMetrics.Builder clusterBuilder = ClusterMetrics.newBuilder();
 
                 countersReader.forEach((counterId, typeId, keyBuffer, label) -> {
+                    if (!isNodeCounter(typeId, keyBuffer, aeronClusterId)) {
+                        return;
+                    }
                     long value = countersReader.getCounterValue(counterId);
                     counters.add(AeronCounter.newBuilder()
                             .setCounterId(counterId)
@@ -145,7 +168,8 @@ public class CncReader {
                     }
                 });
 
-                return new CncSnapshot(true, driverActive, counters, clusterBuilder.build());
+                long driverPid = Math.max(0, CncFileDescriptor.pid(cncMetaData));
+                return new CncSnapshot(true, driverActive, counters, clusterBuilder.build(), driverPid);
             } finally {
                 IoUtil.unmap(cncByteBuffer);
             }
@@ -155,6 +179,15 @@ public class CncReader {
         }
     }
 
+    /**
+     * Driver and archive counters belong to every node on the driver; cluster counters only to
+     * the node whose cluster id is in their key.
+     */
+    static boolean isNodeCounter(int typeId, DirectBuffer keyBuffer, int aeronClusterId) {
+        return typeId < MIN_CLUSTER_TYPE_ID || typeId > MAX_CLUSTER_TYPE_ID
+                || keyBuffer.getInt(0) == aeronClusterId;
+    }
+
     private static CountersReader createCountersReader(MappedByteBuffer cncByteBuffer, DirectBuffer cncMetaData) {
         AtomicBuffer countersMetaDataBuffer = CncFileDescriptor.createCountersMetaDataBuffer(cncByteBuffer, cncMetaData);
         AtomicBuffer countersValuesBuffer = CncFileDescriptor.createCountersValuesBuffer(cncByteBuffer, cncMetaData);
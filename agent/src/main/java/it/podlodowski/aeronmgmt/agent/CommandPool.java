@@ -0,0 +1,263 @@
+package it.podlodowski.aeronmgmt.agent;
+
+import it.podlodowski.aeronmgmt.common.proto.AdminCommand;
+import it.podlodowski.aeronmgmt.common.proto.CommandProgress;
+import it.podlodowski.aeronmgmt.common.proto.CommandQueueStatus;
+import it.podlodowski.aeronmgmt.common.proto.CommandResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Runs admin commands off the gRPC callback thread.
+ *
+ * <p>Commands are split into two bounded lanes: read-only diagnostics run on a small pool so
+ * concurrent dashboard requests don't queue behind each other, while mutating commands (cluster
+ * control, archive maintenance) run one at a time on their own thread. A long archive job therefore
+ * never blocks a {@code DESCRIBE}.
+ *
+ * <p>Every command gets exactly one result: its own, a timeout, a cancellation, or a rejection when
+ * its lane is full. The timeout starts over with each progress chunk, so a job that keeps streaming
+ * output runs for as long as it needs. Timed-out and cancelled commands are interrupted, but Aeron tools do not always
+ * honour interrupts — a stuck call keeps its worker until it returns, and its late result is dropped.
+ */
+public class CommandPool implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CommandPool.class);
+
+    private static final Set<String> MUTATING_COMMANDS = Set.of(
+            "SNAPSHOT", "SUSPEND", "RESUME", "SHUTDOWN", "ABORT",
+            "INVALIDATE_SNAPSHOT", "SEED_RECORDING_LOG",
+            // ArchiveTool.verify marks failing recordings invalid in the catalog
+            "ARCHIVE_VERIFY", "ARCHIVE_VERIFY_RECORDING",
+            "ARCHIVE_COMPACT", "ARCHIVE_DELETE_ORPHANED",
+            "ARCHIVE_MARK_INVALID", "ARCHIVE_MARK_VALID", "ARCHIVE_DELETE_RECORDING",
+            "START_EGRESS_RECORDING", "STOP_EGRESS_RECORDING");
+
+    private final AdminCommandExecutor commandExecutor;
+    private final long defaultTimeoutMs;
+    private final ThreadPoolExecutor readOnlyLane;
+    private final ThreadPoolExecutor mutatingLane;
+    private final ScheduledExecutorService timeouts;
+    private final Map<String, Task> tasks = new ConcurrentHashMap<>();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+
+    public CommandPool(AdminCommandExecutor commandExecutor, int readOnlyThreads, int queueCapacity,
+                       long defaultTimeoutMs) {
+        this.commandExecutor = commandExecutor;
+        this.defaultTimeoutMs = defaultTimeoutMs;
+        this.readOnlyLane = lane("command-read", readOnlyThreads, queueCapacity);
+        this.mutatingLane = lane("command-mutate", 1, queueCapacity);
+        this.timeouts = Executors.newSingleThreadScheduledExecutor(daemon("command-timeout"));
+    }
+
+    /**
+     * Queues the command on its lane. Incremental output goes to {@code progressSink} while the
+     * command runs; the result — or a failure if the command is rejected, times out or is
+     * cancelled — is passed to {@code resultSink}. Both are called from pool threads.
+     */
+    public void submit(AdminCommand command, Consumer<CommandProgress> progressSink,
+                       Consumer<CommandResult> resultSink) {
+        Task task = new Task(command, progressSink, resultSink);
+        if (tasks.putIfAbsent(command.getCommandId(), task) != null) {
+            LOGGER.warn("Ignoring duplicate command id {}", command.getCommandId());
+            return;
+        }
+        ThreadPoolExecutor lane = isMutating(command.getType()) ? mutatingLane : readOnlyLane;
+        try {
+            task.future = lane.submit(task::run);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            LOGGER.warn("Rejected command {} ({}): lane full", command.getType(), command.getCommandId());
+            task.complete(failure(command, "Agent is busy: too many " + (lane == mutatingLane ? "mutating" : "read-only")
+                    + " commands queued"));
+            return;
+        }
+        task.scheduleTimeout();
+    }
+
+    /**
+     * Cancels a queued or running command.
+     *
+     * @return true if the command was still pending and has now been answered as cancelled
+     */
+    public boolean cancel(String commandId) {
+        Task task = tasks.get(commandId);
+        if (task == null) {
+            return false;
+        }
+        if (!task.complete(failure(task.command, task.command.getType() + " cancelled"))) {
+            return false;
+        }
+        LOGGER.info("Cancelled command {} ({})", task.command.getType(), commandId);
+        Future<?> future = task.future;
+        if (future != null) {
+            future.cancel(true);
+        }
+        return true;
+    }
+
+    public CommandQueueStatus status() {
+        return CommandQueueStatus.newBuilder()
+                .setReadOnlyQueued(readOnlyLane.getQueue().size())
+                .setReadOnlyActive(readOnlyLane.getActiveCount())
+                .setMutatingQueued(mutatingLane.getQueue().size())
+                .setMutatingActive(mutatingLane.getActiveCount())
+                .setRejected(rejected.get())
+                .setTimedOut(timedOut.get())
+                .build();
+    }
+
+    static boolean isMutating(String commandType) {
+        return MUTATING_COMMANDS.contains(commandType);
+    }
+
+    @Override
+    public void close() {
+        readOnlyLane.shutdownNow();
+        mutatingLane.shutdownNow();
+        timeouts.shutdownNow();
+    }
+
+    private static CommandResult failure(AdminCommand command, String error) {
+        return CommandResult.newBuilder()
+                .setCommandId(command.getCommandId())
+                .setSuccess(false)
+                .setError(error)
+                .build();
+    }
+
+    private static ThreadPoolExecutor lane(String name, int threads, int queueCapacity) {
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), daemon(name));
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private final class Task {
+        final AdminCommand command;
+        final Consumer<CommandProgress> progressSink;
+        final Consumer<CommandResult> resultSink;
+        final long timeoutMs;
+        final AtomicBoolean completed = new AtomicBoolean();
+        volatile Future<?> future;
+        volatile ScheduledFuture<?> timeout;
+
+        Task(AdminCommand command, Consumer<CommandProgress> progressSink, Consumer<CommandResult> resultSink) {
+            this.command = command;
+            this.progressSink = progressSink;
+            this.resultSink = resultSink;
+            this.timeoutMs = command.getTimeoutMs() > 0 ? command.getTimeoutMs() : defaultTimeoutMs;
+        }
+
+        /**
+         * Starts the timeout over, replacing the pending one. Does nothing once the command
+         * has its result.
+         */
+        synchronized void scheduleTimeout() {
+            ScheduledFuture<?> previous = timeout;
+            if (previous != null) {
+                previous.cancel(false);
+            }
+            if (completed.get()) {
+                return;
+            }
+            try {
+                timeout = timeouts.schedule(this::timeOut, timeoutMs, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // The pool is closing
+                return;
+            }
+            if (completed.get()) {
+                // Answered while scheduling, after claim() looked for a timeout to cancel
+                timeout.cancel(false);
+            }
+        }
+
+        private void timeOut() {
+            if (claim()) {
+                timedOut.incrementAndGet();
+                LOGGER.warn("Command {} ({}) timed out after {}ms", command.getType(), command.getCommandId(), timeoutMs);
+                Future<?> running = future;
+                if (running != null) {
+                    running.cancel(true);
+                }
+                deliver(failure(command, command.getType() + " timed out after " + timeoutMs + "ms"));
+            }
+        }
+
+        void run() {
+            if (completed.get()) {
+                return;
+            }
+            CommandResult result = commandExecutor.execute(command, progress -> {
+                // Nobody is listening once a timeout or cancellation has answered the command
+                if (!completed.get()) {
+                    scheduleTimeout();
+                    progressSink.accept(progress);
+                }
+            });
+            if (!complete(result)) {
+                LOGGER.info("Dropping late result of {} ({})", command.getType(), command.getCommandId());
+            }
+        }
+
+        /**
+         * Delivers the result if no other result has been delivered yet.
+         */
+        boolean complete(CommandResult result) {
+            if (!claim()) {
+                return false;
+            }
+            deliver(result);
+            return true;
+        }
+
+        /**
+         * Claims the right to deliver the single result of this command.
+         */
+        boolean claim() {
+            if (!completed.compareAndSet(false, true)) {
+                return false;
+            }
+            tasks.remove(command.getCommandId(), this);
+            ScheduledFuture<?> pendingTimeout = timeout;
+            if (pendingTimeout != null) {
+                pendingTimeout.cancel(false);
+            }
+            return true;
+        }
+
+        void deliver(CommandResult result) {
+            try {
+                resultSink.accept(result);
+            } catch (Exception e) {
+                LOGGER.warn("Failed to deliver result of {}: {}", command.getCommandId(), e.getMessage());
+            }
+        }
+    }
+}
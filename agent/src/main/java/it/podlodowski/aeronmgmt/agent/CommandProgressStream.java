@@ -0,0 +1,133 @@
+package it.podlodowski.aeronmgmt.agent;
+
+import it.podlodowski.aeronmgmt.common.proto.CommandProgress;
+import org.agrona.collections.LongHashSet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Forwards command output as {@link CommandProgress} chunks instead of collecting all of it.
+ *
+ * <p>Output is cut at line boundaries once a chunk is large enough or old enough, so readers see
+ * steady progress during multi-minute archive operations. Only a bounded tail is retained for the
+ * final {@code CommandResult}.
+ *
+ * <p>When the number of recordings to process is known, progress is estimated from the
+ * {@code (recordingId=N) ...} lines that {@code ArchiveTool.verify} prints once per recording.
+ */
+class CommandProgressStream extends OutputStream {
+
+    static final int CHUNK_BYTES = 16 * 1024;
+    static final long FLUSH_INTERVAL_MS = 500;
+    static final int TAIL_BYTES = 8 * 1024;
+    private static final int MAX_LINE_PREFIX = 64;
+    private static final String RECORDING_PREFIX = "(recordingId=";
+
+    private final String commandId;
+    private final Consumer<CommandProgress> sink;
+    private final int expectedRecordings;
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private final byte[] tail = new byte[TAIL_BYTES];
+    private final StringBuilder linePrefix = new StringBuilder(MAX_LINE_PREFIX);
+    private final LongHashSet seenRecordings = new LongHashSet();
+    private long totalBytes;
+    private long sequence;
+    private long lastEmitMs = System.currentTimeMillis();
+
+    /**
+     * @param expectedRecordings recordings the command will report on, or -1 if unknown
+     */
+    CommandProgressStream(String commandId, Consumer<CommandProgress> sink, int expectedRecordings) {
+        this.commandId = commandId;
+        this.sink = sink;
+        this.expectedRecordings = expectedRecordings;
+    }
+
+    @Override
+    public void write(int b) {
+        pending.write(b);
+        tail[(int) (totalBytes % TAIL_BYTES)] = (byte) b;
+        totalBytes++;
+
+        if (b == '\n') {
+            onLine();
+            if (pending.size() >= CHUNK_BYTES || System.currentTimeMillis() - lastEmitMs >= FLUSH_INTERVAL_MS) {
+                emit(percentComplete());
+            }
+        } else {
+            if (linePrefix.length() < MAX_LINE_PREFIX) {
+                linePrefix.append((char) b);
+            }
+            // A single huge line must not grow the buffer without bound
+            if (pending.size() >= 4 * CHUNK_BYTES) {
+                emit(percentComplete());
+            }
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        for (int i = off; i < off + len; i++) {
+            write(b[i]);
+        }
+    }
+
+    /**
+     * Sends the remaining output as the final chunk (100%) and returns the retained tail,
+     * prefixed with a note when earlier output was only streamed.
+     */
+    String finish() {
+        emit(100);
+        int tailLength = (int) Math.min(totalBytes, TAIL_BYTES);
+        byte[] bytes = new byte[tailLength];
+        int start = (int) ((totalBytes - tailLength) % TAIL_BYTES);
+        for (int i = 0; i < tailLength; i++) {
+            bytes[i] = tail[(start + i) % TAIL_BYTES];
+        }
+        String text = new String(bytes, StandardCharsets.UTF_8);
+        if (totalBytes > TAIL_BYTES) {
+            return "[" + (totalBytes - TAIL_BYTES) + " earlier bytes streamed as progress]\n" + text;
+        }
+        return text;
+    }
+
+    double percentComplete() {
+        if (expectedRecordings <= 0) {
+            return -1;
+        }
+        return Math.min(99.0, seenRecordings.size() * 100.0 / expectedRecordings);
+    }
+
+    private void onLine() {
+        if (expectedRecordings > 0 && linePrefix.indexOf(RECORDING_PREFIX) == 0) {
+            long recordingId = 0;
+            boolean digits = false;
+            for (int i = RECORDING_PREFIX.length(); i < linePrefix.length(); i++) {
+                char c = linePrefix.charAt(i);
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                recordingId = recordingId * 10 + (c - '0');
+                digits = true;
+            }
+            if (digits) {
+                seenRecordings.add(recordingId);
+            }
+        }
+        linePrefix.setLength(0);
+    }
+
+    private void emit(double percent) {
+        sink.accept(CommandProgress.newBuilder()
+                .setCommandId(commandId)
+                .setSequence(sequence++)
+                .setOutputChunk(pending.toString(StandardCharsets.UTF_8))
+                .setPercentComplete(percent)
+                .build());
+        pending.reset();
+        lastEmitMs = System.currentTimeMillis();
+    }
+}
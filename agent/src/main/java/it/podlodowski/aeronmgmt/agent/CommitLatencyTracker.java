@@ -0,0 +1,491 @@
+package it.podlodowski.aeronmgmt.agent;
+
+import io.aeron.Aeron;
+import io.aeron.FragmentAssembler;
+import io.aeron.Subscription;
+import io.aeron.cluster.codecs.MessageHeaderDecoder;
+import io.aeron.cluster.codecs.SessionMessageHeaderDecoder;
+import io.aeron.cluster.service.ClusterCounters;
+import it.podlodowski.aeronmgmt.common.proto.CommitLatency;
+import org.agrona.DirectBuffer;
+import org.agrona.collections.Long2ObjectHashMap;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.SleepingMillisIdleStrategy;
+import org.agrona.concurrent.status.CountersReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures ingress-to-append and ingress-to-commit latency on the cluster leader.
+ *
+ * <p>Ingress is observed through an untethered subscription and the log through {@code aeron-spy:}
+ * (see {@link ChannelDiscovery#findObservationChannels}). Neither ingress nor the log carries a
+ * correlation id in the session header, but the consensus module appends each session's messages
+ * in the order it received them, with the same payload. Ingress messages are therefore queued per
+ * {@code clusterSessionId}, with a hash of their payload, and a log entry is matched to the oldest
+ * queued message with the same hash. Queued messages ahead of it never reached the log. A matched
+ * entry is then held until the commit position counter reaches the end of its log fragment.
+ *
+ * <p>A log entry without a queued ingress message is counted as an unmatched log entry rather than
+ * paired with an older message: the tracker may have fallen behind on ingress, or the untethered
+ * ingress subscription dropped it. Ingress messages the leader rejects never reach the log; they
+ * expire after {@link #MATCH_TIMEOUT_NS} and are reported as unmatched. At most
+ * {@link #MAX_TRACKED_SESSIONS} sessions are tracked at once; messages of further sessions are
+ * counted as unmatched. Only active while this node is leader.
+ */
+public class CommitLatencyTracker implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CommitLatencyTracker.class);
+    private static final long RESOLVE_INTERVAL_MS = 5_000;
+    private static final int FRAGMENT_LIMIT = 256;
+    static final long MATCH_TIMEOUT_NS = TimeUnit.SECONDS.toNanos(5);
+    /** Ingress messages buffered per session while waiting for their log entry. */
+    static final int SESSION_QUEUE_CAPACITY = 4096;
+    /** A session's queue starts this small and doubles as needed, most sessions being light. */
+    private static final int SESSION_QUEUE_INITIAL_CAPACITY = 16;
+    /** Sessions whose ingress is queued at once. */
+    static final int MAX_TRACKED_SESSIONS = 1024;
+    /** Payload bytes hashed to match an ingress message to its log entry. */
+    private static final int HASHED_PAYLOAD_LENGTH = 128;
+    /** Appended log entries waiting for the commit position. */
+    private static final int PENDING_COMMIT_CAPACITY = 65536;
+
+    /** Type 201: Cluster node role (FOLLOWER=0, CANDIDATE=1, LEADER=2) */
+    private static final int CLUSTER_NODE_ROLE_TYPE_ID = 201;
+    /** Type 203: Cluster commit position */
+    private static final int COMMIT_POSITION_TYPE_ID = 203;
+    private static final long ROLE_LEADER = 2;
+
+    private final AeronClients clients;
+    private final CncReader cncReader;
+    private final int aeronClusterId;
+    private final int ingressStreamId;
+    private final int logStreamId;
+    private final boolean enabled;
+    private final Map<String, Subscription> ingressSubscriptions = new HashMap<>();
+    private final Map<String, Subscription> logSubscriptions = new HashMap<>();
+    private final FragmentAssembler ingressAssembler = new FragmentAssembler(
+            (buffer, offset, length, header) -> onIngress(buffer, offset, length, System.nanoTime()));
+    private final FragmentAssembler logAssembler = new FragmentAssembler(
+            (buffer, offset, length, header) -> onLog(buffer, offset, length, header.position(), System.nanoTime()));
+    private final MessageHeaderDecoder headerDecoder = new MessageHeaderDecoder();
+    private final SessionMessageHeaderDecoder sessionHeaderDecoder = new SessionMessageHeaderDecoder();
+
+    private CountersReader countersReader;
+    private int roleCounterId = CountersReader.NULL_COUNTER_ID;
+    private int commitPositionCounterId = CountersReader.NULL_COUNTER_ID;
+
+    // Guarded by this: written by the polling thread, drained by the metrics thread
+    private final Long2ObjectHashMap<IngressQueue> ingressBySession = new Long2ObjectHashMap<>();
+    private final LongQueue pendingPositions = new LongQueue(PENDING_COMMIT_CAPACITY);
+    private final LongQueue pendingIngressTimes = new LongQueue(PENDING_COMMIT_CAPACITY);
+    private final Log2Histogram ingressToAppend = new Log2Histogram();
+    private final Log2Histogram ingressToCommit = new Log2Histogram();
+    private long unmatched;
+    private long unmatchedLog;
+    private long intervalStart = System.currentTimeMillis();
+
+    private volatile boolean running;
+    private Thread thread;
+
+    /**
+     * @param aeronClusterId Aeron's cluster id of the node, which tells its role and commit position
+     *                       counters apart from those of other nodes on the same media driver
+     */
+    public CommitLatencyTracker(AeronClients clients, CncReader cncReader, int aeronClusterId,
+                                boolean enabled, int ingressStreamId, int logStreamId) {
+        this.clients = clients;
+        this.cncReader = cncReader;
+        this.aeronClusterId = aeronClusterId;
+        this.enabled = enabled;
+        this.ingressStreamId = ingressStreamId;
+        this.logStreamId = logStreamId;
+    }
+
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, "commit-latency-tracker");
+        thread.setDaemon(true);
+        thread.start();
+        LOGGER.info("Commit latency tracker started (ingress stream {}, log stream {})", ingressStreamId, logStreamId);
+    }
+
+    private void run() {
+        IdleStrategy idleStrategy = new SleepingMillisIdleStrategy(1);
+        long lastResolve = 0;
+        while (running) {
+            long now = System.currentTimeMillis();
+            if (now - lastResolve >= RESOLVE_INTERVAL_MS) {
+                lastResolve = now;
+                try {
+                    resolve();
+                } catch (Exception e) {
+                    LOGGER.debug("Commit latency tracker refresh failed: {}", e.getMessage());
+                }
+            }
+
+            int work = 0;
+            if (!logSubscriptions.isEmpty()) {
+                synchronized (this) {
+                    // Ingress first, so a log entry is never seen before the ingress message it carries
+                    for (Subscription subscription : ingressSubscriptions.values()) {
+                        work += subscription.poll(ingressAssembler, FRAGMENT_LIMIT);
+                    }
+                    for (Subscription subscription : logSubscriptions.values()) {
+                        work += subscription.poll(logAssembler, FRAGMENT_LIMIT);
+                    }
+                    if (commitPositionCounterId != CountersReader.NULL_COUNTER_ID) {
+                        work += onCommitPosition(countersReader.getCounterValue(commitPositionCounterId),
+                                System.nanoTime());
+                    }
+                }
+            }
+            idleStrategy.idle(work);
+        }
+        closeSubscriptions();
+    }
+
+    /**
+     * Re-resolves counters and subscriptions. Subscriptions are only held while this node is
+     * leader: followers receive the log rather than publish it, and see no client ingress.
+     */
+    private void resolve() {
+        Aeron aeron = clients.aeron();
+        if (aeron == null || aeron.isClosed()) {
+            return;
+        }
+        CountersReader counters = aeron.countersReader();
+        countersReader = counters;
+        roleCounterId = ClusterCounters.find(counters, CLUSTER_NODE_ROLE_TYPE_ID, aeronClusterId);
+        commitPositionCounterId = ClusterCounters.find(counters, COMMIT_POSITION_TYPE_ID, aeronClusterId);
+
+        boolean leader = roleCounterId != CountersReader.NULL_COUNTER_ID
+                && commitPositionCounterId != CountersReader.NULL_COUNTER_ID
+                && counters.getCounterValue(roleCounterId) == ROLE_LEADER;
+        if (!leader) {
+            if (!logSubscriptions.isEmpty()) {
+                LOGGER.info("Commit latency tracker paused: node is not leader");
+                closeSubscriptions();
+            }
+            return;
+        }
+
+        CncReader.CncSnapshot cnc = cncReader.read();
+        align(aeron, ingressSubscriptions, ChannelDiscovery.findObservationChannels(cnc.counters, ingressStreamId),
+                ingressStreamId);
+        align(aeron, logSubscriptions, ChannelDiscovery.findObservationChannels(cnc.counters, logStreamId),
+                logStreamId);
+        synchronized (this) {
+            expireAll(System.nanoTime());
+        }
+    }
+
+    private void align(Aeron aeron, Map<String, Subscription> subscriptions, List<String> channels, int streamId) {
+        // Subscriptions of a client that has since been replaced by a reconnect are closed
+        subscriptions.values().removeIf(Subscription::isClosed);
+        Set<String> wanted = new HashSet<>();
+        for (String channel : channels) {
+            wanted.add(channel);
+            if (!subscriptions.containsKey(channel)) {
+                subscriptions.put(channel, aeron.addSubscription(channel, streamId));
+                LOGGER.info("Commit latency tracker observing stream {} via {}", streamId, channel);
+            }
+        }
+        subscriptions.entrySet().removeIf(entry -> {
+            if (wanted.contains(entry.getKey())) {
+                return false;
+            }
+            entry.getValue().close();
+            return true;
+        });
+    }
+
+    private void closeSubscriptions() {
+        ingressSubscriptions.values().forEach(Subscription::close);
+        ingressSubscriptions.clear();
+        logSubscriptions.values().forEach(Subscription::close);
+        logSubscriptions.clear();
+        synchronized (this) {
+            ingressBySession.clear();
+            pendingPositions.clear();
+            pendingIngressTimes.clear();
+        }
+    }
+
+    void onIngress(DirectBuffer buffer, int offset, int length, long nowNs) {
+        long clusterSessionId = sessionIdOf(buffer, offset, length);
+        if (clusterSessionId == Long.MIN_VALUE) {
+            return;
+        }
+        IngressQueue queue = ingressBySession.get(clusterSessionId);
+        if (queue == null) {
+            if (ingressBySession.size() >= MAX_TRACKED_SESSIONS) {
+                unmatched++;
+                return;
+            }
+            queue = new IngressQueue(SESSION_QUEUE_INITIAL_CAPACITY, SESSION_QUEUE_CAPACITY);
+            ingressBySession.put(clusterSessionId, queue);
+        }
+        if (queue.isFull()) {
+            queue.poll();
+            unmatched++;
+        }
+        queue.offer(payloadHash(buffer, offset, length), nowNs);
+    }
+
+    /**
+     * @param position log position at the end of this (reassembled) message
+     */
+    void onLog(DirectBuffer buffer, int offset, int length, long position, long nowNs) {
+        long clusterSessionId = sessionIdOf(buffer, offset, length);
+        if (clusterSessionId == Long.MIN_VALUE) {
+            return;
+        }
+        IngressQueue queue = ingressBySession.get(clusterSessionId);
+        if (queue != null) {
+            expire(queue, nowNs);
+        }
+        int index = queue != null ? queue.indexOf(payloadHash(buffer, offset, length)) : -1;
+        if (index < 0) {
+            unmatchedLog++;
+            return;
+        }
+        // Messages queued ahead of the match never reached the log
+        for (int i = 0; i < index; i++) {
+            queue.poll();
+            unmatched++;
+        }
+        long ingressTime = queue.peekTime();
+        queue.poll();
+        ingressToAppend.record(nowNs - ingressTime);
+        if (pendingPositions.isFull()) {
+            pendingPositions.poll();
+            pendingIngressTimes.poll();
+        }
+        // Committed once the commit position reaches the end of the entry
+        pendingPositions.offer(position);
+        pendingIngressTimes.offer(ingressTime);
+    }
+
+    int onCommitPosition(long commitPosition, long nowNs) {
+        int committed = 0;
+        while (!pendingPositions.isEmpty() && pendingPositions.peek() <= commitPosition) {
+            pendingPositions.poll();
+            ingressToCommit.record(nowNs - pendingIngressTimes.poll());
+            committed++;
+        }
+        return committed;
+    }
+
+    /**
+     * Hash of the payload following the session header, which the log entry carries unchanged.
+     */
+    private long payloadHash(DirectBuffer buffer, int offset, int length) {
+        int payloadOffset = MessageHeaderDecoder.ENCODED_LENGTH + headerDecoder.blockLength();
+        int payloadLength = length - payloadOffset;
+        long hash = payloadLength;
+        int end = offset + payloadOffset + Math.min(payloadLength, HASHED_PAYLOAD_LENGTH);
+        for (int i = offset + payloadOffset; i < end; i++) {
+            hash = 31 * hash + buffer.getByte(i);
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the cluster session id of a session message, or {@link Long#MIN_VALUE} for anything
+     * else (session open/close, keep-alives, timers and other consensus module traffic).
+     */
+    private long sessionIdOf(DirectBuffer buffer, int offset, int length) {
+        if (length < MessageHeaderDecoder.ENCODED_LENGTH) {
+            return Long.MIN_VALUE;
+        }
+        headerDecoder.wrap(buffer, offset);
+        if (headerDecoder.schemaId() != MessageHeaderDecoder.SCHEMA_ID
+                || headerDecoder.templateId() != SessionMessageHeaderDecoder.TEMPLATE_ID
+                || length < MessageHeaderDecoder.ENCODED_LENGTH + headerDecoder.blockLength()) {
+            return Long.MIN_VALUE;
+        }
+        sessionHeaderDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
+        return sessionHeaderDecoder.clusterSessionId();
+    }
+
+    private void expire(IngressQueue queue, long now) {
+        while (!queue.isEmpty() && now - queue.peekTime() > MATCH_TIMEOUT_NS) {
+            queue.poll();
+            unmatched++;
+        }
+    }
+
+    void expireAll(long now) {
+        ingressBySession.values().removeIf(queue -> {
+            expire(queue, now);
+            return queue.isEmpty();
+        });
+    }
+
+    /**
+     * Returns the latencies recorded since the previous call and starts a new interval.
+     */
+    public synchronized CommitLatency drain() {
+        long now = System.currentTimeMillis();
+        CommitLatency latency = CommitLatency.newBuilder()
+                .setIntervalStart(intervalStart)
+                .setIntervalEnd(now)
+                .setIngressToAppend(ingressToAppend.toProto())
+                .setIngressToCommit(ingressToCommit.toProto())
+                .setUnmatched(unmatched)
+                .setUnmatchedLog(unmatchedLog)
+                .build();
+        ingressToAppend.reset();
+        ingressToCommit.reset();
+        unmatched = 0;
+        unmatchedLog = 0;
+        intervalStart = now;
+        return latency;
+    }
+
+    public boolean isEnabled() {
+        return running;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        if (thread != null) {
+            try {
+                thread.join(2_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Bounded FIFO of a session's ingress messages: payload hash and time observed.
+     */
+    static final class IngressQueue {
+        private final LongQueue hashes;
+        private final LongQueue times;
+
+        IngressQueue(int initialCapacity, int maxCapacity) {
+            this.hashes = new LongQueue(initialCapacity, maxCapacity);
+            this.times = new LongQueue(initialCapacity, maxCapacity);
+        }
+
+        boolean isEmpty() {
+            return hashes.isEmpty();
+        }
+
+        boolean isFull() {
+            return hashes.isFull();
+        }
+
+        void offer(long hash, long timeNs) {
+            hashes.offer(hash);
+            times.offer(timeNs);
+        }
+
+        long peekTime() {
+            return times.peek();
+        }
+
+        void poll() {
+            hashes.poll();
+            times.poll();
+        }
+
+        /**
+         * Position from the head of the oldest message with this hash, -1 if there is none.
+         */
+        int indexOf(long hash) {
+            return hashes.indexOf(hash);
+        }
+
+        int size() {
+            return hashes.size;
+        }
+    }
+
+    /**
+     * Bounded FIFO of primitive longs, growing its array up to the bound as it fills.
+     */
+    static final class LongQueue {
+        private final int maxCapacity;
+        private long[] values;
+        private int head;
+        private int size;
+
+        LongQueue(int capacity) {
+            this(capacity, capacity);
+        }
+
+        LongQueue(int initialCapacity, int maxCapacity) {
+            this.values = new long[initialCapacity];
+            this.maxCapacity = maxCapacity;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        boolean isFull() {
+            return size == maxCapacity;
+        }
+
+        void offer(long value) {
+            if (size == values.length) {
+                grow();
+            }
+            values[(head + size) % values.length] = value;
+            size++;
+        }
+
+        long peek() {
+            return values[head];
+        }
+
+        long poll() {
+            long value = values[head];
+            head = (head + 1) % values.length;
+            size--;
+            return value;
+        }
+
+        int indexOf(long value) {
+            for (int i = 0; i < size; i++) {
+                if (values[(head + i) % values.length] == value) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        void clear() {
+            head = 0;
+            size = 0;
+        }
+
+        int capacity() {
+            return values.length;
+        }
+
+        private void grow() {
+            long[] grown = new long[Math.min(values.length * 2, maxCapacity)];
+            for (int i = 0; i < size; i++) {
+                grown[i] = values[(head + i) % values.length];
+            }
+            values = grown;
+            head = 0;
+        }
+    }
+}
@@ -2,72 +2,135 @@ package it.podlodowski.aeronmgmt.agent;
 
 import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
 import io.grpc.stub.StreamObserver;
 import it.podlodowski.aeronmgmt.common.proto.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class GrpcAgentClient {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(GrpcAgentClient.class);
-    private static final long RECONNECT_DELAY_MS = 5000;
+    /** State-change reports allowed to wait for a slow server before the stream is reset. */
+    private static final int MAX_RETAINED_REPORTS = 64;
 
     private final AgentConfig config;
     private final ClusterMarkFileReader identity;
-    private final AdminCommandExecutor commandExecutor;
+    private final CommandPool commandPool;
     private final StateChangeBuffer stateChangeBuffer;
+    private final MetricsSpool spool;
+    private final int replayRate;
+    private final int maxReplayBatch;
+    private final long metricsIntervalMs;
+    private long lastReplayMs;
     private final AtomicBoolean connected = new AtomicBoolean(false);
+    private final MetricsOutbox metricsOutbox;
+    private final ReconnectBackoff backoff;
+    private volatile long retryAfterMs;
 
-    private ManagedChannel channel;
+    private final ManagedChannel channel;
+    private final String clusterId;
+    private volatile boolean closed;
     private volatile StreamObserver<AgentMessage> requestObserver;
+    private volatile ClientCallStreamObserver<AgentMessage> requestStream;
 
-    public GrpcAgentClient(AgentConfig config, ClusterMarkFileReader identity, AdminCommandExecutor commandExecutor, StateChangeBuffer stateChangeBuffer) {
+    /**
+     * @param channel channel to the management server, shared by all nodes the agent monitors
+     * @param spool where samples go while disconnected, or null to drop them
+     */
+    public GrpcAgentClient(AgentConfig config, ManagedChannel channel, String clusterId,
+                           ClusterMarkFileReader identity, CommandPool commandPool,
+                           StateChangeBuffer stateChangeBuffer, MetricsSpool spool) {
         this.config = config;
+        this.channel = channel;
+        this.clusterId = clusterId;
         this.identity = identity;
-        this.commandExecutor = commandExecutor;
+        this.commandPool = commandPool;
         this.stateChangeBuffer = stateChangeBuffer;
+        this.spool = spool;
+        this.replayRate = config.spoolReplayRate;
+        this.metricsIntervalMs = config.metricsIntervalMs;
+        this.maxReplayBatch = (int) Math.max(1, config.spoolReplayRate
+                * Math.max(config.metricsIntervalMs, config.slowIntervalMs) / 1000);
+        this.metricsOutbox = new MetricsOutbox(MAX_RETAINED_REPORTS, config.metricsBatchSize);
+        this.backoff = new ReconnectBackoff(config.reconnectBaseMs, config.reconnectMaxMs);
+    }
+
+    /**
+     * Creates the channel to the management server. One channel carries the streams of all
+     * monitored nodes; gRPC re-establishes it after the server goes away.
+     */
+    public static ManagedChannel createChannel(AgentConfig config) {
+        return ManagedChannelBuilder
+                .forAddress(config.managementServerHost, config.managementServerPort)
+                .usePlaintext()
+                .keepAliveTime(60, TimeUnit.SECONDS)
+                .keepAliveTimeout(10, TimeUnit.SECONDS)
+                .build();
     }
 
     /**
-     * Attempts to connect, retrying indefinitely until successful.
+     * Attempts to connect, retrying until successful or shut down.
      * Safe to call from any thread.
      */
     public void connect() {
-        while (!Thread.currentThread().isInterrupted()) {
+        while (!closed && !Thread.currentThread().isInterrupted()) {
             try {
                 doConnect();
                 return;
             } catch (Exception e) {
+                long delayMs = nextReconnectDelayMs();
                 LOGGER.warn("Failed to connect to management server: {}. Retrying in {}ms...",
-                        e.getMessage(), RECONNECT_DELAY_MS);
-                sleep(RECONNECT_DELAY_MS);
+                        e.getMessage(), delayMs);
+                sleep(delayMs);
             }
         }
     }
 
     private void doConnect() {
-        closeChannel();
-
-        channel = ManagedChannelBuilder
-                .forAddress(config.managementServerHost, config.managementServerPort)
-                .usePlaintext()
-                .keepAliveTime(60, TimeUnit.SECONDS)
-                .keepAliveTimeout(10, TimeUnit.SECONDS)
-                .build();
+        // We pace reconnects ourselves; don't let the channel's own backoff delay them further
+        channel.resetConnectBackoff();
 
         AgentServiceGrpc.AgentServiceStub asyncStub = AgentServiceGrpc.newStub(channel);
+        if (config.metricsBatchSize > 1) {
+            // Consecutive samples share most counter labels and values; gzip takes the batch down several-fold
+            asyncStub = asyncStub.withCompression("gzip");
+        }
+
+        ClientResponseObserver<AgentMessage, ServerMessage> responseObserver = new ClientResponseObserver<>() {
+            @Override
+            public void beforeStart(ClientCallStreamObserver<AgentMessage> stream) {
+                requestStream = stream;
+                // Metrics wait in the outbox until gRPC can take them without buffering
+                stream.setOnReadyHandler(GrpcAgentClient.this::drainMetrics);
+            }
 
-        StreamObserver<ServerMessage> responseObserver = new StreamObserver<>() {
             @Override
             public void onNext(ServerMessage message) {
-                if (message.hasCommand()) {
+                if (message.hasAck()) {
+                    backoff.reset();
+                } else if (message.hasClockPing()) {
+                    sendClockPong(message.getClockPing(), nowMicros());
+                } else if (message.hasRetryAfter()) {
+                    retryAfterMs = message.getRetryAfter().getDelayMs();
+                    LOGGER.info("Server deferred registration: {}. Retrying in at least {}ms",
+                            message.getRetryAfter().getReason(), retryAfterMs);
+                } else if (message.hasCommand()) {
                     AdminCommand cmd = message.getCommand();
                     LOGGER.info("Received command: {}", cmd.getType());
-                    CommandResult result = commandExecutor.execute(cmd);
-                    sendCommandResult(result);
+                    commandPool.submit(cmd, GrpcAgentClient.this::sendCommandProgress,
+                            GrpcAgentClient.this::sendCommandResult);
+                } else if (message.hasCancel()) {
+                    String commandId = message.getCancel().getCommandId();
+                    if (!commandPool.cancel(commandId)) {
+                        LOGGER.debug("Cancel for {} ignored: command already completed", commandId);
+                    }
                 }
             }
 
@@ -94,51 +157,180 @@ public class GrpcAgentClient {
                         .setAgentMode(identity.agentMode())
                         .setAgentId(config.agentId)
                         .setHostname(getHostname())
-                        .setClusterId(config.clusterId)
+                        .setClusterId(clusterId)
                         .addAllBufferedStateChanges(snapshot.entries())
                         .putAllCurrentCounterValues(snapshot.counterValues())
                         .build())
                 .build());
 
         connected.set(true);
-        LOGGER.info("Connected to management server at {}:{}",
-                config.managementServerHost, config.managementServerPort);
+        LOGGER.info("Node {} of cluster {} connected to management server at {}:{}",
+                identity.nodeId(), clusterId, config.managementServerHost, config.managementServerPort);
     }
 
     private void handleDisconnect() {
         if (connected.compareAndSet(true, false)) {
-            LOGGER.info("Disconnected. Will reconnect in {}ms...", RECONNECT_DELAY_MS);
+            metricsOutbox.clear(false);
+            long delayMs = nextReconnectDelayMs();
+            LOGGER.info("Disconnected. Will reconnect in {}ms...", delayMs);
             new Thread(() -> {
-                sleep(RECONNECT_DELAY_MS);
+                sleep(delayMs);
                 connect();
             }, "grpc-reconnect").start();
         }
     }
 
+    /**
+     * Jittered exponential backoff, but never sooner than the server asked for.
+     */
+    private long nextReconnectDelayMs() {
+        long hint = retryAfterMs;
+        retryAfterMs = 0;
+        return Math.max(hint, backoff.nextDelayMs());
+    }
+
     public boolean isConnected() {
         return connected.get();
     }
 
+    /**
+     * Queues the report and sends whatever the stream is ready for. Never blocks and never lets
+     * gRPC buffer reports the server is not reading: unsent reports are conflated in the outbox.
+     * While disconnected, the report goes to the spool instead.
+     */
     public void sendMetrics(MetricsReport report) {
+        if (requestObserver == null || !connected.get()) {
+            if (spool != null) {
+                spool.append(report, System.currentTimeMillis());
+            }
+            return;
+        }
+        if (!metricsOutbox.offer(report, System.nanoTime())) {
+            LOGGER.warn("More than {} state-change reports waiting for the server, resetting stream",
+                    MAX_RETAINED_REPORTS);
+            resetStream();
+            return;
+        }
+        drainMetrics();
+        replaySpool();
+    }
+
+    /**
+     * Sends the next batch of spooled samples, as many as the replay rate allows for the time
+     * since the previous batch, and only once live reports have gone out.
+     */
+    private synchronized void replaySpool() {
         StreamObserver<AgentMessage> observer = requestObserver;
-        if (observer == null || !connected.get()) {
+        ClientCallStreamObserver<AgentMessage> stream = requestStream;
+        if (spool == null || spool.isEmpty() || observer == null || stream == null
+                || !connected.get() || !stream.isReady() || !metricsOutbox.isEmpty()) {
+            return;
+        }
+        long nowMs = System.currentTimeMillis();
+        long elapsedMs = lastReplayMs == 0 ? metricsIntervalMs : nowMs - lastReplayMs;
+        int max = (int) Math.max(1, Math.min(maxReplayBatch, replayRate * elapsedMs / 1000));
+        lastReplayMs = nowMs;
+        MetricsSpool.Batch batch = spool.peek(max, nowMs);
+        if (batch.reports().isEmpty()) {
+            spool.release(batch);
             return;
         }
         try {
-            observer.onNext(AgentMessage.newBuilder()
-                    .setMetrics(report)
+            send(observer, AgentMessage.newBuilder()
+                    .setMetricsBatch(MetricsBatch.newBuilder()
+                            .addAllReports(batch.reports())
+                            .setReplayed(true))
                     .build());
+            spool.release(batch);
+        } catch (Exception e) {
+            LOGGER.warn("Failed to replay spooled metrics: {}", e.getMessage());
+            handleDisconnect();
+        }
+    }
+
+    private synchronized void drainMetrics() {
+        StreamObserver<AgentMessage> observer = requestObserver;
+        ClientCallStreamObserver<AgentMessage> stream = requestStream;
+        if (observer == null || stream == null || !connected.get()) {
+            return;
+        }
+        try {
+            while (stream.isReady()) {
+                List<MetricsReport> next = metricsOutbox.poll(System.nanoTime());
+                if (next == null) {
+                    return;
+                }
+                AgentMessage.Builder message = AgentMessage.newBuilder();
+                if (next.size() == 1) {
+                    message.setMetrics(next.get(0));
+                } else {
+                    message.setMetricsBatch(MetricsBatch.newBuilder().addAllReports(next));
+                }
+                send(observer, message.build());
+            }
         } catch (Exception e) {
             LOGGER.warn("Failed to send metrics: {}", e.getMessage());
             handleDisconnect();
         }
     }
 
+    /**
+     * Abandons a stream the server is not keeping up with. State changes still queued reach
+     * the server through the buffered state changes of the next registration.
+     */
+    private void resetStream() {
+        metricsOutbox.clear(true);
+        ClientCallStreamObserver<AgentMessage> stream = requestStream;
+        if (stream != null) {
+            stream.cancel("Server not keeping up with state-change reports", null);
+        }
+        handleDisconnect();
+    }
+
+    /**
+     * Answers a clock ping at once. The send time is taken under the send lock, so time spent
+     * waiting for a metrics send is not counted as network delay.
+     */
+    private synchronized void sendClockPong(ClockPing ping, long receivedMicros) {
+        StreamObserver<AgentMessage> observer = requestObserver;
+        if (observer == null || !connected.get()) {
+            return;
+        }
+        try {
+            observer.onNext(AgentMessage.newBuilder()
+                    .setClockPong(ClockPong.newBuilder()
+                            .setServerSendTimeUs(ping.getServerSendTimeUs())
+                            .setAgentReceiveTimeUs(receivedMicros)
+                            .setAgentSendTimeUs(nowMicros()))
+                    .build());
+        } catch (Exception e) {
+            LOGGER.warn("Failed to answer clock ping: {}", e.getMessage());
+        }
+    }
+
+    private static long nowMicros() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000 + now.getNano() / 1_000;
+    }
+
+    private void sendCommandProgress(CommandProgress progress) {
+        StreamObserver<AgentMessage> observer = requestObserver;
+        if (observer != null && connected.get()) {
+            try {
+                send(observer, AgentMessage.newBuilder()
+                        .setCommandProgress(progress)
+                        .build());
+            } catch (Exception e) {
+                LOGGER.warn("Failed to send command progress: {}", e.getMessage());
+            }
+        }
+    }
+
     private void sendCommandResult(CommandResult result) {
         StreamObserver<AgentMessage> observer = requestObserver;
         if (observer != null && connected.get()) {
             try {
-                observer.onNext(AgentMessage.newBuilder()
+                send(observer, AgentMessage.newBuilder()
                         .setCommandResult(result)
                         .build());
             } catch (Exception e) {
@@ -147,27 +339,38 @@ public class GrpcAgentClient {
         }
     }
 
+    /**
+     * Stream observers are not thread-safe; metrics and command workers send concurrently.
+     */
+    private synchronized void send(StreamObserver<AgentMessage> observer, AgentMessage message) {
+        observer.onNext(message);
+    }
+
+    /**
+     * Ends this node's stream. The shared channel is left open.
+     */
     public void shutdown() {
+        closed = true;
         connected.set(false);
         if (requestObserver != null) {
             try {
                 requestObserver.onCompleted();
             } catch (Exception ignored) {}
         }
-        closeChannel();
     }
 
-    private void closeChannel() {
-        if (channel != null && !channel.isShutdown()) {
-            channel.shutdown();
-            try {
-                channel.awaitTermination(2, TimeUnit.SECONDS);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-            if (!channel.isTerminated()) {
-                channel.shutdownNow();
-            }
+    /**
+     * Shuts down the channel shared by all nodes' clients.
+     */
+    public static void closeChannel(ManagedChannel channel) {
+        channel.shutdown();
+        try {
+            channel.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!channel.isTerminated()) {
+            channel.shutdownNow();
         }
     }
 
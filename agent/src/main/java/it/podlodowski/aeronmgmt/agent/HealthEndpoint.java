@@ -1,66 +1,116 @@
 package it.podlodowski.aeronmgmt.agent;
 
-import java.io.IOException;
-import java.io.OutputStream;
-import java.net.ServerSocket;
-import java.net.Socket;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * HTTP endpoint of the agent:
+ * <ul>
+ *   <li>{@code /health} (and any other path): status of each monitored node as JSON; 200 when
+ *       every node is being monitored and its CnC file is readable, 503 otherwise. The connection
+ *       to the management server is reported but does not make the agent unhealthy.</li>
+ *   <li>{@code /metrics}: the latest sample of each node in the Prometheus text format, so
+ *       counters can be scraped locally even while the management server is down.</li>
+ * </ul>
+ * Requests are served one at a time on a single daemon thread.
+ */
 public class HealthEndpoint {
 
     private static final Logger log = LoggerFactory.getLogger(HealthEndpoint.class);
 
-    private static final String RESPONSE =
-            "HTTP/1.1 200 OK\r\n"
-                    + "Content-Type: text/plain\r\n"
-                    + "Content-Length: 2\r\n"
-                    + "Connection: close\r\n"
-                    + "\r\n"
-                    + "OK";
+    private static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
 
-    private final ServerSocket serverSocket;
-    private volatile boolean running = true;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final List<NodeAgent> nodes;
+    private final PrometheusWriter prometheusWriter = new PrometheusWriter();
 
-    public HealthEndpoint(int port) throws IOException {
-        this.serverSocket = new ServerSocket(port);
-        Thread acceptThread = new Thread(this::acceptLoop, "health-endpoint");
-        acceptThread.setDaemon(true);
-        acceptThread.start();
-        log.info("Health endpoint listening on port {}", port);
+    HealthEndpoint(int port, List<NodeAgent> nodes) throws IOException {
+        this.nodes = List.copyOf(nodes);
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "health-endpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.createContext("/", this::handleHealth);
+        server.createContext("/metrics", this::handleMetrics);
+        server.setExecutor(executor);
+        server.start();
+        log.info("Health endpoint listening on port {}", server.getAddress().getPort());
     }
 
-    private void acceptLoop() {
-        while (running) {
-            try (Socket client = serverSocket.accept()) {
-                // Drain the request (read until we see end of headers or socket times out)
-                client.setSoTimeout(1000);
-                try {
-                    //noinspection StatementWithEmptyBody
-                    while (client.getInputStream().read() != -1) {
-                        // We only need to consume enough for the server to respond,
-                        // but reading until EOF or timeout is simplest.
-                    }
-                } catch (IOException ignored) {
-                    // Timeout or reset — fine, we still send the response
-                }
-                OutputStream out = client.getOutputStream();
-                out.write(RESPONSE.getBytes());
-                out.flush();
-            } catch (IOException e) {
-                if (running) {
-                    log.debug("Health endpoint accept error", e);
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        List<NodeAgent.Status> statuses = statuses();
+        boolean healthy = !statuses.isEmpty();
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"nodes\":[");
+        for (int i = 0; i < statuses.size(); i++) {
+            NodeAgent.Status status = statuses.get(i);
+            healthy &= status.started() && status.cncAccessible();
+            json.append(i > 0 ? "," : "")
+                    .append("{\"clusterId\":\"").append(jsonEscape(status.target().clusterId()))
+                    .append("\",\"clusterDir\":\"").append(jsonEscape(status.target().clusterDirTemplate()))
+                    .append("\",\"nodeId\":").append(status.nodeId() >= 0 ? String.valueOf(status.nodeId()) : "null")
+                    .append(",\"started\":").append(status.started())
+                    .append(",\"cncAccessible\":").append(status.cncAccessible())
+                    .append(",\"driverActive\":")
+                    .append(status.lastReport() != null && status.lastReport().getNodeReachable())
+                    .append(",\"grpcConnected\":").append(status.grpcConnected())
+                    .append('}');
+        }
+        json.append("],\"status\":\"").append(healthy ? "UP" : "DOWN").append("\"}");
+
+        byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+        respond(exchange, healthy ? 200 : 503, "application/json", body, body.length);
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        int length = prometheusWriter.render(statuses());
+        respond(exchange, 200, PROMETHEUS_CONTENT_TYPE, prometheusWriter.array(), length);
+    }
+
+    private List<NodeAgent.Status> statuses() {
+        List<NodeAgent.Status> statuses = new ArrayList<>(nodes.size());
+        for (NodeAgent node : nodes) {
+            statuses.add(node.status());
+        }
+        return statuses;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, byte[] body, int length)
+            throws IOException {
+        try {
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            boolean head = "HEAD".equals(exchange.getRequestMethod());
+            exchange.sendResponseHeaders(status, head ? -1 : length);
+            if (!head) {
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body, 0, length);
                 }
             }
+        } finally {
+            exchange.close();
         }
     }
 
+    private static String jsonEscape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
     public void stop() {
-        running = false;
-        try {
-            serverSocket.close();
-        } catch (IOException e) {
-            log.debug("Error closing health endpoint socket", e);
-        }
+        server.stop(0);
+        executor.shutdownNow();
     }
 }
@@ -0,0 +1,88 @@
+package it.podlodowski.aeronmgmt.agent;
+
+import it.podlodowski.aeronmgmt.common.proto.Histogram;
+
+import java.util.Arrays;
+
+/**
+ * Allocation-free histogram with power-of-two buckets.
+ *
+ * <p>Bucket {@code i} counts values in {@code [2^(i-1), 2^i)}; bucket 0 counts zeros and negatives.
+ * Coarse, but constant-size and cheap enough to record on every fragment. Not thread-safe.
+ */
+public class Log2Histogram {
+
+    private static final int BUCKET_COUNT = 64;
+
+    private final long[] buckets = new long[BUCKET_COUNT];
+    private long count;
+    private long sum;
+    private long max;
+
+    public void record(long value) {
+        buckets[bucketIndex(value)]++;
+        count++;
+        if (value > 0) {
+            sum += value;
+            if (value > max) {
+                max = value;
+            }
+        }
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public long max() {
+        return max;
+    }
+
+    /**
+     * Returns the upper bound of the bucket containing the given percentile (0-100).
+     * Overestimates by at most a factor of two.
+     */
+    public long percentileUpperBound(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(count * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets[i];
+            if (seen >= Math.max(1, target)) {
+                return i == 0 ? 0 : Math.min(max, (1L << i) - 1);
+            }
+        }
+        return max;
+    }
+
+    public void reset() {
+        Arrays.fill(buckets, 0);
+        count = 0;
+        sum = 0;
+        max = 0;
+    }
+
+    /**
+     * Converts to protobuf, trimming trailing empty buckets.
+     */
+    public Histogram toProto() {
+        int last = BUCKET_COUNT - 1;
+        while (last >= 0 && buckets[last] == 0) {
+            last--;
+        }
+        Histogram.Builder builder = Histogram.newBuilder()
+                .setCount(count)
+                .setSum(sum)
+                .setMax(max);
+        for (int i = 0; i <= last; i++) {
+            builder.addBuckets(buckets[i]);
+        }
+        return builder.build();
+    }
+
+    static int bucketIndex(long value) {
+        return value <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(value);
+    }
+}
@@ -2,20 +2,14 @@ package it.podlodowski.aeronmgmt.agent;
 
 import it.podlodowski.aeronmgmt.common.proto.ClusterMetrics;
 import it.podlodowski.aeronmgmt.common.proto.MetricsReport;
+import it.podlodowski.aeronmgmt.common.proto.ProcessMetrics;
 import it.podlodowski.aeronmgmt.common.proto.SystemMetrics;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.util.List;
 
 public class MetricsCollector {
 
-    private static final Logger LOGGER = LoggerFactory.getLogger(MetricsCollector.class);
-    private static final Path PROC_STATUS = Path.of("/proc/self/status");
-
     private final CncReader cncReader;
     private final ArchiveMetricsCollector archiveCollector;
     private final int nodeId;
@@ -24,11 +18,21 @@ public class MetricsCollector {
     private final SpyRecordingManager spyRecordingManager;
     private final StateChangeBuffer stateChangeBuffer;
     private final File shmDir;
+    private final TrafficProfiler trafficProfiler;
+    private final CommitLatencyTracker commitLatencyTracker;
+    private final CommandPool commandPool;
+    private final ProcessSampler processSampler;
+    private final NetworkSampler networkSampler;
+    private final StateTransitionWatcher transitionWatcher;
+    private final long nodePid;
 
     public MetricsCollector(CncReader cncReader, ArchiveMetricsCollector archiveCollector,
                             int nodeId, String agentMode, String clusterId,
                             SpyRecordingManager spyRecordingManager, StateChangeBuffer stateChangeBuffer,
-                            String aeronDir) {
+                            String aeronDir, TrafficProfiler trafficProfiler,
+                            CommitLatencyTracker commitLatencyTracker, CommandPool commandPool,
+                            ProcessSampler processSampler, NetworkSampler networkSampler, long nodePid,
+                            StateTransitionWatcher transitionWatcher) {
         this.cncReader = cncReader;
         this.archiveCollector = archiveCollector;
         this.nodeId = nodeId;
@@ -38,6 +42,13 @@ public class MetricsCollector {
         this.stateChangeBuffer = stateChangeBuffer;
         // aeronDir is e.g. /dev/shm/-0-driver — resolve parent to get the SHM mount
         this.shmDir = new File(aeronDir).getParentFile();
+        this.trafficProfiler = trafficProfiler;
+        this.commitLatencyTracker = commitLatencyTracker;
+        this.commandPool = commandPool;
+        this.processSampler = processSampler;
+        this.networkSampler = networkSampler;
+        this.transitionWatcher = transitionWatcher;
+        this.nodePid = nodePid;
     }
 
     public MetricsReport collect() {
@@ -50,7 +61,7 @@ public class MetricsCollector {
                     .build();
         }
 
-        MetricsReport report = MetricsReport.newBuilder()
+        MetricsReport.Builder builder = MetricsReport.newBuilder()
                 .setNodeId(nodeId)
                 .setTimestamp(System.currentTimeMillis())
                 .setCncAccessible(cnc.cncAccessible)
@@ -58,11 +69,24 @@ public class MetricsCollector {
                 .setClusterMetrics(clusterMetrics)
                 .addAllCounters(cnc.counters)
                 .addAllRecordings(archiveCollector.collectRecordings())
-                .setSystemMetrics(collectSystemMetrics())
+                .setSystemMetrics(collectSystemMetrics(cnc.driverPid))
                 .setClusterId(clusterId)
-                .setEgressRecording(spyRecordingManager.getStatus())
-                .build();
+                .setEgressRecording(spyRecordingManager.getStatus());
 
+        if (trafficProfiler != null && trafficProfiler.isEnabled()) {
+            builder.setTrafficProfile(trafficProfiler.drain());
+        }
+        if (commitLatencyTracker != null && commitLatencyTracker.isEnabled()) {
+            builder.setCommitLatency(commitLatencyTracker.drain());
+        }
+        if (commandPool != null) {
+            builder.setCommandQueue(commandPool.status());
+        }
+        if (transitionWatcher != null) {
+            builder.addAllStateChanges(transitionWatcher.drain());
+        }
+
+        MetricsReport report = builder.build();
         stateChangeBuffer.onMetrics(report);
 
         return report;
@@ -72,15 +96,12 @@ public class MetricsCollector {
         return stateChangeBuffer;
     }
 
-    private SystemMetrics collectSystemMetrics() {
+    private SystemMetrics collectSystemMetrics(long driverPid) {
         File archiveDir = archiveCollector.getArchiveDir();
         long archiveTotal = archiveDir.getTotalSpace();
         long archiveUsable = archiveDir.getUsableSpace();
-        long rssBytes = readRssBytes();
 
         SystemMetrics.Builder builder = SystemMetrics.newBuilder()
-                .setHeapUsedBytes(rssBytes)
-                .setHeapMaxBytes(rssBytes)
                 .setArchiveDiskTotalBytes(archiveTotal)
                 .setArchiveDiskAvailableBytes(archiveUsable)
                 .setArchiveDiskUsedBytes(archiveTotal - archiveUsable);
@@ -93,20 +114,20 @@ public class MetricsCollector {
                     .setShmDiskUsedBytes(shmTotal - shmUsable);
         }
 
-        return builder.build();
-    }
-
-    private long readRssBytes() {
-        try {
-            for (String line : Files.readAllLines(PROC_STATUS)) {
-                if (line.startsWith("VmRSS:")) {
-                    String[] parts = line.split("\\s+");
-                    return Long.parseLong(parts[1]) * 1024; // kB to bytes
+        if (processSampler != null) {
+            List<ProcessMetrics> processes = processSampler.sample(nodePid, driverPid, System.nanoTime());
+            builder.addAllProcesses(processes);
+            for (ProcessMetrics process : processes) {
+                if (process.getPid() == nodePid) {
+                    builder.setCpuUsage(process.getCpuUsage());
                 }
             }
-        } catch (IOException | NumberFormatException e) {
-            LOGGER.debug("Could not read RSS from /proc/self/status: {}", e.getMessage());
         }
-        return 0;
+
+        if (networkSampler != null) {
+            builder.setNetwork(networkSampler.sample(nodePid, driverPid, System.nanoTime()));
+        }
+
+        return builder.build();
     }
 }
@@ -0,0 +1,146 @@
+package it.podlodowski.aeronmgmt.agent;
+
+import it.podlodowski.aeronmgmt.common.proto.AeronCounter;
+import it.podlodowski.aeronmgmt.common.proto.MetricsReport;
+import it.podlodowski.aeronmgmt.common.proto.MetricsSendStats;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Holds metrics reports while the gRPC stream is not ready to send, without letting them pile up.
+ *
+ * <p>Only the newest ordinary report is kept: when another one arrives before it was sent, it is
+ * replaced (conflated). A report whose cluster state counters (module state, role, election)
+ * differ from the report before it, or that carries transitions caught by the watcher, is retained
+ * in order instead, because the server derives role changes and elections from consecutive
+ * reports. Retained reports are capped; once the cap is
+ * hit the caller should reset the stream so that the registration catch-up takes over.
+ *
+ * <p>With a batch size above one, reports are first gathered into batches of that many samples
+ * and the rules above apply to whole batches. A report that changes state closes its batch early,
+ * so elections and role changes are not held back for the rest of the batch.
+ *
+ * <p>Thread-safe.
+ */
+class MetricsOutbox {
+
+    private static final int MODULE_STATE_TYPE_ID = 200;
+    private static final int NODE_ROLE_TYPE_ID = 201;
+    private static final int ELECTION_STATE_TYPE_ID = 207;
+
+    private final int maxRetained;
+    private final int batchSize;
+    private final ArrayDeque<Pending> queue = new ArrayDeque<>();
+    private List<MetricsReport> batch = new ArrayList<>();
+    private boolean batchRetain;
+    private final Log2Histogram sendLatency = new Log2Histogram();
+    private long[] lastState;
+    private int retained;
+    private long conflated;
+    private long streamResets;
+
+    MetricsOutbox(int maxRetained) {
+        this(maxRetained, 1);
+    }
+
+    MetricsOutbox(int maxRetained, int batchSize) {
+        this.maxRetained = maxRetained;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Adds a report to the current batch. A completed batch is queued, replacing an unsent
+     * ordinary batch.
+     *
+     * @return false if too many state-change batches are waiting; the report is queued regardless
+     */
+    synchronized boolean offer(MetricsReport report, long nowNanos) {
+        long[] state = trackedState(report);
+        boolean stateChange = lastState != null && !Arrays.equals(lastState, state)
+                || report.getStateChangesCount() > 0;
+        lastState = state;
+
+        batch.add(report);
+        batchRetain |= stateChange;
+        if (batch.size() < batchSize && !stateChange) {
+            return retained <= maxRetained;
+        }
+
+        Pending tail = queue.peekLast();
+        if (tail != null && !tail.retain) {
+            queue.pollLast();
+            conflated += tail.reports.size();
+        }
+        queue.addLast(new Pending(batch, nowNanos, batchRetain));
+        if (batchRetain) {
+            retained++;
+        }
+        batch = new ArrayList<>(batchSize);
+        batchRetain = false;
+        return retained <= maxRetained;
+    }
+
+    /**
+     * Takes the oldest batch, its last report stamped with delivery stats up to and including
+     * this batch. Returns null if no complete batch is waiting.
+     */
+    synchronized List<MetricsReport> poll(long nowNanos) {
+        Pending next = queue.pollFirst();
+        if (next == null) {
+            return null;
+        }
+        if (next.retain) {
+            retained--;
+        }
+        sendLatency.record(nowNanos - next.queuedAtNanos);
+        List<MetricsReport> reports = new ArrayList<>(next.reports);
+        int last = reports.size() - 1;
+        reports.set(last, reports.get(last).toBuilder()
+                .setSendStats(MetricsSendStats.newBuilder()
+                        .setSendLatency(sendLatency.toProto())
+                        .setConflated(conflated)
+                        .setQueued(queue.size())
+                        .setStreamResets(streamResets))
+                .build());
+        sendLatency.reset();
+        return reports;
+    }
+
+    synchronized boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    /**
+     * Drops everything queued for a stream that is going away. State changes among them reach
+     * the server through the registration catch-up of the next stream.
+     */
+    synchronized void clear(boolean reset) {
+        queue.clear();
+        batch.clear();
+        batchRetain = false;
+        retained = 0;
+        lastState = null;
+        if (reset) {
+            streamResets++;
+        }
+    }
+
+    private static long[] trackedState(MetricsReport report) {
+        long[] state = {Long.MIN_VALUE, Long.MIN_VALUE, Long.MIN_VALUE};
+        for (AeronCounter counter : report.getCountersList()) {
+            switch (counter.getTypeId()) {
+                case MODULE_STATE_TYPE_ID -> state[0] = counter.getValue();
+                case NODE_ROLE_TYPE_ID -> state[1] = counter.getValue();
+                case ELECTION_STATE_TYPE_ID -> state[2] = counter.getValue();
+                default -> { }
+            }
+        }
+        return state;
+    }
+
+    private record Pending(List<MetricsReport> reports, long queuedAtNanos, boolean retain) {
+    }
+}
@@ -0,0 +1,227 @@
+package it.podlodowski.aeronmgmt.agent;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import it.podlodowski.aeronmgmt.common.proto.MetricsReport;
+import it.podlodowski.aeronmgmt.common.proto.SystemMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only, memory-mapped file of metrics samples recorded while the agent is disconnected,
+ * replayed to the server after reconnecting so a server restart or network partition does not
+ * leave a hole in the node's history.
+ *
+ * <p>The file is a fixed-size ring of length-prefixed records behind a small header holding the
+ * head (oldest record) and tail (next append) positions. When a new sample does not fit, the
+ * oldest ones are dropped; samples older than {@code maxAgeMs} are dropped as well. Because the
+ * file is mapped, samples also survive an agent restart.
+ *
+ * <p>Samples are compacted before spooling: per-interval detail (traffic profile, commit latency,
+ * command queue, send stats), the recordings list and per-thread process metrics are left out;
+ * counters and cluster and system metrics are kept.
+ *
+ * <p>Thread-safe.
+ */
+public class MetricsSpool implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MetricsSpool.class);
+
+    private static final int MAGIC = 0x4D53504C;  // "MSPL"
+    static final int HEADER_LENGTH = 64;
+    private static final int CAPACITY_OFFSET = 4;
+    private static final int HEAD_OFFSET = 8;
+    private static final int TAIL_OFFSET = 16;
+    private static final int RECORD_HEADER_LENGTH = 16;  // int length, int reserved, long timestamp
+    private static final int PADDING = -1;
+    private static final int ALIGNMENT = 8;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final long maxAgeMs;
+    private long head;
+    private long tail;
+
+    public MetricsSpool(Path file, int capacityBytes, long maxAgeMs) throws IOException {
+        this.capacity = capacityBytes & ~(ALIGNMENT - 1);
+        this.maxAgeMs = maxAgeMs;
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        this.channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long fileLength = (long) HEADER_LENGTH + capacity;
+        boolean reuse = channel.size() == fileLength;
+        if (!reuse) {
+            channel.truncate(0);
+        }
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileLength);
+
+        if (reuse && buffer.getInt(0) == MAGIC && buffer.getInt(CAPACITY_OFFSET) == capacity
+                && isValid(buffer.getLong(HEAD_OFFSET), buffer.getLong(TAIL_OFFSET))) {
+            head = buffer.getLong(HEAD_OFFSET);
+            tail = buffer.getLong(TAIL_OFFSET);
+            if (tail > head) {
+                LOGGER.info("Metrics spool {} holds {} bytes from a previous run", file, tail - head);
+            }
+        } else {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(CAPACITY_OFFSET, capacity);
+            storePositions();
+        }
+    }
+
+    /**
+     * Appends a sample, dropping the oldest ones if needed.
+     *
+     * @return false if the sample is larger than the whole spool
+     */
+    public synchronized boolean append(MetricsReport report, long nowMs) {
+        byte[] bytes = compact(report).toByteArray();
+        int recordLength = align(RECORD_HEADER_LENGTH + bytes.length);
+        if (recordLength > capacity) {
+            return false;
+        }
+        evictExpired(nowMs);
+
+        int index = index(tail);
+        int toEnd = capacity - index;
+        if (recordLength > toEnd) {
+            // The record does not fit before the end of the file: pad the rest and wrap around
+            while (head < tail && capacity - (tail - head) < toEnd + recordLength) {
+                evictOne();
+            }
+            if (head == tail) {
+                head += toEnd;
+            } else {
+                buffer.putInt(HEADER_LENGTH + index, PADDING);
+            }
+            tail += toEnd;
+            index = 0;
+        } else {
+            while (capacity - (tail - head) < recordLength) {
+                evictOne();
+            }
+        }
+        int offset = HEADER_LENGTH + index;
+        buffer.putInt(offset, bytes.length);
+        buffer.putLong(offset + 8, report.getTimestamp());
+        buffer.put(offset + RECORD_HEADER_LENGTH, bytes);
+        tail += recordLength;
+        storePositions();
+        return true;
+    }
+
+    /**
+     * Reads up to {@code max} of the oldest samples without removing them; pass the result to
+     * {@link #release} once it was handed to the server.
+     */
+    public synchronized Batch peek(int max, long nowMs) {
+        evictExpired(nowMs);
+        List<MetricsReport> reports = new ArrayList<>();
+        long position = head;
+        while (position < tail && reports.size() < max) {
+            int offset = HEADER_LENGTH + index(position);
+            int length = buffer.getInt(offset);
+            if (length == PADDING) {
+                position += capacity - index(position);
+                continue;
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(offset + RECORD_HEADER_LENGTH, bytes);
+            try {
+                reports.add(MetricsReport.parseFrom(bytes));
+            } catch (InvalidProtocolBufferException e) {
+                LOGGER.warn("Skipping corrupt spooled sample at {}: {}", position, e.getMessage());
+            }
+            position += align(RECORD_HEADER_LENGTH + length);
+        }
+        return new Batch(reports, position);
+    }
+
+    /**
+     * Removes the samples of a batch returned by {@link #peek}.
+     */
+    public synchronized void release(Batch batch) {
+        if (batch.nextPosition > head) {
+            head = Math.min(batch.nextPosition, tail);
+            storePositions();
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        return head == tail;
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            LOGGER.warn("Failed to close metrics spool: {}", e.getMessage());
+        }
+    }
+
+    static MetricsReport compact(MetricsReport report) {
+        MetricsReport.Builder builder = report.toBuilder();
+        if (report.hasSystemMetrics()) {
+            SystemMetrics.Builder systemMetrics = builder.getSystemMetricsBuilder();
+            for (int i = 0; i < systemMetrics.getProcessesCount(); i++) {
+                systemMetrics.getProcessesBuilder(i).clearThreads();
+            }
+        }
+        return builder
+                .clearRecordings()
+                .clearTrafficProfile()
+                .clearCommitLatency()
+                .clearCommandQueue()
+                .clearSendStats()
+                .build();
+    }
+
+    private void evictExpired(long nowMs) {
+        long cutoff = nowMs - maxAgeMs;
+        while (head < tail) {
+            int offset = HEADER_LENGTH + index(head);
+            int length = buffer.getInt(offset);
+            if (length != PADDING && buffer.getLong(offset + 8) >= cutoff) {
+                return;
+            }
+            evictOne();
+        }
+    }
+
+    private void evictOne() {
+        int index = index(head);
+        int length = buffer.getInt(HEADER_LENGTH + index);
+        head += length == PADDING ? capacity - index : align(RECORD_HEADER_LENGTH + length);
+        storePositions();
+    }
+
+    private boolean isValid(long storedHead, long storedTail) {
+        return storedHead >= 0 && storedHead <= storedTail && storedTail - storedHead <= capacity;
+    }
+
+    private void storePositions() {
+        buffer.putLong(HEAD_OFFSET, head);
+        buffer.putLong(TAIL_OFFSET, tail);
+    }
+
+    private int index(long position) {
+        return (int) (position % capacity);
+    }
+
+    private static int align(int length) {
+        return (length + ALIGNMENT - 1) & ~(ALIGNMENT - 1);
+    }
+
+    public record Batch(List<MetricsReport> reports, long nextPosition) {}
+}
@@ -0,0 +1,235 @@
+package it.podlodowski.aeronmgmt.agent;
+
+import it.podlodowski.aeronmgmt.common.proto.InterfaceStats;
+import it.podlodowski.aeronmgmt.common.proto.NetworkMetrics;
+import it.podlodowski.aeronmgmt.common.proto.UdpSocketStats;
+import it.podlodowski.aeronmgmt.common.proto.UdpStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Samples the host network stack from /proc: UDP error counters ({@code /proc/net/snmp}),
+ * per-interface traffic and drops ({@code /proc/net/dev}) and the queues of the UDP sockets held
+ * by the monitored processes ({@code /proc/net/udp} and {@code udp6}). Counters are reported as
+ * totals and as rates since the previous sample; the first sample reports rates of 0.
+ *
+ * <p>The files are read through {@code /proc/<pid>/net} of the monitored process, so a node in a
+ * different network namespace (e.g. another container) is seen from its own namespace.
+ *
+ * <p>Not thread-safe: called from the metrics tick only.
+ */
+class NetworkSampler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NetworkSampler.class);
+
+    private static final String SOCKET_LINK_PREFIX = "socket:[";
+
+    // Columns of /proc/net/dev after the interface name
+    private static final int RX_BYTES = 0;
+    private static final int RX_PACKETS = 1;
+    private static final int RX_DROPS = 3;
+    private static final int TX_BYTES = 8;
+    private static final int TX_PACKETS = 9;
+    private static final int TX_DROPS = 11;
+
+    // Columns of /proc/net/udp
+    private static final int LOCAL_ADDRESS = 1;
+    private static final int QUEUES = 4;
+    private static final int INODE = 9;
+    private static final int SOCKET_DROPS = 12;
+
+    private final Path procRoot;
+    private Map<String, Long> previousTotals = new HashMap<>();
+    private long previousNanos;
+    private Map<String, Long> totals = new HashMap<>();
+    private long nowNanos;
+
+    NetworkSampler(Path procRoot) {
+        this.procRoot = procRoot;
+    }
+
+    /**
+     * @param nodePid   cluster node process, 0 if unknown
+     * @param driverPid media driver process, 0 if unknown; the driver owns the UDP sockets
+     */
+    NetworkMetrics sample(long nodePid, long driverPid, long nowNanos) {
+        this.totals = new HashMap<>();
+        this.nowNanos = nowNanos;
+        long namespacePid = driverPid > 0 ? driverPid : nodePid;
+        Path netDir = namespacePid > 0 && Files.isDirectory(procRoot.resolve(namespacePid + "/net"))
+                ? procRoot.resolve(namespacePid + "/net")
+                : procRoot.resolve("net");
+
+        NetworkMetrics.Builder builder = NetworkMetrics.newBuilder();
+        try {
+            builder.setUdp(sampleUdp(netDir.resolve("snmp")));
+        } catch (IOException | RuntimeException e) {
+            LOGGER.debug("Could not read UDP counters from {}: {}", netDir, e.getMessage());
+        }
+        try {
+            sampleInterfaces(netDir.resolve("dev"), builder);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.debug("Could not read interface counters from {}: {}", netDir, e.getMessage());
+        }
+
+        Set<Long> inodes = new HashSet<>();
+        collectSocketInodes(nodePid, inodes);
+        collectSocketInodes(driverPid, inodes);
+        if (!inodes.isEmpty()) {
+            sampleSockets(netDir.resolve("udp"), inodes, builder);
+            sampleSockets(netDir.resolve("udp6"), inodes, builder);
+        }
+
+        previousTotals = totals;
+        previousNanos = nowNanos;
+        return builder.build();
+    }
+
+    private UdpStats sampleUdp(Path snmp) throws IOException {
+        List<String> lines = Files.readAllLines(snmp);
+        for (int i = 0; i + 1 < lines.size(); i++) {
+            if (lines.get(i).startsWith("Udp:") && lines.get(i + 1).startsWith("Udp:")) {
+                String[] names = lines.get(i).trim().split("\\s+");
+                String[] values = lines.get(i + 1).trim().split("\\s+");
+                Map<String, Long> udp = new HashMap<>();
+                for (int column = 1; column < Math.min(names.length, values.length); column++) {
+                    udp.put(names[column], Long.parseLong(values[column]));
+                }
+                long inErrors = udp.getOrDefault("InErrors", 0L);
+                long rcvbufErrors = udp.getOrDefault("RcvbufErrors", 0L);
+                long sndbufErrors = udp.getOrDefault("SndbufErrors", 0L);
+                return UdpStats.newBuilder()
+                        .setInDatagramsPerSec(rate("udp.in", udp.getOrDefault("InDatagrams", 0L)))
+                        .setOutDatagramsPerSec(rate("udp.out", udp.getOrDefault("OutDatagrams", 0L)))
+                        .setInErrors(inErrors)
+                        .setRcvbufErrors(rcvbufErrors)
+                        .setSndbufErrors(sndbufErrors)
+                        .setInErrorsPerSec(rate("udp.inErrors", inErrors))
+                        .setRcvbufErrorsPerSec(rate("udp.rcvbufErrors", rcvbufErrors))
+                        .setSndbufErrorsPerSec(rate("udp.sndbufErrors", sndbufErrors))
+                        .build();
+            }
+        }
+        throw new IOException("No Udp section in " + snmp);
+    }
+
+    private void sampleInterfaces(Path dev, NetworkMetrics.Builder builder) throws IOException {
+        for (String line : Files.readAllLines(dev)) {
+            int colon = line.indexOf(':');
+            if (colon < 0 || line.contains("|")) {
+                continue;  // header
+            }
+            String name = line.substring(0, colon).trim();
+            String[] values = line.substring(colon + 1).trim().split("\\s+");
+            if (values.length <= TX_DROPS) {
+                continue;
+            }
+            long rxDrops = Long.parseLong(values[RX_DROPS]);
+            long txDrops = Long.parseLong(values[TX_DROPS]);
+            String key = "dev." + name + ".";
+            builder.addInterfaces(InterfaceStats.newBuilder()
+                    .setName(name)
+                    .setRxBytesPerSec(rate(key + "rxBytes", Long.parseLong(values[RX_BYTES])))
+                    .setTxBytesPerSec(rate(key + "txBytes", Long.parseLong(values[TX_BYTES])))
+                    .setRxPacketsPerSec(rate(key + "rxPackets", Long.parseLong(values[RX_PACKETS])))
+                    .setTxPacketsPerSec(rate(key + "txPackets", Long.parseLong(values[TX_PACKETS])))
+                    .setRxDrops(rxDrops)
+                    .setTxDrops(txDrops)
+                    .setRxDropsPerSec(rate(key + "rxDrops", rxDrops))
+                    .setTxDropsPerSec(rate(key + "txDrops", txDrops)));
+        }
+    }
+
+    private void sampleSockets(Path udpTable, Set<Long> inodes, NetworkMetrics.Builder builder) {
+        if (!Files.isReadable(udpTable)) {
+            return;
+        }
+        try {
+            List<String> lines = Files.readAllLines(udpTable);
+            for (int i = 1; i < lines.size(); i++) {
+                String[] fields = lines.get(i).trim().split("\\s+");
+                if (fields.length <= SOCKET_DROPS || !inodes.contains(Long.parseLong(fields[INODE]))) {
+                    continue;
+                }
+                String[] queues = fields[QUEUES].split(":");
+                long drops = Long.parseLong(fields[SOCKET_DROPS]);
+                builder.addSockets(UdpSocketStats.newBuilder()
+                        .setLocalAddress(decodeAddress(fields[LOCAL_ADDRESS]))
+                        .setTxQueueBytes(Long.parseLong(queues[0], 16))
+                        .setRxQueueBytes(Long.parseLong(queues[1], 16))
+                        .setDrops(drops)
+                        .setDropsPerSec(rate("socket." + fields[INODE] + ".drops", drops)));
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.debug("Could not read UDP sockets from {}: {}", udpTable, e.getMessage());
+        }
+    }
+
+    private void collectSocketInodes(long pid, Set<Long> inodes) {
+        if (pid <= 0) {
+            return;
+        }
+        try (Stream<Path> fds = Files.list(procRoot.resolve(pid + "/fd"))) {
+            fds.forEach(fd -> {
+                try {
+                    String target = Files.readSymbolicLink(fd).toString();
+                    if (target.startsWith(SOCKET_LINK_PREFIX)) {
+                        inodes.add(Long.parseLong(
+                                target.substring(SOCKET_LINK_PREFIX.length(), target.length() - 1)));
+                    }
+                } catch (IOException | RuntimeException e) {
+                    // closed while listing, or not a link
+                }
+            });
+        } catch (IOException e) {
+            LOGGER.debug("Could not list sockets of process {}: {}", pid, e.getMessage());
+        }
+    }
+
+    private double rate(String key, long total) {
+        totals.put(key, total);
+        Long before = previousTotals.get(key);
+        if (before == null || total < before || nowNanos <= previousNanos) {
+            return 0;
+        }
+        return (total - before) * 1e9 / (nowNanos - previousNanos);
+    }
+
+    /**
+     * Decodes an address of /proc/net/udp ({@code 0100007F:1F90}) or udp6: hex words of the
+     * address in host byte order (little-endian), then the port.
+     */
+    static String decodeAddress(String hex) {
+        int colon = hex.indexOf(':');
+        String address = hex.substring(0, colon);
+        int port = Integer.parseInt(hex.substring(colon + 1), 16);
+        StringBuilder sb = new StringBuilder();
+        if (address.length() == 8) {
+            for (int i = 3; i >= 0; i--) {
+                sb.append(Integer.parseInt(address.substring(i * 2, i * 2 + 2), 16));
+                sb.append(i > 0 ? "." : "");
+            }
+            return sb.append(':').append(port).toString();
+        }
+        sb.append('[');
+        for (int word = 0; word < address.length() / 8; word++) {
+            String w = address.substring(word * 8, word * 8 + 8);
+            // each 32-bit word is little-endian: bytes 3 2 1 0
+            int group1 = Integer.parseInt(w.substring(6, 8) + w.substring(4, 6), 16);
+            int group2 = Integer.parseInt(w.substring(2, 4) + w.substring(0, 2), 16);
+            sb.append(word > 0 ? ":" : "")
+                    .append(Integer.toHexString(group1)).append(':').append(Integer.toHexString(group2));
+        }
+        return sb.append("]:").append(port).toString();
+    }
+}
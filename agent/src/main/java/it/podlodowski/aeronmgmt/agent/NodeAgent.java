@@ -0,0 +1,302 @@
+package it.podlodowski.aeronmgmt.agent;
+
+import io.grpc.ManagedChannel;
+import it.podlodowski.aeronmgmt.common.proto.MetricsReport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Monitors one cluster node: waits for its cluster and Aeron directories, then collects and sends
+ * its metrics on the shared scheduler and runs its admin commands.
+ *
+ * <p>Everything that depends on the node — CnC reader, archive collector, state-change buffer,
+ * command pool, archive client, spool and gRPC stream — belongs to this node alone. The gRPC
+ * channel, the scheduler and the Aeron client (one per Aeron directory) are shared with the other
+ * nodes the agent monitors.
+ */
+class NodeAgent {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NodeAgent.class);
+
+    private final AgentConfig config;
+    private final ClusterDirResolver.Target target;
+    private final ManagedChannel channel;
+    private final ScheduledExecutorService scheduler;
+    private final Function<String, AeronConnection> aeronConnections;
+    private final Consumer<NodeAgent> onCncLost;
+
+    private Thread startThread;
+    private volatile Running running;
+    private volatile MetricsReport lastReport;
+    private long lastCncAccessibleMs;
+
+    /**
+     * @param aeronConnections returns the shared Aeron client of an Aeron directory
+     * @param onCncLost called from the scheduler once the CnC file has been unreadable for
+     *                  {@link AgentConfig#cncFailureTimeoutMs}; the node is not sampled again
+     *                  until it is restarted
+     */
+    NodeAgent(AgentConfig config, ClusterDirResolver.Target target, ManagedChannel channel,
+              ScheduledExecutorService scheduler, Function<String, AeronConnection> aeronConnections,
+              Consumer<NodeAgent> onCncLost) {
+        this.config = config;
+        this.target = target;
+        this.channel = channel;
+        this.scheduler = scheduler;
+        this.aeronConnections = aeronConnections;
+        this.onCncLost = onCncLost;
+    }
+
+    ClusterDirResolver.Target target() {
+        return target;
+    }
+
+    /**
+     * What the node looks like right now, for the health and metrics endpoints.
+     */
+    Status status() {
+        Running current = running;
+        if (current == null) {
+            return new Status(target, -1, false, false, null);
+        }
+        return new Status(target, current.identity.nodeId(), true, current.grpcClient.isConnected(), lastReport);
+    }
+
+    /**
+     * Starts monitoring in the background; waiting for the node's directories does not hold up
+     * the other nodes.
+     */
+    synchronized void start() {
+        startThread = new Thread(this::startBlocking, "node-start-" + target.clusterId());
+        startThread.setDaemon(true);
+        startThread.start();
+    }
+
+    private void startBlocking() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                startOnce();
+                return;
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;  // stopped while waiting
+                }
+                LOGGER.error("Failed to start monitoring {} (clusterId={}), retrying in 5s",
+                        target.clusterDirTemplate(), target.clusterId(), e);
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void startOnce() throws InterruptedException {
+        // Wait for the base directory first (before template expansion)
+        awaitDirectory(new File(ClusterDirResolver.baseDir(target.clusterDirTemplate())), "Cluster base directory");
+        String clusterDir = ClusterDirResolver.resolve(target.clusterDirTemplate(), System::getenv);
+        LOGGER.info("Resolved cluster dir: {} (clusterId={})", clusterDir, target.clusterId());
+
+        // Discover node identity from mark file (retries until available)
+        ClusterMarkFileReader identity = ClusterMarkFileReader.discover(clusterDir);
+        LOGGER.info("Discovered node {} of cluster {}: aeronDir={}, mode={}",
+                identity.nodeId(), target.clusterId(), identity.aeronDir(), identity.agentMode());
+
+        // Wait for aeron directory (shared memory) — created by the cluster node's MediaDriver
+        awaitDirectory(new File(identity.aeronDir()), "Aeron directory");
+
+        Running started = new Running(clusterDir, identity);
+        synchronized (this) {
+            if (Thread.currentThread() != startThread) {
+                started.close();
+                return;
+            }
+            running = started;
+            lastCncAccessibleMs = System.currentTimeMillis();
+            started.grpcClient.connect();
+            started.tick = scheduler.schedule(this::tick, 0, TimeUnit.MILLISECONDS);
+        }
+        LOGGER.info("Monitoring node {} of cluster {}", identity.nodeId(), target.clusterId());
+    }
+
+    /**
+     * Collects and sends one sample, then schedules the next one after the delay the sample
+     * calls for (see {@link SamplingInterval}).
+     */
+    private void tick() {
+        Running current = running;
+        if (current == null) {
+            return;
+        }
+        long delayMs = config.metricsIntervalMs;
+        try {
+            MetricsReport report = current.metricsCollector.collect();
+            lastReport = report;
+            current.grpcClient.sendMetrics(report);
+
+            long nowMs = report.getTimestamp();
+            if (report.getCncAccessible()) {
+                lastCncAccessibleMs = nowMs;
+            } else if (nowMs - lastCncAccessibleMs >= config.cncFailureTimeoutMs) {
+                LOGGER.error("CnC of node {} inaccessible for {}ms",
+                        current.identity.nodeId(), nowMs - lastCncAccessibleMs);
+                onCncLost.accept(this);
+                return;
+            }
+
+            long nextDelayMs = current.samplingInterval.next(report, nowMs);
+            if (nextDelayMs != current.delayMs) {
+                LOGGER.info("Sampling node {} every {}ms", current.identity.nodeId(), nextDelayMs);
+                current.delayMs = nextDelayMs;
+            }
+            delayMs = nextDelayMs;
+        } catch (Throwable t) {
+            LOGGER.error("Metrics collection failed for {}", current.clusterDir, t);
+        }
+        synchronized (this) {
+            if (running == current) {
+                current.tick = scheduler.schedule(this::tick, delayMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Stops monitoring and releases everything held for the node. The node can be started again.
+     */
+    synchronized void stop() {
+        if (startThread != null) {
+            startThread.interrupt();
+            startThread = null;
+        }
+        Running current = running;
+        running = null;
+        lastReport = null;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    private MetricsSpool openSpool(ClusterMarkFileReader identity) {
+        if (config.spoolSizeMb <= 0) {
+            return null;
+        }
+        Path file = Path.of(config.spoolDir,
+                "metrics-spool-" + target.clusterId() + "-node-" + identity.nodeId() + ".dat");
+        try {
+            return new MetricsSpool(file, config.spoolSizeMb * 1024 * 1024, config.spoolMaxAgeMs);
+        } catch (IOException e) {
+            LOGGER.warn("Metrics spool disabled, cannot open {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    static void awaitDirectory(File dir, String label) throws InterruptedException {
+        while (!dir.isDirectory()) {
+            LOGGER.info("{} {} does not exist yet, waiting for cluster node to start...", label, dir);
+            Thread.sleep(5000);
+        }
+        LOGGER.info("{} {} is available", label, dir);
+    }
+
+    /**
+     * @param nodeId     -1 until the node was discovered
+     * @param lastReport the latest metrics sample, null before the first one
+     */
+    record Status(ClusterDirResolver.Target target, int nodeId, boolean started, boolean grpcConnected,
+                  MetricsReport lastReport) {
+
+        boolean cncAccessible() {
+            return lastReport != null && lastReport.getCncAccessible();
+        }
+    }
+
+    /**
+     * What a started node holds.
+     */
+    private final class Running {
+        final String clusterDir;
+        final ClusterMarkFileReader identity;
+        final AeronClients clients;
+        final SpyRecordingManager spyRecordingManager;
+        final TrafficProfiler trafficProfiler;
+        final CommitLatencyTracker commitLatencyTracker;
+        final CommandPool commandPool;
+        final MetricsCollector metricsCollector;
+        final MetricsSpool spool;
+        final GrpcAgentClient grpcClient;
+        final StateTransitionWatcher transitionWatcher;
+        final SamplingInterval samplingInterval = new SamplingInterval(config);
+        long delayMs = config.metricsIntervalMs;
+        ScheduledFuture<?> tick;
+
+        Running(String clusterDir, ClusterMarkFileReader identity) {
+            this.clusterDir = clusterDir;
+            this.identity = identity;
+            clients = new AeronClients(aeronConnections.apply(identity.aeronDir()), identity.archiveStreamId());
+            CncReader cncReader = new CncReader(identity.aeronDir(), identity.aeronClusterId());
+            ArchiveMetricsCollector archiveCollector = new ArchiveMetricsCollector(clusterDir);
+            spyRecordingManager = new SpyRecordingManager(clients, cncReader);
+            trafficProfiler = new TrafficProfiler(clients, cncReader, config.trafficProfileStreamIds);
+            trafficProfiler.start();
+            commitLatencyTracker = new CommitLatencyTracker(clients, cncReader, identity.aeronClusterId(),
+                    config.commitLatencyEnabled, config.ingressStreamId, config.logStreamId);
+            commitLatencyTracker.start();
+            transitionWatcher = config.stateWatchIntervalMs > 0
+                    ? new StateTransitionWatcher(identity.aeronDir(), identity.aeronClusterId(),
+                            config.stateCounterTypeIds,
+                            config.stateWatchIntervalMs, config.stateBufferSize,
+                            target.clusterId() + "-" + identity.nodeId())
+                    : null;
+            StateChangeBuffer stateChangeBuffer = new StateChangeBuffer(config.stateBufferSize,
+                    Arrays.stream(config.stateCounterTypeIds).boxed().collect(Collectors.toSet()),
+                    transitionWatcher != null);
+            AdminCommandExecutor commandExecutor = new AdminCommandExecutor(
+                    clusterDir, archiveCollector, spyRecordingManager, clients, identity.aeronClusterId());
+            commandPool = new CommandPool(
+                    commandExecutor, config.commandThreads, config.commandQueueCapacity, config.commandTimeoutMs);
+            metricsCollector = new MetricsCollector(
+                    cncReader, archiveCollector, identity.nodeId(), identity.agentMode(), target.clusterId(),
+                    spyRecordingManager, stateChangeBuffer, identity.aeronDir(), trafficProfiler, commitLatencyTracker,
+                    commandPool, new ProcessSampler(Path.of("/proc")), new NetworkSampler(Path.of("/proc")),
+                    identity.pid(), transitionWatcher);
+            spool = openSpool(identity);
+            grpcClient = new GrpcAgentClient(config, channel, target.clusterId(), identity, commandPool,
+                    stateChangeBuffer, spool);
+            if (transitionWatcher != null) {
+                transitionWatcher.start();
+            }
+        }
+
+        void close() {
+            if (tick != null) {
+                tick.cancel(false);
+            }
+            grpcClient.shutdown();
+            commandPool.close();
+            trafficProfiler.close();
+            commitLatencyTracker.close();
+            spyRecordingManager.close();
+            clients.close();
+            if (transitionWatcher != null) {
+                transitionWatcher.close();
+            }
+            if (spool != null) {
+                spool.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package it.podlodowski.aeronmgmt.agent;
+
+import it.podlodowski.aeronmgmt.common.proto.ProcessMetrics;
+import it.podlodowski.aeronmgmt.common.proto.ThreadMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Samples the monitored processes from /proc: RSS, page faults, and per thread CPU and context
+ * switches. A busy-spinning Aeron agent thread (conductor, sender, receiver, consensus module)
+ * should show close to one core of CPU and few involuntary context switches; a climbing
+ * involuntary count means the thread is being descheduled.
+ *
+ * <p>CPU usage is the CPU time consumed since the previous sample, so the first sample of a
+ * process reports 0. Not thread-safe: called from the metrics tick only.
+ */
+class ProcessSampler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProcessSampler.class);
+
+    /** USER_HZ, the unit of utime and stime; 100 on every mainstream Linux build. */
+    private static final double CLOCK_TICKS_PER_SECOND = 100;
+
+    // Fields of /proc/<pid>/stat, counted from the state field (the first one after the command name)
+    private static final int STATE = 0;
+    private static final int MINOR_FAULTS = 7;
+    private static final int MAJOR_FAULTS = 9;
+    private static final int USER_TIME = 11;
+    private static final int SYSTEM_TIME = 12;
+
+    private final Path procRoot;
+    private Map<Long, CpuSample> previous = new HashMap<>();
+
+    ProcessSampler(Path procRoot) {
+        this.procRoot = procRoot;
+    }
+
+    /**
+     * Samples the cluster node process and, when the media driver runs in a process of its own,
+     * the driver. A pid of 0 means unknown and is skipped, as is a process that has exited.
+     */
+    List<ProcessMetrics> sample(long nodePid, long driverPid, long nowNanos) {
+        Map<Long, CpuSample> next = new HashMap<>();
+        List<ProcessMetrics> processes = new ArrayList<>(2);
+        if (nodePid > 0) {
+            addIfRunning(processes, nodePid, "node", nowNanos, next);
+        }
+        if (driverPid > 0 && driverPid != nodePid) {
+            addIfRunning(processes, driverPid, "driver", nowNanos, next);
+        }
+        previous = next;
+        return processes;
+    }
+
+    private void addIfRunning(List<ProcessMetrics> processes, long pid, String role, long nowNanos,
+                              Map<Long, CpuSample> next) {
+        try {
+            processes.add(sampleProcess(pid, role, nowNanos, next));
+        } catch (IOException | RuntimeException e) {
+            LOGGER.debug("Could not sample {} process {}: {}", role, pid, e.getMessage());
+        }
+    }
+
+    private ProcessMetrics sampleProcess(long pid, String role, long nowNanos, Map<Long, CpuSample> next)
+            throws IOException {
+        Path processDir = procRoot.resolve(Long.toString(pid));
+        CpuSample before = previous.get(pid);
+        CpuSample sample = new CpuSample(nowNanos);
+
+        Stat stat = Stat.read(processDir.resolve("stat"));
+        sample.ticks = stat.ticks;
+        ProcessMetrics.Builder builder = ProcessMetrics.newBuilder()
+                .setPid(pid)
+                .setRole(role)
+                .setRssBytes(readStatus(processDir.resolve("status")).rssBytes)
+                .setCpuUsage(cpuUsage(before == null ? -1 : before.ticks, stat.ticks, before, nowNanos))
+                .setMinorFaults(stat.minorFaults)
+                .setMajorFaults(stat.majorFaults);
+
+        long voluntary = 0;
+        long involuntary = 0;
+        try (Stream<Path> tasks = Files.list(processDir.resolve("task"))) {
+            for (Path taskDir : (Iterable<Path>) tasks.sorted()::iterator) {
+                long tid;
+                Stat threadStat;
+                Status threadStatus;
+                try {
+                    tid = Long.parseLong(taskDir.getFileName().toString());
+                    threadStat = Stat.read(taskDir.resolve("stat"));
+                    threadStatus = readStatus(taskDir.resolve("status"));
+                } catch (IOException | NumberFormatException e) {
+                    continue;  // the thread exited while we were reading
+                }
+                sample.threadTicks.put(tid, threadStat.ticks);
+                voluntary += threadStatus.voluntaryContextSwitches;
+                involuntary += threadStatus.involuntaryContextSwitches;
+                long threadTicksBefore = before == null ? -1 : before.threadTicks.getOrDefault(tid, -1L);
+                builder.addThreads(ThreadMetrics.newBuilder()
+                        .setTid(tid)
+                        .setName(threadStat.name)
+                        .setState(threadStat.state)
+                        .setCpuUsage(cpuUsage(threadTicksBefore, threadStat.ticks, before, nowNanos))
+                        .setVoluntaryContextSwitches(threadStatus.voluntaryContextSwitches)
+                        .setInvoluntaryContextSwitches(threadStatus.involuntaryContextSwitches)
+                        .setMinorFaults(threadStat.minorFaults)
+                        .setMajorFaults(threadStat.majorFaults));
+            }
+        }
+        next.put(pid, sample);
+        return builder
+                .setVoluntaryContextSwitches(voluntary)
+                .setInvoluntaryContextSwitches(involuntary)
+                .build();
+    }
+
+    private static double cpuUsage(long ticksBefore, long ticks, CpuSample before, long nowNanos) {
+        if (ticksBefore < 0 || ticks < ticksBefore || nowNanos <= before.nanos) {
+            return 0;
+        }
+        double seconds = (nowNanos - before.nanos) / 1e9;
+        return (ticks - ticksBefore) / CLOCK_TICKS_PER_SECOND / seconds;
+    }
+
+    private static Status readStatus(Path file) throws IOException {
+        Status status = new Status();
+        for (String line : Files.readAllLines(file)) {
+            if (line.startsWith("VmRSS:")) {
+                status.rssBytes = parseStatusValue(line) * 1024;  // kB to bytes
+            } else if (line.startsWith("voluntary_ctxt_switches:")) {
+                status.voluntaryContextSwitches = parseStatusValue(line);
+            } else if (line.startsWith("nonvoluntary_ctxt_switches:")) {
+                status.involuntaryContextSwitches = parseStatusValue(line);
+            }
+        }
+        return status;
+    }
+
+    private static long parseStatusValue(String line) {
+        String[] parts = line.split("\\s+");
+        return Long.parseLong(parts[1]);
+    }
+
+    /**
+     * The parts of a /proc stat line we use. The command name is in parentheses and may itself
+     * contain spaces and parentheses, so the fields are counted from the last closing one.
+     */
+    private record Stat(String name, String state, long minorFaults, long majorFaults, long ticks) {
+
+        static Stat read(Path file) throws IOException {
+            String line = Files.readString(file);
+            int nameStart = line.indexOf('(');
+            int nameEnd = line.lastIndexOf(')');
+            if (nameStart < 0 || nameEnd < nameStart) {
+                throw new IOException("Unexpected format of " + file);
+            }
+            String[] fields = line.substring(nameEnd + 2).trim().split(" ");
+            return new Stat(
+                    line.substring(nameStart + 1, nameEnd),
+                    fields[STATE],
+                    Long.parseLong(fields[MINOR_FAULTS]),
+                    Long.parseLong(fields[MAJOR_FAULTS]),
+                    Long.parseLong(fields[USER_TIME]) + Long.parseLong(fields[SYSTEM_TIME]));
+        }
+    }
+
+    private static final class Status {
+        long rssBytes;
+        long voluntaryContextSwitches;
+        long involuntaryContextSwitches;
+    }
+
+    private static final class CpuSample {
+        final long nanos;
+        final Map<Long, Long> threadTicks = new HashMap<>();
+        long ticks;
+
+        CpuSample(long nanos) {
+            this.nanos = nanos;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package it.podlodowski.aeronmgmt.agent;
+
+import it.podlodowski.aeronmgmt.common.proto.AeronCounter;
+import it.podlodowski.aeronmgmt.common.proto.MetricsReport;
+import it.podlodowski.aeronmgmt.common.proto.ProcessMetrics;
+import it.podlodowski.aeronmgmt.common.proto.ThreadMetrics;
+import it.podlodowski.aeronmgmt.common.proto.UdpSocketStats;
+import org.agrona.ExpandableArrayBuffer;
+
+import java.util.List;
+
+/**
+ * Renders the latest sample of each node in the Prometheus text exposition format: every Aeron
+ * counter, node status, process and thread CPU, and host UDP errors.
+ *
+ * <p>The output goes into a buffer that is reused from one scrape to the next, so a scrape
+ * allocates next to nothing however many counters there are. Not thread-safe: the endpoint
+ * renders on a single thread.
+ */
+class PrometheusWriter {
+
+    private final ExpandableArrayBuffer buffer = new ExpandableArrayBuffer(64 * 1024);
+    private int position;
+
+    /**
+     * @return the number of bytes written to {@link #array()}
+     */
+    int render(List<NodeAgent.Status> nodes) {
+        position = 0;
+
+        header("aeron_counter", "gauge", "Aeron counter from the node's CnC file");
+        for (NodeAgent.Status node : nodes) {
+            if (node.lastReport() == null) {
+                continue;
+            }
+            for (AeronCounter counter : node.lastReport().getCountersList()) {
+                begin("aeron_counter", node);
+                label("type_id", counter.getTypeId());
+                label("counter_id", counter.getCounterId());
+                label("label", counter.getLabel());
+                end(counter.getValue());
+            }
+        }
+
+        header("aeron_management_node_up", "gauge", "1 once the node was discovered and is being monitored");
+        for (NodeAgent.Status node : nodes) {
+            begin("aeron_management_node_up", node);
+            end(node.started() ? 1 : 0);
+        }
+        header("aeron_management_cnc_accessible", "gauge", "1 if the node's CnC file was readable at the last sample");
+        for (NodeAgent.Status node : nodes) {
+            begin("aeron_management_cnc_accessible", node);
+            end(node.cncAccessible() ? 1 : 0);
+        }
+        header("aeron_management_driver_active", "gauge",
+                "1 if the media driver heartbeat was current at the last sample");
+        for (NodeAgent.Status node : nodes) {
+            begin("aeron_management_driver_active", node);
+            end(node.lastReport() != null && node.lastReport().getNodeReachable() ? 1 : 0);
+        }
+        header("aeron_management_grpc_connected", "gauge", "1 if the node's stream to the management server is up");
+        for (NodeAgent.Status node : nodes) {
+            begin("aeron_management_grpc_connected", node);
+            end(node.grpcConnected() ? 1 : 0);
+        }
+
+        header("aeron_management_process_cpu_usage", "gauge", "CPU used by the process, in cores");
+        for (NodeAgent.Status node : nodes) {
+            for (ProcessMetrics process : processes(node)) {
+                beginProcess("aeron_management_process_cpu_usage", node, process);
+                end(process.getCpuUsage());
+            }
+        }
+        header("aeron_management_process_rss_bytes", "gauge", "Resident set size of the process");
+        for (NodeAgent.Status node : nodes) {
+            for (ProcessMetrics process : processes(node)) {
+                beginProcess("aeron_management_process_rss_bytes", node, process);
+                end(process.getRssBytes());
+            }
+        }
+        header("aeron_management_thread_cpu_usage", "gauge", "CPU used by the thread, in cores");
+        for (NodeAgent.Status node : nodes) {
+            for (ProcessMetrics process : processes(node)) {
+                for (ThreadMetrics thread : process.getThreadsList()) {
+                    beginThread("aeron_management_thread_cpu_usage", node, process, thread);
+                    end(thread.getCpuUsage());
+                }
+            }
+        }
+        header("aeron_management_thread_involuntary_context_switches_total", "counter",
+                "Times the thread was descheduled while runnable");
+        for (NodeAgent.Status node : nodes) {
+            for (ProcessMetrics process : processes(node)) {
+                for (ThreadMetrics thread : process.getThreadsList()) {
+                    beginThread("aeron_management_thread_involuntary_context_switches_total", node, process, thread);
+                    end(thread.getInvoluntaryContextSwitches());
+                }
+            }
+        }
+
+        header("aeron_management_udp_rcvbuf_errors_total", "counter",
+                "UDP datagrams dropped by the host because a socket receive buffer was full");
+        for (NodeAgent.Status node : nodes) {
+            if (hasNetwork(node)) {
+                begin("aeron_management_udp_rcvbuf_errors_total", node);
+                end(node.lastReport().getSystemMetrics().getNetwork().getUdp().getRcvbufErrors());
+            }
+        }
+        header("aeron_management_udp_sndbuf_errors_total", "counter",
+                "UDP datagrams dropped by the host because a socket send buffer was full");
+        for (NodeAgent.Status node : nodes) {
+            if (hasNetwork(node)) {
+                begin("aeron_management_udp_sndbuf_errors_total", node);
+                end(node.lastReport().getSystemMetrics().getNetwork().getUdp().getSndbufErrors());
+            }
+        }
+        header("aeron_management_udp_socket_rx_queue_bytes", "gauge",
+                "Bytes waiting in the receive queue of the socket");
+        for (NodeAgent.Status node : nodes) {
+            if (hasNetwork(node)) {
+                for (UdpSocketStats socket : node.lastReport().getSystemMetrics().getNetwork().getSocketsList()) {
+                    begin("aeron_management_udp_socket_rx_queue_bytes", node);
+                    label("local_address", socket.getLocalAddress());
+                    end(socket.getRxQueueBytes());
+                }
+            }
+        }
+        return position;
+    }
+
+    byte[] array() {
+        return buffer.byteArray();
+    }
+
+    private static List<ProcessMetrics> processes(NodeAgent.Status node) {
+        MetricsReport report = node.lastReport();
+        return report == null ? List.of() : report.getSystemMetrics().getProcessesList();
+    }
+
+    private static boolean hasNetwork(NodeAgent.Status node) {
+        return node.lastReport() != null && node.lastReport().getSystemMetrics().hasNetwork();
+    }
+
+    private void header(String name, String type, String help) {
+        ascii("# HELP ");
+        ascii(name);
+        buffer.putByte(position++, (byte) ' ');
+        ascii(help);
+        ascii("\n# TYPE ");
+        ascii(name);
+        buffer.putByte(position++, (byte) ' ');
+        ascii(type);
+        buffer.putByte(position++, (byte) '\n');
+    }
+
+    private void begin(String name, NodeAgent.Status node) {
+        ascii(name);
+        ascii("{cluster=\"");
+        escaped(node.target().clusterId());
+        ascii("\",node=\"");
+        if (node.nodeId() >= 0) {
+            position += buffer.putIntAscii(position, node.nodeId());
+        }
+        buffer.putByte(position++, (byte) '"');
+    }
+
+    private void beginProcess(String name, NodeAgent.Status node, ProcessMetrics process) {
+        begin(name, node);
+        label("role", process.getRole());
+        label("pid", process.getPid());
+    }
+
+    private void beginThread(String name, NodeAgent.Status node, ProcessMetrics process, ThreadMetrics thread) {
+        beginProcess(name, node, process);
+        label("tid", thread.getTid());
+        label("thread", thread.getName());
+    }
+
+    private void label(String key, String value) {
+        buffer.putByte(position++, (byte) ',');
+        ascii(key);
+        ascii("=\"");
+        escaped(value);
+        buffer.putByte(position++, (byte) '"');
+    }
+
+    private void label(String key, long value) {
+        buffer.putByte(position++, (byte) ',');
+        ascii(key);
+        ascii("=\"");
+        position += buffer.putLongAscii(position, value);
+        buffer.putByte(position++, (byte) '"');
+    }
+
+    private void end(long value) {
+        ascii("} ");
+        position += buffer.putLongAscii(position, value);
+        buffer.putByte(position++, (byte) '\n');
+    }
+
+    private void end(double value) {
+        ascii("} ");
+        ascii(Double.toString(value));
+        buffer.putByte(position++, (byte) '\n');
+    }
+
+    private void ascii(String value) {
+        position += buffer.putStringWithoutLengthAscii(position, value);
+    }
+
+    /**
+     * Writes a label value, escaping backslash, double quote and newline as the format requires.
+     * Counter labels are ASCII; anything else is written as '?'.
+     */
+    private void escaped(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                buffer.putByte(position++, (byte) '\\');
+                buffer.putByte(position++, (byte) c);
+            } else if (c == '\n') {
+                buffer.putByte(position++, (byte) '\\');
+                buffer.putByte(position++, (byte) 'n');
+            } else {
+                buffer.putByte(position++, c < 0x80 ? (byte) c : (byte) '?');
+            }
+        }
+    }
+}
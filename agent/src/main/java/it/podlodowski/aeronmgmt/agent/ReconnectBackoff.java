@@ -0,0 +1,36 @@
+package it.podlodowski.aeronmgmt.agent;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential reconnect backoff with jitter. The ceiling doubles with every failed attempt up to
+ * {@code maxMs}; the delay is picked at random from the upper half of it, so agents that lost the
+ * server at the same moment do not come back at the same moment.
+ *
+ * <p>Thread-safe.
+ */
+class ReconnectBackoff {
+
+    private final long baseMs;
+    private final long maxMs;
+    private int attempts;
+
+    ReconnectBackoff(long baseMs, long maxMs) {
+        this.baseMs = Math.max(1, baseMs);
+        this.maxMs = Math.max(this.baseMs, maxMs);
+    }
+
+    synchronized long nextDelayMs() {
+        long ceiling = Math.min(maxMs, baseMs << Math.min(attempts, 30));
+        attempts++;
+        long half = ceiling / 2;
+        return half + ThreadLocalRandom.current().nextLong(ceiling - half + 1);
+    }
+
+    /**
+     * Called once the server accepted the agent.
+     */
+    synchronized void reset() {
+        attempts = 0;
+    }
+}
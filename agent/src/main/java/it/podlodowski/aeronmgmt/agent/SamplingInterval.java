@@ -0,0 +1,84 @@
+package it.podlodowski.aeronmgmt.agent;
+
+import it.podlodowski.aeronmgmt.common.proto.ClusterMetrics;
+import it.podlodowski.aeronmgmt.common.proto.MetricsReport;
+
+/**
+ * Picks the delay before the next metrics sample from what the last one showed:
+ * <ul>
+ *   <li>fast while an election is in progress (election state other than CLOSED), while the
+ *       consensus module is not ACTIVE, and for {@code fastHoldMs} after either ends or the role,
+ *       module state or election state changes;</li>
+ *   <li>slow once nothing has changed for {@code steadyAfterMs};</li>
+ *   <li>normal otherwise.</li>
+ * </ul>
+ * The hold and steady periods keep the interval from flapping when a node briefly settles.
+ * A sample without the CnC file does not count as a change but restarts the steady period.
+ *
+ * <p>Not thread-safe: called from the node's metrics tick only.
+ */
+class SamplingInterval {
+
+    /** Election state counter value of io.aeron.cluster.ElectionState.CLOSED: no election running. */
+    static final String ELECTION_CLOSED = "17";
+
+    private final long fastMs;
+    private final long normalMs;
+    private final long slowMs;
+    private final long fastHoldMs;
+    private final long steadyAfterMs;
+
+    private String lastRole;
+    private String lastModuleState;
+    private String lastElectionState;
+    private long fastUntilMs = Long.MIN_VALUE;
+    private long steadySinceMs = Long.MIN_VALUE;
+
+    SamplingInterval(long fastMs, long normalMs, long slowMs, long fastHoldMs, long steadyAfterMs) {
+        this.fastMs = fastMs;
+        this.normalMs = normalMs;
+        this.slowMs = slowMs;
+        this.fastHoldMs = fastHoldMs;
+        this.steadyAfterMs = steadyAfterMs;
+    }
+
+    SamplingInterval(AgentConfig config) {
+        this(config.fastIntervalMs, config.metricsIntervalMs, config.slowIntervalMs,
+                config.fastHoldMs, config.steadyAfterMs);
+    }
+
+    /**
+     * @return the delay before the next sample, in ms
+     */
+    long next(MetricsReport report, long nowMs) {
+        if (steadySinceMs == Long.MIN_VALUE) {
+            steadySinceMs = nowMs;
+        }
+        if (!report.getCncAccessible()) {
+            steadySinceMs = nowMs;
+            return nowMs < fastUntilMs ? fastMs : normalMs;
+        }
+
+        ClusterMetrics metrics = report.getClusterMetrics();
+        String role = metrics.getNodeRole();
+        String moduleState = metrics.getConsensusModuleState();
+        String electionState = metrics.getElectionState();
+        boolean changed = lastRole != null && (!role.equals(lastRole)
+                || !moduleState.equals(lastModuleState) || !electionState.equals(lastElectionState));
+        boolean electing = !electionState.isEmpty() && !ELECTION_CLOSED.equals(electionState);
+        boolean notActive = !moduleState.isEmpty() && !"ACTIVE".equals(moduleState);
+        lastRole = role;
+        lastModuleState = moduleState;
+        lastElectionState = electionState;
+
+        if (changed || electing || notActive) {
+            fastUntilMs = nowMs + fastHoldMs;
+            steadySinceMs = nowMs;
+            return fastMs;
+        }
+        if (nowMs < fastUntilMs) {
+            return fastMs;
+        }
+        return nowMs - steadySinceMs >= steadyAfterMs ? slowMs : normalMs;
+    }
+}
@@ -1,6 +1,5 @@
 package it.podlodowski.aeronmgmt.agent;
 
-import io.aeron.Aeron;
 import io.aeron.archive.client.AeronArchive;
 import io.aeron.archive.codecs.SourceLocation;
 import it.podlodowski.aeronmgmt.common.proto.EgressRecordingStatus;
@@ -15,18 +14,16 @@ import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Manages spy subscription recordings via the local AeronArchive.
- * Connects to the existing MediaDriver and Archive running alongside the cluster node.
+ * Uses the agent's shared connection to the MediaDriver and Archive running alongside the cluster node.
  */
 public class SpyRecordingManager implements AutoCloseable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(SpyRecordingManager.class);
 
-    private final String aeronDir;
+    private final AeronClients clients;
     private final CncReader cncReader;
     private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
 
-    private volatile Aeron aeron;
-    private volatile AeronArchive aeronArchive;
     private final AtomicReference<RecordingState> activeRecording = new AtomicReference<>();
 
     private record RecordingState(
@@ -38,33 +35,18 @@ public class SpyRecordingManager implements AutoCloseable {
             ScheduledFuture<?> autoStopFuture
     ) {}
 
-    public SpyRecordingManager(String aeronDir, CncReader cncReader) {
-        this.aeronDir = aeronDir;
+    public SpyRecordingManager(AeronClients clients, CncReader cncReader) {
+        this.clients = clients;
         this.cncReader = cncReader;
     }
 
-    /**
-     * Connects to the local MediaDriver and AeronArchive.
-     */
-    public void connect() {
-        try {
-            aeron = Aeron.connect(new Aeron.Context().aeronDirectoryName(aeronDir));
-            aeronArchive = AeronArchive.connect(new AeronArchive.Context()
-                    .aeron(aeron)
-                    .controlRequestChannel("aeron:ipc?term-length=64k")
-                    .controlResponseChannel("aeron:ipc?term-length=64k"));
-            LOGGER.info("Connected to AeronArchive via {}", aeronDir);
-        } catch (Exception e) {
-            LOGGER.warn("Failed to connect to AeronArchive: {}. Spy recording will be unavailable.", e.getMessage());
-        }
-    }
-
     /**
      * Starts a spy recording on the given stream ID.
      * Discovers the publication channel from CnC counters and uses the {@code aeron-spy:}
      * prefix for passive eavesdropping without interfering with the original subscriber.
      */
     public String startRecording(int streamId, long durationSeconds) {
+        AeronArchive aeronArchive = clients.archive();
         if (aeronArchive == null) {
             return "AeronArchive not connected";
         }
@@ -118,7 +100,10 @@ public class SpyRecordingManager implements AutoCloseable {
         }
 
         try {
-            aeronArchive.stopRecording(state.subscriptionId);
+            clients.withArchive(archive -> {
+                archive.stopRecording(state.subscriptionId);
+                return null;
+            });
             LOGGER.info("Stopped spy recording: subscriptionId={}", state.subscriptionId);
             return "Recording stopped";
         } catch (Exception e) {
@@ -146,54 +131,28 @@ public class SpyRecordingManager implements AutoCloseable {
 
     /**
      * Discovers the publication channel for a given stream ID by scanning CnC counters.
-     * Looks for publisher limit (type 1, "pub-lmt:") or sender position (type 2, "snd-pos:")
-     * counters matching the target stream ID.
-     * Counter label format: "pub-lmt: <registrationId> <sessionId> <streamId> <channel>"
      */
     private String discoverChannelForStream(int targetStreamId) {
-        CncReader.CncSnapshot snapshot = cncReader.read();
-        for (var counter : snapshot.counters) {
-            int typeId = counter.getTypeId();
-            if (typeId != 1 && typeId != 2) {
-                continue;
-            }
-            String label = counter.getLabel();
-            // Match "pub-lmt: " (type 1) or "snd-pos: " (type 2)
-            int colonIdx = label.indexOf(": ");
-            if (colonIdx < 0) {
-                continue;
-            }
-            // Label format after prefix: "<regId> <sessionId> <streamId> <channel>"
-            String data = label.substring(colonIdx + 2);
-            String[] parts = data.split(" ", 4);
-            if (parts.length >= 4) {
-                try {
-                    int streamId = Integer.parseInt(parts[2]);
-                    if (streamId == targetStreamId && parts[3].startsWith("aeron:")) {
-                        LOGGER.info("Discovered channel for stream {}: {}", targetStreamId, parts[3]);
-                        return parts[3];
-                    }
-                } catch (NumberFormatException ignored) {}
-            }
+        String channel = ChannelDiscovery.findPublicationChannel(cncReader.read().counters, targetStreamId);
+        if (channel != null) {
+            LOGGER.info("Discovered channel for stream {}: {}", targetStreamId, channel);
+        } else {
+            LOGGER.warn("No publication found for stream {} in CnC counters", targetStreamId);
         }
-        LOGGER.warn("No publication found for stream {} in CnC counters", targetStreamId);
-        return null;
+        return channel;
     }
 
     @Override
     public void close() {
         RecordingState state = activeRecording.getAndSet(null);
-        if (state != null && aeronArchive != null) {
+        if (state != null) {
             try {
-                aeronArchive.stopRecording(state.subscriptionId);
+                clients.withArchive(archive -> {
+                    archive.stopRecording(state.subscriptionId);
+                    return null;
+                });
             } catch (Exception ignored) {}
         }
         scheduler.shutdownNow();
-        if (aeronArchive != null) {
-            try { aeronArchive.close(); } catch (Exception ignored) {}
-        }
-        if (aeron != null) {
-            try { aeron.close(); } catch (Exception ignored) {}
-        }
     }
 }
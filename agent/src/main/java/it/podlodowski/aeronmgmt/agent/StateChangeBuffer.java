@@ -11,35 +11,60 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedDeque;
 
+/**
+ * Recent transitions of the cluster state counters, sent with the registration so the server can
+ * catch up on what happened while the agent was disconnected.
+ *
+ * <p>Transitions come from the reports' {@code state_changes} when a {@link StateTransitionWatcher}
+ * runs, otherwise from comparing the counters of consecutive reports.
+ */
 public class StateChangeBuffer {
 
-    private static final Set<Integer> TRACKED_COUNTERS = Set.of(200, 201, 207);
+    private static final Set<Integer> DEFAULT_TRACKED_COUNTERS = Set.of(200, 201, 207);
 
     private final int maxSize;
+    private final Set<Integer> trackedCounters;
+    private final boolean watched;
     private final ConcurrentLinkedDeque<StateChangeEntry> buffer = new ConcurrentLinkedDeque<>();
     private final ConcurrentHashMap<Integer, Long> previousValues = new ConcurrentHashMap<>();
 
     public StateChangeBuffer(int maxSize) {
+        this(maxSize, DEFAULT_TRACKED_COUNTERS, false);
+    }
+
+    /**
+     * @param watched true if reports carry the transitions caught by a watcher
+     */
+    public StateChangeBuffer(int maxSize, Set<Integer> trackedCounters, boolean watched) {
         this.maxSize = maxSize;
+        this.trackedCounters = Set.copyOf(trackedCounters);
+        this.watched = watched;
     }
 
     public synchronized void onMetrics(MetricsReport report) {
         for (AeronCounter counter : report.getCountersList()) {
-            if (!TRACKED_COUNTERS.contains(counter.getTypeId())) continue;
+            if (!trackedCounters.contains(counter.getTypeId())) continue;
 
             Long prev = previousValues.put(counter.getTypeId(), counter.getValue());
-            if (prev != null && prev != counter.getValue()) {
-                buffer.addLast(StateChangeEntry.newBuilder()
+            if (!watched && prev != null && prev != counter.getValue()) {
+                add(StateChangeEntry.newBuilder()
                         .setTimestamp(report.getTimestamp())
                         .setCounterTypeId(counter.getTypeId())
                         .setOldValue(prev)
                         .setNewValue(counter.getValue())
                         .build());
-                while (buffer.size() > maxSize) {
-                    buffer.pollFirst();
-                }
             }
         }
+        for (StateChangeEntry entry : report.getStateChangesList()) {
+            add(entry);
+        }
+    }
+
+    private void add(StateChangeEntry entry) {
+        buffer.addLast(entry);
+        while (buffer.size() > maxSize) {
+            buffer.pollFirst();
+        }
     }
 
     /**
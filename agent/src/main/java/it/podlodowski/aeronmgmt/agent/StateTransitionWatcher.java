@@ -0,0 +1,263 @@
+package it.podlodowski.aeronmgmt.agent;
+
+import io.aeron.CncFileDescriptor;
+import it.podlodowski.aeronmgmt.common.proto.StateChangeEntry;
+import org.agrona.DirectBuffer;
+import org.agrona.IoUtil;
+import org.agrona.concurrent.status.CountersReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Polls the node's cluster state counters (module state, role, election state by default) every
+ * millisecond on a thread of its own, so that transitions shorter than the metrics interval — a
+ * brief CANDIDATE phase, a quick SUSPEND/RESUME, each step of an election — are caught with their
+ * exact time.
+ *
+ * <p>The CnC file stays mapped and the ids of the watched counters are looked up once a second,
+ * so a poll reads just those counters. On a media driver shared by several clusters only the
+ * counters keyed by the node's own cluster id are watched. Transitions go into a ring of primitive arrays written by
+ * the watcher thread and drained by the metrics tick; when the tick falls behind by more than the
+ * ring holds, the oldest transitions are dropped and counted.
+ */
+class StateTransitionWatcher implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StateTransitionWatcher.class);
+
+    private static final long RESCAN_INTERVAL_NS = TimeUnit.SECONDS.toNanos(1);
+
+    private final File cncFile;
+    private final int aeronClusterId;
+    private final int[] typeIds;
+    private final long pollIntervalNs;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    // Ring of transitions: written by the watcher thread, read by drain()
+    private final int mask;
+    private final long[] timestamps;
+    private final int[] types;
+    private final long[] oldValues;
+    private final long[] newValues;
+    private final AtomicLong written = new AtomicLong();
+    private long read;
+    private long dropped;
+
+    // Watcher thread only
+    private MappedByteBuffer cncBuffer;
+    private Object cncFileKey;
+    private CountersReader countersReader;
+    private int[] counterIds = new int[0];
+    private int[] counterTypes = new int[0];
+    private long[] values = new long[0];
+    private long nextRescanNs;
+    private long epochAnchorNs;
+    private long nanoTimeAnchor;
+
+    /**
+     * @param aeronClusterId Aeron's cluster id of the node, the key of its cluster counters
+     * @param capacity       transitions held between two drains; the ring is the next power of two
+     *                       above it, as the slot the watcher writes next cannot be read safely
+     */
+    StateTransitionWatcher(String aeronDir, int aeronClusterId, int[] typeIds, long pollIntervalMs, int capacity,
+                           String name) {
+        this.cncFile = new File(aeronDir, CncFileDescriptor.CNC_FILE);
+        this.aeronClusterId = aeronClusterId;
+        this.typeIds = typeIds.clone();
+        this.pollIntervalNs = TimeUnit.MILLISECONDS.toNanos(Math.max(1, pollIntervalMs));
+        int size = Integer.highestOneBit(Math.max(1, capacity) * 2 + 1);
+        this.mask = size - 1;
+        this.timestamps = new long[size];
+        this.types = new int[size];
+        this.oldValues = new long[size];
+        this.newValues = new long[size];
+        this.thread = new Thread(this::run, "state-watch-" + name);
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Takes the transitions recorded since the previous call, oldest first.
+     */
+    synchronized List<StateChangeEntry> drain() {
+        long end = written.get();
+        long start = Math.max(read, end - mask);
+        dropped += start - read;
+        List<StateChangeEntry> entries = new ArrayList<>((int) (end - start));
+        for (long seq = start; seq < end; seq++) {
+            int index = (int) seq & mask;
+            StateChangeEntry entry = StateChangeEntry.newBuilder()
+                    .setTimestamp(timestamps[index] / 1_000_000)
+                    .setTimestampNs(timestamps[index])
+                    .setCounterTypeId(types[index])
+                    .setOldValue(oldValues[index])
+                    .setNewValue(newValues[index])
+                    .build();
+            // The writer may have reached the slot again while we copied it
+            if (written.get() - seq < timestamps.length) {
+                entries.add(entry);
+            } else {
+                dropped++;
+            }
+        }
+        read = end;
+        return entries;
+    }
+
+    /**
+     * Transitions lost because they were not drained in time.
+     */
+    synchronized long dropped() {
+        return dropped;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        unmap();
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                poll(System.nanoTime());
+            } catch (Exception e) {
+                LOGGER.debug("State transition poll failed: {}", e.getMessage());
+                unmap();
+            }
+            LockSupport.parkNanos(pollIntervalNs);
+        }
+    }
+
+    void poll(long nowNs) throws IOException {
+        if (nowNs - nextRescanNs >= 0) {
+            rescan(nowNs);
+        }
+        if (countersReader == null) {
+            return;
+        }
+        for (int i = 0; i < counterIds.length; i++) {
+            int counterId = counterIds[i];
+            if (countersReader.getCounterState(counterId) != CountersReader.RECORD_ALLOCATED
+                    || countersReader.getCounterTypeId(counterId) != counterTypes[i]) {
+                nextRescanNs = nowNs;  // counter freed or reused: look it up again next time
+                continue;
+            }
+            long value = countersReader.getCounterValue(counterId);
+            if (value != values[i]) {
+                record(epochAnchorNs + (nowNs - nanoTimeAnchor), counterTypes[i], values[i], value);
+                values[i] = value;
+            }
+        }
+    }
+
+    private void rescan(long nowNs) throws IOException {
+        nextRescanNs = nowNs + RESCAN_INTERVAL_NS;
+        Instant now = Instant.now();
+        epochAnchorNs = now.getEpochSecond() * 1_000_000_000L + now.getNano();
+        nanoTimeAnchor = nowNs;
+
+        if (!cncFile.exists()) {
+            unmap();
+            return;
+        }
+        Object fileKey = Files.readAttributes(cncFile.toPath(), BasicFileAttributes.class).fileKey();
+        if (countersReader == null || fileKey == null || !fileKey.equals(cncFileKey)) {
+            unmap();
+            map(fileKey);
+            if (countersReader == null) {
+                return;
+            }
+        }
+
+        List<int[]> found = new ArrayList<>();
+        countersReader.forEach((counterId, typeId, keyBuffer, label) -> {
+            for (int watched : typeIds) {
+                if (typeId == watched && CncReader.isNodeCounter(typeId, keyBuffer, aeronClusterId)) {
+                    found.add(new int[]{counterId, typeId});
+                }
+            }
+        });
+        int[] ids = new int[found.size()];
+        int[] foundTypes = new int[found.size()];
+        long[] foundValues = new long[found.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = found.get(i)[0];
+            foundTypes[i] = found.get(i)[1];
+            foundValues[i] = previousValue(ids[i], foundTypes[i]);
+        }
+        counterIds = ids;
+        counterTypes = foundTypes;
+        values = foundValues;
+    }
+
+    /**
+     * Keeps the last seen value of a counter that is still there, so a rescan does not hide a
+     * transition; a new counter starts from its current value.
+     */
+    private long previousValue(int counterId, int typeId) {
+        for (int i = 0; i < counterIds.length; i++) {
+            if (counterIds[i] == counterId && counterTypes[i] == typeId) {
+                return values[i];
+            }
+        }
+        return countersReader.getCounterValue(counterId);
+    }
+
+    private void map(Object fileKey) {
+        MappedByteBuffer buffer = IoUtil.mapExistingFile(cncFile, "cnc");
+        DirectBuffer metaData = CncFileDescriptor.createMetaDataBuffer(buffer);
+        if (metaData.getInt(CncFileDescriptor.cncVersionOffset(0)) != CncFileDescriptor.CNC_VERSION) {
+            IoUtil.unmap(buffer);  // driver not ready yet, or a different version
+            return;
+        }
+        cncBuffer = buffer;
+        cncFileKey = fileKey;
+        countersReader = new CountersReader(
+                CncFileDescriptor.createCountersMetaDataBuffer(buffer, metaData),
+                CncFileDescriptor.createCountersValuesBuffer(buffer, metaData));
+        counterIds = new int[0];
+        counterTypes = new int[0];
+        values = new long[0];
+    }
+
+    private void unmap() {
+        if (cncBuffer != null) {
+            countersReader = null;
+            IoUtil.unmap(cncBuffer);
+            cncBuffer = null;
+            cncFileKey = null;
+        }
+    }
+
+    void record(long timestampNs, int typeId, long oldValue, long newValue) {
+        long seq = written.get();
+        int index = (int) seq & mask;
+        timestamps[index] = timestampNs;
+        types[index] = typeId;
+        oldValues[index] = oldValue;
+        newValues[index] = newValue;
+        written.lazySet(seq + 1);
+    }
+}
@@ -0,0 +1,269 @@
+package it.podlodowski.aeronmgmt.agent;
+
+import io.aeron.Aeron;
+import io.aeron.FragmentAssembler;
+import io.aeron.Subscription;
+import io.aeron.cluster.codecs.MessageHeaderDecoder;
+import io.aeron.cluster.codecs.SessionMessageHeaderDecoder;
+import io.aeron.logbuffer.FragmentHandler;
+import it.podlodowski.aeronmgmt.common.proto.TrafficProfile;
+import it.podlodowski.aeronmgmt.common.proto.TrafficStat;
+import org.agrona.DirectBuffer;
+import org.agrona.collections.Int2ObjectHashMap;
+import org.agrona.collections.Long2ObjectHashMap;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.SleepingMillisIdleStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Passively observes cluster streams and breaks traffic down per message template and per
+ * cluster session. Nothing is recorded — messages are decoded in place and only counted.
+ *
+ * <p>Each message is classified by its SBE message header. Cluster session messages
+ * ({@code SessionMessageHeader}, used on ingress, egress and the log) are attributed to their
+ * {@code clusterSessionId}, and the application message header that follows is used as the
+ * template key so the breakdown shows application message types rather than the envelope.
+ *
+ * <p>Statistics accumulate on a dedicated polling thread and are drained once per metrics interval
+ * via {@link #drain()}.
+ */
+public class TrafficProfiler implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TrafficProfiler.class);
+    private static final long RESOLVE_INTERVAL_MS = 5_000;
+    private static final int FRAGMENT_LIMIT = 256;
+    /** Sessions beyond this limit per stream are folded into clusterSessionId = -1. */
+    private static final int MAX_TRACKED_SESSIONS = 1024;
+    private static final long NO_SESSION = -1;
+
+    private final AeronClients clients;
+    private final CncReader cncReader;
+    private final int[] streamIds;
+    private final Map<String, ObservedStream> observed = new HashMap<>();
+    private final MessageHeaderDecoder headerDecoder = new MessageHeaderDecoder();
+    private final SessionMessageHeaderDecoder sessionHeaderDecoder = new SessionMessageHeaderDecoder();
+
+    // Guarded by this: written by the polling thread, drained by the metrics thread
+    private final Long2ObjectHashMap<Stat> templateStats = new Long2ObjectHashMap<>();
+    private final Int2ObjectHashMap<Long2ObjectHashMap<Stat>> sessionStats = new Int2ObjectHashMap<>();
+    private long intervalStart = System.currentTimeMillis();
+
+    private volatile boolean running;
+    private Thread thread;
+
+    public TrafficProfiler(AeronClients clients, CncReader cncReader, int[] streamIds) {
+        this.clients = clients;
+        this.cncReader = cncReader;
+        this.streamIds = streamIds.clone();
+    }
+
+    public void start() {
+        if (streamIds.length == 0) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, "traffic-profiler");
+        thread.setDaemon(true);
+        thread.start();
+        LOGGER.info("Traffic profiler started for streams {}", Arrays.toString(streamIds));
+    }
+
+    private void run() {
+        IdleStrategy idleStrategy = new SleepingMillisIdleStrategy(1);
+        long lastResolve = 0;
+        while (running) {
+            long now = System.currentTimeMillis();
+            if (now - lastResolve >= RESOLVE_INTERVAL_MS) {
+                lastResolve = now;
+                try {
+                    resolveSubscriptions();
+                } catch (Exception e) {
+                    LOGGER.debug("Traffic profiler subscription refresh failed: {}", e.getMessage());
+                }
+            }
+
+            int work = 0;
+            for (ObservedStream stream : observed.values()) {
+                synchronized (this) {
+                    work += stream.subscription.poll(stream.assembler, FRAGMENT_LIMIT);
+                }
+            }
+            idleStrategy.idle(work);
+        }
+        observed.values().forEach(s -> s.subscription.close());
+        observed.clear();
+    }
+
+    /**
+     * Aligns subscriptions with the channels currently visible in CnC: clients come and go,
+     * and each egress client has its own publication.
+     */
+    private void resolveSubscriptions() {
+        Aeron aeron = clients.aeron();
+        if (aeron == null || aeron.isClosed()) {
+            return;
+        }
+        // Subscriptions of a client that has since been replaced by a reconnect are closed
+        observed.values().removeIf(stream -> stream.subscription.isClosed());
+        CncReader.CncSnapshot cnc = cncReader.read();
+        Set<String> wanted = new HashSet<>();
+        for (int streamId : streamIds) {
+            for (String channel : ChannelDiscovery.findObservationChannels(cnc.counters, streamId)) {
+                String key = streamId + " " + channel;
+                wanted.add(key);
+                if (!observed.containsKey(key)) {
+                    Subscription subscription = aeron.addSubscription(channel, streamId);
+                    observed.put(key, new ObservedStream(streamId, subscription));
+                    LOGGER.info("Traffic profiler observing stream {} via {}", streamId, channel);
+                }
+            }
+        }
+        observed.entrySet().removeIf(entry -> {
+            if (wanted.contains(entry.getKey())) {
+                return false;
+            }
+            entry.getValue().subscription.close();
+            LOGGER.info("Traffic profiler stopped observing {}", entry.getKey());
+            return true;
+        });
+    }
+
+    void onMessage(int streamId, DirectBuffer buffer, int offset, int length) {
+        int schemaId = -1;
+        int templateId = -1;
+        long clusterSessionId = NO_SESSION;
+
+        if (length >= MessageHeaderDecoder.ENCODED_LENGTH) {
+            headerDecoder.wrap(buffer, offset);
+            schemaId = headerDecoder.schemaId();
+            templateId = headerDecoder.templateId();
+
+            if (schemaId == MessageHeaderDecoder.SCHEMA_ID
+                    && templateId == SessionMessageHeaderDecoder.TEMPLATE_ID
+                    && length >= MessageHeaderDecoder.ENCODED_LENGTH + headerDecoder.blockLength()) {
+                sessionHeaderDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
+                clusterSessionId = sessionHeaderDecoder.clusterSessionId();
+
+                int payloadOffset = MessageHeaderDecoder.ENCODED_LENGTH + headerDecoder.blockLength();
+                if (length - payloadOffset >= MessageHeaderDecoder.ENCODED_LENGTH) {
+                    headerDecoder.wrap(buffer, offset + payloadOffset);
+                    schemaId = headerDecoder.schemaId();
+                    templateId = headerDecoder.templateId();
+                }
+            }
+        }
+
+        long templateKey = ((long) streamId << 32) | ((long) (schemaId & 0xFFFF) << 16) | (templateId & 0xFFFF);
+        Stat templateStat = templateStats.get(templateKey);
+        if (templateStat == null) {
+            templateStat = new Stat(streamId, schemaId, templateId, NO_SESSION);
+            templateStats.put(templateKey, templateStat);
+        }
+        templateStat.record(length);
+
+        Long2ObjectHashMap<Stat> sessions = sessionStats.get(streamId);
+        if (sessions == null) {
+            sessions = new Long2ObjectHashMap<>();
+            sessionStats.put(streamId, sessions);
+        }
+        Stat sessionStat = sessions.get(clusterSessionId);
+        if (sessionStat == null) {
+            long key = sessions.size() < MAX_TRACKED_SESSIONS ? clusterSessionId : NO_SESSION;
+            sessionStat = sessions.get(key);
+            if (sessionStat == null) {
+                sessionStat = new Stat(streamId, -1, -1, key);
+                sessions.put(key, sessionStat);
+            }
+        }
+        sessionStat.record(length);
+    }
+
+    /**
+     * Returns the statistics accumulated since the previous call and starts a new interval.
+     */
+    public synchronized TrafficProfile drain() {
+        long now = System.currentTimeMillis();
+        TrafficProfile.Builder builder = TrafficProfile.newBuilder()
+                .setIntervalStart(intervalStart)
+                .setIntervalEnd(now);
+        for (Stat stat : templateStats.values()) {
+            builder.addTemplates(stat.toProto());
+        }
+        for (Long2ObjectHashMap<Stat> sessions : sessionStats.values()) {
+            for (Stat stat : sessions.values()) {
+                builder.addSessions(stat.toProto());
+            }
+        }
+        templateStats.clear();
+        sessionStats.clear();
+        intervalStart = now;
+        return builder.build();
+    }
+
+    public boolean isEnabled() {
+        return running;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        if (thread != null) {
+            try {
+                thread.join(2_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private final class ObservedStream {
+        final Subscription subscription;
+        final FragmentAssembler assembler;
+
+        ObservedStream(int streamId, Subscription subscription) {
+            this.subscription = subscription;
+            FragmentHandler handler = (buffer, offset, length, header) -> onMessage(streamId, buffer, offset, length);
+            this.assembler = new FragmentAssembler(handler);
+        }
+    }
+
+    private static final class Stat {
+        final int streamId;
+        final int schemaId;
+        final int templateId;
+        final long clusterSessionId;
+        final Log2Histogram sizes = new Log2Histogram();
+        long bytes;
+
+        Stat(int streamId, int schemaId, int templateId, long clusterSessionId) {
+            this.streamId = streamId;
+            this.schemaId = schemaId;
+            this.templateId = templateId;
+            this.clusterSessionId = clusterSessionId;
+        }
+
+        void record(int length) {
+            sizes.record(length);
+            bytes += length;
+        }
+
+        TrafficStat toProto() {
+            return TrafficStat.newBuilder()
+                    .setStreamId(streamId)
+                    .setSchemaId(schemaId)
+                    .setTemplateId(templateId)
+                    .setClusterSessionId(clusterSessionId)
+                    .setMessageCount(sizes.count())
+                    .setByteCount(bytes)
+                    .setSizeHistogram(sizes.toProto())
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package it.podlodowski.aeronmgmt.agent;
+
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.status.AtomicCounter;
+import org.agrona.concurrent.status.CountersManager;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdminCommandExecutorTest {
+
+    private final CountersManager counters = new CountersManager(
+            new UnsafeBuffer(ByteBuffer.allocateDirect(64 * 1024)),
+            new UnsafeBuffer(ByteBuffer.allocateDirect(16 * 1024)));
+
+    @Test
+    void isLeaderWhenLeaderWithClosedElection() {
+        clusterCounter("Cluster node role", 201, 0).setOrdered(2);
+        AtomicCounter election = clusterCounter("Election state", 207, 0);
+        election.setOrdered(17);
+
+        assertThat(AdminCommandExecutor.isLeader(counters, 0)).isZero();
+
+        // Still leader, but re-running an election
+        election.setOrdered(1);
+        assertThat(AdminCommandExecutor.isLeader(counters, 0)).isEqualTo(1);
+    }
+
+    @Test
+    void isNotLeaderAsFollowerOrWithoutCounters() {
+        assertThat(AdminCommandExecutor.isLeader(counters, 0)).isEqualTo(1);
+
+        clusterCounter("Cluster node role", 201, 0).setOrdered(0);
+        clusterCounter("Election state", 207, 0).setOrdered(17);
+        assertThat(AdminCommandExecutor.isLeader(counters, 0)).isEqualTo(1);
+    }
+
+    @Test
+    void isLeaderReadsOnlyTheNodesOwnCounters() {
+        // Two nodes on one media driver: cluster 1 leads, cluster 2 follows
+        clusterCounter("Cluster node role", 201, 1).setOrdered(2);
+        clusterCounter("Election state", 207, 1).setOrdered(17);
+        clusterCounter("Cluster node role", 201, 2).setOrdered(0);
+        clusterCounter("Election state", 207, 2).setOrdered(17);
+
+        assertThat(AdminCommandExecutor.isLeader(counters, 1)).isZero();
+        assertThat(AdminCommandExecutor.isLeader(counters, 2)).isEqualTo(1);
+        assertThat(AdminCommandExecutor.isLeader(counters, 3)).isEqualTo(1);
+    }
+
+    private AtomicCounter clusterCounter(String label, int typeId, int aeronClusterId) {
+        return counters.newCounter(label + " - clusterId=" + aeronClusterId, typeId,
+                key -> key.putInt(0, aeronClusterId));
+    }
+}
@@ -1,11 +1,19 @@
 package it.podlodowski.aeronmgmt.agent;
 
+import it.podlodowski.aeronmgmt.common.proto.ArchiveRecording;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 class ArchiveMetricsCollectorTest {
 
+    @TempDir
+    Path root;
+
     @Test
     void lookupRecordingReturnsNullForMissingCatalogDirectory() {
         ArchiveMetricsCollector collector = new ArchiveMetricsCollector("/tmp/nonexistent-cluster-dir");
@@ -14,4 +22,40 @@ class ArchiveMetricsCollectorTest {
 
         assertThat(result).isNull();
     }
+
+    @Test
+    void collectsEveryRecordingOfLargeCatalog() {
+        Path clusterDir = root.resolve("cluster");
+        new SyntheticArchive().recordings(50_000).recordingLength(4096).writeFor(clusterDir);
+
+        List<ArchiveRecording> recordings = new ArchiveMetricsCollector(clusterDir.toString()).collectRecordings();
+
+        assertThat(recordings).hasSize(50_000);
+        assertThat(recordings.get(49_999).getRecordingId()).isEqualTo(49_999);
+        assertThat(recordings.get(49_999).getStopPosition()).isEqualTo(4096);
+        assertThat(recordings.get(0).getState()).isEqualTo("VALID");
+        assertThat(recordings.get(0).getChannel()).startsWith("aeron:udp?endpoint=");
+    }
+
+    @Test
+    void activeRecordingExtentComesFromSegmentFiles() {
+        Path clusterDir = root.resolve("cluster");
+        int segmentLength = 64 * 1024;
+        new SyntheticArchive()
+                .recordings(3)
+                .activeRecordings(1)
+                .recordingLength(segmentLength * 5L / 2)
+                .segmentFileLength(segmentLength)
+                .segmentFiles(true)
+                .writeFor(clusterDir);
+        ArchiveMetricsCollector collector = new ArchiveMetricsCollector(clusterDir.toString());
+
+        ArchiveMetricsCollector.RecordingInfo stopped = collector.lookupRecording(0);
+        ArchiveMetricsCollector.RecordingInfo active = collector.lookupRecording(2);
+
+        assertThat(stopped.stopPosition()).isEqualTo(segmentLength * 5L / 2);
+        // Three segments on disk: the extent is rounded up to the end of the last one
+        assertThat(active.stopPosition()).isEqualTo(segmentLength * 3L);
+        assertThat(active.segmentFileLength()).isEqualTo(segmentLength);
+    }
 }
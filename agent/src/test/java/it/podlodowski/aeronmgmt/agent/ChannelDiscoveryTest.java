@@ -0,0 +1,82 @@
+package it.podlodowski.aeronmgmt.agent;
+
+import it.podlodowski.aeronmgmt.common.proto.AeronCounter;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChannelDiscoveryTest {
+
+    @Test
+    void findsPublicationChannelForStream() {
+        List<AeronCounter> counters = List.of(
+                counter(1, "pub-lmt: 12 345 100 aeron:udp?endpoint=node1:9002"),
+                counter(1, "pub-lmt: 13 346 102 aeron:udp?endpoint=client:9010"));
+
+        assertThat(ChannelDiscovery.findPublicationChannel(counters, 102))
+                .isEqualTo("aeron:udp?endpoint=client:9010");
+        assertThat(ChannelDiscovery.findPublicationChannel(counters, 101)).isNull();
+    }
+
+    @Test
+    void returnsEachDistinctEgressPublication() {
+        List<AeronCounter> counters = List.of(
+                counter(1, "pub-lmt: 13 346 102 aeron:udp?endpoint=client-a:9010"),
+                counter(2, "snd-pos: 13 346 102 aeron:udp?endpoint=client-a:9010"),
+                counter(1, "pub-lmt: 14 347 102 aeron:udp?endpoint=client-b:9010"));
+
+        assertThat(ChannelDiscovery.findPublicationChannels(counters, 102))
+                .containsExactly("aeron:udp?endpoint=client-a:9010", "aeron:udp?endpoint=client-b:9010");
+    }
+
+    @Test
+    void subscriptionChannelStripsJoinPosition() {
+        List<AeronCounter> counters = List.of(
+                counter(4, "sub-pos: 20 400 101 aeron:udp?endpoint=node0:9001 @0"));
+
+        assertThat(ChannelDiscovery.findSubscriptionChannels(counters, 101))
+                .containsExactly("aeron:udp?endpoint=node0:9001");
+    }
+
+    @Test
+    void observationPrefersSpyOnLocalPublications() {
+        List<AeronCounter> counters = List.of(
+                counter(1, "pub-lmt: 13 346 102 aeron:udp?endpoint=client:9010"),
+                counter(4, "sub-pos: 20 400 102 aeron:udp?endpoint=node0:9010 @0"));
+
+        assertThat(ChannelDiscovery.findObservationChannels(counters, 102))
+                .containsExactly("aeron-spy:aeron:udp?endpoint=client:9010");
+    }
+
+    @Test
+    void observationFallsBackToUntetheredSubscription() {
+        List<AeronCounter> counters = List.of(
+                counter(4, "sub-pos: 20 400 101 aeron:udp?endpoint=node0:9001 @0"));
+
+        assertThat(ChannelDiscovery.findObservationChannels(counters, 101))
+                .singleElement()
+                .satisfies(channel -> {
+                    assertThat(channel).startsWith("aeron:udp?");
+                    assertThat(channel).contains("endpoint=node0:9001", "tether=false");
+                });
+    }
+
+    @Test
+    void ignoresMalformedLabels() {
+        List<AeronCounter> counters = List.of(
+                counter(1, "pub-lmt"),
+                counter(1, "pub-lmt: 1 2 notanumber aeron:ipc"),
+                counter(1, "pub-lmt: 1 2 102"));
+
+        assertThat(ChannelDiscovery.findPublicationChannels(counters, 102)).isEmpty();
+    }
+
+    private static AeronCounter counter(int typeId, String label) {
+        return AeronCounter.newBuilder()
+                .setTypeId(typeId)
+                .setLabel(label)
+                .build();
+    }
+}
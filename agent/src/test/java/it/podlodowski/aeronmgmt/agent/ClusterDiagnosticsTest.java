@@ -0,0 +1,68 @@
+package it.podlodowski.aeronmgmt.agent;
+
+import io.aeron.cluster.RecordingLog;
+import it.podlodowski.aeronmgmt.common.proto.RecordingLogEntry;
+import it.podlodowski.aeronmgmt.common.proto.RecordingLogResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClusterDiagnosticsTest {
+
+    @TempDir
+    File clusterDir;
+
+    @Test
+    void convertsRecordingLogEntries() {
+        try (RecordingLog log = new RecordingLog(clusterDir, true)) {
+            log.appendTerm(1, 0, 0, 1708412400100L);
+            log.appendSnapshot(2, 0, 0, 736, 1708412400200L, -1);
+            log.appendSnapshot(3, 0, 0, 736, 1708412400200L, 0);
+            log.invalidateLatestSnapshot();
+        }
+
+        RecordingLogResult result;
+        try (RecordingLog log = new RecordingLog(clusterDir, false)) {
+            result = ClusterDiagnostics.recordingLog(log.entries());
+        }
+
+        assertThat(result.getEntriesList()).hasSize(3);
+        RecordingLogEntry term = byRecordingId(result, 1);
+        assertThat(term.getType()).isEqualTo("TERM");
+        assertThat(term.getRecordingId()).isEqualTo(1);
+        assertThat(term.getTimestamp()).isEqualTo(1708412400100L);
+        assertThat(term.getValid()).isTrue();
+
+        RecordingLogEntry snapshot = byRecordingId(result, 2);
+        assertThat(snapshot.getType()).isEqualTo("SNAPSHOT");
+        assertThat(snapshot.getServiceId()).isEqualTo(-1);
+        assertThat(snapshot.getLogPosition()).isEqualTo(736);
+        assertThat(snapshot.getEntryIndex()).isEqualTo(1);
+        // invalidateLatestSnapshot invalidates the whole snapshot set, service and consensus module alike
+        assertThat(snapshot.getValid()).isFalse();
+        assertThat(byRecordingId(result, 3).getValid()).isFalse();
+    }
+
+    private static RecordingLogEntry byRecordingId(RecordingLogResult result, long recordingId) {
+        return result.getEntriesList().stream()
+                .filter(e -> e.getRecordingId() == recordingId)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    @Test
+    void namesEntryTypesIgnoringInvalidFlag() {
+        assertThat(ClusterDiagnostics.entryType(RecordingLog.ENTRY_TYPE_TERM)).isEqualTo("TERM");
+        assertThat(ClusterDiagnostics.entryType(RecordingLog.ENTRY_TYPE_SNAPSHOT | RecordingLog.ENTRY_TYPE_INVALID_FLAG))
+                .isEqualTo("SNAPSHOT");
+        assertThat(ClusterDiagnostics.entryType(RecordingLog.ENTRY_TYPE_STANDBY_SNAPSHOT)).isEqualTo("STANDBY_SNAPSHOT");
+    }
+
+    @Test
+    void describeOfEmptyDirectoryHasNoMarkFiles() {
+        assertThat(ClusterDiagnostics.describe(clusterDir).getMarkFilesCount()).isZero();
+    }
+}
@@ -126,4 +126,36 @@ class ClusterDirResolverTest {
                 .isInstanceOf(IllegalStateException.class)
                 .hasMessageContaining("No cluster-mark.dat");
     }
+
+    // --- Multiple nodes ---
+
+    @Test
+    void parsesTargetListWithOptionalClusterIds() {
+        assertThat(ClusterDirResolver.parseTargets(
+                "/data/a/cluster, prod=/data/b-{node_id}/cluster,,staging=/data/c", "default"))
+                .containsExactly(
+                        new ClusterDirResolver.Target("default", "/data/a/cluster"),
+                        new ClusterDirResolver.Target("prod", "/data/b-{node_id}/cluster"),
+                        new ClusterDirResolver.Target("staging", "/data/c"));
+    }
+
+    @Test
+    void findAllReturnsEveryClusterDir(@TempDir Path tmp) throws IOException {
+        for (int i = 0; i < 3; i++) {
+            Path markFile = tmp.resolve("aeron-cluster-" + i + "/cluster/cluster-mark.dat");
+            Files.createDirectories(markFile.getParent());
+            Files.createFile(markFile);
+        }
+
+        assertThat(ClusterDirResolver.findAll(tmp.toString())).containsExactly(
+                tmp + "/aeron-cluster-0/cluster",
+                tmp + "/aeron-cluster-1/cluster",
+                tmp + "/aeron-cluster-2/cluster");
+    }
+
+    @Test
+    void baseDirStopsAtNodeIdPlaceholder() {
+        assertThat(ClusterDirResolver.baseDir("/data/node-{node_id}/cluster")).isEqualTo("/data/node-");
+        assertThat(ClusterDirResolver.baseDir("/data/cluster")).isEqualTo("/data/cluster");
+    }
 }
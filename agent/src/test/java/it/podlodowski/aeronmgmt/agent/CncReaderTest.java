@@ -1,11 +1,19 @@
 package it.podlodowski.aeronmgmt.agent;
 
+import it.podlodowski.aeronmgmt.common.proto.AeronCounter;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Random;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 class CncReaderTest {
 
+    @TempDir
+    Path aeronDir;
+
     @Test
     void readFromNonexistentDir() {
         CncReader reader = new CncReader("/tmp/nonexistent-aeron-dir");
@@ -16,4 +24,75 @@ class CncReaderTest {
         assertThat(snapshot.clusterMetrics.getNodeRole()).isEmpty();
         assertThat(snapshot.clusterMetrics.getCommitPosition()).isZero();
     }
+
+    @Test
+    void readsEveryCounterOfLargeCncFile() {
+        try (SyntheticCncFile cnc = SyntheticCncFile.create(aeronDir, 20_000)) {
+            cnc.populate(20_000);
+
+            CncReader.CncSnapshot snapshot = new CncReader(aeronDir.toString()).read();
+
+            assertThat(snapshot.cncAccessible).isTrue();
+            assertThat(snapshot.driverActive).isTrue();
+            assertThat(snapshot.driverPid).isEqualTo(ProcessHandle.current().pid());
+            assertThat(snapshot.counters).hasSize(20_000);
+            assertThat(snapshot.clusterMetrics.getNodeRole()).isEqualTo("LEADER");
+            assertThat(snapshot.clusterMetrics.getConsensusModuleState()).isEqualTo("ACTIVE");
+            assertThat(snapshot.clusterMetrics.getElectionState()).isEqualTo("17");
+        }
+    }
+
+    @Test
+    void staleHeartbeatMarksDriverInactive() {
+        try (SyntheticCncFile cnc = SyntheticCncFile.create(aeronDir, 100)) {
+            cnc.populate(100);
+            cnc.heartbeat(System.currentTimeMillis() - 60_000);
+
+            CncReader.CncSnapshot snapshot = new CncReader(aeronDir.toString()).read();
+
+            assertThat(snapshot.cncAccessible).isTrue();
+            assertThat(snapshot.driverActive).isFalse();
+        }
+    }
+
+    @Test
+    void seesCountersFreedAndReallocatedBetweenReads() {
+        try (SyntheticCncFile cnc = SyntheticCncFile.create(aeronDir, 1_000)) {
+            cnc.populate(900);
+            CncReader reader = new CncReader(aeronDir.toString());
+            long before = reader.read().counters.stream().mapToLong(AeronCounter::getValue).sum();
+
+            cnc.churn(new Random(42), 100);
+            int freed = cnc.allocate(1, "extra", 0);
+            cnc.free(freed);
+
+            CncReader.CncSnapshot snapshot = reader.read();
+            assertThat(snapshot.counters).hasSize(900);
+            assertThat(snapshot.counters).extracting(AeronCounter::getLabel).doesNotContain("extra");
+            assertThat(snapshot.counters.stream().mapToLong(AeronCounter::getValue).sum()).isGreaterThan(before);
+        }
+    }
+
+    @Test
+    void readsOnlyTheNodesOwnClusterCountersOnASharedDriver() {
+        try (SyntheticCncFile cnc = SyntheticCncFile.create(aeronDir, 100)) {
+            // Cluster 1 leads, cluster 2 follows; both on one media driver
+            cnc.allocateClusterCounter(SyntheticCncFile.CLUSTER_NODE_ROLE, 1, 2);
+            cnc.allocateClusterCounter(SyntheticCncFile.ELECTION_STATE, 1, 17);
+            cnc.allocateClusterCounter(SyntheticCncFile.CLUSTER_NODE_ROLE, 2, 0);
+            cnc.allocateClusterCounter(SyntheticCncFile.ELECTION_STATE, 2, 4);
+            cnc.allocate(1, "Bytes sent", 4096);
+
+            CncReader.CncSnapshot leader = new CncReader(aeronDir.toString(), 1).read();
+            CncReader.CncSnapshot follower = new CncReader(aeronDir.toString(), 2).read();
+
+            assertThat(leader.clusterMetrics.getNodeRole()).isEqualTo("LEADER");
+            assertThat(leader.clusterMetrics.getElectionState()).isEqualTo("17");
+            assertThat(follower.clusterMetrics.getNodeRole()).isEqualTo("FOLLOWER");
+            assertThat(follower.clusterMetrics.getElectionState()).isEqualTo("4");
+            assertThat(follower.counters).extracting(AeronCounter::getLabel)
+                    .containsExactlyInAnyOrder("cluster counter type=201 - clusterId=2",
+                            "cluster counter type=207 - clusterId=2", "Bytes sent");
+        }
+    }
 }
@@ -0,0 +1,179 @@
+package it.podlodowski.aeronmgmt.agent;
+
+import it.podlodowski.aeronmgmt.common.proto.AdminCommand;
+import it.podlodowski.aeronmgmt.common.proto.CommandProgress;
+import it.podlodowski.aeronmgmt.common.proto.CommandResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CommandPoolTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final LinkedBlockingQueue<CommandResult> results = new LinkedBlockingQueue<>();
+    private CommandPool pool;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test
+    void readOnlyCommandsAreNotBlockedByMutatingCommand() throws Exception {
+        pool = new CommandPool(new BlockingExecutor("ARCHIVE_COMPACT"), 2, 4, 10_000);
+
+        pool.submit(command("1", "ARCHIVE_COMPACT"), progress -> { }, results::add);
+        pool.submit(command("2", "DESCRIBE"), progress -> { }, results::add);
+
+        CommandResult result = results.poll(5, TimeUnit.SECONDS);
+        assertThat(result).isNotNull();
+        assertThat(result.getCommandId()).isEqualTo("2");
+        assertThat(result.getSuccess()).isTrue();
+        assertThat(pool.status().getMutatingActive()).isEqualTo(1);
+    }
+
+    @Test
+    void commandTimesOutWithSingleResult() throws Exception {
+        pool = new CommandPool(new BlockingExecutor("DESCRIBE"), 1, 4, 10_000);
+
+        pool.submit(command("1", "DESCRIBE").toBuilder().setTimeoutMs(50).build(), progress -> { }, results::add);
+
+        CommandResult result = results.poll(5, TimeUnit.SECONDS);
+        assertThat(result).isNotNull();
+        assertThat(result.getSuccess()).isFalse();
+        assertThat(result.getError()).contains("timed out");
+        assertThat(pool.status().getTimedOut()).isEqualTo(1);
+        assertThat(results.poll(200, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void progressKeepsLongCommandAlive() throws Exception {
+        pool = new CommandPool(new StreamingExecutor(10, 50), 1, 4, 10_000);
+        LinkedBlockingQueue<CommandProgress> progress = new LinkedBlockingQueue<>();
+
+        pool.submit(command("1", "ARCHIVE_VERIFY").toBuilder().setTimeoutMs(200).build(), progress::add, results::add);
+
+        CommandResult result = results.poll(5, TimeUnit.SECONDS);
+        assertThat(result).isNotNull();
+        assertThat(result.getSuccess()).isTrue();
+        assertThat(result.getOutput()).isEqualTo("verified");
+        assertThat(progress).hasSize(10);
+        assertThat(pool.status().getTimedOut()).isZero();
+        assertThat(results.poll(300, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void cancelAnswersQueuedCommand() throws Exception {
+        pool = new CommandPool(new BlockingExecutor("SNAPSHOT"), 1, 4, 10_000);
+
+        pool.submit(command("1", "SNAPSHOT"), progress -> { }, results::add);
+        pool.submit(command("2", "SUSPEND"), progress -> { }, results::add);
+
+        assertThat(pool.cancel("2")).isTrue();
+        CommandResult result = results.poll(5, TimeUnit.SECONDS);
+        assertThat(result.getCommandId()).isEqualTo("2");
+        assertThat(result.getError()).contains("cancelled");
+        assertThat(pool.cancel("2")).isFalse();
+    }
+
+    @Test
+    void fullLaneRejectsImmediately() throws Exception {
+        pool = new CommandPool(new BlockingExecutor("SNAPSHOT"), 1, 1, 10_000);
+
+        pool.submit(command("1", "SNAPSHOT"), progress -> { }, results::add);
+        pool.submit(command("2", "SNAPSHOT"), progress -> { }, results::add);
+        pool.submit(command("3", "SNAPSHOT"), progress -> { }, results::add);
+
+        CommandResult result = results.poll(5, TimeUnit.SECONDS);
+        assertThat(result.getCommandId()).isEqualTo("3");
+        assertThat(result.getError()).contains("busy");
+        assertThat(pool.status().getRejected()).isEqualTo(1);
+    }
+
+    @Test
+    void classifiesMutatingCommands() {
+        assertThat(CommandPool.isMutating("SNAPSHOT")).isTrue();
+        assertThat(CommandPool.isMutating("ARCHIVE_VERIFY")).isTrue();
+        assertThat(CommandPool.isMutating("DESCRIBE")).isFalse();
+        assertThat(CommandPool.isMutating("READ_RECORDING_BYTES")).isFalse();
+    }
+
+    private static AdminCommand command(String id, String type) {
+        return AdminCommand.newBuilder()
+                .setCommandId(id)
+                .setType(type)
+                .build();
+    }
+
+    /**
+     * Emits a progress chunk every {@code intervalMs}, then succeeds.
+     */
+    private static class StreamingExecutor extends AdminCommandExecutor {
+        private final int chunks;
+        private final long intervalMs;
+
+        StreamingExecutor(int chunks, long intervalMs) {
+            super("/tmp/nonexistent-cluster-dir", null, null, null, 0);
+            this.chunks = chunks;
+            this.intervalMs = intervalMs;
+        }
+
+        @Override
+        public CommandResult execute(AdminCommand command, Consumer<CommandProgress> progressSink) {
+            for (int i = 0; i < chunks; i++) {
+                try {
+                    Thread.sleep(intervalMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                progressSink.accept(CommandProgress.newBuilder()
+                        .setCommandId(command.getCommandId())
+                        .setSequence(i)
+                        .setOutputChunk("recording " + i + "\n")
+                        .build());
+            }
+            return CommandResult.newBuilder()
+                    .setCommandId(command.getCommandId())
+                    .setSuccess(true)
+                    .setOutput("verified")
+                    .build();
+        }
+    }
+
+    /**
+     * Blocks on the given command type until the test ends; everything else succeeds immediately.
+     */
+    private class BlockingExecutor extends AdminCommandExecutor {
+        private final String blockingType;
+
+        BlockingExecutor(String blockingType) {
+            super("/tmp/nonexistent-cluster-dir", null, null, null, 0);
+            this.blockingType = blockingType;
+        }
+
+        @Override
+        public CommandResult execute(AdminCommand command, Consumer<CommandProgress> progressSink) {
+            if (command.getType().equals(blockingType)) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return CommandResult.newBuilder()
+                    .setCommandId(command.getCommandId())
+                    .setSuccess(true)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package it.podlodowski.aeronmgmt.agent;
+
+import it.podlodowski.aeronmgmt.common.proto.CommandProgress;
+import org.junit.jupiter.api.Test;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CommandProgressStreamTest {
+
+    private final List<CommandProgress> chunks = new ArrayList<>();
+
+    @Test
+    void streamsAllOutputInOrderedChunks() {
+        CommandProgressStream stream = new CommandProgressStream("cmd-1", chunks::add, -1);
+        PrintStream out = new PrintStream(stream);
+        String line = "x".repeat(1000);
+        for (int i = 0; i < 40; i++) {
+            out.println(line);
+        }
+        out.flush();
+        stream.finish();
+
+        assertThat(chunks.size()).isGreaterThan(1);
+        StringBuilder all = new StringBuilder();
+        for (int i = 0; i < chunks.size(); i++) {
+            assertThat(chunks.get(i).getSequence()).isEqualTo(i);
+            assertThat(chunks.get(i).getCommandId()).isEqualTo("cmd-1");
+            all.append(chunks.get(i).getOutputChunk());
+        }
+        assertThat(all.toString()).isEqualTo((line + System.lineSeparator()).repeat(40));
+        assertThat(chunks.get(chunks.size() - 1).getPercentComplete()).isEqualTo(100.0);
+    }
+
+    @Test
+    void finishReturnsOnlyBoundedTail() {
+        CommandProgressStream stream = new CommandProgressStream("cmd-1", chunks::add, -1);
+        PrintStream out = new PrintStream(stream);
+        out.print("a".repeat(CommandProgressStream.TAIL_BYTES));
+        out.print("END");
+        out.flush();
+
+        String tail = stream.finish();
+
+        assertThat(tail).startsWith("[3 earlier bytes streamed as progress]\n");
+        assertThat(tail).endsWith("aaaEND");
+        assertThat(tail.length()).isLessThan(CommandProgressStream.TAIL_BYTES + 64);
+    }
+
+    @Test
+    void estimatesProgressFromVerifiedRecordings() {
+        CommandProgressStream stream = new CommandProgressStream("cmd-1", chunks::add, 4);
+        PrintStream out = new PrintStream(stream);
+        out.println("(recordingId=0) OK");
+        out.println("(recordingId=1, file=/archive/1-0.rec) ERR: failed to verify file");
+        out.println("(recordingId=1) ERR: failed to verify file");
+        out.flush();
+
+        assertThat(stream.percentComplete()).isEqualTo(50.0);
+
+        out.println("(recordingId=2) OK");
+        out.println("(recordingId=3) skipping: INVALID");
+        out.flush();
+
+        // Capped below 100 until the command actually returns
+        assertThat(stream.percentComplete()).isEqualTo(99.0);
+    }
+}
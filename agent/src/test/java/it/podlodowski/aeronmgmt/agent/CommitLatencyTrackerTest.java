@@ -0,0 +1,195 @@
+package it.podlodowski.aeronmgmt.agent;
+
+import io.aeron.cluster.codecs.MessageHeaderEncoder;
+import io.aeron.cluster.codecs.SessionMessageHeaderEncoder;
+import io.aeron.cluster.codecs.SessionOpenEventEncoder;
+import it.podlodowski.aeronmgmt.common.proto.CommitLatency;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CommitLatencyTrackerTest {
+
+    private static final long MS = 1_000_000;
+
+    private final CommitLatencyTracker tracker = new CommitLatencyTracker(null, null, 0, true, 101, 100);
+    private final UnsafeBuffer buffer = new UnsafeBuffer(new byte[1024]);
+
+    @Test
+    void matchesLogEntriesToIngressPerSessionInOrder() {
+        ingress(1, "a", 0);
+        ingress(2, "x", 0);
+        ingress(1, "b", 1 * MS);
+
+        log(1, "a", 100, 3 * MS);
+        log(2, "x", 200, 4 * MS);
+        log(1, "b", 300, 5 * MS);
+
+        CommitLatency latency = tracker.drain();
+        assertThat(latency.getIngressToAppend().getCount()).isEqualTo(3);
+        assertThat(latency.getIngressToAppend().getMax()).isEqualTo(4 * MS);
+        assertThat(latency.getUnmatched()).isZero();
+        assertThat(latency.getUnmatchedLog()).isZero();
+    }
+
+    @Test
+    void countsLogEntryWithoutIngressInsteadOfPairingWithOlderMessage() {
+        ingress(1, "a", 0);
+
+        // The ingress of "b" was dropped or not polled yet
+        log(1, "b", 100, 1 * MS);
+        log(1, "a", 200, 2 * MS);
+
+        CommitLatency latency = tracker.drain();
+        assertThat(latency.getUnmatchedLog()).isEqualTo(1);
+        assertThat(latency.getIngressToAppend().getCount()).isEqualTo(1);
+        assertThat(latency.getIngressToAppend().getMax()).isEqualTo(2 * MS);
+    }
+
+    @Test
+    void skipsIngressMessagesThatNeverReachedTheLog() {
+        ingress(1, "rejected", 0);
+        ingress(1, "a", 1 * MS);
+
+        log(1, "a", 100, 2 * MS);
+
+        CommitLatency latency = tracker.drain();
+        assertThat(latency.getUnmatched()).isEqualTo(1);
+        assertThat(latency.getIngressToAppend().getCount()).isEqualTo(1);
+        assertThat(latency.getIngressToAppend().getMax()).isEqualTo(1 * MS);
+    }
+
+    @Test
+    void expiresIngressMessagesAfterTimeout() {
+        ingress(1, "a", 0);
+        ingress(2, "b", CommitLatencyTracker.MATCH_TIMEOUT_NS);
+
+        tracker.expireAll(CommitLatencyTracker.MATCH_TIMEOUT_NS + 1);
+        log(1, "a", 100, CommitLatencyTracker.MATCH_TIMEOUT_NS + 2);
+
+        CommitLatency latency = tracker.drain();
+        assertThat(latency.getUnmatched()).isEqualTo(1);
+        assertThat(latency.getUnmatchedLog()).isEqualTo(1);
+    }
+
+    @Test
+    void dropsOldestIngressWhenSessionQueueOverflows() {
+        for (int i = 0; i <= CommitLatencyTracker.SESSION_QUEUE_CAPACITY; i++) {
+            ingress(1, "m" + i, i);
+        }
+
+        log(1, "m0", 100, 10 * MS);
+        log(1, "m1", 200, 10 * MS);
+
+        CommitLatency latency = tracker.drain();
+        assertThat(latency.getUnmatched()).isEqualTo(1);
+        assertThat(latency.getUnmatchedLog()).isEqualTo(1);
+        assertThat(latency.getIngressToAppend().getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void recordsCommitOnceCommitPositionPassesEntry() {
+        ingress(1, "a", 0);
+        ingress(1, "b", 0);
+        log(1, "a", 100, 1 * MS);
+        log(1, "b", 200, 1 * MS);
+
+        assertThat(tracker.onCommitPosition(150, 5 * MS)).isEqualTo(1);
+        assertThat(tracker.onCommitPosition(150, 6 * MS)).isZero();
+        assertThat(tracker.onCommitPosition(200, 7 * MS)).isEqualTo(1);
+
+        CommitLatency latency = tracker.drain();
+        assertThat(latency.getIngressToCommit().getCount()).isEqualTo(2);
+        assertThat(latency.getIngressToCommit().getMax()).isEqualTo(7 * MS);
+    }
+
+    @Test
+    void ignoresMessagesOtherThanSessionMessages() {
+        int length = new SessionOpenEventEncoder().wrapAndApplyHeader(buffer, 0, new MessageHeaderEncoder())
+                .encodedLength() + MessageHeaderEncoder.ENCODED_LENGTH;
+
+        tracker.onIngress(buffer, 0, length, 0);
+        tracker.onLog(buffer, 0, length, 100, 1);
+        tracker.onLog(buffer, 0, 4, 100, 1);
+
+        CommitLatency latency = tracker.drain();
+        assertThat(latency.getUnmatchedLog()).isZero();
+        assertThat(latency.getIngressToAppend().getCount()).isZero();
+    }
+
+    @Test
+    void ingressQueueFindsOldestMatchingHash() {
+        CommitLatencyTracker.IngressQueue queue = new CommitLatencyTracker.IngressQueue(3, 3);
+        queue.offer(7, 1);
+        queue.offer(8, 2);
+        queue.offer(7, 3);
+
+        assertThat(queue.isFull()).isTrue();
+        assertThat(queue.indexOf(7)).isZero();
+        assertThat(queue.indexOf(8)).isEqualTo(1);
+        assertThat(queue.indexOf(9)).isEqualTo(-1);
+
+        queue.poll();
+        queue.offer(9, 4);
+        assertThat(queue.indexOf(7)).isEqualTo(1);
+        assertThat(queue.indexOf(9)).isEqualTo(2);
+        assertThat(queue.peekTime()).isEqualTo(2);
+    }
+
+    @Test
+    void queueGrowsUpToItsBound() {
+        CommitLatencyTracker.LongQueue queue = new CommitLatencyTracker.LongQueue(2, 5);
+        queue.offer(1);
+        queue.offer(2);
+        queue.poll();
+        queue.offer(3);
+        queue.offer(4);
+        queue.offer(5);
+        queue.offer(6);
+
+        assertThat(queue.isFull()).isTrue();
+        assertThat(queue.capacity()).isEqualTo(5);
+        assertThat(queue.indexOf(2)).isZero();
+        assertThat(queue.indexOf(6)).isEqualTo(4);
+        assertThat(queue.poll()).isEqualTo(2);
+    }
+
+    @Test
+    void countsSessionsBeyondTheLimitAsUnmatched() {
+        for (int session = 0; session < CommitLatencyTracker.MAX_TRACKED_SESSIONS; session++) {
+            ingress(session, "order", 0);
+        }
+        ingress(5_000, "order", 0);
+        log(5_000, "order", 100, 1_000);
+        log(0, "order", 200, 1_000);
+
+        CommitLatency latency = tracker.drain();
+        assertThat(latency.getUnmatched()).isEqualTo(1);
+        assertThat(latency.getUnmatchedLog()).isEqualTo(1);
+        assertThat(latency.getIngressToAppend().getCount()).isEqualTo(1);
+    }
+
+    private void ingress(long clusterSessionId, String payload, long nowNs) {
+        tracker.onIngress(buffer, 0, sessionMessage(clusterSessionId, payload, 0), nowNs);
+    }
+
+    private void log(long clusterSessionId, String payload, long position, long nowNs) {
+        // The consensus module sets the term and timestamp on append; the payload is unchanged
+        tracker.onLog(buffer, 0, sessionMessage(clusterSessionId, payload, 1_700_000_000_000L), position, nowNs);
+    }
+
+    private int sessionMessage(long clusterSessionId, String payload, long timestamp) {
+        SessionMessageHeaderEncoder header = new SessionMessageHeaderEncoder()
+                .wrapAndApplyHeader(buffer, 0, new MessageHeaderEncoder())
+                .leadershipTermId(timestamp == 0 ? -1 : 3)
+                .clusterSessionId(clusterSessionId)
+                .timestamp(timestamp);
+        int offset = MessageHeaderEncoder.ENCODED_LENGTH + header.encodedLength();
+        byte[] bytes = payload.getBytes(StandardCharsets.US_ASCII);
+        buffer.putBytes(offset, bytes);
+        return offset + bytes.length;
+    }
+}
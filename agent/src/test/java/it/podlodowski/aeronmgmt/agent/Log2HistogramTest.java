@@ -0,0 +1,56 @@
+package it.podlodowski.aeronmgmt.agent;
+
+import it.podlodowski.aeronmgmt.common.proto.Histogram;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class Log2HistogramTest {
+
+    @Test
+    void valuesLandInPowerOfTwoBuckets() {
+        assertThat(Log2Histogram.bucketIndex(0)).isZero();
+        assertThat(Log2Histogram.bucketIndex(1)).isEqualTo(1);
+        assertThat(Log2Histogram.bucketIndex(2)).isEqualTo(2);
+        assertThat(Log2Histogram.bucketIndex(3)).isEqualTo(2);
+        assertThat(Log2Histogram.bucketIndex(1024)).isEqualTo(11);
+        assertThat(Log2Histogram.bucketIndex(Long.MAX_VALUE)).isEqualTo(63);
+    }
+
+    @Test
+    void protoTrimsTrailingEmptyBuckets() {
+        Log2Histogram histogram = new Log2Histogram();
+        histogram.record(1);
+        histogram.record(3);
+        histogram.record(3);
+
+        Histogram proto = histogram.toProto();
+
+        assertThat(proto.getBucketsList()).containsExactly(0L, 1L, 2L);
+        assertThat(proto.getCount()).isEqualTo(3);
+        assertThat(proto.getSum()).isEqualTo(7);
+        assertThat(proto.getMax()).isEqualTo(3);
+    }
+
+    @Test
+    void percentileUpperBoundIsCappedAtMax() {
+        Log2Histogram histogram = new Log2Histogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+
+        assertThat(histogram.percentileUpperBound(50)).isEqualTo(63);
+        assertThat(histogram.percentileUpperBound(99)).isEqualTo(100);
+        assertThat(histogram.percentileUpperBound(100)).isEqualTo(100);
+    }
+
+    @Test
+    void resetClearsEverything() {
+        Log2Histogram histogram = new Log2Histogram();
+        histogram.record(500);
+        histogram.reset();
+
+        assertThat(histogram.count()).isZero();
+        assertThat(histogram.toProto().getBucketsCount()).isZero();
+    }
+}
@@ -11,8 +11,8 @@ class MetricsCollectorTest {
     void backupModeInjectsBackupRole() {
         CncReader cncReader = new CncReader("/tmp/nonexistent-aeron-dir");
         ArchiveMetricsCollector archiveCollector = new ArchiveMetricsCollector("/tmp/nonexistent-cluster-dir");
-        SpyRecordingManager spyRecordingManager = new SpyRecordingManager("/tmp/nonexistent-aeron-dir", cncReader);
-        MetricsCollector collector = new MetricsCollector(cncReader, archiveCollector, 99, "backup", "test-cluster", spyRecordingManager, new StateChangeBuffer(100), "/tmp/nonexistent-aeron-dir");
+        SpyRecordingManager spyRecordingManager = new SpyRecordingManager(new AeronClients("/tmp/nonexistent-aeron-dir"), cncReader);
+        MetricsCollector collector = new MetricsCollector(cncReader, archiveCollector, 99, "backup", "test-cluster", spyRecordingManager, new StateChangeBuffer(100), "/tmp/nonexistent-aeron-dir", null, null, null, null, null, 0, null);
 
         MetricsReport report = collector.collect();
 
@@ -25,8 +25,8 @@ class MetricsCollectorTest {
     void clusterModeDoesNotOverrideRole() {
         CncReader cncReader = new CncReader("/tmp/nonexistent-aeron-dir");
         ArchiveMetricsCollector archiveCollector = new ArchiveMetricsCollector("/tmp/nonexistent-cluster-dir");
-        SpyRecordingManager spyRecordingManager = new SpyRecordingManager("/tmp/nonexistent-aeron-dir", cncReader);
-        MetricsCollector collector = new MetricsCollector(cncReader, archiveCollector, 0, "cluster", "default", spyRecordingManager, new StateChangeBuffer(100), "/tmp/nonexistent-aeron-dir");
+        SpyRecordingManager spyRecordingManager = new SpyRecordingManager(new AeronClients("/tmp/nonexistent-aeron-dir"), cncReader);
+        MetricsCollector collector = new MetricsCollector(cncReader, archiveCollector, 0, "cluster", "default", spyRecordingManager, new StateChangeBuffer(100), "/tmp/nonexistent-aeron-dir", null, null, null, null, null, 0, null);
 
         MetricsReport report = collector.collect();
 
@@ -0,0 +1,123 @@
+package it.podlodowski.aeronmgmt.agent;
+
+import it.podlodowski.aeronmgmt.common.proto.AeronCounter;
+import it.podlodowski.aeronmgmt.common.proto.MetricsReport;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MetricsOutboxTest {
+
+    private static final long FOLLOWER = 0;
+    private static final long LEADER = 2;
+
+    @Test
+    void newerReportReplacesUnsentOne() {
+        MetricsOutbox outbox = new MetricsOutbox(8);
+
+        outbox.offer(report(1, FOLLOWER), 0);
+        outbox.offer(report(2, FOLLOWER), 0);
+        outbox.offer(report(3, FOLLOWER), 0);
+
+        MetricsReport sent = outbox.poll(0).get(0);
+        assertThat(sent.getTimestamp()).isEqualTo(3);
+        assertThat(sent.getSendStats().getConflated()).isEqualTo(2);
+        assertThat(outbox.poll(0)).isNull();
+    }
+
+    @Test
+    void stateChangeReportsAreNeverConflated() {
+        MetricsOutbox outbox = new MetricsOutbox(8);
+
+        outbox.offer(report(1, FOLLOWER), 0);
+        outbox.offer(report(2, LEADER), 0);
+        outbox.offer(report(3, FOLLOWER), 0);
+        outbox.offer(report(4, FOLLOWER), 0);
+        outbox.offer(report(5, FOLLOWER), 0);
+
+        // 1 is replaced by the change to LEADER; 4 is replaced by 5; both role changes survive
+        assertThat(outbox.poll(0).get(0).getTimestamp()).isEqualTo(2);
+        assertThat(outbox.poll(0).get(0).getTimestamp()).isEqualTo(3);
+        MetricsReport last = outbox.poll(0).get(0);
+        assertThat(last.getTimestamp()).isEqualTo(5);
+        assertThat(last.getSendStats().getConflated()).isEqualTo(2);
+        assertThat(outbox.isEmpty()).isTrue();
+    }
+
+    @Test
+    void reportsWhenTooManyStateChangesAreWaiting() {
+        MetricsOutbox outbox = new MetricsOutbox(2);
+
+        assertThat(outbox.offer(report(1, FOLLOWER), 0)).isTrue();
+        assertThat(outbox.offer(report(2, LEADER), 0)).isTrue();
+        assertThat(outbox.offer(report(3, FOLLOWER), 0)).isTrue();
+        assertThat(outbox.offer(report(4, LEADER), 0)).isFalse();
+
+        outbox.clear(true);
+        assertThat(outbox.isEmpty()).isTrue();
+        assertThat(outbox.offer(report(5, LEADER), 0)).isTrue();
+        assertThat(outbox.poll(0).get(0).getSendStats().getStreamResets()).isEqualTo(1);
+    }
+
+    @Test
+    void measuresTimeSpentWaiting() {
+        MetricsOutbox outbox = new MetricsOutbox(8);
+
+        outbox.offer(report(1, FOLLOWER), 1_000);
+        MetricsReport sent = outbox.poll(5_000).get(0);
+
+        assertThat(sent.getSendStats().getSendLatency().getCount()).isEqualTo(1);
+        assertThat(sent.getSendStats().getSendLatency().getMax()).isEqualTo(4_000);
+    }
+
+    @Test
+    void batchesReportsAndStampsLastOne() {
+        MetricsOutbox outbox = new MetricsOutbox(8, 3);
+
+        outbox.offer(report(1, FOLLOWER), 0);
+        outbox.offer(report(2, FOLLOWER), 0);
+        assertThat(outbox.poll(0)).isNull();
+        outbox.offer(report(3, FOLLOWER), 0);
+
+        List<MetricsReport> batch = outbox.poll(0);
+        assertThat(batch).extracting(MetricsReport::getTimestamp).containsExactly(1L, 2L, 3L);
+        assertThat(batch.get(0).hasSendStats()).isFalse();
+        assertThat(batch.get(2).hasSendStats()).isTrue();
+    }
+
+    @Test
+    void stateChangeClosesBatchEarly() {
+        MetricsOutbox outbox = new MetricsOutbox(8, 10);
+
+        outbox.offer(report(1, FOLLOWER), 0);
+        outbox.offer(report(2, LEADER), 0);
+        outbox.offer(report(3, LEADER), 0);
+
+        assertThat(outbox.poll(0)).extracting(MetricsReport::getTimestamp).containsExactly(1L, 2L);
+        assertThat(outbox.poll(0)).isNull();
+    }
+
+    @Test
+    void conflatesWholeBatches() {
+        MetricsOutbox outbox = new MetricsOutbox(8, 2);
+
+        for (long t = 1; t <= 6; t++) {
+            outbox.offer(report(t, FOLLOWER), 0);
+        }
+
+        List<MetricsReport> batch = outbox.poll(0);
+        assertThat(batch).extracting(MetricsReport::getTimestamp).containsExactly(5L, 6L);
+        assertThat(batch.get(1).getSendStats().getConflated()).isEqualTo(4);
+    }
+
+    private static MetricsReport report(long timestamp, long role) {
+        return MetricsReport.newBuilder()
+                .setTimestamp(timestamp)
+                .addCounters(AeronCounter.newBuilder().setTypeId(200).setValue(1))
+                .addCounters(AeronCounter.newBuilder().setTypeId(201).setValue(role))
+                .addCounters(AeronCounter.newBuilder().setTypeId(207).setValue(17))
+                .build();
+    }
+}
@@ -0,0 +1,100 @@
+package it.podlodowski.aeronmgmt.agent;
+
+import it.podlodowski.aeronmgmt.common.proto.AeronCounter;
+import it.podlodowski.aeronmgmt.common.proto.ArchiveRecording;
+import it.podlodowski.aeronmgmt.common.proto.MetricsReport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MetricsSpoolTest {
+
+    private static final long HOUR_MS = 3_600_000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaysInOrderAndRemovesOnlyReleasedSamples() throws Exception {
+        try (MetricsSpool spool = new MetricsSpool(dir.resolve("spool.dat"), 64 * 1024, HOUR_MS)) {
+            for (long t = 1; t <= 5; t++) {
+                spool.append(report(t), 0);
+            }
+
+            MetricsSpool.Batch first = spool.peek(3, 0);
+            assertThat(first.reports()).extracting(MetricsReport::getTimestamp).containsExactly(1L, 2L, 3L);
+            // Not released yet: the same samples come back
+            assertThat(spool.peek(3, 0).reports()).extracting(MetricsReport::getTimestamp).containsExactly(1L, 2L, 3L);
+
+            spool.release(first);
+            MetricsSpool.Batch rest = spool.peek(10, 0);
+            assertThat(rest.reports()).extracting(MetricsReport::getTimestamp).containsExactly(4L, 5L);
+            spool.release(rest);
+            assertThat(spool.isEmpty()).isTrue();
+        }
+    }
+
+    @Test
+    void dropsOldestSamplesWhenFull() throws Exception {
+        int recordLength = MetricsSpool.compact(report(0)).getSerializedSize() + 16;
+        try (MetricsSpool spool = new MetricsSpool(dir.resolve("spool.dat"), recordLength * 10, HOUR_MS)) {
+            for (long t = 1; t <= 100; t++) {
+                assertThat(spool.append(report(t), 0)).isTrue();
+            }
+
+            var timestamps = spool.peek(100, 0).reports().stream().map(MetricsReport::getTimestamp).toList();
+            assertThat(timestamps).isNotEmpty().hasSizeLessThanOrEqualTo(10).isSorted();
+            assertThat(timestamps.get(timestamps.size() - 1)).isEqualTo(100L);
+            assertThat(timestamps.get(0)).isEqualTo(100L - timestamps.size() + 1);
+        }
+    }
+
+    @Test
+    void dropsSamplesOlderThanMaxAge() throws Exception {
+        try (MetricsSpool spool = new MetricsSpool(dir.resolve("spool.dat"), 64 * 1024, 1_000)) {
+            spool.append(report(1_000), 1_000);
+            spool.append(report(2_500), 2_500);
+
+            assertThat(spool.peek(10, 3_000).reports())
+                    .extracting(MetricsReport::getTimestamp).containsExactly(2_500L);
+        }
+    }
+
+    @Test
+    void survivesReopen() throws Exception {
+        Path file = dir.resolve("spool.dat");
+        try (MetricsSpool spool = new MetricsSpool(file, 64 * 1024, HOUR_MS)) {
+            spool.append(report(1), 0);
+            spool.append(report(2), 0);
+            spool.release(spool.peek(1, 0));
+        }
+        try (MetricsSpool spool = new MetricsSpool(file, 64 * 1024, HOUR_MS)) {
+            assertThat(spool.peek(10, 0).reports()).extracting(MetricsReport::getTimestamp).containsExactly(2L);
+        }
+    }
+
+    @Test
+    void spoolsCompactSamples() throws Exception {
+        MetricsReport report = report(1).toBuilder()
+                .addRecordings(ArchiveRecording.newBuilder().setRecordingId(7))
+                .build();
+        try (MetricsSpool spool = new MetricsSpool(dir.resolve("spool.dat"), 64 * 1024, HOUR_MS)) {
+            spool.append(report, 0);
+
+            MetricsReport spooled = spool.peek(1, 0).reports().get(0);
+            assertThat(spooled.getRecordingsCount()).isZero();
+            assertThat(spooled.getCountersList()).isEqualTo(report.getCountersList());
+        }
+    }
+
+    private static MetricsReport report(long timestamp) {
+        return MetricsReport.newBuilder()
+                .setNodeId(0)
+                .setTimestamp(timestamp)
+                .addCounters(AeronCounter.newBuilder().setTypeId(203).setLabel("Cluster commit-pos").setValue(timestamp * 64))
+                .build();
+    }
+}
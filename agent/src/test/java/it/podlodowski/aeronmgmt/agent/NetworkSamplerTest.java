@@ -0,0 +1,97 @@
+package it.podlodowski.aeronmgmt.agent;
+
+import it.podlodowski.aeronmgmt.common.proto.InterfaceStats;
+import it.podlodowski.aeronmgmt.common.proto.NetworkMetrics;
+import it.podlodowski.aeronmgmt.common.proto.UdpSocketStats;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NetworkSamplerTest {
+
+    private static final long SECOND_NS = 1_000_000_000L;
+
+    @TempDir
+    Path proc;
+
+    @Test
+    void reportsUdpErrorRatesSincePreviousSample() throws IOException {
+        Path net = Files.createDirectories(proc.resolve("42/net"));
+        writeSnmp(net, 1_000, 5, 2);
+        NetworkSampler sampler = new NetworkSampler(proc);
+
+        NetworkMetrics first = sampler.sample(42, 0, 0);
+        assertThat(first.getUdp().getRcvbufErrors()).isEqualTo(5);
+        assertThat(first.getUdp().getRcvbufErrorsPerSec()).isZero();
+
+        writeSnmp(net, 3_000, 25, 2);
+        NetworkMetrics second = sampler.sample(42, 0, 2 * SECOND_NS);
+
+        assertThat(second.getUdp().getRcvbufErrors()).isEqualTo(25);
+        assertThat(second.getUdp().getRcvbufErrorsPerSec()).isEqualTo(10.0);
+        assertThat(second.getUdp().getSndbufErrorsPerSec()).isZero();
+        assertThat(second.getUdp().getInDatagramsPerSec()).isEqualTo(1_000.0);
+    }
+
+    @Test
+    void reportsInterfaceRates() throws IOException {
+        Path net = Files.createDirectories(proc.resolve("net"));
+        writeDev(net, 1_000, 7);
+        NetworkSampler sampler = new NetworkSampler(proc);
+        sampler.sample(0, 0, 0);
+
+        writeDev(net, 3_000, 9);
+        NetworkMetrics metrics = sampler.sample(0, 0, SECOND_NS);
+
+        assertThat(metrics.getInterfacesList()).extracting(InterfaceStats::getName).containsExactly("lo", "eth0");
+        InterfaceStats eth0 = metrics.getInterfaces(1);
+        assertThat(eth0.getRxBytesPerSec()).isEqualTo(2_000.0);
+        assertThat(eth0.getRxDrops()).isEqualTo(9);
+        assertThat(eth0.getRxDropsPerSec()).isEqualTo(2.0);
+    }
+
+    @Test
+    void reportsOnlySocketsOfMonitoredProcesses() throws IOException {
+        Path net = Files.createDirectories(proc.resolve("7/net"));
+        Path fd = Files.createDirectories(proc.resolve("7/fd"));
+        Files.createSymbolicLink(fd.resolve("5"), Path.of("socket:[1001]"));
+        Files.createSymbolicLink(fd.resolve("6"), Path.of("/dev/shm/aeron/cnc.dat"));
+        Files.writeString(net.resolve("udp"), """
+                   sl  local_address rem_address   st tx_queue rx_queue tr tm->when retrnsmt   uid  timeout inode ref pointer drops
+                  10: 0500000A:4E20 00000000:0000 07 00000000:00020000 00:00000000 00000000  1000        0 1001 2 0000000000000000 17
+                  11: 0100007F:1F90 00000000:0000 07 00000000:00000000 00:00000000 00000000  1000        0 2002 2 0000000000000000 0
+                """);
+
+        NetworkMetrics metrics = new NetworkSampler(proc).sample(42, 7, 0);
+
+        assertThat(metrics.getSocketsList()).hasSize(1);
+        UdpSocketStats socket = metrics.getSockets(0);
+        assertThat(socket.getLocalAddress()).isEqualTo("10.0.0.5:20000");
+        assertThat(socket.getRxQueueBytes()).isEqualTo(0x20000);
+        assertThat(socket.getDrops()).isEqualTo(17);
+    }
+
+    @Test
+    void decodesIpv6Addresses() {
+        assertThat(NetworkSampler.decodeAddress("00000000000000000000000001000000:2352")).isEqualTo("[0:0:0:0:0:0:0:1]:9042");
+    }
+
+    private static void writeSnmp(Path net, long inDatagrams, long rcvbufErrors, long sndbufErrors) throws IOException {
+        Files.writeString(net.resolve("snmp"),
+                "Udp: InDatagrams NoPorts InErrors OutDatagrams RcvbufErrors SndbufErrors InCsumErrors IgnoredMulti MemErrors\n"
+                        + "Udp: " + inDatagrams + " 0 " + rcvbufErrors + " 100 " + rcvbufErrors + " " + sndbufErrors + " 0 0 0\n");
+    }
+
+    private static void writeDev(Path net, long eth0RxBytes, long eth0RxDrops) throws IOException {
+        Files.writeString(net.resolve("dev"), """
+                Inter-|   Receive                                                |  Transmit
+                 face |bytes    packets errs drop fifo frame compressed multicast|bytes    packets errs drop fifo colls carrier compressed
+                    lo:     100       1    0    0    0     0          0         0      100       1    0    0    0     0       0          0
+                """ + "  eth0: " + eth0RxBytes + " 10 0 " + eth0RxDrops + " 0 0 0 0 500 5 0 0 0 0 0 0\n");
+    }
+}
@@ -0,0 +1,97 @@
+package it.podlodowski.aeronmgmt.agent;
+
+import it.podlodowski.aeronmgmt.common.proto.ProcessMetrics;
+import it.podlodowski.aeronmgmt.common.proto.ThreadMetrics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ProcessSamplerTest {
+
+    private static final long SECOND_NS = 1_000_000_000L;
+
+    @TempDir
+    Path proc;
+
+    @Test
+    void reportsCpuPerThreadSincePreviousSample() throws IOException {
+        writeProcess(42, 10_000, 500);
+        writeThread(42, 42, "java", "S", 10, 5, 3, 1);
+        writeThread(42, 43, "driver-conductor", "R", 100, 0, 7, 900);
+        ProcessSampler sampler = new ProcessSampler(proc);
+
+        ProcessMetrics first = sampler.sample(42, 0, 0).get(0);
+        assertThat(first.getCpuUsage()).isZero();
+        assertThat(first.getThreadsList()).extracting(ThreadMetrics::getCpuUsage).containsOnly(0.0);
+
+        writeProcess(42, 10_200, 700);
+        writeThread(42, 43, "driver-conductor", "R", 300, 0, 7, 950);
+        ProcessMetrics second = sampler.sample(42, 0, 2 * SECOND_NS).get(0);
+
+        assertThat(second.getPid()).isEqualTo(42);
+        assertThat(second.getRole()).isEqualTo("node");
+        assertThat(second.getCpuUsage()).isEqualTo(1.0);  // 200 ticks over 2 seconds
+        ThreadMetrics conductor = second.getThreads(1);
+        assertThat(conductor.getName()).isEqualTo("driver-conductor");
+        assertThat(conductor.getState()).isEqualTo("R");
+        assertThat(conductor.getCpuUsage()).isEqualTo(1.0);
+        assertThat(conductor.getInvoluntaryContextSwitches()).isEqualTo(950);
+        assertThat(second.getThreads(0).getCpuUsage()).isZero();
+        assertThat(second.getVoluntaryContextSwitches()).isEqualTo(10);
+        assertThat(second.getInvoluntaryContextSwitches()).isEqualTo(951);
+        assertThat(second.getRssBytes()).isEqualTo(2048 * 1024);
+        assertThat(second.getMinorFaults()).isEqualTo(700);
+    }
+
+    @Test
+    void samplesSeparateDriverProcessAndSkipsMissingOnes() throws IOException {
+        writeProcess(42, 0, 0);
+        writeProcess(7, 0, 0);
+        ProcessSampler sampler = new ProcessSampler(proc);
+
+        assertThat(sampler.sample(42, 7, 0)).extracting(ProcessMetrics::getRole).containsExactly("node", "driver");
+        assertThat(sampler.sample(42, 42, 0)).extracting(ProcessMetrics::getRole).containsExactly("node");
+        assertThat(sampler.sample(99, 0, 0)).isEmpty();
+        assertThat(sampler.sample(0, 0, 0)).isEmpty();
+    }
+
+    @Test
+    void readsOwnProcess() {
+        assumeTrue(Files.isDirectory(Path.of("/proc/self/task")));
+        long pid = ProcessHandle.current().pid();
+
+        List<ProcessMetrics> processes = new ProcessSampler(Path.of("/proc")).sample(pid, 0, System.nanoTime());
+
+        assertThat(processes).hasSize(1);
+        assertThat(processes.get(0).getRssBytes()).isPositive();
+        assertThat(processes.get(0).getThreadsList()).isNotEmpty();
+    }
+
+    private void writeProcess(long pid, long ticks, long minorFaults) throws IOException {
+        Path dir = Files.createDirectories(proc.resolve(pid + "/task"));
+        Files.writeString(dir.getParent().resolve("stat"), stat(pid, "java (x)", "S", ticks, minorFaults));
+        Files.writeString(dir.getParent().resolve("status"),
+                "Name:\tjava\nVmRSS:\t    2048 kB\nvoluntary_ctxt_switches:\t1\nnonvoluntary_ctxt_switches:\t2\n");
+    }
+
+    private void writeThread(long pid, long tid, String name, String state, long ticks, long minorFaults,
+                             long voluntary, long involuntary) throws IOException {
+        Path dir = Files.createDirectories(proc.resolve(pid + "/task/" + tid));
+        Files.writeString(dir.resolve("stat"), stat(tid, name, state, ticks, minorFaults));
+        Files.writeString(dir.resolve("status"), "Name:\t" + name + "\nvoluntary_ctxt_switches:\t" + voluntary
+                + "\nnonvoluntary_ctxt_switches:\t" + involuntary + "\n");
+    }
+
+    private static String stat(long pid, String name, String state, long ticks, long minorFaults) {
+        // pid (comm) state ppid pgrp session tty_nr tpgid flags minflt cminflt majflt cmajflt utime stime ...
+        return pid + " (" + name + ") " + state + " 1 1 1 0 -1 0 " + minorFaults + " 0 0 0 "
+                + ticks + " 0 0 0 20 0 1 0 100 1000 500\n";
+    }
+}
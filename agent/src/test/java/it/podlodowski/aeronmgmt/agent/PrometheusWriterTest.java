@@ -0,0 +1,66 @@
+package it.podlodowski.aeronmgmt.agent;
+
+import it.podlodowski.aeronmgmt.common.proto.AeronCounter;
+import it.podlodowski.aeronmgmt.common.proto.MetricsReport;
+import it.podlodowski.aeronmgmt.common.proto.ProcessMetrics;
+import it.podlodowski.aeronmgmt.common.proto.SystemMetrics;
+import it.podlodowski.aeronmgmt.common.proto.ThreadMetrics;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PrometheusWriterTest {
+
+    private static final ClusterDirResolver.Target TARGET = new ClusterDirResolver.Target("prod", "/data/cluster");
+
+    @Test
+    void rendersCountersAndStatusOfEachNode() {
+        MetricsReport report = MetricsReport.newBuilder()
+                .setCncAccessible(true)
+                .setNodeReachable(true)
+                .addCounters(AeronCounter.newBuilder()
+                        .setCounterId(12).setTypeId(203).setLabel("Cluster commit-pos: \"x\"").setValue(4096))
+                .setSystemMetrics(SystemMetrics.newBuilder()
+                        .addProcesses(ProcessMetrics.newBuilder().setPid(42).setRole("node").setCpuUsage(1.5)
+                                .addThreads(ThreadMetrics.newBuilder().setTid(43).setName("sender").setCpuUsage(1.0))))
+                .build();
+        List<NodeAgent.Status> nodes = List.of(
+                new NodeAgent.Status(TARGET, 0, true, false, report),
+                new NodeAgent.Status(new ClusterDirResolver.Target("prod", "/data/other"), -1, false, false, null));
+
+        String text = render(new PrometheusWriter(), nodes);
+
+        assertThat(text).contains(
+                "# TYPE aeron_counter gauge\n",
+                "aeron_counter{cluster=\"prod\",node=\"0\",type_id=\"203\",counter_id=\"12\","
+                        + "label=\"Cluster commit-pos: \\\"x\\\"\"} 4096\n",
+                "aeron_management_node_up{cluster=\"prod\",node=\"0\"} 1\n",
+                "aeron_management_node_up{cluster=\"prod\",node=\"\"} 0\n",
+                "aeron_management_cnc_accessible{cluster=\"prod\",node=\"0\"} 1\n",
+                "aeron_management_grpc_connected{cluster=\"prod\",node=\"0\"} 0\n",
+                "aeron_management_process_cpu_usage{cluster=\"prod\",node=\"0\",role=\"node\",pid=\"42\"} 1.5\n",
+                "aeron_management_thread_cpu_usage{cluster=\"prod\",node=\"0\",role=\"node\",pid=\"42\","
+                        + "tid=\"43\",thread=\"sender\"} 1.0\n");
+    }
+
+    @Test
+    void reusesBufferBetweenScrapes() {
+        PrometheusWriter writer = new PrometheusWriter();
+        List<NodeAgent.Status> nodes = List.of(new NodeAgent.Status(TARGET, 1, true, true, null));
+
+        String first = render(writer, nodes);
+        byte[] array = writer.array();
+        String second = render(writer, nodes);
+
+        assertThat(second).isEqualTo(first);
+        assertThat(writer.array()).isSameAs(array);
+    }
+
+    private static String render(PrometheusWriter writer, List<NodeAgent.Status> nodes) {
+        int length = writer.render(nodes);
+        return new String(writer.array(), 0, length, StandardCharsets.UTF_8);
+    }
+}
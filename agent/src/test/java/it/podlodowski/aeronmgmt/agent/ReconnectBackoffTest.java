@@ -0,0 +1,33 @@
+package it.podlodowski.aeronmgmt.agent;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReconnectBackoffTest {
+
+    @Test
+    void doublesUpToMaxWithJitterInUpperHalf() {
+        ReconnectBackoff backoff = new ReconnectBackoff(1_000, 8_000);
+
+        assertThat(backoff.nextDelayMs()).isBetween(500L, 1_000L);
+        assertThat(backoff.nextDelayMs()).isBetween(1_000L, 2_000L);
+        assertThat(backoff.nextDelayMs()).isBetween(2_000L, 4_000L);
+        assertThat(backoff.nextDelayMs()).isBetween(4_000L, 8_000L);
+        for (int i = 0; i < 100; i++) {
+            assertThat(backoff.nextDelayMs()).isBetween(4_000L, 8_000L);
+        }
+    }
+
+    @Test
+    void resetStartsOverFromBase() {
+        ReconnectBackoff backoff = new ReconnectBackoff(1_000, 60_000);
+        for (int i = 0; i < 10; i++) {
+            backoff.nextDelayMs();
+        }
+
+        backoff.reset();
+
+        assertThat(backoff.nextDelayMs()).isBetween(500L, 1_000L);
+    }
+}
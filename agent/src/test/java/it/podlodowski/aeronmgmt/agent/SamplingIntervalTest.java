@@ -0,0 +1,67 @@
+package it.podlodowski.aeronmgmt.agent;
+
+import it.podlodowski.aeronmgmt.common.proto.ClusterMetrics;
+import it.podlodowski.aeronmgmt.common.proto.MetricsReport;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SamplingIntervalTest {
+
+    private static final long FAST = 100;
+    private static final long NORMAL = 1_000;
+    private static final long SLOW = 5_000;
+    private static final long HOLD = 3_000;
+    private static final long STEADY = 60_000;
+
+    private final SamplingInterval interval = new SamplingInterval(FAST, NORMAL, SLOW, HOLD, STEADY);
+
+    @Test
+    void slowsDownOnceSteady() {
+        assertThat(interval.next(report("LEADER", "ACTIVE", "17"), 0)).isEqualTo(NORMAL);
+        assertThat(interval.next(report("LEADER", "ACTIVE", "17"), 59_000)).isEqualTo(NORMAL);
+        assertThat(interval.next(report("LEADER", "ACTIVE", "17"), 60_000)).isEqualTo(SLOW);
+    }
+
+    @Test
+    void samplesFastDuringElectionAndHoldsAfterIt() {
+        interval.next(report("LEADER", "ACTIVE", "17"), 0);
+        interval.next(report("LEADER", "ACTIVE", "17"), 60_000);
+
+        assertThat(interval.next(report("FOLLOWER", "ACTIVE", "1"), 61_000)).isEqualTo(FAST);
+        assertThat(interval.next(report("FOLLOWER", "ACTIVE", "5"), 70_000)).isEqualTo(FAST);
+        // Election over: the change itself starts the hold
+        assertThat(interval.next(report("FOLLOWER", "ACTIVE", "17"), 70_100)).isEqualTo(FAST);
+        assertThat(interval.next(report("FOLLOWER", "ACTIVE", "17"), 73_099)).isEqualTo(FAST);
+        assertThat(interval.next(report("FOLLOWER", "ACTIVE", "17"), 73_100)).isEqualTo(NORMAL);
+        assertThat(interval.next(report("FOLLOWER", "ACTIVE", "17"), 130_100)).isEqualTo(SLOW);
+    }
+
+    @Test
+    void samplesFastWhileModuleNotActiveOrAfterRoleChange() {
+        interval.next(report("LEADER", "ACTIVE", "17"), 0);
+        assertThat(interval.next(report("LEADER", "SNAPSHOT", "17"), 1_000)).isEqualTo(FAST);
+        assertThat(interval.next(report("LEADER", "SNAPSHOT", "17"), 10_000)).isEqualTo(FAST);
+        assertThat(interval.next(report("LEADER", "ACTIVE", "17"), 20_000)).isEqualTo(FAST);
+        assertThat(interval.next(report("LEADER", "ACTIVE", "17"), 23_000)).isEqualTo(NORMAL);
+    }
+
+    @Test
+    void inaccessibleCncIsNotAChange() {
+        interval.next(report("LEADER", "ACTIVE", "17"), 0);
+        MetricsReport noCnc = MetricsReport.newBuilder().setCncAccessible(false).build();
+
+        assertThat(interval.next(noCnc, 60_000)).isEqualTo(NORMAL);
+        assertThat(interval.next(report("LEADER", "ACTIVE", "17"), 61_000)).isEqualTo(NORMAL);
+    }
+
+    private static MetricsReport report(String role, String moduleState, String electionState) {
+        return MetricsReport.newBuilder()
+                .setCncAccessible(true)
+                .setClusterMetrics(ClusterMetrics.newBuilder()
+                        .setNodeRole(role)
+                        .setConsensusModuleState(moduleState)
+                        .setElectionState(electionState))
+                .build();
+    }
+}
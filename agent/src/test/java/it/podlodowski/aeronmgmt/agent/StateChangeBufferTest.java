@@ -7,6 +7,7 @@ import org.junit.jupiter.api.Test;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -149,6 +150,29 @@ class StateChangeBufferTest {
                 .containsExactlyInAnyOrder(CLUSTER_NODE_ROLE, ELECTION_STATE);
     }
 
+    @Test
+    void watchedBufferKeepsWatcherEntriesInsteadOfDiffing() {
+        StateChangeBuffer buffer = new StateChangeBuffer(100, Set.of(CLUSTER_NODE_ROLE), true);
+        StateChangeEntry candidate = StateChangeEntry.newBuilder()
+                .setTimestamp(1500L).setTimestampNs(1_500_200_000L)
+                .setCounterTypeId(CLUSTER_NODE_ROLE).setOldValue(0).setNewValue(1)
+                .build();
+        StateChangeEntry leader = candidate.toBuilder()
+                .setTimestamp(1501L).setTimestampNs(1_501_700_000L).setOldValue(1).setNewValue(2)
+                .build();
+
+        buffer.onMetrics(metricsReport(1000L, counter(CLUSTER_NODE_ROLE, 0)));
+        buffer.onMetrics(metricsReport(2000L, counter(CLUSTER_NODE_ROLE, 2)).toBuilder()
+                .addStateChanges(candidate)
+                .addStateChanges(leader)
+                .build());
+
+        StateChangeBuffer.Snapshot snapshot = buffer.drainAndSnapshot();
+
+        assertThat(snapshot.entries()).containsExactly(candidate, leader);
+        assertThat(snapshot.counterValues()).containsEntry(CLUSTER_NODE_ROLE, 2L);
+    }
+
     // --- helpers ---
 
     private static MetricsReport metricsReport(long timestamp, AeronCounter... counters) {
@@ -0,0 +1,108 @@
+package it.podlodowski.aeronmgmt.agent;
+
+import it.podlodowski.aeronmgmt.common.proto.StateChangeEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StateTransitionWatcherTest {
+
+    private static final int CLUSTER_NODE_ROLE = 201;
+    private static final int ELECTION_STATE = 207;
+
+    @Test
+    void drainReturnsTransitionsInOrderWithNanosecondTimestamps() {
+        StateTransitionWatcher watcher = watcher(8);
+        watcher.record(1_000_000_500L, ELECTION_STATE, 17, 0);
+        watcher.record(1_001_250_000L, CLUSTER_NODE_ROLE, 0, 1);
+        watcher.record(1_003_000_000L, CLUSTER_NODE_ROLE, 1, 2);
+
+        List<StateChangeEntry> entries = watcher.drain();
+
+        assertThat(entries).extracting(StateChangeEntry::getCounterTypeId)
+                .containsExactly(ELECTION_STATE, CLUSTER_NODE_ROLE, CLUSTER_NODE_ROLE);
+        assertThat(entries).extracting(StateChangeEntry::getNewValue).containsExactly(0L, 1L, 2L);
+        assertThat(entries.get(1).getTimestampNs()).isEqualTo(1_001_250_000L);
+        assertThat(entries.get(1).getTimestamp()).isEqualTo(1001L);
+        assertThat(watcher.drain()).isEmpty();
+        assertThat(watcher.dropped()).isZero();
+    }
+
+    @Test
+    void oldestTransitionsAreDroppedWhenNotDrainedInTime() {
+        StateTransitionWatcher watcher = watcher(3);
+        for (int i = 0; i < 6; i++) {
+            watcher.record(i, CLUSTER_NODE_ROLE, i, i + 1);
+        }
+
+        List<StateChangeEntry> entries = watcher.drain();
+
+        assertThat(entries).extracting(StateChangeEntry::getNewValue).containsExactly(4L, 5L, 6L);
+        assertThat(watcher.dropped()).isEqualTo(3);
+    }
+
+    @Test
+    void pollRecordsChangesOfWatchedCountersOnly(@TempDir Path aeronDir) throws Exception {
+        try (SyntheticCncFile cnc = SyntheticCncFile.create(aeronDir, 100);
+             StateTransitionWatcher watcher = new StateTransitionWatcher(aeronDir.toString(), 0,
+                     new int[]{CLUSTER_NODE_ROLE, ELECTION_STATE}, 1, 8, "test")) {
+            cnc.populate(50);
+            long now = System.nanoTime();
+            watcher.poll(now);
+
+            cnc.set(cnc.counterId(ELECTION_STATE), 0);
+            cnc.set(cnc.counterId(SyntheticCncFile.CONSENSUS_MODULE_STATE), 2);
+            watcher.poll(now + 1_000_000);
+            cnc.set(cnc.counterId(CLUSTER_NODE_ROLE), 1);
+            watcher.poll(now + 2_000_000);
+
+            List<StateChangeEntry> entries = watcher.drain();
+            assertThat(entries).extracting(StateChangeEntry::getCounterTypeId)
+                    .containsExactly(ELECTION_STATE, CLUSTER_NODE_ROLE);
+            assertThat(entries.get(0).getOldValue()).isEqualTo(17);
+            assertThat(entries.get(1).getOldValue()).isEqualTo(2);
+            assertThat(entries.get(1).getTimestampNs() - entries.get(0).getTimestampNs()).isEqualTo(1_000_000);
+        }
+    }
+
+    @Test
+    void pollWatchesOnlyTheNodesOwnClusterOnASharedDriver(@TempDir Path aeronDir) throws Exception {
+        try (SyntheticCncFile cnc = SyntheticCncFile.create(aeronDir, 100);
+             StateTransitionWatcher watcher = new StateTransitionWatcher(aeronDir.toString(), 2,
+                     new int[]{CLUSTER_NODE_ROLE, ELECTION_STATE}, 1, 8, "test")) {
+            int otherRole = cnc.allocateClusterCounter(CLUSTER_NODE_ROLE, 1, 2);
+            int ownRole = cnc.allocateClusterCounter(CLUSTER_NODE_ROLE, 2, 0);
+            long now = System.nanoTime();
+            watcher.poll(now);
+
+            cnc.set(otherRole, 1);
+            cnc.set(ownRole, 1);
+            watcher.poll(now + 1_000_000);
+
+            List<StateChangeEntry> entries = watcher.drain();
+            assertThat(entries).hasSize(1);
+            assertThat(entries.get(0).getOldValue()).isZero();
+            assertThat(entries.get(0).getNewValue()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void pollWithoutCncFileRecordsNothing() throws Exception {
+        StateTransitionWatcher watcher = new StateTransitionWatcher("/tmp/nonexistent-aeron-dir", 0,
+                new int[]{200, 201, 207}, 1, 8, "test");
+
+        watcher.poll(System.nanoTime());
+        watcher.poll(System.nanoTime());
+
+        assertThat(watcher.drain()).isEmpty();
+        watcher.close();
+    }
+
+    private static StateTransitionWatcher watcher(int capacity) {
+        return new StateTransitionWatcher("/tmp/nonexistent-aeron-dir", 0, new int[]{201, 207}, 1, capacity, "test");
+    }
+}
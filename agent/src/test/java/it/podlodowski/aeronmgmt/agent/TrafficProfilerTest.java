@@ -0,0 +1,126 @@
+package it.podlodowski.aeronmgmt.agent;
+
+import io.aeron.cluster.codecs.MessageHeaderEncoder;
+import io.aeron.cluster.codecs.SessionMessageHeaderEncoder;
+import it.podlodowski.aeronmgmt.common.proto.TrafficProfile;
+import it.podlodowski.aeronmgmt.common.proto.TrafficStat;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class TrafficProfilerTest {
+
+    private static final int INGRESS = 101;
+    private static final int LOG = 100;
+    private static final int APP_SCHEMA = 42;
+
+    private final TrafficProfiler profiler = new TrafficProfiler(null, null, new int[]{INGRESS});
+    private final UnsafeBuffer buffer = new UnsafeBuffer(new byte[1024]);
+
+    @Test
+    void attributesSessionMessagesToApplicationTemplate() {
+        profiler.onMessage(INGRESS, buffer, 0, sessionMessage(7, APP_SCHEMA, 3, 100));
+        profiler.onMessage(INGRESS, buffer, 0, sessionMessage(7, APP_SCHEMA, 3, 60));
+        profiler.onMessage(INGRESS, buffer, 0, sessionMessage(8, APP_SCHEMA, 4, 20));
+
+        TrafficProfile profile = profiler.drain();
+
+        assertThat(profile.getTemplatesList())
+                .extracting(TrafficStat::getSchemaId, TrafficStat::getTemplateId, TrafficStat::getMessageCount)
+                .containsExactlyInAnyOrder(
+                        tuple(APP_SCHEMA, 3, 2L),
+                        tuple(APP_SCHEMA, 4, 1L));
+        assertThat(profile.getSessionsList())
+                .extracting(TrafficStat::getClusterSessionId, TrafficStat::getMessageCount)
+                .containsExactlyInAnyOrder(
+                        tuple(7L, 2L),
+                        tuple(8L, 1L));
+    }
+
+    @Test
+    void keepsEnvelopeTemplateWhenPayloadHasNoHeader() {
+        int length = sessionMessage(9, APP_SCHEMA, 3, 0) - MessageHeaderEncoder.ENCODED_LENGTH + 4;
+
+        profiler.onMessage(INGRESS, buffer, 0, length);
+
+        TrafficStat template = profiler.drain().getTemplates(0);
+        assertThat(template.getSchemaId()).isEqualTo(MessageHeaderEncoder.SCHEMA_ID);
+        assertThat(template.getTemplateId()).isEqualTo(SessionMessageHeaderEncoder.TEMPLATE_ID);
+        assertThat(template.getByteCount()).isEqualTo(length);
+    }
+
+    @Test
+    void countsMessagesTooShortForAHeaderWithoutSession() {
+        profiler.onMessage(INGRESS, buffer, 0, 4);
+
+        TrafficProfile profile = profiler.drain();
+
+        assertThat(profile.getTemplates(0).getTemplateId()).isEqualTo(-1);
+        assertThat(profile.getSessions(0).getClusterSessionId()).isEqualTo(-1);
+    }
+
+    @Test
+    void keysTemplatesByStream() {
+        int length = sessionMessage(7, APP_SCHEMA, 3, 10);
+        profiler.onMessage(INGRESS, buffer, 0, length);
+        profiler.onMessage(LOG, buffer, 0, length);
+
+        assertThat(profiler.drain().getTemplatesList())
+                .extracting(TrafficStat::getStreamId)
+                .containsExactlyInAnyOrder(INGRESS, LOG);
+    }
+
+    @Test
+    void foldsSessionsBeyondLimitIntoOne() {
+        for (long sessionId = 1; sessionId <= 1100; sessionId++) {
+            profiler.onMessage(INGRESS, buffer, 0, sessionMessage(sessionId, APP_SCHEMA, 3, 10));
+        }
+        // Sessions already tracked keep their own entry
+        profiler.onMessage(INGRESS, buffer, 0, sessionMessage(1, APP_SCHEMA, 3, 10));
+
+        TrafficProfile profile = profiler.drain();
+
+        assertThat(profile.getSessionsList()).hasSize(1025);
+        assertThat(profile.getSessionsList())
+                .filteredOn(stat -> stat.getClusterSessionId() == -1)
+                .singleElement()
+                .extracting(TrafficStat::getMessageCount)
+                .isEqualTo(76L);
+        assertThat(profile.getSessionsList())
+                .filteredOn(stat -> stat.getClusterSessionId() == 1)
+                .singleElement()
+                .extracting(TrafficStat::getMessageCount)
+                .isEqualTo(2L);
+    }
+
+    @Test
+    void drainStartsNewInterval() {
+        profiler.onMessage(INGRESS, buffer, 0, sessionMessage(7, APP_SCHEMA, 3, 10));
+        TrafficProfile first = profiler.drain();
+
+        TrafficProfile second = profiler.drain();
+
+        assertThat(second.getTemplatesList()).isEmpty();
+        assertThat(second.getIntervalStart()).isEqualTo(first.getIntervalEnd());
+    }
+
+    /**
+     * Encodes a SessionMessageHeader followed by an application header and payload; returns the length.
+     */
+    private int sessionMessage(long clusterSessionId, int schemaId, int templateId, int payloadLength) {
+        SessionMessageHeaderEncoder session = new SessionMessageHeaderEncoder()
+                .wrapAndApplyHeader(buffer, 0, new MessageHeaderEncoder())
+                .leadershipTermId(1)
+                .clusterSessionId(clusterSessionId)
+                .timestamp(0);
+        int offset = MessageHeaderEncoder.ENCODED_LENGTH + session.encodedLength();
+        new MessageHeaderEncoder().wrap(buffer, offset)
+                .blockLength(8)
+                .templateId(templateId)
+                .schemaId(schemaId)
+                .version(1);
+        return offset + MessageHeaderEncoder.ENCODED_LENGTH + payloadLength;
+    }
+}
@@ -0,0 +1,155 @@
+package it.podlodowski.aeronmgmt.agent;
+
+import io.aeron.archive.ArchiveMarkFile;
+import io.aeron.archive.codecs.CatalogHeaderEncoder;
+import io.aeron.archive.codecs.RecordingDescriptorEncoder;
+import io.aeron.archive.codecs.RecordingDescriptorHeaderEncoder;
+import io.aeron.archive.codecs.RecordingState;
+import io.aeron.logbuffer.FrameDescriptor;
+import org.agrona.BitUtil;
+import org.agrona.IoUtil;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes an archive directory without a running archive: {@code archive.catalog} with Aeron's own
+ * SBE encoders, and optionally each recording's {@code .rec} segment files. Segment files are
+ * sparse, so recordings of many gigabytes cost no disk space.
+ *
+ * <p>Recordings start at position 0 and all have the same length. The last
+ * {@link #activeRecordings(int)} of them are still being recorded: their stop position is
+ * unset, as in a live catalog.
+ */
+final class SyntheticArchive {
+
+    private static final long NULL_POSITION = -1;
+    private static final String CHANNEL = "aeron:udp?endpoint=10.0.0.1:9002|term-length=64m";
+
+    private int recordings = 10;
+    private int activeRecordings;
+    private long recordingLength = 1024 * 1024;
+    private int segmentFileLength = 128 * 1024 * 1024;
+    private boolean segmentFiles;
+
+    SyntheticArchive recordings(int recordings) {
+        this.recordings = recordings;
+        return this;
+    }
+
+    SyntheticArchive activeRecordings(int activeRecordings) {
+        this.activeRecordings = activeRecordings;
+        return this;
+    }
+
+    /**
+     * Bytes recorded per recording.
+     */
+    SyntheticArchive recordingLength(long recordingLength) {
+        this.recordingLength = recordingLength;
+        return this;
+    }
+
+    SyntheticArchive segmentFileLength(int segmentFileLength) {
+        this.segmentFileLength = segmentFileLength;
+        return this;
+    }
+
+    /**
+     * Also writes the segment files covering each recording.
+     */
+    SyntheticArchive segmentFiles(boolean segmentFiles) {
+        this.segmentFiles = segmentFiles;
+        return this;
+    }
+
+    /**
+     * Writes the archive for a cluster node: {@code archive/} next to {@code clusterDir}, where
+     * {@link ArchiveMetricsCollector} looks for it.
+     */
+    Path writeFor(Path clusterDir) {
+        Path archiveDir = clusterDir.resolveSibling("archive");
+        write(archiveDir);
+        return archiveDir;
+    }
+
+    void write(Path archiveDir) {
+        try {
+            Files.createDirectories(archiveDir);
+            writeCatalog(archiveDir);
+            if (segmentFiles) {
+                for (int recordingId = 0; recordingId < recordings; recordingId++) {
+                    writeSegments(archiveDir, recordingId);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeCatalog(Path archiveDir) {
+        RecordingDescriptorEncoder descriptor = new RecordingDescriptorEncoder();
+        int descriptorLength = encode(descriptor, new UnsafeBuffer(new byte[4096]), 0, 0).encodedLength();
+        int entryLength = BitUtil.align(RecordingDescriptorHeaderEncoder.BLOCK_LENGTH + descriptorLength,
+                FrameDescriptor.FRAME_ALIGNMENT);
+        long fileLength = CatalogHeaderEncoder.BLOCK_LENGTH + (long) entryLength * recordings;
+
+        MappedByteBuffer buffer = IoUtil.mapNewFile(archiveDir.resolve("archive.catalog").toFile(), fileLength);
+        try {
+            UnsafeBuffer catalog = new UnsafeBuffer(buffer);
+            new CatalogHeaderEncoder().wrap(catalog, 0)
+                    .version(ArchiveMarkFile.SEMANTIC_VERSION)
+                    .length(CatalogHeaderEncoder.BLOCK_LENGTH)
+                    .nextRecordingId(recordings)
+                    .alignment(FrameDescriptor.FRAME_ALIGNMENT);
+
+            RecordingDescriptorHeaderEncoder header = new RecordingDescriptorHeaderEncoder();
+            int offset = CatalogHeaderEncoder.BLOCK_LENGTH;
+            for (int recordingId = 0; recordingId < recordings; recordingId++) {
+                header.wrap(catalog, offset)
+                        .length(entryLength - RecordingDescriptorHeaderEncoder.BLOCK_LENGTH)
+                        .state(RecordingState.VALID);
+                encode(descriptor, catalog, offset + RecordingDescriptorHeaderEncoder.BLOCK_LENGTH, recordingId);
+                offset += entryLength;
+            }
+        } finally {
+            IoUtil.unmap(buffer);
+        }
+    }
+
+    private RecordingDescriptorEncoder encode(RecordingDescriptorEncoder encoder, UnsafeBuffer buffer,
+                                              int offset, int recordingId) {
+        boolean active = recordingId >= recordings - activeRecordings;
+        return encoder.wrap(buffer, offset)
+                .controlSessionId(1)
+                .correlationId(recordingId)
+                .recordingId(recordingId)
+                .startTimestamp(1_700_000_000_000L)
+                .stopTimestamp(active ? NULL_POSITION : 1_700_000_060_000L)
+                .startPosition(0)
+                .stopPosition(active ? NULL_POSITION : recordingLength)
+                .initialTermId(0)
+                .segmentFileLength(segmentFileLength)
+                .termBufferLength(64 * 1024 * 1024)
+                .mtuLength(1408)
+                .sessionId(1000 + recordingId)
+                .streamId(100)
+                .strippedChannel(CHANNEL)
+                .originalChannel(CHANNEL)
+                .sourceIdentity("10.0.0.1:9002");
+    }
+
+    private void writeSegments(Path archiveDir, int recordingId) throws IOException {
+        for (long base = 0; base < Math.max(1, recordingLength); base += segmentFileLength) {
+            Path segment = archiveDir.resolve(recordingId + "-" + base + ".rec");
+            try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+                file.setLength(segmentFileLength);
+            }
+        }
+    }
+}
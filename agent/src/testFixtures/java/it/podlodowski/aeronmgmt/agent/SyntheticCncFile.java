@@ -0,0 +1,168 @@
+package it.podlodowski.aeronmgmt.agent;
+
+import io.aeron.CncFileDescriptor;
+import org.agrona.IoUtil;
+import org.agrona.collections.IntArrayList;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.broadcast.BroadcastBufferDescriptor;
+import org.agrona.concurrent.ringbuffer.ManyToOneRingBuffer;
+import org.agrona.concurrent.ringbuffer.RingBufferDescriptor;
+import org.agrona.concurrent.status.CountersManager;
+import org.agrona.concurrent.status.CountersReader;
+
+import java.nio.MappedByteBuffer;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes a valid {@code cnc.dat} without a media driver, laid out by Aeron's own
+ * {@link CncFileDescriptor} and {@link CountersManager}, so the agent's readers can be tested and
+ * benchmarked at scale. The file stays mapped until {@link #close()}, and counters can be
+ * allocated, updated and freed meanwhile, as a driver would while publications and images come
+ * and go.
+ */
+final class SyntheticCncFile implements AutoCloseable {
+
+    static final int CONSENSUS_MODULE_STATE = 200;
+    static final int CLUSTER_NODE_ROLE = 201;
+    static final int ELECTION_STATE = 207;
+
+    // Cluster counters of a node, with the values of an ACTIVE leader with no election running
+    private static final int[] CLUSTER_TYPES = {200, 201, 203, 207, 212, 238, 239};
+    private static final long[] CLUSTER_VALUES = {1, 2, 0, 17, 0, 1, 0};
+
+    // Per-stream counters: publisher limit, sender position, receiver HWM, subscriber position, ...
+    private static final int[] STREAM_TYPES = {1, 2, 4, 5, 9, 10};
+
+    private final MappedByteBuffer buffer;
+    private final UnsafeBuffer metaData;
+    private final CountersManager countersManager;
+    private final IntArrayList streamCounters = new IntArrayList();
+    private int allocated;
+
+    private SyntheticCncFile(Path aeronDir, int maxCounters) {
+        int toDriverLength = 1024 * 1024 + RingBufferDescriptor.TRAILER_LENGTH;
+        int toClientsLength = 1024 * 1024 + BroadcastBufferDescriptor.TRAILER_LENGTH;
+        int metaDataLength = maxCounters * CountersReader.METADATA_LENGTH;
+        int valuesLength = maxCounters * CountersReader.COUNTER_LENGTH;
+        int errorLogLength = 64 * 1024;
+        int fileLength = CncFileDescriptor.computeCncFileLength(
+                toDriverLength + toClientsLength + metaDataLength + valuesLength + errorLogLength, 4096);
+
+        buffer = IoUtil.mapNewFile(aeronDir.resolve(CncFileDescriptor.CNC_FILE).toFile(), fileLength);
+        metaData = CncFileDescriptor.createMetaDataBuffer(buffer);
+        CncFileDescriptor.fillMetaData(metaData, toDriverLength, toClientsLength, metaDataLength, valuesLength,
+                TimeUnit.SECONDS.toNanos(10), errorLogLength, System.currentTimeMillis(), ProcessHandle.current().pid());
+        CncFileDescriptor.signalCncReady(metaData);
+        countersManager = new CountersManager(
+                CncFileDescriptor.createCountersMetaDataBuffer(buffer, metaData),
+                CncFileDescriptor.createCountersValuesBuffer(buffer, metaData));
+        heartbeat(System.currentTimeMillis());
+    }
+
+    /**
+     * Creates {@code cnc.dat} in {@code aeronDir} with room for {@code maxCounters} counters and a
+     * current driver heartbeat.
+     */
+    static SyntheticCncFile create(Path aeronDir, int maxCounters) {
+        return new SyntheticCncFile(aeronDir, maxCounters);
+    }
+
+    /**
+     * Allocates the cluster counters of an active leader, then per-stream counters up to
+     * {@code counters} in total.
+     */
+    SyntheticCncFile populate(int counters) {
+        for (int i = 0; i < CLUSTER_TYPES.length && allocated < counters; i++) {
+            allocate(CLUSTER_TYPES[i], "cluster counter type=" + CLUSTER_TYPES[i] + " - clusterId=0",
+                    CLUSTER_VALUES[i]);
+        }
+        while (allocated < counters) {
+            allocateStreamCounter();
+        }
+        return this;
+    }
+
+    int allocate(int typeId, String label, long value) {
+        int counterId = countersManager.allocate(label, typeId);
+        countersManager.setCounterValue(counterId, value);
+        allocated++;
+        return counterId;
+    }
+
+    /**
+     * Allocates a cluster counter keyed by {@code aeronClusterId}, as Aeron's ClusterCounters does.
+     */
+    int allocateClusterCounter(int typeId, int aeronClusterId, long value) {
+        int counterId = countersManager.allocate("cluster counter type=" + typeId + " - clusterId=" + aeronClusterId,
+                typeId, key -> key.putInt(0, aeronClusterId));
+        countersManager.setCounterValue(counterId, value);
+        allocated++;
+        return counterId;
+    }
+
+    void set(int counterId, long value) {
+        countersManager.setCounterValue(counterId, value);
+    }
+
+    void free(int counterId) {
+        countersManager.free(counterId);
+        streamCounters.removeInt(counterId);
+        allocated--;
+    }
+
+    /**
+     * Id of the first allocated counter of the given type, -1 if there is none.
+     */
+    int counterId(int typeId) {
+        int[] found = {-1};
+        countersManager.forEach((counterId, type, keyBuffer, label) -> {
+            if (type == typeId && found[0] < 0) {
+                found[0] = counterId;
+            }
+        });
+        return found[0];
+    }
+
+    /**
+     * Frees {@code count} random per-stream counters and allocates as many new ones, which take
+     * over the freed ids as a driver's would; advances every other stream position.
+     */
+    void churn(Random random, int count) {
+        for (int i = 0; i < count && !streamCounters.isEmpty(); i++) {
+            free(streamCounters.getInt(random.nextInt(streamCounters.size())));
+        }
+        for (int i = 0; i < count; i++) {
+            allocateStreamCounter();
+        }
+        for (int i = 0; i < streamCounters.size(); i++) {
+            int counterId = streamCounters.getInt(i);
+            set(counterId, countersManager.getCounterValue(counterId) + random.nextInt(4096));
+        }
+    }
+
+    /**
+     * Sets the driver's consumer heartbeat; a time more than 10 seconds back marks the driver dead.
+     */
+    void heartbeat(long timeMs) {
+        new ManyToOneRingBuffer(CncFileDescriptor.createToDriverBuffer(buffer, metaData)).consumerHeartbeatTime(timeMs);
+    }
+
+    int counters() {
+        return allocated;
+    }
+
+    @Override
+    public void close() {
+        IoUtil.unmap(buffer);
+    }
+
+    private void allocateStreamCounter() {
+        int typeId = STREAM_TYPES[allocated % STREAM_TYPES.length];
+        int sessionId = 1000 + allocated;
+        int counterId = allocate(typeId,
+                "pos: " + sessionId + " 101 aeron:udp?endpoint=10.0.0.1:9002 @" + allocated * 64L, 0);
+        streamCounters.addInt(counterId);
+    }
+}
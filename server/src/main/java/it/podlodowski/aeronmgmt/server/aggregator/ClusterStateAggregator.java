@@ -3,9 +3,22 @@ package it.podlodowski.aeronmgmt.server.aggregator;
 import it.podlodowski.aeronmgmt.common.proto.AeronCounter;
 import it.podlodowski.aeronmgmt.common.proto.ArchiveRecording;
 import it.podlodowski.aeronmgmt.common.proto.ClusterMetrics;
+import it.podlodowski.aeronmgmt.common.proto.CommandProgress;
+import it.podlodowski.aeronmgmt.common.proto.CommandQueueStatus;
 import it.podlodowski.aeronmgmt.common.proto.CommandResult;
+import it.podlodowski.aeronmgmt.common.proto.CommitLatency;
+import it.podlodowski.aeronmgmt.common.proto.Histogram;
+import it.podlodowski.aeronmgmt.common.proto.InterfaceStats;
 import it.podlodowski.aeronmgmt.common.proto.MetricsReport;
+import it.podlodowski.aeronmgmt.common.proto.MetricsSendStats;
+import it.podlodowski.aeronmgmt.common.proto.NetworkMetrics;
+import it.podlodowski.aeronmgmt.common.proto.ProcessMetrics;
 import it.podlodowski.aeronmgmt.common.proto.StateChangeEntry;
+import it.podlodowski.aeronmgmt.common.proto.ThreadMetrics;
+import it.podlodowski.aeronmgmt.common.proto.TrafficProfile;
+import it.podlodowski.aeronmgmt.common.proto.TrafficStat;
+import it.podlodowski.aeronmgmt.common.proto.UdpSocketStats;
+import it.podlodowski.aeronmgmt.common.proto.UdpStats;
 import it.podlodowski.aeronmgmt.server.events.ClusterEvent;
 import it.podlodowski.aeronmgmt.server.events.EventFactory;
 import it.podlodowski.aeronmgmt.server.events.EventLevel;
@@ -19,43 +32,95 @@ import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 /**
  * Aggregates cluster state from all connected agents.
- * Maintains per-node rolling metrics windows and pushes updates via WebSocket.
+ * Keeps recent counter values per node in a {@link TimeSeriesStore} and pushes updates via WebSocket.
  * Each instance is scoped to a single cluster identified by {@code clusterId}.
+ *
+ * <p>State is written from a single thread: the cluster's ingest stage calls the {@code on...}
+ * and {@link #processCatchUp} methods one at a time. Events are stored and WebSocket updates sent
+ * through the given executors, so a slow database or client does not hold up ingestion; REST and
+ * WebSocket threads only read.
+ *
+ * <p>The cluster overview is kept up to date incrementally: each report is summarized once, for
+ * its own node, and the overview only combines the latest summary of every node. Each change bumps
+ * the overview's {@code version}; {@link #publishOverview()} pushes it when the version moved
+ * since the last push, so subscribers get it at the caller's fixed rate however many nodes report.
  */
 public class ClusterStateAggregator {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ClusterStateAggregator.class);
 
+    /** State transitions kept per node for {@link #getTransitions(int)}. */
+    private static final int MAX_TRANSITIONS = 1000;
+
+    // By the agent's own capture time, which unlike the corrected timestamp does not move with
+    // the clock offset estimate, so a transition received twice is recognised as one
+    private static final Comparator<StateChangeEntry> TRANSITION_ORDER = Comparator
+            .comparingLong(ClusterStateAggregator::agentNanos)
+            .thenComparingInt(StateChangeEntry::getCounterTypeId)
+            .thenComparingLong(StateChangeEntry::getOldValue)
+            .thenComparingLong(StateChangeEntry::getNewValue);
+
     private final SimpMessagingTemplate messagingTemplate;
     private final DiskUsageTracker diskUsageTracker;
-    private final long windowDurationMs;
     private final String clusterId;
     private final EventService eventService;
+    private final Executor publisher;
+    private final Executor persister;
 
-    private final ConcurrentHashMap<Integer, MetricsWindow> metricsWindows = new ConcurrentHashMap<>();
+    private final TimeSeriesStore timeSeries;
     private final ConcurrentHashMap<Integer, MetricsReport> latestMetrics = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, CounterIndex> counterIndexes = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<String, CompletableFuture<CommandResult>> pendingCommands = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Long> commandActivity = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<Integer, String> nodeAgentModes = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<Integer, double[]> trafficRates = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<Integer, Long> lastSnapshotCounts = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<Integer, Long> electionStartTimes = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, TreeSet<StateChangeEntry>> transitions = new ConcurrentHashMap<>();
     private final Set<Integer> connectedNodes = ConcurrentHashMap.newKeySet();
     private final Set<Integer> reachableNodes = ConcurrentHashMap.newKeySet();
+    private final ConcurrentHashMap<Integer, NodeSummary> nodeSummaries = new ConcurrentHashMap<>();
     private boolean consensusEstablished = false;
 
+    // Written by the ingest thread only
+    private volatile long overviewVersion;
+    private long publishedVersion;
+    // Rebuilt by whichever thread first asks for a newer version
+    private volatile CachedOverview cachedOverview;
+
     public ClusterStateAggregator(SimpMessagingTemplate messagingTemplate,
                                   DiskUsageTracker diskUsageTracker,
                                   int historySeconds,
                                   String clusterId,
                                   EventService eventService) {
+        this(messagingTemplate, diskUsageTracker,
+                new TimeSeriesStore(new TimeSeriesStore.Budget(Long.MAX_VALUE), historySeconds, historySeconds * 1000L),
+                clusterId, eventService, Runnable::run, Runnable::run);
+    }
+
+    /**
+     * @param timeSeries stores the counter values of every report
+     * @param publisher runs WebSocket sends
+     * @param persister runs event emission (storage, broadcast and listeners), in order
+     */
+    public ClusterStateAggregator(SimpMessagingTemplate messagingTemplate,
+                                  DiskUsageTracker diskUsageTracker,
+                                  TimeSeriesStore timeSeries,
+                                  String clusterId,
+                                  EventService eventService,
+                                  Executor publisher,
+                                  Executor persister) {
         this.messagingTemplate = messagingTemplate;
         this.diskUsageTracker = diskUsageTracker;
-        this.windowDurationMs = historySeconds * 1000L;
+        this.timeSeries = timeSeries;
         this.clusterId = clusterId;
         this.eventService = eventService;
+        this.publisher = publisher;
+        this.persister = persister;
     }
 
     private static final Map<Long, String> ROLE_NAMES = Map.of(
@@ -77,20 +142,22 @@ public class ClusterStateAggregator {
         int nodeId = report.getNodeId();
 
         MetricsReport previous = latestMetrics.put(nodeId, report);
-        metricsWindows.computeIfAbsent(nodeId, id -> new MetricsWindow(windowDurationMs))
-                .add(report);
+        CounterIndex previousCounters = counterIndexes.get(nodeId);
+        CounterIndex counters = CounterIndex.of(report);
+        counterIndexes.put(nodeId, counters);
+        timeSeries.append(report);
 
         if (report.hasSystemMetrics() && report.getSystemMetrics().getArchiveDiskTotalBytes() > 0) {
             diskUsageTracker.record(nodeId, report.getTimestamp(), computeRecordingsTotalBytes(report));
         }
 
-        if (previous != null) {
+        if (previous != null && previousCounters != null) {
             long dtMs = report.getTimestamp() - previous.getTimestamp();
             if (dtMs > 0) {
-                long prevSent = counterValueByLabel(previous, "Bytes sent");
-                long currSent = counterValueByLabel(report, "Bytes sent");
-                long prevRecv = counterValueByLabel(previous, "Bytes received");
-                long currRecv = counterValueByLabel(report, "Bytes received");
+                long prevSent = previousCounters.systemValue(CounterIndex.BYTES_SENT);
+                long currSent = counters.systemValue(CounterIndex.BYTES_SENT);
+                long prevRecv = previousCounters.systemValue(CounterIndex.BYTES_RECEIVED);
+                long currRecv = counters.systemValue(CounterIndex.BYTES_RECEIVED);
                 double sentPerSec = (currSent - prevSent) * 1000.0 / dtMs;
                 double recvPerSec = (currRecv - prevRecv) * 1000.0 / dtMs;
                 trafficRates.put(nodeId, new double[]{
@@ -98,19 +165,20 @@ public class ClusterStateAggregator {
             }
         }
 
-        detectStateChanges(nodeId, previous, report);
+        detectStateChanges(nodeId, previous, report, counters);
+        recordTransitions(nodeId, report.getStateChangesList());
         detectNodeReachability(nodeId, report);
 
         // Detect snapshot taken — emit only from leader to avoid duplicates
-        long snapshotCount = counterValue(report, 205);
+        long snapshotCount = counters.value(205);
         if (snapshotCount >= 0) {
             Long prevSnapshot = lastSnapshotCounts.put(nodeId, snapshotCount);
             if (prevSnapshot != null && snapshotCount > prevSnapshot
                     && report.hasClusterMetrics()
                     && "LEADER".equals(report.getClusterMetrics().getNodeRole())) {
-                long termId = counterValue(report, 239);
+                long termId = counters.value(239);
                 long commitPos = report.getClusterMetrics().getCommitPosition();
-                eventService.emit(EventFactory.snapshotTaken(clusterId, nodeId, termId, commitPos));
+                emit(EventFactory.snapshotTaken(clusterId, nodeId, termId, commitPos));
             }
         }
 
@@ -119,33 +187,90 @@ public class ClusterStateAggregator {
         LOGGER.debug("Metrics received from node {}", nodeId);
 
         Map<String, Object> metricsMap = convertMetricsToMap(report);
+        nodeSummaries.put(nodeId, summarize(report, counters, metricsMap));
+        overviewVersion++;
         pushToWebSocket("/topic/clusters/" + clusterId + "/nodes/" + nodeId, metricsMap);
         pushToWebSocket("/topic/clusters/" + clusterId + "/nodes", metricsMap);
-        pushToWebSocket("/topic/clusters/" + clusterId + "/cluster", buildClusterOverview());
+    }
+
+    /**
+     * Adds samples the agent spooled while it was disconnected to the node's metrics history.
+     * They are older than what the node reported since, so they leave its current state alone
+     * and raise no events; state changes from the gap come with the registration catch-up.
+     */
+    public void onMetricsReplayed(List<MetricsReport> reports) {
+        for (MetricsReport report : reports) {
+            timeSeries.insert(report);
+            recordTransitions(report.getNodeId(), report.getStateChangesList());
+        }
+        LOGGER.debug("Replayed {} spooled samples", reports.size());
     }
 
     public void onCommandResult(CommandResult result) {
         LOGGER.info("Command result received: id={}, success={}", result.getCommandId(), result.getSuccess());
         CompletableFuture<CommandResult> future = pendingCommands.remove(result.getCommandId());
+        commandActivity.remove(result.getCommandId());
         if (future != null) {
             future.complete(result);
         }
     }
 
+    /**
+     * Relays a chunk of command output to WebSocket subscribers. Chunks are not retained:
+     * a subscriber that joins late sees only the output produced from then on.
+     */
+    public void onCommandProgress(int nodeId, CommandProgress progress) {
+        commandActivity.computeIfPresent(progress.getCommandId(), (id, last) -> System.currentTimeMillis());
+        Map<String, Object> chunk = new LinkedHashMap<>();
+        chunk.put("commandId", progress.getCommandId());
+        chunk.put("nodeId", nodeId);
+        chunk.put("sequence", progress.getSequence());
+        chunk.put("output", progress.getOutputChunk());
+        chunk.put("percentComplete", progress.getPercentComplete());
+        pushToWebSocket("/topic/clusters/" + clusterId + "/nodes/" + nodeId + "/commands", chunk);
+    }
+
     public void onAgentConnected(int nodeId, String agentMode) {
         LOGGER.info("Agent connected: nodeId={}, mode={}", nodeId, agentMode);
         connectedNodes.add(nodeId);
         nodeAgentModes.put(nodeId, agentMode);
-        eventService.emit(EventFactory.agentConnected(clusterId, nodeId));
-        pushToWebSocket("/topic/clusters/" + clusterId + "/cluster", buildClusterOverview());
+        emit(EventFactory.agentConnected(clusterId, nodeId));
+        refreshNodeSummary(nodeId);
     }
 
     public void onAgentDisconnected(int nodeId) {
         LOGGER.info("Agent disconnected: nodeId={}", nodeId);
         connectedNodes.remove(nodeId);
         reachableNodes.remove(nodeId);
-        eventService.emit(EventFactory.agentDisconnected(clusterId, nodeId));
-        pushToWebSocket("/topic/clusters/" + clusterId + "/cluster", buildClusterOverview());
+        emit(EventFactory.agentDisconnected(clusterId, nodeId));
+        refreshNodeSummary(nodeId);
+    }
+
+    /**
+     * Pushes the cluster overview to WebSocket subscribers if it changed since the last push.
+     * Called at a fixed rate from the cluster's ingest stage.
+     */
+    public void publishOverview() {
+        long version = overviewVersion;
+        if (version != publishedVersion) {
+            publishedVersion = version;
+            pushToWebSocket("/topic/clusters/" + clusterId + "/cluster", buildClusterOverview());
+        }
+    }
+
+    public long getOverviewVersion() {
+        return overviewVersion;
+    }
+
+    /**
+     * Connects and disconnects change the node's entry in the overview without a new report.
+     */
+    private void refreshNodeSummary(int nodeId) {
+        MetricsReport report = latestMetrics.get(nodeId);
+        if (report != null) {
+            nodeSummaries.put(nodeId, summarize(report, counterIndexes.get(nodeId), convertMetricsToMap(report)));
+        }
+        overviewVersion++;
     }
 
     public void processCatchUp(int nodeId, List<StateChangeEntry> buffer,
@@ -162,10 +287,12 @@ public class ClusterStateAggregator {
 
             // Emit a MONITORING_GAP event from the last event to now
             long now = System.currentTimeMillis();
-            eventService.emit(
+            emit(
                     EventFactory.monitoringGap(clusterId, nodeId, lastKnownTimestamp, now));
         }
 
+        recordTransitions(nodeId, buffer);
+
         // Replay buffered state changes
         for (StateChangeEntry entry : buffer) {
             if (entry.getTimestamp() <= lastKnownTimestamp) {
@@ -195,7 +322,7 @@ public class ClusterStateAggregator {
                         .source(EventSource.CATCH_UP)
                         .details(Map.of("from", from, "to", to))
                         .build();
-                eventService.emit(event);
+                emit(event);
 
                 if (entry.getNewValue() == 2L) { // LEADER
                     ClusterEvent leaderEvent = ClusterEvent.builder()
@@ -208,7 +335,7 @@ public class ClusterStateAggregator {
                             .source(EventSource.CATCH_UP)
                             .details(Map.of("termId", -1L, "previousLeaderId", -1))
                             .build();
-                    eventService.emit(leaderEvent);
+                    emit(leaderEvent);
                 }
             }
             case 200 -> { // Module state change
@@ -224,7 +351,7 @@ public class ClusterStateAggregator {
                         .source(EventSource.CATCH_UP)
                         .details(Map.of("from", from, "to", to))
                         .build();
-                eventService.emit(event);
+                emit(event);
             }
             case 207 -> { // Election state
                 if (entry.getOldValue() == ELECTION_CLOSED && entry.getNewValue() != ELECTION_CLOSED) {
@@ -238,7 +365,7 @@ public class ClusterStateAggregator {
                             .source(EventSource.CATCH_UP)
                             .details(Map.of("electionState", String.valueOf(entry.getNewValue())))
                             .build();
-                    eventService.emit(event);
+                    emit(event);
                 } else if (entry.getOldValue() != ELECTION_CLOSED && entry.getNewValue() == ELECTION_CLOSED) {
                     ClusterEvent event = ClusterEvent.builder()
                             .clusterId(clusterId)
@@ -250,14 +377,93 @@ public class ClusterStateAggregator {
                             .source(EventSource.CATCH_UP)
                             .details(Map.of("electionCount", -1L, "durationMs", -1L))
                             .build();
-                    eventService.emit(event);
+                    emit(event);
                 }
             }
             default -> LOGGER.debug("Ignoring catch-up entry for counter type {} on node {}", entry.getCounterTypeId(), nodeId);
         }
     }
 
-    private void detectStateChanges(int nodeId, MetricsReport previous, MetricsReport current) {
+    /**
+     * Adds transitions caught by the agent's state watcher to the node's transition log and pushes
+     * them to subscribers. The same transition can arrive twice, live and again with a catch-up or
+     * a replayed sample; it is kept once.
+     */
+    private void recordTransitions(int nodeId, List<StateChangeEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        List<Map<String, Object>> added = new ArrayList<>();
+        TreeSet<StateChangeEntry> log = transitions.computeIfAbsent(nodeId, id -> new TreeSet<>(TRANSITION_ORDER));
+        synchronized (log) {
+            for (StateChangeEntry entry : entries) {
+                if (log.add(entry)) {
+                    added.add(convertTransition(entry));
+                }
+            }
+            while (log.size() > MAX_TRANSITIONS) {
+                log.pollFirst();
+            }
+        }
+        if (!added.isEmpty()) {
+            pushToWebSocket("/topic/clusters/" + clusterId + "/nodes/" + nodeId + "/transitions", added);
+        }
+    }
+
+    /**
+     * The node's most recent state transitions, oldest first.
+     */
+    public List<Map<String, Object>> getTransitions(int nodeId) {
+        TreeSet<StateChangeEntry> log = transitions.get(nodeId);
+        if (log == null) {
+            return List.of();
+        }
+        List<Map<String, Object>> result = new ArrayList<>();
+        synchronized (log) {
+            for (StateChangeEntry entry : log) {
+                result.add(convertTransition(entry));
+            }
+        }
+        return result;
+    }
+
+    private static Map<String, Object> convertTransition(StateChangeEntry entry) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("timestamp", entry.getTimestamp());
+        map.put("timestampNs", correctedNanos(entry));
+        map.put("counterTypeId", entry.getCounterTypeId());
+        map.put("oldValue", entry.getOldValue());
+        map.put("newValue", entry.getNewValue());
+        map.put("from", transitionValueName(entry.getCounterTypeId(), entry.getOldValue()));
+        map.put("to", transitionValueName(entry.getCounterTypeId(), entry.getNewValue()));
+        return map;
+    }
+
+    private static String transitionValueName(int counterTypeId, long value) {
+        return switch (counterTypeId) {
+            case 200 -> MODULE_STATE_NAMES.getOrDefault(value, String.valueOf(value));
+            case 201 -> ROLE_NAMES.getOrDefault(value, String.valueOf(value));
+            default -> String.valueOf(value);
+        };
+    }
+
+    /**
+     * When the agent captured the transition, on its own clock.
+     */
+    private static long agentNanos(StateChangeEntry entry) {
+        return entry.getTimestampNs() != 0 ? entry.getTimestampNs() : entry.getTimestamp() * 1_000_000;
+    }
+
+    /**
+     * When the transition happened on the server's clock: the corrected millisecond timestamp with
+     * the sub-millisecond part of the agent's reading.
+     */
+    private static long correctedNanos(StateChangeEntry entry) {
+        return entry.getTimestamp() * 1_000_000 + Math.floorMod(agentNanos(entry), 1_000_000L);
+    }
+
+    private void detectStateChanges(int nodeId, MetricsReport previous, MetricsReport current,
+                                    CounterIndex counters) {
         if ("backup".equals(nodeAgentModes.get(nodeId))) {
             return;
         }
@@ -269,18 +475,18 @@ public class ClusterStateAggregator {
 
         // Role change (e.g. FOLLOWER -> LEADER)
         if (!prev.getNodeRole().equals(curr.getNodeRole())) {
-            eventService.emit(EventFactory.roleChange(clusterId, nodeId, prev.getNodeRole(), curr.getNodeRole()));
+            emit(EventFactory.roleChange(clusterId, nodeId, prev.getNodeRole(), curr.getNodeRole()));
             if ("LEADER".equals(curr.getNodeRole())) {
                 int prevLeader = prev.getLeaderMemberId();
-                long termId = counterValue(current, 239);
-                eventService.emit(EventFactory.leaderElected(clusterId, nodeId, termId, prevLeader));
+                long termId = counters.value(239);
+                emit(EventFactory.leaderElected(clusterId, nodeId, termId, prevLeader));
             }
         }
 
         // Consensus module state change (e.g. ACTIVE -> SUSPENDED)
         if (!prev.getConsensusModuleState().equals(curr.getConsensusModuleState())
                 && !curr.getConsensusModuleState().isEmpty()) {
-            eventService.emit(EventFactory.moduleStateChange(clusterId, nodeId,
+            emit(EventFactory.moduleStateChange(clusterId, nodeId,
                     prev.getConsensusModuleState(), curr.getConsensusModuleState()));
         }
 
@@ -288,14 +494,15 @@ public class ClusterStateAggregator {
         if (!prev.getElectionState().equals(curr.getElectionState())) {
             if (!"17".equals(curr.getElectionState())) {
                 // Election started
-                electionStartTimes.put(nodeId, System.currentTimeMillis());
-                eventService.emit(EventFactory.electionStarted(clusterId, nodeId, curr.getElectionState()));
+                // Report timestamps are on the server clock by now, and closer to the real transition
+                electionStartTimes.put(nodeId, current.getTimestamp());
+                emit(EventFactory.electionStarted(clusterId, nodeId, curr.getElectionState()));
             } else {
                 // Election completed (returned to CLOSED=17)
                 Long startTime = electionStartTimes.remove(nodeId);
-                long durationMs = startTime != null ? System.currentTimeMillis() - startTime : 0;
-                long electionCount = counterValue(current, 238);
-                eventService.emit(EventFactory.electionCompleted(clusterId, nodeId, electionCount, durationMs));
+                long durationMs = startTime != null ? current.getTimestamp() - startTime : 0;
+                long electionCount = counters.value(238);
+                emit(EventFactory.electionCompleted(clusterId, nodeId, electionCount, durationMs));
             }
         }
     }
@@ -306,10 +513,10 @@ public class ClusterStateAggregator {
 
         if (isReachable && !wasReachable) {
             reachableNodes.add(nodeId);
-            eventService.emit(EventFactory.nodeUp(clusterId, nodeId));
+            emit(EventFactory.nodeUp(clusterId, nodeId));
         } else if (!isReachable && wasReachable) {
             reachableNodes.remove(nodeId);
-            eventService.emit(EventFactory.nodeDown(clusterId, nodeId));
+            emit(EventFactory.nodeDown(clusterId, nodeId));
         }
     }
 
@@ -330,26 +537,36 @@ public class ClusterStateAggregator {
 
         if (hasConsensus && !consensusEstablished) {
             consensusEstablished = true;
-            eventService.emit(EventFactory.consensusEstablished(clusterId));
+            emit(EventFactory.consensusEstablished(clusterId));
         } else if (!hasConsensus && consensusEstablished) {
             consensusEstablished = false;
-            eventService.emit(EventFactory.consensusLost(clusterId));
-        }
-    }
-
-    private long counterValue(MetricsReport report, int typeId) {
-        for (AeronCounter counter : report.getCountersList()) {
-            if (counter.getTypeId() == typeId) return counter.getValue();
+            emit(EventFactory.consensusLost(clusterId));
         }
-        return -1;
     }
 
     public CompletableFuture<CommandResult> registerPendingCommand(String commandId) {
         CompletableFuture<CommandResult> future = new CompletableFuture<>();
         pendingCommands.put(commandId, future);
+        commandActivity.put(commandId, System.currentTimeMillis());
         return future;
     }
 
+    /**
+     * When the pending command was registered or last reported progress (epoch ms), 0 if it is
+     * not pending.
+     */
+    public long getCommandActivity(String commandId) {
+        return commandActivity.getOrDefault(commandId, 0L);
+    }
+
+    /**
+     * Stops waiting for a command's result, e.g. after it timed out.
+     */
+    public void forgetPendingCommand(String commandId) {
+        pendingCommands.remove(commandId);
+        commandActivity.remove(commandId);
+    }
+
     public Map<Integer, MetricsReport> getLatestMetrics() {
         return Collections.unmodifiableMap(new HashMap<>(latestMetrics));
     }
@@ -358,7 +575,25 @@ public class ClusterStateAggregator {
         return latestMetrics.get(nodeId);
     }
 
+    public TimeSeriesStore getTimeSeries() {
+        return timeSeries;
+    }
+
+    /**
+     * The current cluster overview, rebuilt from the node summaries only when its version moved.
+     * Returns a copy the caller may add to.
+     */
     public Map<String, Object> buildClusterOverview() {
+        long version = overviewVersion;
+        CachedOverview cached = cachedOverview;
+        if (cached == null || cached.version() != version) {
+            cached = new CachedOverview(version, assembleOverview(version));
+            cachedOverview = cached;
+        }
+        return new LinkedHashMap<>(cached.overview());
+    }
+
+    private Map<String, Object> assembleOverview(long version) {
         Map<String, Object> overview = new LinkedHashMap<>();
         Map<String, Map<String, Object>> nodes = new LinkedHashMap<>();
 
@@ -379,75 +614,43 @@ public class ClusterStateAggregator {
         String aeronVersion = null;
         int clusterNodeCount = 0;
 
-        for (Map.Entry<Integer, MetricsReport> entry : latestMetrics.entrySet()) {
-            MetricsReport report = entry.getValue();
-            boolean isBackup = "backup".equals(nodeAgentModes.get(report.getNodeId()));
-
-            if (!isBackup && report.hasClusterMetrics()
-                    && connectedNodes.contains(report.getNodeId())
-                    && "LEADER".equals(report.getClusterMetrics().getNodeRole())) {
-                leaderNodeId = report.getNodeId();
-                commitPosition = report.getClusterMetrics().getCommitPosition();
-                connectedClients = report.getClusterMetrics().getConnectedClientCount();
-                String moduleState = report.getClusterMetrics().getConsensusModuleState();
-                if (!moduleState.isEmpty()) {
-                    clusterState = moduleState;
+        for (Map.Entry<Integer, NodeSummary> entry : nodeSummaries.entrySet()) {
+            int nodeId = entry.getKey();
+            NodeSummary node = entry.getValue();
+            boolean isBackup = "backup".equals(nodeAgentModes.get(nodeId));
+
+            if (!isBackup && connectedNodes.contains(nodeId) && "LEADER".equals(node.role())) {
+                leaderNodeId = nodeId;
+                commitPosition = node.commitPosition();
+                connectedClients = node.connectedClients();
+                if (!node.moduleState().isEmpty()) {
+                    clusterState = node.moduleState();
                 }
             }
 
-            nodes.put(String.valueOf(report.getNodeId()), convertMetricsToMap(report));
+            nodes.put(String.valueOf(nodeId), node.metrics());
 
             if (!isBackup) {
                 clusterNodeCount++;
-                for (AeronCounter counter : report.getCountersList()) {
-                    switch (counter.getTypeId()) {
-                        case 212: // Cluster Errors
-                        case 215: // Container Errors
-                            totalErrors += counter.getValue();
-                            break;
-                        case 205: // Snapshot count (same across nodes, take max)
-                            totalSnapshots = Math.max(totalSnapshots, counter.getValue());
-                            break;
-                        case 238: // Election count (same across nodes, take max)
-                            totalElections = Math.max(totalElections, counter.getValue());
-                            break;
-                        case 216: // Max cycle time (worst across nodes)
-                            maxCycleTimeNs = Math.max(maxCycleTimeNs, counter.getValue());
-                            break;
-                        case 239: // Leadership term id
-                            leadershipTermId = Math.max(leadershipTermId, counter.getValue());
-                            break;
-                    }
-                    if (aeronVersion == null && counter.getTypeId() == 212) {
-                        String label = counter.getLabel();
-                        int vi = label.indexOf("version=");
-                        if (vi >= 0) {
-                            int end = label.indexOf(' ', vi);
-                            aeronVersion = label.substring(vi + 8, end > vi ? end : label.length());
-                        }
-                    }
-                }
-            }
-
-            totalRecordings += report.getRecordingsCount();
-            totalRecordingBytes += computeRecordingsTotalBytes(report);
-
-            // Earliest LOG recording = cluster creation time
-            for (ArchiveRecording rec : report.getRecordingsList()) {
-                if (rec.getStartTimestamp() > 0 && rec.getStartTimestamp() < clusterStartMs) {
-                    String channel = rec.getChannel();
-                    if (channel.contains("alias=log") || channel.contains("alias=LOG")) {
-                        clusterStartMs = rec.getStartTimestamp();
-                    }
+                totalErrors += node.errors();
+                // Snapshot and election counts are the same across nodes, take max
+                totalSnapshots = Math.max(totalSnapshots, node.snapshots());
+                totalElections = Math.max(totalElections, node.elections());
+                maxCycleTimeNs = Math.max(maxCycleTimeNs, node.maxCycleTimeNs());
+                leadershipTermId = Math.max(leadershipTermId, node.leadershipTermId());
+                if (aeronVersion == null) {
+                    aeronVersion = node.aeronVersion();
                 }
             }
 
-            if (report.hasSystemMetrics()) {
-                totalDiskUsed += report.getSystemMetrics().getArchiveDiskUsedBytes();
-                totalDiskTotal += report.getSystemMetrics().getArchiveDiskTotalBytes();
-            }
+            totalRecordings += node.recordings();
+            totalRecordingBytes += node.recordingBytes();
+            clusterStartMs = Math.min(clusterStartMs, node.logStartMs());
+            totalDiskUsed += node.diskUsed();
+            totalDiskTotal += node.diskTotal();
         }
 
+        overview.put("version", version);
         overview.put("nodeCount", nodes.size());
         overview.put("clusterNodeCount", clusterNodeCount);
         overview.put("leaderNodeId", leaderNodeId);
@@ -473,6 +676,60 @@ public class ClusterStateAggregator {
         return overview;
     }
 
+    /**
+     * One node's share of the cluster overview, taken from a single report.
+     */
+    private NodeSummary summarize(MetricsReport report, CounterIndex counters, Map<String, Object> metrics) {
+        String aeronVersion = null;
+        AeronCounter errorCounter = counters.first(212);
+        if (errorCounter != null) {
+            String label = errorCounter.getLabel();
+            int vi = label.indexOf("version=");
+            if (vi >= 0) {
+                int end = label.indexOf(' ', vi);
+                aeronVersion = label.substring(vi + 8, end > vi ? end : label.length());
+            }
+        }
+
+        // Earliest LOG recording = cluster creation time
+        long logStartMs = Long.MAX_VALUE;
+        for (ArchiveRecording rec : report.getRecordingsList()) {
+            if (rec.getStartTimestamp() > 0 && rec.getStartTimestamp() < logStartMs) {
+                String channel = rec.getChannel();
+                if (channel.contains("alias=log") || channel.contains("alias=LOG")) {
+                    logStartMs = rec.getStartTimestamp();
+                }
+            }
+        }
+
+        ClusterMetrics cm = report.hasClusterMetrics() ? report.getClusterMetrics() : null;
+        return new NodeSummary(
+                metrics,
+                cm != null ? cm.getNodeRole() : null,
+                cm != null ? cm.getCommitPosition() : -1,
+                cm != null ? cm.getConnectedClientCount() : 0,
+                cm != null ? cm.getConsensusModuleState() : "",
+                counters.sum(212) + counters.sum(215), // Cluster and container errors
+                counters.max(205, 0), // Snapshot count
+                counters.max(238, 0), // Election count
+                counters.max(216, 0), // Max cycle time
+                counters.max(239, -1), // Leadership term id
+                aeronVersion,
+                report.getRecordingsCount(),
+                computeRecordingsTotalBytes(report),
+                logStartMs,
+                report.hasSystemMetrics() ? report.getSystemMetrics().getArchiveDiskUsedBytes() : 0,
+                report.hasSystemMetrics() ? report.getSystemMetrics().getArchiveDiskTotalBytes() : 0);
+    }
+
+    private record NodeSummary(Map<String, Object> metrics, String role, long commitPosition,
+                               int connectedClients, String moduleState, long errors, long snapshots,
+                               long elections, long maxCycleTimeNs, long leadershipTermId,
+                               String aeronVersion, int recordings, long recordingBytes, long logStartMs,
+                               long diskUsed, long diskTotal) {}
+
+    private record CachedOverview(long version, Map<String, Object> overview) {}
+
     /**
      * Converts a MetricsReport protobuf to a JSON-friendly Map structure.
      */
@@ -544,6 +801,10 @@ public class ClusterStateAggregator {
             sys.put("shmDiskUsedBytes", report.getSystemMetrics().getShmDiskUsedBytes());
             sys.put("shmDiskAvailableBytes", report.getSystemMetrics().getShmDiskAvailableBytes());
             sys.put("shmDiskTotalBytes", report.getSystemMetrics().getShmDiskTotalBytes());
+            sys.put("processes", convertProcesses(report.getSystemMetrics().getProcessesList()));
+            if (report.getSystemMetrics().hasNetwork()) {
+                sys.put("network", convertNetwork(report.getSystemMetrics().getNetwork()));
+            }
             result.put("systemMetrics", sys);
 
             if (report.getSystemMetrics().getArchiveDiskTotalBytes() > 0) {
@@ -565,16 +826,166 @@ public class ClusterStateAggregator {
             result.put("egressRecording", egressRec);
         }
 
+        if (report.hasTrafficProfile()) {
+            result.put("trafficProfile", convertTrafficProfile(report.getTrafficProfile()));
+        }
+        if (report.hasCommitLatency()) {
+            result.put("commitLatency", convertCommitLatency(report.getCommitLatency()));
+        }
+        if (report.hasCommandQueue()) {
+            CommandQueueStatus queue = report.getCommandQueue();
+            Map<String, Object> commandQueue = new LinkedHashMap<>();
+            commandQueue.put("readOnlyQueued", queue.getReadOnlyQueued());
+            commandQueue.put("readOnlyActive", queue.getReadOnlyActive());
+            commandQueue.put("mutatingQueued", queue.getMutatingQueued());
+            commandQueue.put("mutatingActive", queue.getMutatingActive());
+            commandQueue.put("rejected", queue.getRejected());
+            commandQueue.put("timedOut", queue.getTimedOut());
+            result.put("commandQueue", commandQueue);
+        }
+        if (report.hasSendStats()) {
+            MetricsSendStats stats = report.getSendStats();
+            Map<String, Object> sendStats = new LinkedHashMap<>();
+            sendStats.put("sendLatency", convertLatencyHistogram(stats.getSendLatency()));
+            sendStats.put("conflated", stats.getConflated());
+            sendStats.put("queued", stats.getQueued());
+            sendStats.put("streamResets", stats.getStreamResets());
+            result.put("sendStats", sendStats);
+        }
+
         return result;
     }
 
-    private long counterValueByLabel(MetricsReport report, String labelPrefix) {
-        for (AeronCounter counter : report.getCountersList()) {
-            if (counter.getLabel().startsWith(labelPrefix)) {
-                return counter.getValue();
+    private Map<String, Object> convertTrafficProfile(TrafficProfile profile) {
+        long intervalMs = Math.max(1, profile.getIntervalEnd() - profile.getIntervalStart());
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("intervalStart", profile.getIntervalStart());
+        result.put("intervalEnd", profile.getIntervalEnd());
+
+        List<Map<String, Object>> templates = new ArrayList<>();
+        for (TrafficStat stat : profile.getTemplatesList()) {
+            Map<String, Object> t = convertTrafficStat(stat, intervalMs);
+            t.put("schemaId", stat.getSchemaId());
+            t.put("templateId", stat.getTemplateId());
+            templates.add(t);
+        }
+        result.put("templates", templates);
+
+        List<Map<String, Object>> sessions = new ArrayList<>();
+        for (TrafficStat stat : profile.getSessionsList()) {
+            Map<String, Object> s = convertTrafficStat(stat, intervalMs);
+            s.put("clusterSessionId", stat.getClusterSessionId());
+            sessions.add(s);
+        }
+        result.put("sessions", sessions);
+        return result;
+    }
+
+    private static Map<String, Object> convertCommitLatency(CommitLatency latency) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("intervalStart", latency.getIntervalStart());
+        result.put("intervalEnd", latency.getIntervalEnd());
+        result.put("ingressToAppend", convertLatencyHistogram(latency.getIngressToAppend()));
+        result.put("ingressToCommit", convertLatencyHistogram(latency.getIngressToCommit()));
+        result.put("unmatched", latency.getUnmatched());
+        result.put("unmatchedLog", latency.getUnmatchedLog());
+        return result;
+    }
+
+    private static Map<String, Object> convertLatencyHistogram(Histogram histogram) {
+        Map<String, Object> h = new LinkedHashMap<>();
+        h.put("count", histogram.getCount());
+        h.put("meanNs", histogram.getCount() > 0 ? histogram.getSum() / histogram.getCount() : 0);
+        h.put("maxNs", histogram.getMax());
+        h.put("buckets", histogram.getBucketsList());
+        return h;
+    }
+
+    private static List<Map<String, Object>> convertProcesses(List<ProcessMetrics> processes) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (ProcessMetrics process : processes) {
+            Map<String, Object> p = new LinkedHashMap<>();
+            p.put("pid", process.getPid());
+            p.put("role", process.getRole());
+            p.put("rssBytes", process.getRssBytes());
+            p.put("cpuUsage", process.getCpuUsage());
+            p.put("minorFaults", process.getMinorFaults());
+            p.put("majorFaults", process.getMajorFaults());
+            p.put("voluntaryContextSwitches", process.getVoluntaryContextSwitches());
+            p.put("involuntaryContextSwitches", process.getInvoluntaryContextSwitches());
+            List<Map<String, Object>> threads = new ArrayList<>();
+            for (ThreadMetrics thread : process.getThreadsList()) {
+                Map<String, Object> t = new LinkedHashMap<>();
+                t.put("tid", thread.getTid());
+                t.put("name", thread.getName());
+                t.put("state", thread.getState());
+                t.put("cpuUsage", thread.getCpuUsage());
+                t.put("voluntaryContextSwitches", thread.getVoluntaryContextSwitches());
+                t.put("involuntaryContextSwitches", thread.getInvoluntaryContextSwitches());
+                t.put("minorFaults", thread.getMinorFaults());
+                t.put("majorFaults", thread.getMajorFaults());
+                threads.add(t);
             }
+            p.put("threads", threads);
+            result.add(p);
+        }
+        return result;
+    }
+
+    private static Map<String, Object> convertNetwork(NetworkMetrics network) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        UdpStats udp = network.getUdp();
+        Map<String, Object> u = new LinkedHashMap<>();
+        u.put("inDatagramsPerSec", udp.getInDatagramsPerSec());
+        u.put("outDatagramsPerSec", udp.getOutDatagramsPerSec());
+        u.put("inErrors", udp.getInErrors());
+        u.put("rcvbufErrors", udp.getRcvbufErrors());
+        u.put("sndbufErrors", udp.getSndbufErrors());
+        u.put("inErrorsPerSec", udp.getInErrorsPerSec());
+        u.put("rcvbufErrorsPerSec", udp.getRcvbufErrorsPerSec());
+        u.put("sndbufErrorsPerSec", udp.getSndbufErrorsPerSec());
+        result.put("udp", u);
+
+        List<Map<String, Object>> interfaces = new ArrayList<>();
+        for (InterfaceStats stats : network.getInterfacesList()) {
+            Map<String, Object> i = new LinkedHashMap<>();
+            i.put("name", stats.getName());
+            i.put("rxBytesPerSec", stats.getRxBytesPerSec());
+            i.put("txBytesPerSec", stats.getTxBytesPerSec());
+            i.put("rxPacketsPerSec", stats.getRxPacketsPerSec());
+            i.put("txPacketsPerSec", stats.getTxPacketsPerSec());
+            i.put("rxDrops", stats.getRxDrops());
+            i.put("txDrops", stats.getTxDrops());
+            i.put("rxDropsPerSec", stats.getRxDropsPerSec());
+            i.put("txDropsPerSec", stats.getTxDropsPerSec());
+            interfaces.add(i);
         }
-        return 0;
+        result.put("interfaces", interfaces);
+
+        List<Map<String, Object>> sockets = new ArrayList<>();
+        for (UdpSocketStats socket : network.getSocketsList()) {
+            Map<String, Object> s = new LinkedHashMap<>();
+            s.put("localAddress", socket.getLocalAddress());
+            s.put("txQueueBytes", socket.getTxQueueBytes());
+            s.put("rxQueueBytes", socket.getRxQueueBytes());
+            s.put("drops", socket.getDrops());
+            s.put("dropsPerSec", socket.getDropsPerSec());
+            sockets.add(s);
+        }
+        result.put("sockets", sockets);
+        return result;
+    }
+
+    private static Map<String, Object> convertTrafficStat(TrafficStat stat, long intervalMs) {
+        Map<String, Object> s = new LinkedHashMap<>();
+        s.put("streamId", stat.getStreamId());
+        s.put("messageCount", stat.getMessageCount());
+        s.put("byteCount", stat.getByteCount());
+        s.put("messagesPerSec", stat.getMessageCount() * 1000.0 / intervalMs);
+        s.put("bytesPerSec", stat.getByteCount() * 1000.0 / intervalMs);
+        s.put("maxSize", stat.getSizeHistogram().getMax());
+        s.put("sizeHistogram", stat.getSizeHistogram().getBucketsList());
+        return s;
     }
 
     private long computeRecordingsTotalBytes(MetricsReport report) {
@@ -589,13 +1000,19 @@ public class ClusterStateAggregator {
         return total;
     }
 
+    private void emit(ClusterEvent event) {
+        persister.execute(() -> eventService.emit(event));
+    }
+
     private void pushToWebSocket(String destination, Object payload) {
         if (messagingTemplate != null) {
-            try {
-                messagingTemplate.convertAndSend(destination, payload);
-            } catch (Exception e) {
-                LOGGER.debug("Failed to push to WebSocket {}: {}", destination, e.getMessage());
-            }
+            publisher.execute(() -> {
+                try {
+                    messagingTemplate.convertAndSend(destination, payload);
+                } catch (Exception e) {
+                    LOGGER.debug("Failed to push to WebSocket {}: {}", destination, e.getMessage());
+                }
+            });
         }
     }
 }
@@ -0,0 +1,100 @@
+package it.podlodowski.aeronmgmt.server.aggregator;
+
+import it.podlodowski.aeronmgmt.common.proto.AeronCounter;
+import it.podlodowski.aeronmgmt.common.proto.MetricsReport;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The counters of one report, indexed in a single pass on ingest: per type id the first counter,
+ * the sum and the maximum of the values, and the media driver's system counters by id.
+ *
+ * <p>System counters all have type id {@link #DRIVER_SYSTEM_COUNTER_TYPE_ID}. The driver allocates
+ * them first, in the order of their descriptors, so a system counter's counter id is its
+ * descriptor id.
+ */
+final class CounterIndex {
+
+    static final int DRIVER_SYSTEM_COUNTER_TYPE_ID = 0;
+    static final int BYTES_SENT = 0;
+    static final int BYTES_RECEIVED = 1;
+
+    private static final int SYSTEM_COUNTERS = 2;
+
+    private final Map<Integer, TypeEntry> types = new HashMap<>();
+    private final long[] systemValues = new long[SYSTEM_COUNTERS];
+
+    private CounterIndex() {
+    }
+
+    static CounterIndex of(MetricsReport report) {
+        CounterIndex index = new CounterIndex();
+        for (AeronCounter counter : report.getCountersList()) {
+            TypeEntry entry = index.types.get(counter.getTypeId());
+            if (entry == null) {
+                index.types.put(counter.getTypeId(), new TypeEntry(counter));
+            } else {
+                entry.add(counter.getValue());
+            }
+            if (counter.getTypeId() == DRIVER_SYSTEM_COUNTER_TYPE_ID && counter.getCounterId() < SYSTEM_COUNTERS) {
+                index.systemValues[counter.getCounterId()] = counter.getValue();
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Value of the first counter of the type, -1 if there is none.
+     */
+    long value(int typeId) {
+        TypeEntry entry = types.get(typeId);
+        return entry != null ? entry.first.getValue() : -1;
+    }
+
+    /**
+     * Sum of the counters of the type, 0 if there is none.
+     */
+    long sum(int typeId) {
+        TypeEntry entry = types.get(typeId);
+        return entry != null ? entry.sum : 0;
+    }
+
+    /**
+     * Largest value of the counters of the type, but at least {@code floor}.
+     */
+    long max(int typeId, long floor) {
+        TypeEntry entry = types.get(typeId);
+        return entry != null ? Math.max(floor, entry.max) : floor;
+    }
+
+    AeronCounter first(int typeId) {
+        TypeEntry entry = types.get(typeId);
+        return entry != null ? entry.first : null;
+    }
+
+    /**
+     * Value of the system counter with the given id, {@link #BYTES_SENT} or {@link #BYTES_RECEIVED};
+     * 0 if the report has none.
+     */
+    long systemValue(int systemCounterId) {
+        return systemValues[systemCounterId];
+    }
+
+    private static final class TypeEntry {
+        private final AeronCounter first;
+        private long sum;
+        private long max;
+
+        TypeEntry(AeronCounter first) {
+            this.first = first;
+            this.sum = first.getValue();
+            this.max = first.getValue();
+        }
+
+        void add(long value) {
+            sum += value;
+            max = Math.max(max, value);
+        }
+    }
+}
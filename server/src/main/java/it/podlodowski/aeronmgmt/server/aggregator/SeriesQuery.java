@@ -0,0 +1,180 @@
+package it.podlodowski.aeronmgmt.server.aggregator;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Turns the samples of a {@link TimeSeriesStore.Series} into chart points: aggregated into
+ * fixed-width time buckets, and downsampled to a number of points with
+ * Largest-Triangle-Three-Buckets, which keeps the peaks and dips a plain average would flatten.
+ */
+public final class SeriesQuery {
+
+    public enum Aggregation {
+        MIN, MAX, AVG, LAST,
+        /** Increase per second, with counter resets counted as no increase. */
+        RATE;
+
+        public static Aggregation parse(String name) {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * Chart points, oldest first.
+     */
+    public record Points(long[] timestamps, double[] values) {
+        public int size() {
+            return timestamps.length;
+        }
+    }
+
+    private SeriesQuery() {
+    }
+
+    /**
+     * One point per sample, or per pair of consecutive samples for {@link Aggregation#RATE}.
+     */
+    public static Points raw(TimeSeriesStore.Samples samples, Aggregation aggregation) {
+        long[] ts = samples.timestamps();
+        long[] vs = samples.values();
+        if (aggregation != Aggregation.RATE) {
+            double[] values = new double[vs.length];
+            for (int i = 0; i < vs.length; i++) {
+                values[i] = vs[i];
+            }
+            return new Points(ts, values);
+        }
+        int count = 0;
+        long[] timestamps = new long[Math.max(0, ts.length - 1)];
+        double[] values = new double[timestamps.length];
+        for (int i = 1; i < ts.length; i++) {
+            if (ts[i] > ts[i - 1]) {
+                timestamps[count] = ts[i];
+                values[count] = rate(vs[i - 1], vs[i], ts[i] - ts[i - 1]);
+                count++;
+            }
+        }
+        return new Points(Arrays.copyOf(timestamps, count), Arrays.copyOf(values, count));
+    }
+
+    /**
+     * One point per {@code stepMs} bucket that has samples, starting at {@code fromMs} and
+     * stamped with the bucket's start. A bucket's rate is measured from the last sample before
+     * it, or from its first sample if there is none.
+     */
+    public static Points bucket(TimeSeriesStore.Samples samples, long fromMs, long stepMs, Aggregation aggregation) {
+        long[] ts = samples.timestamps();
+        long[] vs = samples.values();
+        long[] timestamps = new long[ts.length];
+        double[] values = new double[ts.length];
+        int count = 0;
+
+        int i = 0;
+        while (i < ts.length) {
+            long bucket = fromMs + Math.floorDiv(ts[i] - fromMs, stepMs) * stepMs;
+            int first = i;
+            while (i < ts.length && ts[i] < bucket + stepMs) {
+                i++;
+            }
+            int last = i - 1;
+
+            double value;
+            switch (aggregation) {
+                case MIN -> {
+                    long min = Long.MAX_VALUE;
+                    for (int j = first; j <= last; j++) {
+                        min = Math.min(min, vs[j]);
+                    }
+                    value = min;
+                }
+                case MAX -> {
+                    long max = Long.MIN_VALUE;
+                    for (int j = first; j <= last; j++) {
+                        max = Math.max(max, vs[j]);
+                    }
+                    value = max;
+                }
+                case AVG -> {
+                    double sum = 0;
+                    for (int j = first; j <= last; j++) {
+                        sum += vs[j];
+                    }
+                    value = sum / (last - first + 1);
+                }
+                case RATE -> {
+                    int base = first > 0 ? first - 1 : first;
+                    if (ts[last] <= ts[base]) {
+                        continue;
+                    }
+                    value = rate(vs[base], vs[last], ts[last] - ts[base]);
+                }
+                default -> value = vs[last];
+            }
+            timestamps[count] = bucket;
+            values[count] = value;
+            count++;
+        }
+        return new Points(Arrays.copyOf(timestamps, count), Arrays.copyOf(values, count));
+    }
+
+    /**
+     * Downsamples to {@code threshold} points with Largest-Triangle-Three-Buckets, keeping the
+     * first and last point. Returns the points as they are if there are no more than that.
+     */
+    public static Points lttb(Points points, int threshold) {
+        int size = points.size();
+        if (threshold >= size || threshold < 3) {
+            return points;
+        }
+        long[] ts = points.timestamps();
+        double[] vs = points.values();
+        long[] timestamps = new long[threshold];
+        double[] values = new double[threshold];
+
+        double every = (double) (size - 2) / (threshold - 2);
+        int selected = 0;
+        timestamps[0] = ts[0];
+        values[0] = vs[0];
+
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            // Average of the next bucket is the third corner of the triangle
+            int nextStart = (int) Math.floor((bucket + 1) * every) + 1;
+            int nextEnd = Math.min((int) Math.floor((bucket + 2) * every) + 1, size);
+            double avgT = 0;
+            double avgV = 0;
+            for (int j = nextStart; j < nextEnd; j++) {
+                avgT += ts[j];
+                avgV += vs[j];
+            }
+            int nextCount = nextEnd - nextStart;
+            avgT /= nextCount;
+            avgV /= nextCount;
+
+            int start = (int) Math.floor(bucket * every) + 1;
+            int end = (int) Math.floor((bucket + 1) * every) + 1;
+            double pointT = ts[selected];
+            double pointV = vs[selected];
+            double maxArea = -1;
+            int maxIndex = start;
+            for (int j = start; j < end; j++) {
+                double area = Math.abs((pointT - avgT) * (vs[j] - pointV) - (pointT - ts[j]) * (avgV - pointV));
+                if (area > maxArea) {
+                    maxArea = area;
+                    maxIndex = j;
+                }
+            }
+            timestamps[bucket + 1] = ts[maxIndex];
+            values[bucket + 1] = vs[maxIndex];
+            selected = maxIndex;
+        }
+
+        timestamps[threshold - 1] = ts[size - 1];
+        values[threshold - 1] = vs[size - 1];
+        return new Points(timestamps, values);
+    }
+
+    private static double rate(long previous, long current, long dtMs) {
+        return Math.max(0, current - previous) * 1000.0 / dtMs;
+    }
+}
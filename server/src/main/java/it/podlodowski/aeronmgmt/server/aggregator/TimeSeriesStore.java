@@ -0,0 +1,388 @@
+package it.podlodowski.aeronmgmt.server.aggregator;
+
+import it.podlodowski.aeronmgmt.common.proto.AeronCounter;
+import it.podlodowski.aeronmgmt.common.proto.MetricsReport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Recent counter values of a cluster's nodes, stored by column: one series per node and counter,
+ * each a ring of {@code long} timestamps and values of fixed capacity. Only the numbers are kept;
+ * a report itself is not retained once its values are appended.
+ *
+ * <p>A single thread writes (the cluster's ingest stage), without locks. Readers copy a series
+ * optimistically and retry if the writer changed it meanwhile, so they never hold up ingestion.
+ *
+ * <p>All stores share one {@link Budget}. A counter that first shows up once the budget is spent
+ * gets no series; a node's new counters are not tried again until some series is freed. A series is
+ * freed when its counter has been missing from {@value #VANISHED_REPORTS} consecutive reports of the
+ * node or for longer than the retention, or when its counter id is reused for another counter. A
+ * report without counters, as sent while the node's CnC file cannot be read, is not recorded at all,
+ * so a driver restart does not wipe the node's history.
+ */
+public class TimeSeriesStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TimeSeriesStore.class);
+
+    static final int VANISHED_REPORTS = 5;
+
+    private final Budget budget;
+    private final int capacity;
+    private final long retentionMs;
+    private final ConcurrentHashMap<Integer, NodeSeries> nodes = new ConcurrentHashMap<>();
+
+    /**
+     * @param capacity    samples kept per series
+     * @param retentionMs age beyond which samples are no longer returned
+     */
+    public TimeSeriesStore(Budget budget, int capacity, long retentionMs) {
+        this.budget = budget;
+        this.capacity = capacity;
+        this.retentionMs = retentionMs;
+    }
+
+    /**
+     * Appends the report's counter values to the node's series. Reports without counters are
+     * ignored. Called by the writer only.
+     */
+    public void append(MetricsReport report) {
+        if (!report.getCncAccessible() || report.getCountersCount() == 0) {
+            return;
+        }
+        nodes.computeIfAbsent(report.getNodeId(), NodeSeries::new).append(report);
+    }
+
+    /**
+     * Adds the values of a report older than the latest one, in timestamp order, to the series of
+     * counters the node still has. Called by the writer only.
+     */
+    public void insert(MetricsReport report) {
+        NodeSeries node = nodes.get(report.getNodeId());
+        if (node != null) {
+            node.insert(report);
+        }
+    }
+
+    /**
+     * The series currently kept for the node, ordered by counter id.
+     */
+    public List<Series> series(int nodeId) {
+        NodeSeries node = nodes.get(nodeId);
+        return node != null ? node.list() : List.of();
+    }
+
+    /**
+     * The node's series for the counter, or null if none is kept.
+     */
+    public Series series(int nodeId, int counterId) {
+        NodeSeries node = nodes.get(nodeId);
+        return node != null ? node.get(counterId) : null;
+    }
+
+    public long getRetentionMs() {
+        return retentionMs;
+    }
+
+    /**
+     * Memory shared by the series of all stores, reserved a series at a time.
+     */
+    public static final class Budget {
+        private final long limitBytes;
+        private final AtomicLong usedBytes = new AtomicLong();
+        // Bumped on every release, so a refused reservation is only retried once memory was freed
+        private final AtomicLong releases = new AtomicLong();
+
+        public Budget(long limitBytes) {
+            this.limitBytes = limitBytes;
+        }
+
+        boolean tryReserve(long bytes) {
+            long used;
+            do {
+                used = usedBytes.get();
+                if (used + bytes > limitBytes) {
+                    return false;
+                }
+            } while (!usedBytes.compareAndSet(used, used + bytes));
+            return true;
+        }
+
+        void release(long bytes) {
+            usedBytes.addAndGet(-bytes);
+            releases.incrementAndGet();
+        }
+
+        long releases() {
+            return releases.get();
+        }
+
+        public long getLimitBytes() {
+            return limitBytes;
+        }
+
+        public long getUsedBytes() {
+            return usedBytes.get();
+        }
+    }
+
+    /**
+     * Samples copied out of a series, oldest first.
+     */
+    public record Samples(long[] timestamps, long[] values) {
+        public int size() {
+            return timestamps.length;
+        }
+    }
+
+    /**
+     * One counter's ring of samples. Written by a single thread; read by any.
+     */
+    public static final class Series {
+        private final int counterId;
+        private final int typeId;
+        private final String label;
+        private final long[] timestamps;
+        private final long[] values;
+        // Logical positions: the ring holds [start, end), at index position % capacity
+        private long start;
+        private long end;
+        // Odd while the writer is changing the ring
+        private volatile long sequence;
+        private long lastSeenReport;
+        private long lastSeenMs;
+
+        Series(int counterId, int typeId, String label, int capacity) {
+            this.counterId = counterId;
+            this.typeId = typeId;
+            this.label = label;
+            this.timestamps = new long[capacity];
+            this.values = new long[capacity];
+        }
+
+        public int getCounterId() {
+            return counterId;
+        }
+
+        public int getTypeId() {
+            return typeId;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * Samples with {@code fromMs <= timestamp <= toMs}, oldest first.
+         */
+        public Samples read(long fromMs, long toMs) {
+            int capacity = timestamps.length;
+            long[] ts = new long[capacity];
+            long[] vs = new long[capacity];
+            int count;
+            while (true) {
+                long seq = sequence;
+                if ((seq & 1) == 0) {
+                    long from = start;
+                    long to = end;
+                    count = (int) Math.max(0, Math.min(capacity, to - from));
+                    for (int i = 0; i < count; i++) {
+                        int index = (int) ((from + i) % capacity);
+                        ts[i] = timestamps[index];
+                        vs[i] = values[index];
+                    }
+                    VarHandle.acquireFence();
+                    if (sequence == seq) {
+                        break;
+                    }
+                }
+                Thread.onSpinWait();
+            }
+
+            int first = 0;
+            while (first < count && ts[first] < fromMs) {
+                first++;
+            }
+            int last = count;
+            while (last > first && ts[last - 1] > toMs) {
+                last--;
+            }
+            return new Samples(Arrays.copyOfRange(ts, first, last), Arrays.copyOfRange(vs, first, last));
+        }
+
+        void append(long timestampMs, long value) {
+            int capacity = timestamps.length;
+            if (end > start && timestampMs < timestamps[(int) ((end - 1) % capacity)]) {
+                insert(timestampMs, value);
+                return;
+            }
+            beginWrite();
+            int index = (int) (end % capacity);
+            timestamps[index] = timestampMs;
+            values[index] = value;
+            end++;
+            if (end - start > capacity) {
+                start++;
+            }
+            endWrite();
+        }
+
+        void insert(long timestampMs, long value) {
+            int capacity = timestamps.length;
+            long position = end;
+            while (position > start && timestamps[(int) ((position - 1) % capacity)] > timestampMs) {
+                position--;
+            }
+            if (position > start && timestamps[(int) ((position - 1) % capacity)] == timestampMs) {
+                return; // Already have it
+            }
+            if (position == start && end - start == capacity) {
+                return; // Older than everything in a full ring
+            }
+            beginWrite();
+            for (long p = end; p > position; p--) {
+                int to = (int) (p % capacity);
+                int from = (int) ((p - 1) % capacity);
+                timestamps[to] = timestamps[from];
+                values[to] = values[from];
+            }
+            int index = (int) (position % capacity);
+            timestamps[index] = timestampMs;
+            values[index] = value;
+            end++;
+            if (end - start > capacity) {
+                start++;
+            }
+            endWrite();
+        }
+
+        long bytes() {
+            return bytes(timestamps.length);
+        }
+
+        static long bytes(int capacity) {
+            return 2L * Long.BYTES * capacity;
+        }
+
+        private void beginWrite() {
+            sequence = sequence + 1;
+            VarHandle.releaseFence();
+        }
+
+        private void endWrite() {
+            sequence = sequence + 1;
+        }
+    }
+
+    /**
+     * A node's series, indexed by counter id.
+     */
+    private final class NodeSeries {
+        private final int nodeId;
+        private volatile Series[] byCounterId = new Series[64];
+        private int size;
+        private long reports;
+        private boolean budgetWarned;
+        // Budget releases seen when a reservation was last refused, -1 if none was
+        private long refusedAtReleases = -1;
+
+        NodeSeries(int nodeId) {
+            this.nodeId = nodeId;
+        }
+
+        void append(MetricsReport report) {
+            long generation = ++reports;
+            Series[] slots = byCounterId;
+            int seen = 0;
+            for (AeronCounter counter : report.getCountersList()) {
+                int counterId = counter.getCounterId();
+                if (counterId >= slots.length) {
+                    slots = Arrays.copyOf(slots, Math.max(counterId + 1, slots.length * 2));
+                }
+                Series series = slots[counterId];
+                if (series != null && (series.typeId != counter.getTypeId() || !series.label.equals(counter.getLabel()))) {
+                    // The counter id was freed and reused for another counter
+                    release(slots, counterId);
+                    series = null;
+                }
+                if (series == null) {
+                    series = allocate(counter);
+                    if (series == null) {
+                        continue;
+                    }
+                    slots[counterId] = series;
+                    size++;
+                }
+                series.append(report.getTimestamp(), counter.getValue());
+                series.lastSeenReport = generation;
+                series.lastSeenMs = report.getTimestamp();
+                seen++;
+            }
+            if (seen < size) {
+                for (int counterId = 0; counterId < slots.length; counterId++) {
+                    Series series = slots[counterId];
+                    if (series != null && (generation - series.lastSeenReport >= VANISHED_REPORTS
+                            || report.getTimestamp() - series.lastSeenMs > retentionMs)) {
+                        release(slots, counterId);
+                    }
+                }
+            }
+            byCounterId = slots;
+        }
+
+        void insert(MetricsReport report) {
+            Series[] slots = byCounterId;
+            for (AeronCounter counter : report.getCountersList()) {
+                int counterId = counter.getCounterId();
+                Series series = counterId < slots.length ? slots[counterId] : null;
+                if (series != null && series.typeId == counter.getTypeId() && series.label.equals(counter.getLabel())) {
+                    series.insert(report.getTimestamp(), counter.getValue());
+                }
+            }
+        }
+
+        Series get(int counterId) {
+            Series[] slots = byCounterId;
+            return counterId >= 0 && counterId < slots.length ? slots[counterId] : null;
+        }
+
+        List<Series> list() {
+            List<Series> result = new ArrayList<>();
+            for (Series series : byCounterId) {
+                if (series != null) {
+                    result.add(series);
+                }
+            }
+            return result;
+        }
+
+        private Series allocate(AeronCounter counter) {
+            long releases = budget.releases();
+            if (releases == refusedAtReleases) {
+                return null;
+            }
+            if (!budget.tryReserve(Series.bytes(capacity))) {
+                refusedAtReleases = releases;
+                if (!budgetWarned) {
+                    budgetWarned = true;
+                    LOGGER.warn("Metrics history budget of {} bytes is spent, node {} gets no new series",
+                            budget.getLimitBytes(), nodeId);
+                }
+                return null;
+            }
+            return new Series(counter.getCounterId(), counter.getTypeId(), counter.getLabel(), capacity);
+        }
+
+        private void release(Series[] slots, int counterId) {
+            budget.release(slots[counterId].bytes());
+            slots[counterId] = null;
+            size--;
+        }
+    }
+}
@@ -10,6 +10,7 @@ import it.podlodowski.aeronmgmt.server.events.EventLevel;
 import it.podlodowski.aeronmgmt.server.events.EventQuery;
 import it.podlodowski.aeronmgmt.server.events.EventService;
 import it.podlodowski.aeronmgmt.server.events.ReconciliationService;
+import it.podlodowski.aeronmgmt.server.grpc.ClockSync;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -37,14 +38,17 @@ public class ClusterController {
     private final CommandRouter commandRouter;
     private final EventService eventService;
     private final ReconciliationService reconciliationService;
+    private final ClockSync clockSync;
 
     public ClusterController(ClusterManager clusterManager, CommandRouter commandRouter,
                              EventService eventService,
-                             ReconciliationService reconciliationService) {
+                             ReconciliationService reconciliationService,
+                             ClockSync clockSync) {
         this.clusterManager = clusterManager;
         this.commandRouter = commandRouter;
         this.eventService = eventService;
         this.reconciliationService = reconciliationService;
+        this.clockSync = clockSync;
     }
 
     @GetMapping
@@ -178,6 +182,14 @@ public class ClusterController {
         return ResponseEntity.accepted().body(Map.of("status", "started"));
     }
 
+    /**
+     * Estimated clock offset (agent ahead of server) and round trip per node.
+     */
+    @GetMapping("/{clusterId}/clock")
+    public Map<Integer, Map<String, Object>> getClockOffsets(@PathVariable String clusterId) {
+        return clockSync.describe(clusterId);
+    }
+
     @GetMapping("/{clusterId}/membership")
     public ResponseEntity<Map<String, Object>> getMembership(@PathVariable String clusterId) {
         ClusterStateAggregator aggregator = clusterManager.getCluster(clusterId);
@@ -2,8 +2,11 @@ package it.podlodowski.aeronmgmt.server.api;
 
 import it.podlodowski.aeronmgmt.common.proto.MetricsReport;
 import it.podlodowski.aeronmgmt.server.aggregator.ClusterStateAggregator;
+import it.podlodowski.aeronmgmt.server.aggregator.SeriesQuery;
+import it.podlodowski.aeronmgmt.server.aggregator.TimeSeriesStore;
 import it.podlodowski.aeronmgmt.server.cluster.ClusterManager;
 import it.podlodowski.aeronmgmt.server.command.CommandRouter;
+import it.podlodowski.aeronmgmt.server.command.DiagnosticsCache;
 import it.podlodowski.aeronmgmt.server.events.EventFactory;
 import it.podlodowski.aeronmgmt.server.events.EventService;
 import org.springframework.http.ResponseEntity;
@@ -13,7 +16,10 @@ import java.security.Principal;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 @RestController
 @RequestMapping("/api/clusters/{clusterId}/nodes")
@@ -22,11 +28,14 @@ public class NodeController {
     private final ClusterManager clusterManager;
     private final CommandRouter commandRouter;
     private final EventService eventService;
+    private final DiagnosticsCache diagnosticsCache;
 
-    public NodeController(ClusterManager clusterManager, CommandRouter commandRouter, EventService eventService) {
+    public NodeController(ClusterManager clusterManager, CommandRouter commandRouter, EventService eventService,
+                          DiagnosticsCache diagnosticsCache) {
         this.clusterManager = clusterManager;
         this.commandRouter = commandRouter;
         this.eventService = eventService;
+        this.diagnosticsCache = diagnosticsCache;
     }
 
     @GetMapping
@@ -57,6 +66,98 @@ public class NodeController {
         return ResponseEntity.ok(aggregator.convertMetricsToMap(report));
     }
 
+    @GetMapping("/{id}/transitions")
+    public ResponseEntity<List<Map<String, Object>>> getTransitions(@PathVariable String clusterId,
+                                                                    @PathVariable int id) {
+        ClusterStateAggregator aggregator = clusterManager.getCluster(clusterId);
+        if (aggregator == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(aggregator.getTransitions(id));
+    }
+
+    /**
+     * History of the node's counters selected by type id, counter id and label pattern (all
+     * given selectors must match). Without {@code step} every sample is a point; with it, samples
+     * are aggregated per step. Either way the result is downsampled to {@code points} with LTTB.
+     */
+    @GetMapping("/{id}/series")
+    public ResponseEntity<Map<String, Object>> getSeries(
+            @PathVariable String clusterId,
+            @PathVariable int id,
+            @RequestParam(required = false) List<Integer> typeId,
+            @RequestParam(required = false) List<Integer> counterId,
+            @RequestParam(required = false) String label,
+            @RequestParam(required = false) Long from,
+            @RequestParam(required = false) Long to,
+            @RequestParam(required = false) Long step,
+            @RequestParam(defaultValue = "last") String aggregation,
+            @RequestParam(defaultValue = "500") int points) {
+        ClusterStateAggregator aggregator = clusterManager.getCluster(clusterId);
+        if (aggregator == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (typeId == null && counterId == null && label == null) {
+            return badRequest("Select counters with typeId, counterId or label");
+        }
+        if (step != null && step <= 0) {
+            return badRequest("step must be positive");
+        }
+        SeriesQuery.Aggregation agg;
+        try {
+            agg = SeriesQuery.Aggregation.parse(aggregation);
+        } catch (IllegalArgumentException e) {
+            return badRequest("Unknown aggregation: " + aggregation);
+        }
+        Pattern labelPattern;
+        try {
+            labelPattern = label != null ? Pattern.compile(label) : null;
+        } catch (PatternSyntaxException e) {
+            return badRequest("Invalid label pattern: " + e.getDescription());
+        }
+
+        TimeSeriesStore timeSeries = aggregator.getTimeSeries();
+        long end = to != null ? to : System.currentTimeMillis();
+        long start = Math.max(from != null ? from : 0, end - timeSeries.getRetentionMs());
+
+        List<Map<String, Object>> series = new ArrayList<>();
+        for (TimeSeriesStore.Series s : timeSeries.series(id)) {
+            if ((typeId != null && !typeId.contains(s.getTypeId()))
+                    || (counterId != null && !counterId.contains(s.getCounterId()))
+                    || (labelPattern != null && !labelPattern.matcher(s.getLabel()).find())) {
+                continue;
+            }
+            TimeSeriesStore.Samples samples = s.read(start, end);
+            SeriesQuery.Points result = step != null
+                    ? SeriesQuery.bucket(samples, start, step, agg)
+                    : SeriesQuery.raw(samples, agg);
+            result = SeriesQuery.lttb(result, points);
+
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("counterId", s.getCounterId());
+            entry.put("typeId", s.getTypeId());
+            entry.put("label", s.getLabel());
+            entry.put("timestamps", result.timestamps());
+            entry.put("values", result.values());
+            series.add(entry);
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("nodeId", id);
+        response.put("from", start);
+        response.put("to", end);
+        response.put("step", step);
+        response.put("aggregation", agg.name().toLowerCase(Locale.ROOT));
+        response.put("series", series);
+        return ResponseEntity.ok(response);
+    }
+
+    private static ResponseEntity<Map<String, Object>> badRequest(String message) {
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("error", message);
+        return ResponseEntity.badRequest().body(error);
+    }
+
     @PostMapping("/{id}/snapshot")
     public Map<String, Object> triggerSnapshot(@PathVariable String clusterId, @PathVariable int id, Principal principal) {
         Map<String, Object> result = commandRouter.sendCommand(clusterId, id, "SNAPSHOT");
@@ -142,7 +243,7 @@ public class NodeController {
 
     @GetMapping("/{id}/describe")
     public Map<String, Object> describe(@PathVariable String clusterId, @PathVariable int id) {
-        return commandRouter.sendCommand(clusterId, id, "DESCRIBE");
+        return cachedCommand(clusterId, id, "DESCRIBE");
     }
 
     @GetMapping("/{id}/pid")
@@ -152,7 +253,7 @@ public class NodeController {
 
     @GetMapping("/{id}/recovery-plan")
     public Map<String, Object> recoveryPlan(@PathVariable String clusterId, @PathVariable int id) {
-        return commandRouter.sendCommand(clusterId, id, "RECOVERY_PLAN");
+        return cachedCommand(clusterId, id, "RECOVERY_PLAN");
     }
 
     @GetMapping("/{id}/recording-log")
@@ -167,7 +268,7 @@ public class NodeController {
 
     @GetMapping("/{id}/list-members")
     public Map<String, Object> listMembers(@PathVariable String clusterId, @PathVariable int id) {
-        return commandRouter.sendCommand(clusterId, id, "LIST_MEMBERS");
+        return cachedCommand(clusterId, id, "LIST_MEMBERS");
     }
 
     @GetMapping("/{id}/is-leader")
@@ -177,7 +278,16 @@ public class NodeController {
 
     @GetMapping("/{id}/describe-snapshot")
     public Map<String, Object> describeSnapshot(@PathVariable String clusterId, @PathVariable int id) {
-        return commandRouter.sendCommand(clusterId, id, "DESCRIBE_SNAPSHOT");
+        return cachedCommand(clusterId, id, "DESCRIBE_SNAPSHOT");
+    }
+
+    /**
+     * Read-only diagnostics that every open node page requests; identical concurrent requests
+     * share one agent call and recent results are reused.
+     */
+    private Map<String, Object> cachedCommand(String clusterId, int id, String commandType) {
+        return diagnosticsCache.get(clusterId, id, commandType,
+                () -> commandRouter.sendCommand(clusterId, id, commandType));
     }
 
     // --- Archive operations (work on cluster + backup nodes) ---
@@ -207,6 +317,23 @@ public class NodeController {
         return result;
     }
 
+    @GetMapping("/{id}/archive/recordings")
+    public Map<String, Object> archiveListRecordings(
+            @PathVariable String clusterId,
+            @PathVariable int id,
+            @RequestParam(defaultValue = "0") long from,
+            @RequestParam(defaultValue = "100") int count) {
+        return commandRouter.sendArchiveCommand(clusterId, id, "ARCHIVE_LIST_RECORDINGS",
+                Map.of("fromRecordingId", String.valueOf(from),
+                       "count", String.valueOf(count)));
+    }
+
+    @GetMapping("/{id}/archive/recordings/{rid}/position")
+    public Map<String, Object> archiveRecordingPosition(@PathVariable String clusterId, @PathVariable int id, @PathVariable long rid) {
+        return commandRouter.sendArchiveCommand(clusterId, id, "ARCHIVE_RECORDING_POSITION",
+                Map.of("recordingId", String.valueOf(rid)));
+    }
+
     @GetMapping("/{id}/archive/recordings/{rid}/describe")
     public Map<String, Object> archiveDescribeRecording(@PathVariable String clusterId, @PathVariable int id, @PathVariable long rid) {
         return commandRouter.sendArchiveCommand(clusterId, id, "ARCHIVE_DESCRIBE_RECORDING",
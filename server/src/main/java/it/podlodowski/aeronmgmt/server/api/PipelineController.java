@@ -0,0 +1,24 @@
+package it.podlodowski.aeronmgmt.server.api;
+
+import it.podlodowski.aeronmgmt.server.cluster.ClusterManager;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/pipeline")
+public class PipelineController {
+
+    private final ClusterManager clusterManager;
+
+    public PipelineController(ClusterManager clusterManager) {
+        this.clusterManager = clusterManager;
+    }
+
+    @GetMapping
+    public Map<String, Object> getPipelineStats() {
+        return clusterManager.getPipelineStats();
+    }
+}
@@ -1,18 +1,23 @@
 package it.podlodowski.aeronmgmt.server.cluster;
 
+import it.podlodowski.aeronmgmt.common.proto.AeronCounter;
+import it.podlodowski.aeronmgmt.common.proto.CommandProgress;
 import it.podlodowski.aeronmgmt.common.proto.CommandResult;
 import it.podlodowski.aeronmgmt.common.proto.MetricsReport;
 import it.podlodowski.aeronmgmt.common.proto.StateChangeEntry;
 import it.podlodowski.aeronmgmt.server.aggregator.ClusterStateAggregator;
 import it.podlodowski.aeronmgmt.server.aggregator.DiskUsageTracker;
+import it.podlodowski.aeronmgmt.server.aggregator.TimeSeriesStore;
 import it.podlodowski.aeronmgmt.server.events.EventService;
 import it.podlodowski.aeronmgmt.server.events.ReconciliationService;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
@@ -23,28 +28,65 @@ import java.util.concurrent.ConcurrentHashMap;
  * Central coordinator for multi-cluster support.
  * Holds per-cluster {@link ClusterStateAggregator} instances and routes
  * metrics, connections, and command results to the correct cluster.
+ *
+ * <p>Updates reach each aggregator through a {@link PipelineStage} of its own, so the gRPC threads
+ * only enqueue and a busy cluster does not slow down the others. Ordinary metrics samples are
+ * dropped when a cluster's queue is full; the next report carries the current state again. Reports
+ * with state transitions, or whose module state, role or election state differs from the node's
+ * previous report, wait for room instead, as do connects, disconnects and catch-ups.
+ *
+ * <p>Events are stored by a shared {@code events} stage, WebSocket updates are sent by a shared
+ * {@code publish} stage, and reconciliations run on a {@code reconcile} stage. Handing over to
+ * these never waits, so a cluster's ingest thread does not stall because the event store is slow.
+ * The events queue is unbounded: events are the product's record and are never dropped, and they
+ * are few enough that a backlog while the database is slow stays small.
+ *
+ * <p>Cluster overviews are pushed at a fixed rate rather than on every report, and only for
+ * clusters whose overview changed since the last push.
  */
 @Component
 public class ClusterManager {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ClusterManager.class);
 
+    // Consensus module state, node role and election state: a report that changes one is never dropped
+    private static final int[] STATE_COUNTER_TYPE_IDS = {200, 201, 207};
+    private static final int RECONCILE_QUEUE_CAPACITY = 64;
+
     private final SimpMessagingTemplate messagingTemplate;
     private final EventService eventService;
     private final ReconciliationService reconciliationService;
     private final int historySeconds;
+    private final int historySamples;
+    private final TimeSeriesStore.Budget historyBudget;
+    private final int ingestQueueCapacity;
     private final ConcurrentHashMap<String, ClusterStateAggregator> clusters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, PipelineStage> ingestStages = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<NodeKey, long[]> lastStateCounters = new ConcurrentHashMap<>();
+    private final PipelineStage eventStage;
+    private final PipelineStage publishStage;
+    private final PipelineStage reconcileStage;
 
     @Autowired
     public ClusterManager(
             @Autowired(required = false) SimpMessagingTemplate messagingTemplate,
             EventService eventService,
             @Lazy ReconciliationService reconciliationService,
-            @Value("${aeron.management.server.metrics-history-seconds:300}") int historySeconds) {
+            @Value("${aeron.management.server.metrics-history-seconds:300}") int historySeconds,
+            @Value("${aeron.management.server.metrics-history-samples:600}") int historySamples,
+            @Value("${aeron.management.server.metrics-history-budget-mb:64}") int historyBudgetMb,
+            @Value("${aeron.management.server.ingest-queue-capacity:1024}") int ingestQueueCapacity,
+            @Value("${aeron.management.server.fanout-queue-capacity:8192}") int fanoutQueueCapacity) {
         this.messagingTemplate = messagingTemplate;
         this.eventService = eventService;
         this.reconciliationService = reconciliationService;
         this.historySeconds = historySeconds;
+        this.historySamples = historySamples;
+        this.historyBudget = new TimeSeriesStore.Budget(historyBudgetMb * 1024L * 1024L);
+        this.ingestQueueCapacity = ingestQueueCapacity;
+        this.eventStage = new PipelineStage("events");
+        this.publishStage = new PipelineStage("publish", fanoutQueueCapacity);
+        this.reconcileStage = new PipelineStage("reconcile", RECONCILE_QUEUE_CAPACITY);
     }
 
     public ClusterStateAggregator getOrCreateCluster(String clusterId) {
@@ -52,7 +94,10 @@ public class ClusterManager {
         ClusterStateAggregator aggregator = clusters.computeIfAbsent(clusterId, id -> {
             LOGGER.info("Creating new cluster aggregator for clusterId={}", id);
             created[0] = true;
-            return new ClusterStateAggregator(messagingTemplate, new DiskUsageTracker(), historySeconds, id, eventService);
+            ingestStages.put(id, new PipelineStage("ingest-" + id, ingestQueueCapacity));
+            TimeSeriesStore timeSeries = new TimeSeriesStore(historyBudget, historySamples, historySeconds * 1000L);
+            return new ClusterStateAggregator(messagingTemplate, new DiskUsageTracker(), timeSeries, id, eventService,
+                    publishStage::offer, this::persist);
         });
         if (created[0]) {
             pushClusterList();
@@ -79,28 +124,98 @@ public class ClusterManager {
     }
 
     public void onMetricsReceived(String clusterId, MetricsReport report) {
-        getOrCreateCluster(clusterId).onMetricsReceived(report);
+        ClusterStateAggregator aggregator = getOrCreateCluster(clusterId);
+        PipelineStage stage = ingestStages.get(clusterId);
+        if (changesState(clusterId, report)) {
+            stage.put(() -> aggregator.onMetricsReceived(report));
+        } else if (!stage.offer(() -> aggregator.onMetricsReceived(report))) {
+            LOGGER.debug("Ingest queue of cluster {} is full, dropped report of node {}", clusterId, report.getNodeId());
+        }
+    }
+
+    /**
+     * Whether the report carries state transitions, or its state counters differ from the node's
+     * previous report. Called from the node's stream only, so reports of a node never race here.
+     */
+    boolean changesState(String clusterId, MetricsReport report) {
+        long[] state = {-1, -1, -1};
+        for (AeronCounter counter : report.getCountersList()) {
+            for (int i = 0; i < STATE_COUNTER_TYPE_IDS.length; i++) {
+                if (counter.getTypeId() == STATE_COUNTER_TYPE_IDS[i] && state[i] == -1) {
+                    state[i] = counter.getValue();
+                }
+            }
+        }
+        long[] previous = lastStateCounters.put(new NodeKey(clusterId, report.getNodeId()), state);
+        return report.getStateChangesCount() > 0 || !Arrays.equals(previous, state);
+    }
+
+    public void onMetricsReplayed(String clusterId, List<MetricsReport> reports) {
+        ClusterStateAggregator aggregator = getOrCreateCluster(clusterId);
+        if (!ingestStages.get(clusterId).offer(() -> aggregator.onMetricsReplayed(reports))) {
+            LOGGER.debug("Ingest queue of cluster {} is full, dropped {} replayed reports", clusterId, reports.size());
+        }
     }
 
     public void onAgentConnected(String clusterId, int nodeId, String agentMode) {
-        getOrCreateCluster(clusterId).onAgentConnected(nodeId, agentMode);
-        reconciliationService.autoReconcileIfNeeded(clusterId);
-        pushClusterList();
+        ClusterStateAggregator aggregator = getOrCreateCluster(clusterId);
+        ingestStages.get(clusterId).put(() -> {
+            aggregator.onAgentConnected(nodeId, agentMode);
+            // Behind the node's connect event in the events stage, as when both ran inline, but run
+            // on a stage of its own so a long reconciliation does not hold up other clusters' events
+            persist(() -> {
+                if (!reconcileStage.offer(() -> reconciliationService.autoReconcileIfNeeded(clusterId))) {
+                    LOGGER.warn("Reconcile queue is full, skipped reconciliation check of cluster {}", clusterId);
+                }
+            });
+            pushClusterList();
+        });
     }
 
     public void processCatchUp(String clusterId, int nodeId,
                                List<StateChangeEntry> buffer,
                                Map<Integer, Long> currentCounters) {
-        ClusterStateAggregator agg = getOrCreateCluster(clusterId);
-        agg.processCatchUp(nodeId, buffer, currentCounters);
+        ClusterStateAggregator aggregator = getOrCreateCluster(clusterId);
+        ingestStages.get(clusterId).put(() -> aggregator.processCatchUp(nodeId, buffer, currentCounters));
     }
 
     public void onAgentDisconnected(String clusterId, int nodeId) {
+        lastStateCounters.remove(new NodeKey(clusterId, nodeId));
         ClusterStateAggregator aggregator = clusters.get(clusterId);
         if (aggregator != null) {
-            aggregator.onAgentDisconnected(nodeId);
+            ingestStages.get(clusterId).put(() -> {
+                aggregator.onAgentDisconnected(nodeId);
+                pushClusterList();
+            });
         }
-        pushClusterList();
+    }
+
+    @Scheduled(fixedRateString = "${aeron.management.server.overview-push-interval-ms:250}")
+    public void publishOverviews() {
+        clusters.forEach((clusterId, aggregator) -> ingestStages.get(clusterId).offer(aggregator::publishOverview));
+    }
+
+    /**
+     * Queue depth and latency of every pipeline stage: one ingest stage per cluster, then the
+     * shared events, publish and reconcile stages.
+     */
+    public Map<String, Object> getPipelineStats() {
+        Map<String, Object> ingest = new TreeMap<>();
+        ingestStages.forEach((clusterId, stage) -> ingest.put(clusterId, stage.stats()));
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ingest", ingest);
+        stats.put("events", eventStage.stats());
+        stats.put("publish", publishStage.stats());
+        stats.put("reconcile", reconcileStage.stats());
+        return stats;
+    }
+
+    @PreDestroy
+    public void close() {
+        ingestStages.values().forEach(PipelineStage::close);
+        eventStage.close();
+        publishStage.close();
+        reconcileStage.close();
     }
 
     /**
@@ -112,6 +227,13 @@ public class ClusterManager {
         }
     }
 
+    public void onCommandProgress(String clusterId, int nodeId, CommandProgress progress) {
+        ClusterStateAggregator aggregator = clusters.get(clusterId);
+        if (aggregator != null) {
+            aggregator.onCommandProgress(nodeId, progress);
+        }
+    }
+
     public CompletableFuture<CommandResult> registerPendingCommand(String clusterId, String commandId) {
         ClusterStateAggregator aggregator = clusters.get(clusterId);
         if (aggregator != null) {
@@ -122,13 +244,42 @@ public class ClusterManager {
         return future;
     }
 
+    /**
+     * When the pending command was registered or last reported progress (epoch ms), 0 if it is
+     * not pending.
+     */
+    public long getCommandActivity(String clusterId, String commandId) {
+        ClusterStateAggregator aggregator = clusters.get(clusterId);
+        return aggregator != null ? aggregator.getCommandActivity(commandId) : 0;
+    }
+
+    public void forgetPendingCommand(String clusterId, String commandId) {
+        ClusterStateAggregator aggregator = clusters.get(clusterId);
+        if (aggregator != null) {
+            aggregator.forgetPendingCommand(commandId);
+        }
+    }
+
+    /**
+     * Hands an event to the unbounded events stage, without waiting.
+     */
+    private void persist(Runnable task) {
+        if (!eventStage.offer(task)) {
+            LOGGER.warn("Events stage is closed, an event was not stored");
+        }
+    }
+
     private void pushClusterList() {
         if (messagingTemplate != null) {
-            try {
-                messagingTemplate.convertAndSend("/topic/clusters", getAllClusterOverviews());
-            } catch (Exception e) {
-                LOGGER.debug("Failed to push cluster list to WebSocket: {}", e.getMessage());
-            }
+            publishStage.offer(() -> {
+                try {
+                    messagingTemplate.convertAndSend("/topic/clusters", getAllClusterOverviews());
+                } catch (Exception e) {
+                    LOGGER.debug("Failed to push cluster list to WebSocket: {}", e.getMessage());
+                }
+            });
         }
     }
+
+    private record NodeKey(String clusterId, int nodeId) {}
 }
@@ -0,0 +1,153 @@
+package it.podlodowski.aeronmgmt.server.cluster;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One stage of the server's ingest pipeline: a bounded queue that any thread can hand tasks to,
+ * drained in order by a single thread of its own. State touched only from a stage's tasks has a
+ * single writer and needs no locking.
+ *
+ * <p>Tasks are handed over with {@link #offer}, which drops the task when the queue is full, or
+ * {@link #put}, which waits for room. Either way a slow task holds back only its own stage. A stage
+ * created without a capacity is unbounded: both accept every task at once.
+ */
+public class PipelineStage implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PipelineStage.class);
+
+    private final String name;
+    private final BlockingQueue<Task> queue;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    private final AtomicLong dropped = new AtomicLong();
+    // Written by the stage thread only
+    private volatile long processed;
+    private volatile long totalWaitNanos;
+    private volatile long maxWaitNanos;
+    private volatile long lastWaitNanos;
+    private volatile long totalRunNanos;
+    private volatile long maxRunNanos;
+    private volatile long lastRunNanos;
+
+    public PipelineStage(String name, int capacity) {
+        this(name, new ArrayBlockingQueue<>(capacity));
+    }
+
+    /**
+     * An unbounded stage, for tasks that must not be lost and come too rarely to need a limit.
+     */
+    public PipelineStage(String name) {
+        this(name, new LinkedBlockingQueue<>());
+    }
+
+    private PipelineStage(String name, BlockingQueue<Task> queue) {
+        this.name = name;
+        this.queue = queue;
+        this.thread = new Thread(this::run, "pipeline-" + name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Hands a task to the stage unless its queue is full.
+     *
+     * @return false if the task was dropped
+     */
+    public boolean offer(Runnable task) {
+        if (running && queue.offer(new Task(task, System.nanoTime()))) {
+            return true;
+        }
+        dropped.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Hands a task to the stage, waiting while its queue is full.
+     */
+    public void put(Runnable task) {
+        if (!running) {
+            dropped.incrementAndGet();
+            return;
+        }
+        try {
+            queue.put(new Task(task, System.nanoTime()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            dropped.incrementAndGet();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Queue depth, dropped tasks, and how long tasks waited in the queue and took to run.
+     */
+    public Map<String, Object> stats() {
+        long count = processed;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("depth", queue.size());
+        stats.put("capacity", queue.size() + queue.remainingCapacity());
+        stats.put("processed", count);
+        stats.put("dropped", dropped.get());
+        stats.put("lastWaitMs", lastWaitNanos / 1e6);
+        stats.put("avgWaitMs", count == 0 ? 0.0 : totalWaitNanos / 1e6 / count);
+        stats.put("maxWaitMs", maxWaitNanos / 1e6);
+        stats.put("lastRunMs", lastRunNanos / 1e6);
+        stats.put("avgRunMs", count == 0 ? 0.0 : totalRunNanos / 1e6 / count);
+        stats.put("maxRunMs", maxRunNanos / 1e6);
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            Task task;
+            try {
+                task = queue.take();
+            } catch (InterruptedException e) {
+                continue;
+            }
+            long startNanos = System.nanoTime();
+            try {
+                task.runnable().run();
+            } catch (Exception e) {
+                LOGGER.warn("Task failed in pipeline stage {}: {}", name, e.getMessage(), e);
+            }
+            record(startNanos - task.enqueuedNanos(), System.nanoTime() - startNanos);
+        }
+    }
+
+    private void record(long waitNanos, long runNanos) {
+        lastWaitNanos = waitNanos;
+        totalWaitNanos += waitNanos;
+        maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+        lastRunNanos = runNanos;
+        totalRunNanos += runNanos;
+        maxRunNanos = Math.max(maxRunNanos, runNanos);
+        processed++;
+    }
+
+    private record Task(Runnable runnable, long enqueuedNanos) {}
+}
@@ -0,0 +1,155 @@
+package it.podlodowski.aeronmgmt.server.command;
+
+import it.podlodowski.aeronmgmt.common.proto.ClusterMemberInfo;
+import it.podlodowski.aeronmgmt.common.proto.ClusterMembers;
+import it.podlodowski.aeronmgmt.common.proto.CommandResult;
+import it.podlodowski.aeronmgmt.common.proto.MarkFileDescription;
+import it.podlodowski.aeronmgmt.common.proto.RecordingLogEntry;
+import it.podlodowski.aeronmgmt.common.proto.RecoveryLog;
+import it.podlodowski.aeronmgmt.common.proto.RecoveryPlanResult;
+import it.podlodowski.aeronmgmt.common.proto.RecoverySnapshot;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts {@link CommandResult} messages into the JSON maps returned by the REST API.
+ * Typed diagnostic results are added next to the raw output under
+ * {@code recordingLog}, {@code description}, {@code recoveryPlan} or {@code members}.
+ */
+public final class CommandResultMapper {
+
+    private CommandResultMapper() {
+    }
+
+    public static Map<String, Object> toResponse(CommandResult result) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        if (!result.getCommandId().isEmpty()) {
+            response.put("commandId", result.getCommandId());
+        }
+        response.put("success", result.getSuccess());
+        if (!result.getMessage().isEmpty()) {
+            response.put("message", result.getMessage());
+        }
+        if (!result.getError().isEmpty()) {
+            response.put("error", result.getError());
+        }
+        if (!result.getOutput().isEmpty()) {
+            response.put("output", result.getOutput());
+        }
+
+        switch (result.getStructuredCase()) {
+            case RECORDING_LOG -> response.put("recordingLog",
+                    result.getRecordingLog().getEntriesList().stream().map(CommandResultMapper::entry).toList());
+            case DESCRIPTION -> response.put("description",
+                    result.getDescription().getMarkFilesList().stream().map(CommandResultMapper::markFile).toList());
+            case RECOVERY_PLAN -> response.put("recoveryPlan", recoveryPlan(result.getRecoveryPlan()));
+            case MEMBERS -> response.put("members", members(result.getMembers()));
+            default -> {
+            }
+        }
+        return response;
+    }
+
+    private static Map<String, Object> entry(RecordingLogEntry e) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("recordingId", e.getRecordingId());
+        m.put("leadershipTermId", e.getLeadershipTermId());
+        m.put("termBaseLogPosition", e.getTermBaseLogPosition());
+        m.put("logPosition", e.getLogPosition());
+        m.put("timestamp", e.getTimestamp());
+        m.put("serviceId", e.getServiceId());
+        m.put("type", e.getType());
+        m.put("valid", e.getValid());
+        m.put("entryIndex", e.getEntryIndex());
+        if (!e.getArchiveEndpoint().isEmpty()) {
+            m.put("archiveEndpoint", e.getArchiveEndpoint());
+        }
+        return m;
+    }
+
+    private static Map<String, Object> markFile(MarkFileDescription d) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("componentType", d.getComponentType());
+        m.put("memberId", d.getMemberId());
+        m.put("serviceId", d.getServiceId());
+        m.put("clusterId", d.getClusterId());
+        m.put("pid", d.getPid());
+        m.put("candidateTermId", d.getCandidateTermId());
+        m.put("startTimestamp", d.getStartTimestamp());
+        m.put("activityTimestamp", d.getActivityTimestamp());
+        m.put("archiveStreamId", d.getArchiveStreamId());
+        m.put("serviceStreamId", d.getServiceStreamId());
+        m.put("consensusModuleStreamId", d.getConsensusModuleStreamId());
+        m.put("ingressStreamId", d.getIngressStreamId());
+        m.put("aeronDirectory", d.getAeronDirectory());
+        m.put("controlChannel", d.getControlChannel());
+        m.put("ingressChannel", d.getIngressChannel());
+        m.put("serviceName", d.getServiceName());
+        m.put("authenticator", d.getAuthenticator());
+        m.put("servicesClusterDir", d.getServicesClusterDir());
+        return m;
+    }
+
+    private static Map<String, Object> recoveryPlan(RecoveryPlanResult plan) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("lastLeadershipTermId", plan.getLastLeadershipTermId());
+        m.put("lastTermBaseLogPosition", plan.getLastTermBaseLogPosition());
+        m.put("appendedLogPosition", plan.getAppendedLogPosition());
+        m.put("committedLogPosition", plan.getCommittedLogPosition());
+        List<Map<String, Object>> snapshots = new ArrayList<>();
+        for (RecoverySnapshot s : plan.getSnapshotsList()) {
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("recordingId", s.getRecordingId());
+            snapshot.put("leadershipTermId", s.getLeadershipTermId());
+            snapshot.put("termBaseLogPosition", s.getTermBaseLogPosition());
+            snapshot.put("logPosition", s.getLogPosition());
+            snapshot.put("timestamp", s.getTimestamp());
+            snapshot.put("serviceId", s.getServiceId());
+            snapshots.add(snapshot);
+        }
+        m.put("snapshots", snapshots);
+        if (plan.hasLog()) {
+            RecoveryLog l = plan.getLog();
+            Map<String, Object> log = new LinkedHashMap<>();
+            log.put("recordingId", l.getRecordingId());
+            log.put("leadershipTermId", l.getLeadershipTermId());
+            log.put("termBaseLogPosition", l.getTermBaseLogPosition());
+            log.put("logPosition", l.getLogPosition());
+            log.put("startPosition", l.getStartPosition());
+            log.put("stopPosition", l.getStopPosition());
+            log.put("initialTermId", l.getInitialTermId());
+            log.put("termBufferLength", l.getTermBufferLength());
+            log.put("mtuLength", l.getMtuLength());
+            log.put("sessionId", l.getSessionId());
+            m.put("log", log);
+        }
+        return m;
+    }
+
+    private static Map<String, Object> members(ClusterMembers members) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("memberId", members.getMemberId());
+        m.put("leaderMemberId", members.getLeaderMemberId());
+        m.put("currentTimeNs", members.getCurrentTimeNs());
+        m.put("activeMembers", members.getActiveMembersList().stream().map(CommandResultMapper::member).toList());
+        m.put("passiveMembers", members.getPassiveMembersList().stream().map(CommandResultMapper::member).toList());
+        return m;
+    }
+
+    private static Map<String, Object> member(ClusterMemberInfo info) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("id", info.getId());
+        m.put("isLeader", info.getIsLeader());
+        m.put("leadershipTermId", info.getLeadershipTermId());
+        m.put("logPosition", info.getLogPosition());
+        m.put("ingressEndpoint", info.getIngressEndpoint());
+        m.put("consensusEndpoint", info.getConsensusEndpoint());
+        m.put("logEndpoint", info.getLogEndpoint());
+        m.put("catchupEndpoint", info.getCatchupEndpoint());
+        m.put("archiveEndpoint", info.getArchiveEndpoint());
+        return m;
+    }
+}
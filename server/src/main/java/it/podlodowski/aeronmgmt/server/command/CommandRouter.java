@@ -1,16 +1,18 @@
 package it.podlodowski.aeronmgmt.server.command;
 
 import it.podlodowski.aeronmgmt.common.proto.AdminCommand;
+import it.podlodowski.aeronmgmt.common.proto.CancelCommand;
 import it.podlodowski.aeronmgmt.common.proto.CommandResult;
 import it.podlodowski.aeronmgmt.common.proto.ServerMessage;
 import it.podlodowski.aeronmgmt.server.cluster.ClusterManager;
 import it.podlodowski.aeronmgmt.server.grpc.AgentRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
@@ -19,6 +21,9 @@ import java.util.concurrent.TimeoutException;
 /**
  * Routes admin commands to the correct agent via the gRPC stream
  * and waits for the result.
+ *
+ * <p>A command times out once it has neither answered nor reported progress for its timeout,
+ * so a long archive job is waited for as long as it keeps streaming output.
  */
 @Component
 public class CommandRouter {
@@ -26,12 +31,21 @@ public class CommandRouter {
     private static final Logger LOGGER = LoggerFactory.getLogger(CommandRouter.class);
     private static final long COMMAND_TIMEOUT_SECONDS = 30;
 
+    // Archive jobs that walk whole recordings and can run for many minutes
+    private static final Set<String> LONG_RUNNING_COMMANDS = Set.of(
+            "ARCHIVE_VERIFY", "ARCHIVE_VERIFY_RECORDING", "ARCHIVE_COMPACT",
+            "ARCHIVE_DELETE_ORPHANED", "ARCHIVE_DELETE_RECORDING");
+
     private final AgentRegistry registry;
     private final ClusterManager clusterManager;
+    private final long archiveCommandTimeoutSeconds;
 
-    public CommandRouter(AgentRegistry registry, ClusterManager clusterManager) {
+    public CommandRouter(AgentRegistry registry, ClusterManager clusterManager,
+                         @Value("${aeron.management.server.archive-command-timeout-seconds:1800}")
+                         long archiveCommandTimeoutSeconds) {
         this.registry = registry;
         this.clusterManager = clusterManager;
+        this.archiveCommandTimeoutSeconds = archiveCommandTimeoutSeconds;
     }
 
     /**
@@ -51,45 +65,51 @@ public class CommandRouter {
      */
     public Map<String, Object> sendCommand(String clusterId, int nodeId, String commandType,
                                             Map<String, String> parameters) {
-        return doSendCommand(clusterId, nodeId, commandType, parameters, false);
+        return CommandResultMapper.toResponse(doSendCommand(clusterId, nodeId, commandType, parameters, false));
+    }
+
+    /**
+     * Sends an admin command and returns the raw result, for callers that consume its
+     * structured payload rather than JSON. Routing failures and timeouts are reported as
+     * unsuccessful results.
+     */
+    public CommandResult sendCommandForResult(String clusterId, int nodeId, String commandType) {
+        return doSendCommand(clusterId, nodeId, commandType, Map.of(), false);
     }
 
     /**
      * Sends an archive command — allowed on both cluster and backup nodes.
      */
     public Map<String, Object> sendArchiveCommand(String clusterId, int nodeId, String commandType) {
-        return doSendCommand(clusterId, nodeId, commandType, Map.of(), true);
+        return sendArchiveCommand(clusterId, nodeId, commandType, Map.of());
     }
 
     public Map<String, Object> sendArchiveCommand(String clusterId, int nodeId, String commandType,
                                                     Map<String, String> parameters) {
-        return doSendCommand(clusterId, nodeId, commandType, parameters, true);
+        return CommandResultMapper.toResponse(doSendCommand(clusterId, nodeId, commandType, parameters, true));
     }
 
-    private Map<String, Object> doSendCommand(String clusterId, int nodeId, String commandType,
-                                               Map<String, String> parameters, boolean allowBackup) {
+    private CommandResult doSendCommand(String clusterId, int nodeId, String commandType,
+                                        Map<String, String> parameters, boolean allowBackup) {
         AgentRegistry.AgentConnection connection = registry.get(clusterId, nodeId);
         if (connection == null) {
-            Map<String, Object> error = new LinkedHashMap<>();
-            error.put("success", false);
-            error.put("error", "Node " + nodeId + " is not connected");
-            return error;
+            return failure("", "Node " + nodeId + " is not connected");
         }
 
         if (!allowBackup && "backup".equals(connection.getAgentMode())) {
-            Map<String, Object> error = new LinkedHashMap<>();
-            error.put("success", false);
-            error.put("error", "Commands not supported on backup nodes");
-            return error;
+            return failure("", "Commands not supported on backup nodes");
         }
 
         String commandId = UUID.randomUUID().toString();
         CompletableFuture<CommandResult> future = clusterManager.registerPendingCommand(clusterId, commandId);
 
+        long timeoutSeconds = LONG_RUNNING_COMMANDS.contains(commandType)
+                ? archiveCommandTimeoutSeconds : COMMAND_TIMEOUT_SECONDS;
         AdminCommand command = AdminCommand.newBuilder()
                 .setCommandId(commandId)
                 .setType(commandType)
                 .putAllParameters(parameters)
+                .setTimeoutMs(TimeUnit.SECONDS.toMillis(timeoutSeconds))
                 .build();
 
         ServerMessage message = ServerMessage.newBuilder()
@@ -97,36 +117,63 @@ public class CommandRouter {
                 .build();
 
         try {
-            connection.getResponseObserver().onNext(message);
+            connection.send(message);
             LOGGER.info("Sent command {} ({}) to cluster={}, node={}", commandId, commandType, clusterId, nodeId);
 
-            CommandResult result = future.get(COMMAND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            return awaitResult(clusterId, commandId, future, TimeUnit.SECONDS.toMillis(timeoutSeconds));
+        } catch (TimeoutException e) {
+            LOGGER.error("Command {} timed out after {}s without progress", commandId, timeoutSeconds);
+            clusterManager.forgetPendingCommand(clusterId, commandId);
+            cancel(connection, commandId);
+            return failure(commandId, "Command timed out after " + timeoutSeconds + " seconds");
+        } catch (Exception e) {
+            LOGGER.error("Failed to send command {} to node {}", commandId, nodeId, e);
+            return failure(commandId, "Failed to send command: " + e.getMessage());
+        }
+    }
 
-            Map<String, Object> response = new LinkedHashMap<>();
-            response.put("commandId", result.getCommandId());
-            response.put("success", result.getSuccess());
-            response.put("message", result.getMessage());
-            if (!result.getError().isEmpty()) {
-                response.put("error", result.getError());
+    /**
+     * Waits for the result until the command has been silent for {@code timeoutMs}: each progress
+     * chunk it reports starts the wait over.
+     */
+    private CommandResult awaitResult(String clusterId, String commandId, CompletableFuture<CommandResult> future,
+                                      long timeoutMs) throws Exception {
+        while (true) {
+            long lastActivity = clusterManager.getCommandActivity(clusterId, commandId);
+            long remainingMs = lastActivity + timeoutMs - System.currentTimeMillis();
+            if (future.isDone() || lastActivity == 0) {
+                return future.get(timeoutMs, TimeUnit.MILLISECONDS);
             }
-            if (!result.getOutput().isEmpty()) {
-                response.put("output", result.getOutput());
+            if (remainingMs <= 0) {
+                throw new TimeoutException();
             }
-            return response;
-        } catch (TimeoutException e) {
-            LOGGER.error("Command {} timed out after {}s", commandId, COMMAND_TIMEOUT_SECONDS);
-            Map<String, Object> error = new LinkedHashMap<>();
-            error.put("commandId", commandId);
-            error.put("success", false);
-            error.put("error", "Command timed out after " + COMMAND_TIMEOUT_SECONDS + " seconds");
-            return error;
+            try {
+                return future.get(remainingMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // Progress may have arrived meanwhile; look again
+            }
+        }
+    }
+
+    private static CommandResult failure(String commandId, String error) {
+        return CommandResult.newBuilder()
+                .setCommandId(commandId)
+                .setSuccess(false)
+                .setError(error)
+                .build();
+    }
+
+    /**
+     * Tells the agent to stop working on a command nobody is waiting for any more,
+     * freeing its worker for the next one.
+     */
+    private void cancel(AgentRegistry.AgentConnection connection, String commandId) {
+        try {
+            connection.send(ServerMessage.newBuilder()
+                    .setCancel(CancelCommand.newBuilder().setCommandId(commandId))
+                    .build());
         } catch (Exception e) {
-            LOGGER.error("Failed to send command {} to node {}", commandId, nodeId, e);
-            Map<String, Object> error = new LinkedHashMap<>();
-            error.put("commandId", commandId);
-            error.put("success", false);
-            error.put("error", "Failed to send command: " + e.getMessage());
-            return error;
+            LOGGER.warn("Failed to cancel command {}: {}", commandId, e.getMessage());
         }
     }
 }
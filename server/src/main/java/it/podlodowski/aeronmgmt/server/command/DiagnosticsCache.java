@@ -0,0 +1,120 @@
+package it.podlodowski.aeronmgmt.server.command;
+
+import it.podlodowski.aeronmgmt.server.events.ClusterEvent;
+import it.podlodowski.aeronmgmt.server.events.EventService;
+import it.podlodowski.aeronmgmt.server.events.EventSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces read-only diagnostic commands per cluster, node and command type.
+ *
+ * <p>Concurrent identical requests share one in-flight agent call, and a successful result is
+ * reused for a short TTL. During an incident many people open the same node page at once; without
+ * this every page load starts its own {@code ClusterTool} connection against the node.
+ *
+ * <p>Cached results for a cluster are dropped as soon as any event is emitted for it — a role
+ * change, election, snapshot, operator action and so on. Events are rare next to page loads, and a
+ * list of the ones that matter would go stale as new ones are added. A call already in flight at
+ * that moment still answers its waiters but is not kept.
+ */
+@Component
+public class DiagnosticsCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DiagnosticsCache.class);
+
+    private final long ttlNanos;
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    public DiagnosticsCache(EventService eventService,
+                            @Value("${aeron.management.server.diagnostics-cache-ttl-ms:2000}") long ttlMs) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        eventService.addListener(this::onEvent);
+    }
+
+    /**
+     * Returns a fresh cached result, joins an identical call in flight, or runs {@code loader}
+     * on the calling thread. Only successful results are kept beyond the in-flight call.
+     */
+    public Map<String, Object> get(String clusterId, int nodeId, String commandType,
+                                   Supplier<Map<String, Object>> loader) {
+        Key key = new Key(clusterId, nodeId, commandType);
+        while (true) {
+            Entry existing = entries.get(key);
+            if (existing != null && existing.isUsable(System.nanoTime(), ttlNanos)) {
+                return join(existing);
+            }
+
+            Entry created = new Entry();
+            boolean owner = existing == null
+                    ? entries.putIfAbsent(key, created) == null
+                    : entries.replace(key, existing, created);
+            if (!owner) {
+                continue;
+            }
+
+            Map<String, Object> result;
+            try {
+                result = loader.get();
+            } catch (RuntimeException e) {
+                entries.remove(key, created);
+                created.result.completeExceptionally(e);
+                throw e;
+            }
+            created.completedAtNanos = System.nanoTime();
+            created.result.complete(result);
+            if (!Boolean.TRUE.equals(result.get("success"))) {
+                entries.remove(key, created);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Waits for the entry's result, failing with the loader's own exception as the owner does.
+     */
+    private static Map<String, Object> join(Entry entry) {
+        try {
+            return entry.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public void invalidate(String clusterId) {
+        if (entries.keySet().removeIf(key -> key.clusterId().equals(clusterId))) {
+            LOGGER.debug("Invalidated cached diagnostics for cluster {}", clusterId);
+        }
+    }
+
+    private void onEvent(ClusterEvent event) {
+        // Reconciled and caught-up events describe the past, not a change happening now
+        if (event.getSource() == EventSource.REALTIME) {
+            invalidate(event.getClusterId());
+        }
+    }
+
+    private record Key(String clusterId, int nodeId, String commandType) {
+    }
+
+    private static final class Entry {
+        final CompletableFuture<Map<String, Object>> result = new CompletableFuture<>();
+        volatile long completedAtNanos;
+
+        boolean isUsable(long nowNanos, long ttlNanos) {
+            return !result.isDone() || (!result.isCompletedExceptionally() && nowNanos - completedAtNanos < ttlNanos);
+        }
+    }
+}
@@ -22,6 +22,8 @@ import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
@@ -32,6 +34,7 @@ public class EventService {
     private final ClusterEventRepository repository;
     private final SimpMessagingTemplate messagingTemplate;
     private final ObjectMapper objectMapper;
+    private final List<Consumer<ClusterEvent>> listeners = new CopyOnWriteArrayList<>();
 
     public EventService(ClusterEventRepository repository,
                         SimpMessagingTemplate messagingTemplate,
@@ -45,12 +48,26 @@ public class EventService {
         return repository.findFirstByClusterIdAndNodeIdOrderByTimestampDesc(clusterId, nodeId);
     }
 
+    /**
+     * Registers a callback invoked for every emitted event, after it has been stored and broadcast.
+     */
+    public void addListener(Consumer<ClusterEvent> listener) {
+        listeners.add(listener);
+    }
+
     public void emit(ClusterEvent event) {
         serializeDetails(event);
         repository.save(event);
         broadcastEvent(event);
         LOGGER.debug("Event emitted: type={}, clusterId={}, nodeId={}",
                 event.getType(), event.getClusterId(), event.getNodeId());
+        for (Consumer<ClusterEvent> listener : listeners) {
+            try {
+                listener.accept(event);
+            } catch (Exception e) {
+                LOGGER.warn("Event listener failed for {}: {}", event.getType(), e.getMessage());
+            }
+        }
     }
 
     private void serializeDetails(ClusterEvent event) {
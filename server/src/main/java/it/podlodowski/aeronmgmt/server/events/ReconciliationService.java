@@ -1,5 +1,6 @@
 package it.podlodowski.aeronmgmt.server.events;
 
+import it.podlodowski.aeronmgmt.common.proto.CommandResult;
 import it.podlodowski.aeronmgmt.server.command.CommandRouter;
 import it.podlodowski.aeronmgmt.server.grpc.AgentRegistry;
 import org.slf4j.Logger;
@@ -9,7 +10,6 @@ import org.springframework.stereotype.Service;
 
 import java.time.Instant;
 import java.util.List;
-import java.util.Map;
 
 @Service
 public class ReconciliationService {
@@ -44,16 +44,18 @@ public class ReconciliationService {
         int totalReconciled = 0;
         for (int nodeId : nodeIds) {
             try {
-                Map<String, Object> result = commandRouter.sendCommand(clusterId, nodeId, "RECORDING_LOG");
-                if (!Boolean.TRUE.equals(result.get("success"))) {
-                    LOGGER.warn("Failed to get recording log from node {}: {}", nodeId, result.get("error"));
+                CommandResult result = commandRouter.sendCommandForResult(clusterId, nodeId, "RECORDING_LOG");
+                if (!result.getSuccess()) {
+                    LOGGER.warn("Failed to get recording log from node {}: {}", nodeId, result.getError());
+                    continue;
+                }
+                if (!result.hasRecordingLog()) {
+                    LOGGER.warn("Node {} returned no structured recording log; agent may be outdated", nodeId);
                     continue;
                 }
 
-                String output = (String) result.get("output");
-                if (output == null || output.isEmpty()) continue;
-
-                List<ClusterEvent> events = RecordingLogParser.toEvents(clusterId, nodeId, output);
+                List<ClusterEvent> events = RecordingLogEvents.toEvents(
+                        clusterId, nodeId, result.getRecordingLog().getEntriesList());
 
                 for (ClusterEvent event : events) {
                     Instant from = event.getTimestamp().minusSeconds(1);
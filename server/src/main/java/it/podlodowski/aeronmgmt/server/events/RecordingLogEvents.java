@@ -0,0 +1,92 @@
+package it.podlodowski.aeronmgmt.server.events;
+
+import it.podlodowski.aeronmgmt.common.proto.RecordingLogEntry;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts recording log entries, read by the agent directly from the node's recording log,
+ * into {@link ClusterEvent} objects for reconciliation.
+ */
+public final class RecordingLogEvents {
+
+    private RecordingLogEvents() {
+    }
+
+    /**
+     * Converts recording log entries into {@link ClusterEvent} objects suitable for
+     * reconciliation. Produces:
+     * <ul>
+     *   <li>A single {@code CLUSTER_START} event using the earliest timestamp</li>
+     *   <li>{@code LEADER_ELECTED} events for each TERM entry</li>
+     *   <li>{@code SNAPSHOT_TAKEN} events for each SNAPSHOT entry (serviceId=-1 only, to avoid duplicates)</li>
+     * </ul>
+     */
+    public static List<ClusterEvent> toEvents(String clusterId, int nodeId, List<RecordingLogEntry> entries) {
+        if (entries.isEmpty()) {
+            return List.of();
+        }
+
+        List<ClusterEvent> events = new ArrayList<>();
+
+        // Find earliest timestamp for CLUSTER_START
+        long earliest = Long.MAX_VALUE;
+        for (RecordingLogEntry e : entries) {
+            if (e.getTimestamp() > 0 && e.getTimestamp() < earliest) {
+                earliest = e.getTimestamp();
+            }
+        }
+        if (earliest < Long.MAX_VALUE) {
+            events.add(EventFactory.clusterStart(clusterId, earliest));
+        }
+
+        // Convert TERM entries to LEADER_ELECTED events
+        for (RecordingLogEntry e : entries) {
+            if ("TERM".equals(e.getType())) {
+                Map<String, Object> details = new LinkedHashMap<>();
+                details.put("termId", e.getLeadershipTermId());
+                details.put("logPosition", e.getLogPosition());
+                details.put("recordingId", e.getRecordingId());
+
+                ClusterEvent event = ClusterEvent.builder()
+                        .clusterId(clusterId)
+                        .timestamp(Instant.ofEpochMilli(e.getTimestamp()))
+                        .level(EventLevel.NODE)
+                        .type("LEADER_ELECTED")
+                        .message("leader elected (term " + e.getLeadershipTermId() + ")")
+                        .source(EventSource.RECONCILIATION)
+                        .details(details)
+                        .build();
+                events.add(event);
+            }
+        }
+
+        // Convert SNAPSHOT entries to SNAPSHOT_TAKEN events (only serviceId=-1 to avoid duplicates)
+        for (RecordingLogEntry e : entries) {
+            if ("SNAPSHOT".equals(e.getType()) && e.getServiceId() == -1) {
+                Map<String, Object> details = new LinkedHashMap<>();
+                details.put("termId", e.getLeadershipTermId());
+                details.put("logPosition", e.getLogPosition());
+                details.put("recordingId", e.getRecordingId());
+
+                ClusterEvent event = ClusterEvent.builder()
+                        .clusterId(clusterId)
+                        .timestamp(Instant.ofEpochMilli(e.getTimestamp()))
+                        .level(EventLevel.NODE)
+                        .type("SNAPSHOT_TAKEN")
+                        .nodeId(nodeId)
+                        .message("snapshot taken (term " + e.getLeadershipTermId() + ") on node " + nodeId)
+                        .source(EventSource.RECONCILIATION)
+                        .details(details)
+                        .build();
+                events.add(event);
+            }
+        }
+
+        return events;
+    }
+}
@@ -0,0 +1,59 @@
+package it.podlodowski.aeronmgmt.server.grpc;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paces agent registrations. Each registration sets off catch-up processing, auto-reconciliation
+ * and a cluster list push; after a server restart the whole fleet reconnects at once.
+ *
+ * <p>Registrations are admitted at a steady rate with a burst allowance (a leaky bucket kept as
+ * the theoretical arrival time of the next registration). A rejected agent is told when to come
+ * back: no earlier than the bucket has room again, spread at random over the time it takes to
+ * admit everyone who was turned away recently, so the rejected agents do not return together.
+ */
+@Component
+public class AdmissionGate {
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+
+    private long theoreticalArrivalNanos = Long.MIN_VALUE;
+    private double recentRejections;
+    private long lastRejectionNanos;
+
+    public AdmissionGate(
+            @Value("${aeron.management.server.registrations-per-second:20}") int registrationsPerSecond,
+            @Value("${aeron.management.server.registration-burst:20}") int burst) {
+        this.intervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, registrationsPerSecond);
+        this.toleranceNanos = intervalNanos * Math.max(0, burst - 1);
+    }
+
+    /**
+     * @return 0 if the registration is admitted, otherwise how long the agent should wait (ms)
+     */
+    public long tryAdmit() {
+        return tryAdmit(System.nanoTime());
+    }
+
+    synchronized long tryAdmit(long nowNanos) {
+        long arrival = theoreticalArrivalNanos == Long.MIN_VALUE
+                ? nowNanos : Math.max(theoreticalArrivalNanos, nowNanos);
+        long waitNanos = arrival - toleranceNanos - nowNanos;
+        if (waitNanos <= 0) {
+            theoreticalArrivalNanos = arrival + intervalNanos;
+            return 0;
+        }
+
+        // Rejections are forgotten at the rate registrations are admitted
+        recentRejections = Math.max(0, recentRejections
+                - (double) (nowNanos - lastRejectionNanos) / intervalNanos) + 1;
+        lastRejectionNanos = nowNanos;
+        long spreadNanos = (long) (recentRejections * intervalNanos);
+        long retryAfterNanos = waitNanos + ThreadLocalRandom.current().nextLong(spreadNanos + 1);
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(retryAfterNanos));
+    }
+}
@@ -6,16 +6,23 @@ import it.podlodowski.aeronmgmt.server.cluster.ClusterManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Comparator;
+
 public class AgentConnectionService extends AgentServiceGrpc.AgentServiceImplBase {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AgentConnectionService.class);
 
     private final AgentRegistry registry;
     private final ClusterManager clusterManager;
+    private final AdmissionGate admissionGate;
+    private final ClockSync clockSync;
 
-    public AgentConnectionService(AgentRegistry registry, ClusterManager clusterManager) {
+    public AgentConnectionService(AgentRegistry registry, ClusterManager clusterManager,
+                                  AdmissionGate admissionGate, ClockSync clockSync) {
         this.registry = registry;
         this.clusterManager = clusterManager;
+        this.admissionGate = admissionGate;
+        this.clockSync = clockSync;
     }
 
     @Override
@@ -24,13 +31,21 @@ public class AgentConnectionService extends AgentServiceGrpc.AgentServiceImplBas
             private volatile int nodeId = -1;
             private volatile String agentId = "unknown";
             private volatile String clusterId = "default";
+            private volatile boolean deferred;
 
             @Override
             public void onNext(AgentMessage message) {
+                if (deferred) {
+                    // Sent before the agent saw the retry-after; it will register again
+                    return;
+                }
                 switch (message.getPayloadCase()) {
                     case REGISTRATION -> handleRegistration(message.getRegistration(), responseObserver);
                     case METRICS -> handleMetrics(message.getMetrics());
+                    case METRICS_BATCH -> handleMetricsBatch(message.getMetricsBatch());
                     case COMMAND_RESULT -> handleCommandResult(message.getCommandResult());
+                    case COMMAND_PROGRESS -> clusterManager.onCommandProgress(clusterId, nodeId, message.getCommandProgress());
+                    case CLOCK_PONG -> clockSync.onPong(clusterId, nodeId, message.getClockPong());
                     default -> LOGGER.warn("Received unknown message type from agent");
                 }
             }
@@ -45,11 +60,28 @@ public class AgentConnectionService extends AgentServiceGrpc.AgentServiceImplBas
             public void onCompleted() {
                 LOGGER.info("Agent stream completed (agentId={}, nodeId={})", agentId, nodeId);
                 handleDisconnect();
-                responseObserver.onCompleted();
+                if (!deferred) {
+                    responseObserver.onCompleted();
+                }
             }
 
             private void handleRegistration(AgentRegistration registration,
                                              StreamObserver<ServerMessage> observer) {
+                long retryAfterMs = admissionGate.tryAdmit();
+                if (retryAfterMs > 0) {
+                    deferred = true;
+                    LOGGER.info("Registration deferred: agentId={}, nodeId={}, retry after {}ms",
+                            registration.getAgentId(), registration.getNodeId(), retryAfterMs);
+                    observer.onNext(ServerMessage.newBuilder()
+                            .setRetryAfter(RetryAfter.newBuilder()
+                                    .setDelayMs(retryAfterMs)
+                                    .setReason("Too many agents registering at once")
+                                    .build())
+                            .build());
+                    observer.onCompleted();
+                    return;
+                }
+
                 nodeId = registration.getNodeId();
                 agentId = registration.getAgentId();
                 clusterId = registration.getClusterId().isEmpty() ? "default" : registration.getClusterId();
@@ -67,7 +99,7 @@ public class AgentConnectionService extends AgentServiceGrpc.AgentServiceImplBas
                 if (registration.getBufferedStateChangesCount() > 0
                         || !registration.getCurrentCounterValuesMap().isEmpty()) {
                     clusterManager.processCatchUp(clusterId, nodeId,
-                            registration.getBufferedStateChangesList(),
+                            clockSync.correct(clusterId, nodeId, registration.getBufferedStateChangesList()),
                             registration.getCurrentCounterValuesMap());
                 }
 
@@ -76,13 +108,20 @@ public class AgentConnectionService extends AgentServiceGrpc.AgentServiceImplBas
                                 .setMessage("Registered node " + nodeId)
                                 .build())
                         .build();
-                observer.onNext(ack);
+                AgentRegistry.AgentConnection connection = registry.get(clusterId, nodeId);
+                if (connection != null) {
+                    connection.send(ack);
+                    clockSync.ping(connection);
+                } else {
+                    observer.onNext(ack);
+                }
                 LOGGER.info("Agent registered: agentId={}, nodeId={}, clusterId={}, mode={}",
                         agentId, nodeId, clusterId, registration.getAgentMode());
             }
 
-            private void handleMetrics(MetricsReport report) {
-                String reportClusterId = report.getClusterId().isEmpty() ? clusterId : report.getClusterId();
+            private void handleMetrics(MetricsReport agentReport) {
+                String reportClusterId = agentReport.getClusterId().isEmpty() ? clusterId : agentReport.getClusterId();
+                MetricsReport report = clockSync.correct(reportClusterId, agentReport);
                 AgentRegistry.AgentConnection connection = registry.get(reportClusterId, report.getNodeId());
                 if (connection != null) {
                     connection.setLatestMetrics(report);
@@ -90,6 +129,26 @@ public class AgentConnectionService extends AgentServiceGrpc.AgentServiceImplBas
                 clusterManager.onMetricsReceived(reportClusterId, report);
             }
 
+            /**
+             * Applies batched samples one by one, oldest first, as if each had arrived on its own.
+             * Replayed samples from the agent's spool only fill in history.
+             */
+            private void handleMetricsBatch(MetricsBatch batch) {
+                if (batch.getReplayed()) {
+                    if (batch.getReportsCount() > 0) {
+                        MetricsReport first = batch.getReports(0);
+                        String reportClusterId = first.getClusterId().isEmpty() ? clusterId : first.getClusterId();
+                        clusterManager.onMetricsReplayed(reportClusterId, batch.getReportsList().stream()
+                                .map(report -> clockSync.correct(reportClusterId, report))
+                                .toList());
+                    }
+                    return;
+                }
+                batch.getReportsList().stream()
+                        .sorted(Comparator.comparingLong(MetricsReport::getTimestamp))
+                        .forEach(this::handleMetrics);
+            }
+
             private void handleCommandResult(CommandResult result) {
                 clusterManager.onCommandResult(result);
             }
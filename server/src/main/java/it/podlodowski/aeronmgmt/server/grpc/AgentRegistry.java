@@ -58,6 +58,12 @@ public class AgentRegistry {
         return Collections.unmodifiableCollection(clusterConnections.values());
     }
 
+    public List<AgentConnection> getAllConnections() {
+        return connections.values().stream()
+                .flatMap(clusterConnections -> clusterConnections.values().stream())
+                .toList();
+    }
+
     public List<Integer> getNodeIds(String clusterId) {
         ConcurrentHashMap<Integer, AgentConnection> clusterConnections = connections.get(clusterId);
         if (clusterConnections == null) {
@@ -103,6 +109,14 @@ public class AgentRegistry {
             return responseObserver;
         }
 
+        /**
+         * Sends a message to the agent. Commands, cancels and clock pings come from different
+         * threads, and stream observers are not thread-safe.
+         */
+        public synchronized void send(ServerMessage message) {
+            responseObserver.onNext(message);
+        }
+
         public MetricsReport getLatestMetrics() {
             return latestMetrics;
         }
@@ -0,0 +1,72 @@
+package it.podlodowski.aeronmgmt.server.grpc;
+
+/**
+ * NTP-style estimate of one agent's clock offset from a few recent ping/pong exchanges.
+ *
+ * <p>For server send time t1, agent receive time t2, agent send time t3 and server receive time
+ * t4, the agent's clock is ahead by {@code ((t2 - t1) + (t3 - t4)) / 2}, give or take half the
+ * round trip {@code (t4 - t1) - (t3 - t2)}. Queuing delay only ever adds to the round trip, so
+ * the sample with the shortest round trip out of the last {@link #SAMPLES} is the one used.
+ *
+ * <p>Thread-safe.
+ */
+class ClockOffsetEstimator {
+
+    static final int SAMPLES = 8;
+
+    private final long[] offsetsMicros = new long[SAMPLES];
+    private final long[] rttsMicros = new long[SAMPLES];
+    private int count;
+    private int next;
+    private long lastSampleMicros;
+
+    /**
+     * Records one exchange; all times in microseconds since the epoch, each on its own clock.
+     */
+    synchronized void onExchange(long t1, long t2, long t3, long t4) {
+        long rtt = (t4 - t1) - (t3 - t2);
+        if (rtt < 0) {
+            return;
+        }
+        offsetsMicros[next] = ((t2 - t1) + (t3 - t4)) / 2;
+        rttsMicros[next] = rtt;
+        next = (next + 1) % SAMPLES;
+        count = Math.min(count + 1, SAMPLES);
+        lastSampleMicros = t4;
+    }
+
+    synchronized boolean hasEstimate() {
+        return count > 0;
+    }
+
+    /**
+     * How far the agent's clock is ahead of the server's, in microseconds; 0 before the first exchange.
+     */
+    synchronized long offsetMicros() {
+        int best = best();
+        return best < 0 ? 0 : offsetsMicros[best];
+    }
+
+    synchronized long rttMicros() {
+        int best = best();
+        return best < 0 ? 0 : rttsMicros[best];
+    }
+
+    synchronized int sampleCount() {
+        return count;
+    }
+
+    synchronized long lastSampleMicros() {
+        return lastSampleMicros;
+    }
+
+    private int best() {
+        int best = -1;
+        for (int i = 0; i < count; i++) {
+            if (best < 0 || rttsMicros[i] < rttsMicros[best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,135 @@
+package it.podlodowski.aeronmgmt.server.grpc;
+
+import it.podlodowski.aeronmgmt.common.proto.ClockPing;
+import it.podlodowski.aeronmgmt.common.proto.ClockPong;
+import it.podlodowski.aeronmgmt.common.proto.MetricsReport;
+import it.podlodowski.aeronmgmt.common.proto.ServerMessage;
+import it.podlodowski.aeronmgmt.common.proto.StateChangeEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Estimates each agent's clock offset from ping/pong exchanges on its stream, and moves agent
+ * timestamps onto the server's clock as they arrive. Without it, catch-up entries and report
+ * timestamps from containers whose clocks drifted apart cannot be compared across nodes.
+ *
+ * <p>Estimates are kept per cluster node across reconnects, so a reconnecting agent's catch-up
+ * entries are corrected with what was learned on its previous stream.
+ */
+@Component
+public class ClockSync {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClockSync.class);
+
+    private final AgentRegistry registry;
+    private final ConcurrentHashMap<NodeKey, ClockOffsetEstimator> estimators = new ConcurrentHashMap<>();
+
+    public ClockSync(AgentRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Scheduled(fixedDelayString = "${aeron.management.server.clock-sync-interval-ms:10000}")
+    public void pingAll() {
+        for (AgentRegistry.AgentConnection connection : registry.getAllConnections()) {
+            ping(connection);
+        }
+    }
+
+    public void ping(AgentRegistry.AgentConnection connection) {
+        try {
+            connection.send(ServerMessage.newBuilder()
+                    .setClockPing(ClockPing.newBuilder().setServerSendTimeUs(nowMicros()))
+                    .build());
+        } catch (Exception e) {
+            LOGGER.debug("Failed to ping node {} in cluster {}: {}",
+                    connection.getNodeId(), connection.getClusterId(), e.getMessage());
+        }
+    }
+
+    public void onPong(String clusterId, int nodeId, ClockPong pong) {
+        long receivedMicros = nowMicros();
+        estimators.computeIfAbsent(new NodeKey(clusterId, nodeId), k -> new ClockOffsetEstimator())
+                .onExchange(pong.getServerSendTimeUs(), pong.getAgentReceiveTimeUs(),
+                        pong.getAgentSendTimeUs(), receivedMicros);
+    }
+
+    /**
+     * How far the node's agent clock is ahead of the server's, in milliseconds; 0 while unknown.
+     */
+    public long offsetMs(String clusterId, int nodeId) {
+        ClockOffsetEstimator estimator = estimators.get(new NodeKey(clusterId, nodeId));
+        return estimator == null ? 0 : Math.round(estimator.offsetMicros() / 1000.0);
+    }
+
+    public MetricsReport correct(String clusterId, MetricsReport report) {
+        long offsetMs = offsetMs(clusterId, report.getNodeId());
+        if (offsetMs == 0) {
+            return report;
+        }
+        MetricsReport.Builder builder = report.toBuilder().setTimestamp(report.getTimestamp() - offsetMs);
+        for (int i = 0; i < builder.getStateChangesCount(); i++) {
+            builder.setStateChanges(i, shift(builder.getStateChanges(i), offsetMs));
+        }
+        return builder.build();
+    }
+
+    public List<StateChangeEntry> correct(String clusterId, int nodeId, List<StateChangeEntry> entries) {
+        long offsetMs = offsetMs(clusterId, nodeId);
+        if (offsetMs == 0) {
+            return entries;
+        }
+        return entries.stream()
+                .map(e -> shift(e, offsetMs))
+                .toList();
+    }
+
+    /**
+     * Moves the entry's millisecond timestamp onto the server's clock. {@code timestamp_ns} keeps the
+     * agent's reading, filled in from the millisecond timestamp where the agent left it unset: it
+     * identifies the transition, so the same entry corrected by two different estimates is still
+     * recognised as one.
+     */
+    public static StateChangeEntry shift(StateChangeEntry entry, long offsetMs) {
+        long agentNanos = entry.getTimestampNs() != 0 ? entry.getTimestampNs() : entry.getTimestamp() * 1_000_000;
+        return entry.toBuilder()
+                .setTimestamp(entry.getTimestamp() - offsetMs)
+                .setTimestampNs(agentNanos)
+                .build();
+    }
+
+    /**
+     * Per-node offset and round trip of a cluster's agents, keyed by node id.
+     */
+    public Map<Integer, Map<String, Object>> describe(String clusterId) {
+        Map<Integer, Map<String, Object>> result = new TreeMap<>();
+        estimators.forEach((key, estimator) -> {
+            if (!key.clusterId().equals(clusterId) || !estimator.hasEstimate()) {
+                return;
+            }
+            Map<String, Object> node = new LinkedHashMap<>();
+            node.put("offsetMs", estimator.offsetMicros() / 1000.0);
+            node.put("rttMs", estimator.rttMicros() / 1000.0);
+            node.put("samples", estimator.sampleCount());
+            node.put("lastSampleTimestamp", estimator.lastSampleMicros() / 1000);
+            node.put("connected", registry.get(clusterId, key.nodeId()) != null);
+            result.put(key.nodeId(), node);
+        });
+        return result;
+    }
+
+    static long nowMicros() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000 + now.getNano() / 1_000;
+    }
+
+    private record NodeKey(String clusterId, int nodeId) {}
+}
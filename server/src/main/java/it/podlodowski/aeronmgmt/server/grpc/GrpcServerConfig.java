@@ -24,8 +24,10 @@ public class GrpcServerConfig {
 
     @Bean
     public AgentConnectionService agentConnectionService(AgentRegistry registry,
-                                                          ClusterManager clusterManager) {
-        return new AgentConnectionService(registry, clusterManager);
+                                                          ClusterManager clusterManager,
+                                                          AdmissionGate admissionGate,
+                                                          ClockSync clockSync) {
+        return new AgentConnectionService(registry, clusterManager, admissionGate, clockSync);
     }
 
     @Bean
@@ -2,6 +2,7 @@ package it.podlodowski.aeronmgmt.server.aggregator;
 
 import it.podlodowski.aeronmgmt.common.proto.StateChangeEntry;
 import it.podlodowski.aeronmgmt.server.events.*;
+import it.podlodowski.aeronmgmt.server.grpc.ClockSync;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -265,4 +266,41 @@ class CatchUpHandlerTest {
         // No events should be emitted for non-boundary transitions
         verify(eventService, never()).emit(any());
     }
+
+    @Test
+    void shouldKeepTransitionOnceWhenClockOffsetEstimateMoves() {
+        StateChangeEntry captured = StateChangeEntry.newBuilder()
+                .setTimestamp(5_000L)
+                .setTimestampNs(5_000_123_456L)
+                .setCounterTypeId(201)
+                .setOldValue(0L)
+                .setNewValue(2L)
+                .build();
+
+        // Live with one estimate of the agent's clock offset, then again in a catch-up with another
+        aggregator.processCatchUp(0, List.of(ClockSync.shift(captured, 3)), Map.of());
+        aggregator.processCatchUp(0, List.of(ClockSync.shift(captured, 5)), Map.of());
+
+        List<Map<String, Object>> transitions = aggregator.getTransitions(0);
+        assertEquals(1, transitions.size());
+        assertEquals(4_997L, transitions.get(0).get("timestamp"));
+        assertEquals(4_997_123_456L, transitions.get(0).get("timestampNs"));
+    }
+
+    @Test
+    void shouldKeepReportDerivedTransitionOnceWhenClockOffsetEstimateMoves() {
+        StateChangeEntry derived = StateChangeEntry.newBuilder()
+                .setTimestamp(5_000L)
+                .setCounterTypeId(200)
+                .setOldValue(1L)
+                .setNewValue(2L)
+                .build();
+
+        aggregator.processCatchUp(0, List.of(derived), Map.of());
+        aggregator.processCatchUp(0, List.of(ClockSync.shift(derived, 7)), Map.of());
+
+        List<Map<String, Object>> transitions = aggregator.getTransitions(0);
+        assertEquals(1, transitions.size());
+        assertEquals(5_000_000_000L, transitions.get(0).get("timestampNs"));
+    }
 }
@@ -0,0 +1,114 @@
+package it.podlodowski.aeronmgmt.server.aggregator;
+
+import it.podlodowski.aeronmgmt.common.proto.AeronCounter;
+import it.podlodowski.aeronmgmt.common.proto.ClusterMetrics;
+import it.podlodowski.aeronmgmt.common.proto.MetricsReport;
+import it.podlodowski.aeronmgmt.server.events.EventService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ClusterOverviewTest {
+
+    private static final String OVERVIEW_TOPIC = "/topic/clusters/test-cluster/cluster";
+
+    private SimpMessagingTemplate messagingTemplate;
+    private ClusterStateAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        aggregator = new ClusterStateAggregator(
+                messagingTemplate, new DiskUsageTracker(), 300, "test-cluster", mock(EventService.class));
+    }
+
+    @Test
+    void shouldBumpVersionOnEveryChange() {
+        long initial = aggregator.getOverviewVersion();
+
+        aggregator.onAgentConnected(0, "cluster");
+        aggregator.onMetricsReceived(report(0, "LEADER", 3));
+        aggregator.onAgentDisconnected(0);
+
+        assertEquals(initial + 3, aggregator.getOverviewVersion());
+        assertEquals(initial + 3, aggregator.buildClusterOverview().get("version"));
+    }
+
+    @Test
+    void shouldCombineLatestSummaryOfEachNode() {
+        aggregator.onAgentConnected(0, "cluster");
+        aggregator.onAgentConnected(1, "cluster");
+        aggregator.onMetricsReceived(report(0, "LEADER", 3));
+        aggregator.onMetricsReceived(report(1, "FOLLOWER", 4));
+        aggregator.onMetricsReceived(report(1, "FOLLOWER", 1));
+
+        Map<String, Object> overview = aggregator.buildClusterOverview();
+
+        assertEquals(2, overview.get("nodeCount"));
+        assertEquals(0, overview.get("leaderNodeId"));
+        assertEquals("ACTIVE", overview.get("clusterState"));
+        @SuppressWarnings("unchecked")
+        Map<String, Object> stats = (Map<String, Object>) overview.get("clusterStats");
+        assertEquals(4L, stats.get("totalErrors"));
+        assertEquals(1000L, stats.get("commitPosition"));
+    }
+
+    @Test
+    void shouldReflectDisconnectWithoutNewReport() {
+        aggregator.onAgentConnected(0, "cluster");
+        aggregator.onMetricsReceived(report(0, "LEADER", 0));
+
+        aggregator.onAgentDisconnected(0);
+
+        Map<String, Object> overview = aggregator.buildClusterOverview();
+        assertEquals(-1, overview.get("leaderNodeId"));
+        @SuppressWarnings("unchecked")
+        Map<String, Map<String, Object>> nodes = (Map<String, Map<String, Object>>) overview.get("nodes");
+        assertEquals(false, nodes.get("0").get("agentConnected"));
+    }
+
+    @Test
+    void shouldPublishOnlyWhenVersionChanged() {
+        aggregator.onAgentConnected(0, "cluster");
+        aggregator.onMetricsReceived(report(0, "LEADER", 0));
+        aggregator.onMetricsReceived(report(0, "LEADER", 1));
+
+        aggregator.publishOverview();
+        aggregator.publishOverview();
+        verify(messagingTemplate, times(1)).convertAndSend(eq(OVERVIEW_TOPIC), any(Object.class));
+
+        aggregator.onMetricsReceived(report(0, "LEADER", 2));
+        aggregator.publishOverview();
+        verify(messagingTemplate, times(2)).convertAndSend(eq(OVERVIEW_TOPIC), any(Object.class));
+    }
+
+    @Test
+    void shouldReturnCopyOfCachedOverview() {
+        aggregator.onMetricsReceived(report(0, "LEADER", 0));
+
+        Map<String, Object> first = aggregator.buildClusterOverview();
+        first.put("clusterId", "test-cluster");
+
+        assertFalse(aggregator.buildClusterOverview().containsKey("clusterId"));
+    }
+
+    private static MetricsReport report(int nodeId, String role, long errors) {
+        return MetricsReport.newBuilder()
+                .setNodeId(nodeId)
+                .setTimestamp(System.currentTimeMillis())
+                .setClusterMetrics(ClusterMetrics.newBuilder()
+                        .setNodeRole(role)
+                        .setCommitPosition(1000)
+                        .setConsensusModuleState("ACTIVE")
+                        .setElectionState("17"))
+                .addCounters(AeronCounter.newBuilder().setTypeId(212).setLabel("Cluster Errors").setValue(errors))
+                .build();
+    }
+}
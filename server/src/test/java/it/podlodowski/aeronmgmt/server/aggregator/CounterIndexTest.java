@@ -0,0 +1,88 @@
+package it.podlodowski.aeronmgmt.server.aggregator;
+
+import it.podlodowski.aeronmgmt.common.proto.AeronCounter;
+import it.podlodowski.aeronmgmt.common.proto.MetricsReport;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CounterIndexTest {
+
+    @Test
+    void shouldIndexCountersByType() {
+        CounterIndex index = CounterIndex.of(report(
+                counter(0, 0, "Bytes sent", 100),
+                counter(10, 212, "Cluster Errors - version=1.46.5 commit=abc", 2),
+                counter(11, 215, "Container Errors", 3),
+                counter(12, 215, "Container Errors", 4),
+                counter(13, 239, "Leadership term id", 7)));
+
+        assertEquals(2, index.value(212));
+        assertEquals(3, index.value(215));
+        assertEquals(-1, index.value(205));
+        assertEquals(7, index.sum(215));
+        assertEquals(0, index.sum(205));
+        assertEquals(4, index.max(215, 0));
+        assertEquals(-1, index.max(238, -1));
+        assertEquals("Cluster Errors - version=1.46.5 commit=abc", index.first(212).getLabel());
+        assertNull(index.first(205));
+    }
+
+    @Test
+    void shouldFindSystemCountersById() {
+        CounterIndex index = CounterIndex.of(report(
+                counter(0, 0, "Bytes sent", 100),
+                counter(1, 0, "Bytes received", 200),
+                counter(2, 0, "Failed offers to ReceiverProxy", 3)));
+
+        assertEquals(100, index.systemValue(CounterIndex.BYTES_SENT));
+        assertEquals(200, index.systemValue(CounterIndex.BYTES_RECEIVED));
+    }
+
+    @Test
+    void shouldIgnoreLabelsAndOtherTypes() {
+        // Another counter whose label starts like a system counter's, and a relabelled system counter
+        CounterIndex index = CounterIndex.of(report(
+                counter(0, 0, "Bytes sent (renamed)", 100),
+                counter(1, 0, "Bytes received", 200),
+                counter(40, 1001, "Bytes sent by application", 999)));
+
+        assertEquals(100, index.systemValue(CounterIndex.BYTES_SENT));
+        assertEquals(200, index.systemValue(CounterIndex.BYTES_RECEIVED));
+    }
+
+    @Test
+    void shouldIgnoreCounterIdOfNonSystemCounters() {
+        CounterIndex index = CounterIndex.of(report(
+                counter(0, 1001, "Application counter", 7),
+                counter(1, 1001, "Application counter", 8)));
+
+        assertEquals(0, index.systemValue(CounterIndex.BYTES_SENT));
+        assertEquals(0, index.systemValue(CounterIndex.BYTES_RECEIVED));
+    }
+
+    @Test
+    void shouldReturnZeroForMissingSystemCounter() {
+        CounterIndex index = CounterIndex.of(report(counter(10, 212, "Cluster Errors", 0)));
+
+        assertEquals(0, index.systemValue(CounterIndex.BYTES_SENT));
+        assertEquals(0, index.systemValue(CounterIndex.BYTES_RECEIVED));
+    }
+
+    private static MetricsReport report(AeronCounter... counters) {
+        MetricsReport.Builder report = MetricsReport.newBuilder().setNodeId(0);
+        for (AeronCounter counter : counters) {
+            report.addCounters(counter);
+        }
+        return report.build();
+    }
+
+    private static AeronCounter counter(int counterId, int typeId, String label, long value) {
+        return AeronCounter.newBuilder()
+                .setCounterId(counterId)
+                .setTypeId(typeId)
+                .setLabel(label)
+                .setValue(value)
+                .build();
+    }
+}
@@ -0,0 +1,81 @@
+package it.podlodowski.aeronmgmt.server.aggregator;
+
+import it.podlodowski.aeronmgmt.server.aggregator.SeriesQuery.Aggregation;
+import it.podlodowski.aeronmgmt.server.aggregator.SeriesQuery.Points;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeriesQueryTest {
+
+    private static final TimeSeriesStore.Samples SAMPLES = new TimeSeriesStore.Samples(
+            new long[]{1000, 1500, 2000, 2500, 3000, 3500},
+            new long[]{10, 30, 20, 60, 5, 25});
+
+    @Test
+    void shouldAggregatePerStep() {
+        assertArrayEquals(new double[]{10, 20, 5}, SeriesQuery.bucket(SAMPLES, 1000, 1000, Aggregation.MIN).values());
+        assertArrayEquals(new double[]{30, 60, 25}, SeriesQuery.bucket(SAMPLES, 1000, 1000, Aggregation.MAX).values());
+        assertArrayEquals(new double[]{20, 40, 15}, SeriesQuery.bucket(SAMPLES, 1000, 1000, Aggregation.AVG).values());
+        assertArrayEquals(new double[]{30, 60, 25}, SeriesQuery.bucket(SAMPLES, 1000, 1000, Aggregation.LAST).values());
+        assertArrayEquals(new long[]{1000, 2000, 3000}, SeriesQuery.bucket(SAMPLES, 1000, 1000, Aggregation.LAST).timestamps());
+    }
+
+    @Test
+    void shouldSkipEmptyBuckets() {
+        TimeSeriesStore.Samples samples = new TimeSeriesStore.Samples(new long[]{1000, 5000}, new long[]{1, 2});
+
+        Points points = SeriesQuery.bucket(samples, 0, 1000, Aggregation.LAST);
+
+        assertArrayEquals(new long[]{1000, 5000}, points.timestamps());
+    }
+
+    @Test
+    void shouldMeasureRateFromPreviousBucket() {
+        TimeSeriesStore.Samples samples = new TimeSeriesStore.Samples(
+                new long[]{0, 1000, 2000, 3000}, new long[]{0, 100, 300, 50});
+
+        Points perStep = SeriesQuery.bucket(samples, 0, 2000, Aggregation.RATE);
+        Points perSample = SeriesQuery.raw(samples, Aggregation.RATE);
+
+        // A counter reset counts as no increase
+        assertArrayEquals(new double[]{100, 0}, perStep.values());
+        assertArrayEquals(new long[]{1000, 2000, 3000}, perSample.timestamps());
+        assertArrayEquals(new double[]{100, 200, 0}, perSample.values());
+    }
+
+    @Test
+    void shouldKeepPeaksWhenDownsampling() {
+        long[] timestamps = new long[1000];
+        double[] values = new double[1000];
+        for (int i = 0; i < timestamps.length; i++) {
+            timestamps[i] = i * 1000L;
+            values[i] = i == 437 ? 1_000_000 : i % 10;
+        }
+
+        Points points = SeriesQuery.lttb(new Points(timestamps, values), 50);
+
+        assertEquals(50, points.size());
+        assertEquals(0, points.timestamps()[0]);
+        assertEquals(999_000, points.timestamps()[49]);
+        assertTrue(Arrays.stream(points.values()).anyMatch(v -> v == 1_000_000));
+        for (int i = 1; i < points.size(); i++) {
+            assertTrue(points.timestamps()[i] > points.timestamps()[i - 1]);
+        }
+    }
+
+    @Test
+    void shouldNotDownsampleBelowThreshold() {
+        Points points = SeriesQuery.raw(SAMPLES, Aggregation.LAST);
+
+        assertSame(points, SeriesQuery.lttb(points, 500));
+    }
+
+    @Test
+    void shouldParseAggregationIgnoringCase() {
+        assertEquals(Aggregation.RATE, Aggregation.parse("rate"));
+        assertThrows(IllegalArgumentException.class, () -> Aggregation.parse("median"));
+    }
+}
@@ -0,0 +1,213 @@
+package it.podlodowski.aeronmgmt.server.aggregator;
+
+import it.podlodowski.aeronmgmt.common.proto.AeronCounter;
+import it.podlodowski.aeronmgmt.common.proto.MetricsReport;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeSeriesStoreTest {
+
+    private static final long SERIES_BYTES = 2L * Long.BYTES * 4;
+
+    @Test
+    void shouldKeepLastSamplesOfEachCounter() {
+        TimeSeriesStore store = store(4, Long.MAX_VALUE);
+        for (int t = 1; t <= 6; t++) {
+            store.append(report(0, t * 1000L, counter(0, 0, "Bytes sent", t * 10L), counter(1, 212, "Errors", t)));
+        }
+
+        TimeSeriesStore.Samples sent = store.series(0, 0).read(0, Long.MAX_VALUE);
+
+        assertArrayEquals(new long[]{3000, 4000, 5000, 6000}, sent.timestamps());
+        assertArrayEquals(new long[]{30, 40, 50, 60}, sent.values());
+        assertEquals(2, store.series(0).size());
+        assertEquals(212, store.series(0, 1).getTypeId());
+    }
+
+    @Test
+    void shouldReadTimeRange() {
+        TimeSeriesStore store = store(8, Long.MAX_VALUE);
+        for (int t = 1; t <= 5; t++) {
+            store.append(report(0, t * 1000L, counter(0, 0, "Bytes sent", t)));
+        }
+
+        TimeSeriesStore.Samples samples = store.series(0, 0).read(2000, 4000);
+
+        assertArrayEquals(new long[]{2000, 3000, 4000}, samples.timestamps());
+        assertArrayEquals(new long[]{2, 3, 4}, samples.values());
+    }
+
+    @Test
+    void shouldInsertOlderSamplesInOrder() {
+        TimeSeriesStore store = store(8, Long.MAX_VALUE);
+        store.append(report(0, 1000, counter(0, 0, "Bytes sent", 1)));
+        store.append(report(0, 4000, counter(0, 0, "Bytes sent", 4)));
+
+        store.insert(report(0, 3000, counter(0, 0, "Bytes sent", 3)));
+        store.insert(report(0, 2000, counter(0, 0, "Bytes sent", 2)));
+        store.insert(report(0, 3000, counter(0, 0, "Bytes sent", 3)));
+
+        TimeSeriesStore.Samples samples = store.series(0, 0).read(0, Long.MAX_VALUE);
+        assertArrayEquals(new long[]{1000, 2000, 3000, 4000}, samples.timestamps());
+        assertArrayEquals(new long[]{1, 2, 3, 4}, samples.values());
+    }
+
+    @Test
+    void shouldNotCreateSeriesForReplayedCounters() {
+        TimeSeriesStore store = store(8, Long.MAX_VALUE);
+        store.append(report(0, 2000, counter(0, 0, "Bytes sent", 2)));
+
+        store.insert(report(0, 1000, counter(0, 0, "Bytes sent", 1), counter(7, 1, "pub-lmt", 5)));
+        store.insert(report(1, 1000, counter(0, 0, "Bytes sent", 1)));
+
+        assertEquals(1, store.series(0).size());
+        assertTrue(store.series(1).isEmpty());
+    }
+
+    @Test
+    void shouldStartNewSeriesWhenCounterIdIsReused() {
+        TimeSeriesStore.Budget budget = new TimeSeriesStore.Budget(Long.MAX_VALUE);
+        TimeSeriesStore store = new TimeSeriesStore(budget, 4, Long.MAX_VALUE);
+        store.append(report(0, 1000, counter(5, 1, "pub-lmt: 1001", 10)));
+
+        store.append(report(0, 2000, counter(5, 1, "pub-lmt: 1002", 20)));
+
+        TimeSeriesStore.Series series = store.series(0, 5);
+        assertEquals("pub-lmt: 1002", series.getLabel());
+        assertArrayEquals(new long[]{20}, series.read(0, Long.MAX_VALUE).values());
+        assertEquals(SERIES_BYTES, budget.getUsedBytes());
+    }
+
+    @Test
+    void shouldFreeSeriesOfVanishedCounters() {
+        TimeSeriesStore.Budget budget = new TimeSeriesStore.Budget(Long.MAX_VALUE);
+        TimeSeriesStore store = new TimeSeriesStore(budget, 4, Long.MAX_VALUE);
+        store.append(report(0, 1000, counter(0, 0, "Bytes sent", 1), counter(5, 1, "pub-lmt", 10)));
+
+        for (int i = 1; i < TimeSeriesStore.VANISHED_REPORTS; i++) {
+            store.append(report(0, 1000 + i * 1000L, counter(0, 0, "Bytes sent", 2)));
+        }
+        assertNotNull(store.series(0, 5));
+
+        store.append(report(0, 10_000, counter(0, 0, "Bytes sent", 3)));
+
+        assertNull(store.series(0, 5));
+        assertEquals(1, store.series(0).size());
+        assertEquals(SERIES_BYTES, budget.getUsedBytes());
+    }
+
+    @Test
+    void shouldFreeSeriesMissingForLongerThanRetention() {
+        TimeSeriesStore store = new TimeSeriesStore(new TimeSeriesStore.Budget(Long.MAX_VALUE), 4, 5000);
+        store.append(report(0, 1000, counter(0, 0, "Bytes sent", 1), counter(5, 1, "pub-lmt", 10)));
+
+        store.append(report(0, 7000, counter(0, 0, "Bytes sent", 2)));
+
+        assertNull(store.series(0, 5));
+    }
+
+    @Test
+    void shouldKeepHistoryThroughReportsWithoutCounters() {
+        TimeSeriesStore.Budget budget = new TimeSeriesStore.Budget(Long.MAX_VALUE);
+        TimeSeriesStore store = new TimeSeriesStore(budget, 4, Long.MAX_VALUE);
+        store.append(report(0, 1000, counter(0, 0, "Bytes sent", 1), counter(5, 1, "pub-lmt", 10)));
+
+        // CnC unreadable, e.g. while the media driver restarts
+        for (int i = 0; i < 2 * TimeSeriesStore.VANISHED_REPORTS; i++) {
+            store.append(MetricsReport.newBuilder().setNodeId(0).setTimestamp(2000 + i).build());
+        }
+        store.append(report(0, 3000).toBuilder().setCncAccessible(false)
+                .addCounters(counter(0, 0, "Bytes sent", 0)).build());
+
+        assertEquals(2, store.series(0).size());
+        assertArrayEquals(new long[]{1}, store.series(0, 0).read(0, Long.MAX_VALUE).values());
+        assertEquals(2 * SERIES_BYTES, budget.getUsedBytes());
+    }
+
+    @Test
+    void shouldSkipNewSeriesOnceBudgetIsSpent() {
+        TimeSeriesStore.Budget budget = new TimeSeriesStore.Budget(2 * SERIES_BYTES);
+        TimeSeriesStore first = new TimeSeriesStore(budget, 4, Long.MAX_VALUE);
+        TimeSeriesStore second = new TimeSeriesStore(budget, 4, Long.MAX_VALUE);
+
+        first.append(report(0, 1000, counter(0, 0, "Bytes sent", 1), counter(1, 0, "Bytes received", 1)));
+        second.append(report(0, 1000, counter(0, 0, "Bytes sent", 1)));
+
+        assertEquals(2, first.series(0).size());
+        assertTrue(second.series(0).isEmpty());
+        assertEquals(2 * SERIES_BYTES, budget.getUsedBytes());
+    }
+
+    @Test
+    void shouldRetryRefusedCountersOnceBudgetIsFreed() {
+        TimeSeriesStore.Budget budget = new TimeSeriesStore.Budget(SERIES_BYTES);
+        TimeSeriesStore first = new TimeSeriesStore(budget, 4, Long.MAX_VALUE);
+        TimeSeriesStore second = new TimeSeriesStore(budget, 4, Long.MAX_VALUE);
+        first.append(report(0, 1000, counter(5, 1, "pub-lmt", 1)));
+        second.append(report(0, 1000, counter(0, 0, "Bytes sent", 1)));
+        second.append(report(0, 2000, counter(0, 0, "Bytes sent", 2)));
+        assertTrue(second.series(0).isEmpty());
+
+        // The first store's counter disappears and frees its series
+        for (int i = 1; i <= TimeSeriesStore.VANISHED_REPORTS; i++) {
+            first.append(report(0, 1000 + i * 1000L, counter(6, 1, "pub-lmt other", 1)));
+        }
+        second.append(report(0, 10_000, counter(0, 0, "Bytes sent", 3)));
+
+        assertArrayEquals(new long[]{3}, second.series(0, 0).read(0, Long.MAX_VALUE).values());
+    }
+
+    @Test
+    void shouldReadConsistentSamplesWhileWriting() throws Exception {
+        TimeSeriesStore store = store(64, Long.MAX_VALUE);
+        store.append(report(0, 1, counter(0, 0, "Bytes sent", 1)));
+        TimeSeriesStore.Series series = store.series(0, 0);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicReference<String> failure = new AtomicReference<>();
+
+        Thread reader = new Thread(() -> {
+            while (writing.get() && failure.get() == null) {
+                TimeSeriesStore.Samples samples = series.read(0, Long.MAX_VALUE);
+                for (int i = 0; i < samples.size(); i++) {
+                    if (samples.values()[i] != samples.timestamps()[i]
+                            || (i > 0 && samples.timestamps()[i] <= samples.timestamps()[i - 1])) {
+                        failure.set("Torn read at " + i + " of " + samples.size());
+                    }
+                }
+            }
+        });
+        reader.start();
+        for (long t = 2; t < 200_000; t++) {
+            store.append(report(0, t, counter(0, 0, "Bytes sent", t)));
+        }
+        writing.set(false);
+        reader.join();
+
+        assertNull(failure.get());
+    }
+
+    private static TimeSeriesStore store(int capacity, long budgetBytes) {
+        return new TimeSeriesStore(new TimeSeriesStore.Budget(budgetBytes), capacity, Long.MAX_VALUE);
+    }
+
+    private static MetricsReport report(int nodeId, long timestamp, AeronCounter... counters) {
+        MetricsReport.Builder report = MetricsReport.newBuilder().setNodeId(nodeId).setTimestamp(timestamp).setCncAccessible(true);
+        for (AeronCounter counter : counters) {
+            report.addCounters(counter);
+        }
+        return report.build();
+    }
+
+    private static AeronCounter counter(int counterId, int typeId, String label, long value) {
+        return AeronCounter.newBuilder()
+                .setCounterId(counterId)
+                .setTypeId(typeId)
+                .setLabel(label)
+                .setValue(value)
+                .build();
+    }
+}
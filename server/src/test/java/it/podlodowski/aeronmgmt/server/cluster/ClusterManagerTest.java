@@ -0,0 +1,95 @@
+package it.podlodowski.aeronmgmt.server.cluster;
+
+import it.podlodowski.aeronmgmt.common.proto.AeronCounter;
+import it.podlodowski.aeronmgmt.common.proto.MetricsReport;
+import it.podlodowski.aeronmgmt.common.proto.StateChangeEntry;
+import it.podlodowski.aeronmgmt.server.events.EventService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ClusterManagerTest {
+
+    private final ClusterManager manager = new ClusterManager(
+            null, mock(EventService.class), null, 300, 600, 64, 16, 16);
+
+    @AfterEach
+    void tearDown() {
+        manager.close();
+    }
+
+    @Test
+    void shouldTreatFirstReportAsChangingState() {
+        assertTrue(manager.changesState("prod", report(0, 1, 2, 17)));
+    }
+
+    @Test
+    void shouldLetUnchangedSamplesBeDropped() {
+        manager.changesState("prod", report(0, 1, 2, 17));
+
+        assertFalse(manager.changesState("prod", report(0, 1, 2, 17)));
+    }
+
+    @Test
+    void shouldKeepReportsThatChangeModuleRoleOrElectionState() {
+        manager.changesState("prod", report(0, 1, 2, 17));
+
+        assertTrue(manager.changesState("prod", report(0, 2, 2, 17)));
+        assertTrue(manager.changesState("prod", report(0, 2, 0, 17)));
+        assertTrue(manager.changesState("prod", report(0, 2, 0, 1)));
+        assertFalse(manager.changesState("prod", report(0, 2, 0, 1)));
+    }
+
+    @Test
+    void shouldKeepReportsCarryingStateChanges() {
+        manager.changesState("prod", report(0, 1, 2, 17));
+
+        MetricsReport withTransition = report(0, 1, 2, 17).toBuilder()
+                .addStateChanges(StateChangeEntry.newBuilder()
+                        .setTimestamp(1000)
+                        .setCounterTypeId(207)
+                        .setOldValue(17)
+                        .setNewValue(1))
+                .build();
+        assertTrue(manager.changesState("prod", withTransition));
+    }
+
+    @Test
+    void shouldTrackNodesAndClustersSeparately() {
+        manager.changesState("prod", report(0, 1, 2, 17));
+
+        assertTrue(manager.changesState("prod", report(1, 1, 0, 17)));
+        assertTrue(manager.changesState("test", report(0, 1, 0, 17)));
+        assertFalse(manager.changesState("prod", report(0, 1, 2, 17)));
+    }
+
+    @Test
+    void shouldForgetNodeStateOnDisconnect() {
+        manager.changesState("prod", report(0, 1, 2, 17));
+        manager.onAgentDisconnected("prod", 0);
+
+        assertTrue(manager.changesState("prod", report(0, 1, 2, 17)));
+    }
+
+    private static MetricsReport report(int nodeId, long moduleState, long role, long electionState) {
+        return MetricsReport.newBuilder()
+                .setNodeId(nodeId)
+                .setTimestamp(1000)
+                .addCounters(counter(0, 0, "Bytes sent", 4096))
+                .addCounters(counter(10, 200, "Consensus Module state", moduleState))
+                .addCounters(counter(11, 201, "Cluster node role", role))
+                .addCounters(counter(12, 207, "Election state", electionState))
+                .build();
+    }
+
+    private static AeronCounter counter(int counterId, int typeId, String label, long value) {
+        return AeronCounter.newBuilder()
+                .setCounterId(counterId)
+                .setTypeId(typeId)
+                .setLabel(label)
+                .setValue(value)
+                .build();
+    }
+}
@@ -0,0 +1,106 @@
+package it.podlodowski.aeronmgmt.server.cluster;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PipelineStageTest {
+
+    private PipelineStage stage;
+
+    @AfterEach
+    void tearDown() {
+        stage.close();
+    }
+
+    @Test
+    void shouldRunTasksInOrderOnOneThread() throws Exception {
+        stage = new PipelineStage("test", 16);
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        List<String> threads = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(10);
+
+        for (int i = 0; i < 10; i++) {
+            int n = i;
+            stage.put(() -> {
+                order.add(n);
+                threads.add(Thread.currentThread().getName());
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), order);
+        assertTrue(threads.stream().allMatch("pipeline-test"::equals));
+    }
+
+    @Test
+    void shouldDropOfferedTasksWhenQueueIsFull() throws Exception {
+        stage = new PipelineStage("test", 2);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        stage.put(() -> {
+            blocked.countDown();
+            await(release);
+        });
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+        assertTrue(stage.offer(() -> { }));
+        assertTrue(stage.offer(() -> { }));
+        assertFalse(stage.offer(() -> { }));
+
+        Map<String, Object> stats = stage.stats();
+        assertEquals(2, stats.get("depth"));
+        assertEquals(2, stats.get("capacity"));
+        assertEquals(1L, stats.get("dropped"));
+        release.countDown();
+    }
+
+    @Test
+    void shouldAcceptEveryTaskWhenUnbounded() throws Exception {
+        stage = new PipelineStage("test");
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        stage.put(() -> {
+            blocked.countDown();
+            await(release);
+        });
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+        CountDownLatch done = new CountDownLatch(10_000);
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(stage.offer(done::countDown));
+        }
+        assertEquals(0L, stage.stats().get("dropped"));
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void shouldKeepRunningAfterFailedTask() throws Exception {
+        stage = new PipelineStage("test", 4);
+        CountDownLatch done = new CountDownLatch(1);
+
+        stage.put(() -> {
+            throw new IllegalStateException("boom");
+        });
+        stage.put(done::countDown);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
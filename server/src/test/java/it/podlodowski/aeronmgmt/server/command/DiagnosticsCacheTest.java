@@ -0,0 +1,195 @@
+package it.podlodowski.aeronmgmt.server.command;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.podlodowski.aeronmgmt.server.events.ClusterEvent;
+import it.podlodowski.aeronmgmt.server.events.ClusterEventRepository;
+import it.podlodowski.aeronmgmt.server.events.EventFactory;
+import it.podlodowski.aeronmgmt.server.events.EventLevel;
+import it.podlodowski.aeronmgmt.server.events.EventService;
+import it.podlodowski.aeronmgmt.server.events.EventSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class DiagnosticsCacheTest {
+
+    private static final Map<String, Object> SUCCESS = Map.of("success", true, "output", "ok");
+
+    private EventService eventService;
+    private DiagnosticsCache cache;
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        ClusterEventRepository repository = mock(ClusterEventRepository.class);
+        eventService = new EventService(repository, mock(SimpMessagingTemplate.class), new ObjectMapper());
+        cache = new DiagnosticsCache(eventService, 60_000);
+    }
+
+    @Test
+    void shouldShareInFlightCall() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<Map<String, Object>> first = executor.submit(() -> cache.get("prod", 0, "DESCRIBE", () -> {
+                calls.incrementAndGet();
+                started.countDown();
+                await(release);
+                return SUCCESS;
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            Future<Map<String, Object>> second = executor.submit(() -> cache.get("prod", 0, "DESCRIBE", this::load));
+            Future<Map<String, Object>> third = executor.submit(() -> cache.get("prod", 0, "DESCRIBE", this::load));
+            release.countDown();
+
+            assertSame(SUCCESS, first.get(5, TimeUnit.SECONDS));
+            assertSame(SUCCESS, second.get(5, TimeUnit.SECONDS));
+            assertSame(SUCCESS, third.get(5, TimeUnit.SECONDS));
+            assertEquals(1, calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldRethrowLoaderExceptionToWaiters() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("agent gone");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Map<String, Object>> owner = executor.submit(() -> cache.get("prod", 0, "DESCRIBE", () -> {
+                started.countDown();
+                await(release);
+                throw failure;
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<Map<String, Object>> waiter = executor.submit(() -> cache.get("prod", 0, "DESCRIBE", this::load));
+            // Let the waiter join the call in flight before it fails
+            Thread.sleep(100);
+            release.countDown();
+
+            ExecutionException ownerFailure = assertThrows(ExecutionException.class, () -> owner.get(5, TimeUnit.SECONDS));
+            ExecutionException waiterFailure = assertThrows(ExecutionException.class, () -> waiter.get(5, TimeUnit.SECONDS));
+            assertSame(failure, ownerFailure.getCause());
+            assertSame(failure, waiterFailure.getCause());
+            assertEquals(0, calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldReuseResultPerClusterNodeAndCommand() {
+        cache.get("prod", 0, "DESCRIBE", this::load);
+        cache.get("prod", 0, "DESCRIBE", this::load);
+        assertEquals(1, calls.get());
+
+        cache.get("prod", 1, "DESCRIBE", this::load);
+        cache.get("prod", 0, "LIST_MEMBERS", this::load);
+        cache.get("test", 0, "DESCRIBE", this::load);
+        assertEquals(4, calls.get());
+    }
+
+    @Test
+    void shouldExpireAfterTtl() {
+        cache = new DiagnosticsCache(eventService, 0);
+
+        cache.get("prod", 0, "DESCRIBE", this::load);
+        cache.get("prod", 0, "DESCRIBE", this::load);
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void shouldNotCacheFailures() {
+        cache.get("prod", 0, "DESCRIBE", () -> {
+            calls.incrementAndGet();
+            return Map.of("success", false, "error", "Node 0 is not connected");
+        });
+        cache.get("prod", 0, "DESCRIBE", this::load);
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void shouldInvalidateClusterOnRoleChange() {
+        cache.get("prod", 0, "LIST_MEMBERS", this::load);
+        cache.get("prod", 1, "LIST_MEMBERS", this::load);
+        cache.get("test", 0, "LIST_MEMBERS", this::load);
+
+        eventService.emit(EventFactory.roleChange("prod", 1, "FOLLOWER", "LEADER"));
+
+        cache.get("prod", 0, "LIST_MEMBERS", this::load);
+        cache.get("prod", 1, "LIST_MEMBERS", this::load);
+        cache.get("test", 0, "LIST_MEMBERS", this::load);
+        assertEquals(5, calls.get());
+    }
+
+    @Test
+    void shouldInvalidateOnSnapshot() {
+        cache.get("prod", 0, "DESCRIBE_SNAPSHOT", this::load);
+
+        eventService.emit(EventFactory.snapshotTaken("prod", 0, 1, 736));
+
+        cache.get("prod", 0, "DESCRIBE_SNAPSHOT", this::load);
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void shouldInvalidateOnClusterActions() {
+        for (String action : new String[]{"SUSPEND", "RESUME", "SNAPSHOT", "SHUTDOWN"}) {
+            cache.get("prod", 0, "DESCRIBE", this::load);
+            eventService.emit(EventFactory.clusterAction("prod", action, "operator"));
+        }
+        cache.get("prod", 0, "DESCRIBE", this::load);
+
+        assertEquals(5, calls.get());
+    }
+
+    @Test
+    void shouldIgnoreReconciledEvents() {
+        cache.get("prod", 0, "RECOVERY_PLAN", this::load);
+
+        eventService.emit(ClusterEvent.builder()
+                .clusterId("prod")
+                .timestamp(Instant.now())
+                .level(EventLevel.NODE)
+                .type("SNAPSHOT_TAKEN")
+                .nodeId(0)
+                .message("snapshot taken (term 0) on node 0")
+                .source(EventSource.RECONCILIATION)
+                .build());
+
+        cache.get("prod", 0, "RECOVERY_PLAN", this::load);
+        assertEquals(1, calls.get());
+    }
+
+    private Map<String, Object> load() {
+        calls.incrementAndGet();
+        return SUCCESS;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package it.podlodowski.aeronmgmt.server.events;
+
+import it.podlodowski.aeronmgmt.common.proto.RecordingLogEntry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecordingLogEventsTest {
+
+    @Test
+    void shouldConvertToEvents() {
+        List<RecordingLogEntry> entries = List.of(
+                entry(0, 0, 0, 736, 1708412400000L, -1, "SNAPSHOT"),
+                entry(1, 0, 0, 736, 1708412400100L, 0, "TERM"),
+                entry(2, 1, 736, 1472, 1708412500000L, 0, "TERM"));
+
+        List<ClusterEvent> events = RecordingLogEvents.toEvents("prod", 0, entries);
+
+        // Should produce: 1 CLUSTER_START + 1 SNAPSHOT_TAKEN (serviceId=-1) + 2 LEADER_ELECTED
+        assertTrue(events.stream().anyMatch(e -> "CLUSTER_START".equals(e.getType())));
+        assertTrue(events.stream().anyMatch(e -> "SNAPSHOT_TAKEN".equals(e.getType())));
+        long leaderEvents = events.stream().filter(e -> "LEADER_ELECTED".equals(e.getType())).count();
+        assertEquals(2, leaderEvents);
+        events.forEach(e -> assertEquals(EventSource.RECONCILIATION, e.getSource()));
+    }
+
+    @Test
+    void shouldFilterSnapshotsByServiceId() {
+        // serviceId=0 snapshots should be excluded (only serviceId=-1 included)
+        List<RecordingLogEntry> entries = List.of(
+                entry(0, 0, 0, 736, 1708412400000L, -1, "SNAPSHOT"),
+                entry(1, 0, 0, 736, 1708412400000L, 0, "SNAPSHOT"));
+
+        List<ClusterEvent> events = RecordingLogEvents.toEvents("prod", 0, entries);
+
+        long snapshotEvents = events.stream().filter(e -> "SNAPSHOT_TAKEN".equals(e.getType())).count();
+        assertEquals(1, snapshotEvents);
+    }
+
+    @Test
+    void shouldSetCorrectTimestampsOnEvents() {
+        List<RecordingLogEntry> entries = List.of(
+                entry(1, 0, 0, 736, 1708412400100L, 0, "TERM"));
+
+        List<ClusterEvent> events = RecordingLogEvents.toEvents("prod", 0, entries);
+
+        // CLUSTER_START uses earliest timestamp
+        ClusterEvent clusterStart = events.stream()
+                .filter(e -> "CLUSTER_START".equals(e.getType()))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(1708412400100L, clusterStart.getTimestamp().toEpochMilli());
+
+        // LEADER_ELECTED uses the entry's timestamp
+        ClusterEvent leaderElected = events.stream()
+                .filter(e -> "LEADER_ELECTED".equals(e.getType()))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(1708412400100L, leaderElected.getTimestamp().toEpochMilli());
+    }
+
+    @Test
+    void shouldSetCorrectDetailsOnLeaderElectedEvents() {
+        List<RecordingLogEntry> entries = List.of(
+                entry(5, 3, 2208, 2944, 1708412500000L, 0, "TERM"));
+
+        List<ClusterEvent> events = RecordingLogEvents.toEvents("prod", 1, entries);
+
+        ClusterEvent leaderElected = events.stream()
+                .filter(e -> "LEADER_ELECTED".equals(e.getType()))
+                .findFirst()
+                .orElseThrow();
+
+        assertEquals(EventLevel.NODE, leaderElected.getLevel());
+        assertEquals("leader elected (term 3)", leaderElected.getMessage());
+        assertEquals(3L, leaderElected.getDetails().get("termId"));
+        assertEquals(2944L, leaderElected.getDetails().get("logPosition"));
+        assertEquals(5L, leaderElected.getDetails().get("recordingId"));
+    }
+
+    @Test
+    void shouldSetCorrectDetailsOnSnapshotEvents() {
+        List<RecordingLogEntry> entries = List.of(
+                entry(6, 2, 1472, 2208, 1708412450000L, -1, "SNAPSHOT"));
+
+        List<ClusterEvent> events = RecordingLogEvents.toEvents("prod", 2, entries);
+
+        ClusterEvent snapshot = events.stream()
+                .filter(e -> "SNAPSHOT_TAKEN".equals(e.getType()))
+                .findFirst()
+                .orElseThrow();
+
+        assertEquals(EventLevel.NODE, snapshot.getLevel());
+        assertEquals(2, snapshot.getNodeId());
+        assertEquals("snapshot taken (term 2) on node 2", snapshot.getMessage());
+        assertEquals(2L, snapshot.getDetails().get("termId"));
+        assertEquals(2208L, snapshot.getDetails().get("logPosition"));
+        assertEquals(6L, snapshot.getDetails().get("recordingId"));
+    }
+
+    @Test
+    void shouldHandleEmptyLog() {
+        List<ClusterEvent> events = RecordingLogEvents.toEvents("prod", 0, List.of());
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void shouldUseEarliestTimestampForClusterStart() {
+        List<RecordingLogEntry> entries = List.of(
+                entry(1, 0, 0, 736, 1708412500000L, 0, "TERM"),
+                entry(2, 0, 0, 736, 1708412400000L, -1, "SNAPSHOT"),
+                entry(3, 1, 736, 1472, 1708412600000L, 0, "TERM"));
+
+        List<ClusterEvent> events = RecordingLogEvents.toEvents("prod", 0, entries);
+
+        ClusterEvent clusterStart = events.stream()
+                .filter(e -> "CLUSTER_START".equals(e.getType()))
+                .findFirst()
+                .orElseThrow();
+        // Should pick the earliest: 1708412400000
+        assertEquals(1708412400000L, clusterStart.getTimestamp().toEpochMilli());
+    }
+
+    @Test
+    void shouldSetClusterIdOnAllEvents() {
+        List<RecordingLogEntry> entries = List.of(
+                entry(1, 0, 0, 736, 1708412400100L, 0, "TERM"));
+
+        List<ClusterEvent> events = RecordingLogEvents.toEvents("my-cluster", 0, entries);
+
+        events.forEach(e -> assertEquals("my-cluster", e.getClusterId()));
+    }
+
+    private static RecordingLogEntry entry(long recordingId, long leadershipTermId, long termBaseLogPosition,
+                                           long logPosition, long timestamp, int serviceId, String type) {
+        return RecordingLogEntry.newBuilder()
+                .setRecordingId(recordingId)
+                .setLeadershipTermId(leadershipTermId)
+                .setTermBaseLogPosition(termBaseLogPosition)
+                .setLogPosition(logPosition)
+                .setTimestamp(timestamp)
+                .setServiceId(serviceId)
+                .setType(type)
+                .setValid(true)
+                .build();
+    }
+}
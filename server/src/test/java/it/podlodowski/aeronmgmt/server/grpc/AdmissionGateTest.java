@@ -0,0 +1,50 @@
+package it.podlodowski.aeronmgmt.server.grpc;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionGateTest {
+
+    private static final long MS = 1_000_000;
+
+    @Test
+    void shouldAdmitBurstThenDefer() {
+        AdmissionGate gate = new AdmissionGate(10, 3);
+
+        assertEquals(0, gate.tryAdmit(0));
+        assertEquals(0, gate.tryAdmit(0));
+        assertEquals(0, gate.tryAdmit(0));
+        assertTrue(gate.tryAdmit(0) > 0);
+    }
+
+    @Test
+    void shouldAdmitAgainAtConfiguredRate() {
+        AdmissionGate gate = new AdmissionGate(10, 1);
+
+        assertEquals(0, gate.tryAdmit(0));
+        assertTrue(gate.tryAdmit(50 * MS) > 0);
+        assertEquals(0, gate.tryAdmit(100 * MS));
+        assertEquals(0, gate.tryAdmit(200 * MS));
+    }
+
+    @Test
+    void shouldSpreadRetriesOfRejectedAgents() {
+        AdmissionGate gate = new AdmissionGate(10, 1);
+        gate.tryAdmit(0);
+
+        List<Long> retries = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            long retryAfterMs = gate.tryAdmit(0);
+            assertTrue(retryAfterMs >= 100, "no retry before the bucket has room again");
+            retries.add(retryAfterMs);
+        }
+
+        // 200 agents at 10 per second: retries are spread over many seconds, not bunched
+        assertTrue(retries.stream().mapToLong(Long::longValue).max().orElseThrow() > 5_000);
+        assertTrue(retries.stream().distinct().count() > 50);
+    }
+}
@@ -0,0 +1,50 @@
+package it.podlodowski.aeronmgmt.server.grpc;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClockOffsetEstimatorTest {
+
+    @Test
+    void shouldEstimateOffsetAndRoundTrip() {
+        ClockOffsetEstimator estimator = new ClockOffsetEstimator();
+        assertFalse(estimator.hasEstimate());
+        assertEquals(0, estimator.offsetMicros());
+
+        // Agent clock 250 ms ahead, 1 ms each way, 100 us to answer
+        estimator.onExchange(1_000_000, 1_251_000, 1_251_100, 1_002_100);
+
+        assertTrue(estimator.hasEstimate());
+        assertEquals(250_000, estimator.offsetMicros());
+        assertEquals(2_000, estimator.rttMicros());
+    }
+
+    @Test
+    void shouldPreferShortestRoundTrip() {
+        ClockOffsetEstimator estimator = new ClockOffsetEstimator();
+
+        estimator.onExchange(0, 1_000, 1_000, 2_000);       // symmetric 1 ms: offset 0
+        estimator.onExchange(10_000, 60_000, 60_000, 61_000); // 50 ms out, 1 ms back: skewed by queuing
+        estimator.onExchange(100_000, 100_300, 100_300, 100_600);
+
+        assertEquals(0, estimator.offsetMicros());
+        assertEquals(600, estimator.rttMicros());
+        assertEquals(3, estimator.sampleCount());
+    }
+
+    @Test
+    void shouldForgetOldSamples() {
+        ClockOffsetEstimator estimator = new ClockOffsetEstimator();
+        estimator.onExchange(0, 50, 50, 100); // best round trip, offset 0
+
+        // Clock stepped by 5 ms; older samples roll out of the window
+        for (int i = 1; i <= ClockOffsetEstimator.SAMPLES; i++) {
+            long t1 = i * 1_000_000L;
+            estimator.onExchange(t1, t1 + 5_100, t1 + 5_100, t1 + 200);
+        }
+
+        assertEquals(5_000, estimator.offsetMicros());
+        assertEquals(ClockOffsetEstimator.SAMPLES, estimator.sampleCount());
+    }
+}
@@ -38,6 +38,62 @@ export interface SystemMetrics {
   shmDiskUsedBytes: number
   shmDiskAvailableBytes: number
   shmDiskTotalBytes: number
+  processes?: ProcessMetrics[]
+  network?: NetworkMetrics
+}
+
+export interface NetworkMetrics {
+  udp: {
+    inDatagramsPerSec: number
+    outDatagramsPerSec: number
+    inErrors: number
+    rcvbufErrors: number
+    sndbufErrors: number
+    inErrorsPerSec: number
+    rcvbufErrorsPerSec: number
+    sndbufErrorsPerSec: number
+  }
+  interfaces: {
+    name: string
+    rxBytesPerSec: number
+    txBytesPerSec: number
+    rxPacketsPerSec: number
+    txPacketsPerSec: number
+    rxDrops: number
+    txDrops: number
+    rxDropsPerSec: number
+    txDropsPerSec: number
+  }[]
+  sockets: {
+    localAddress: string
+    txQueueBytes: number
+    rxQueueBytes: number
+    drops: number
+    dropsPerSec: number
+  }[]
+}
+
+export interface ProcessMetrics {
+  pid: number
+  role: 'node' | 'driver'
+  rssBytes: number
+  cpuUsage: number
+  minorFaults: number
+  majorFaults: number
+  voluntaryContextSwitches: number
+  involuntaryContextSwitches: number
+  threads: ThreadMetrics[]
+}
+
+export interface ThreadMetrics {
+  tid: number
+  name: string
+  state: string
+  cpuUsage: number
+  voluntaryContextSwitches: number
+  involuntaryContextSwitches: number
+  minorFaults: number
+  majorFaults: number
 }
 
 export interface DiskGrowthStats {